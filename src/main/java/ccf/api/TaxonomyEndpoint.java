@@ -1,53 +1,1114 @@
 package ccf.api;
 
+import akka.Done;
+import akka.NotUsed;
 import akka.javasdk.annotations.Acl;
 import akka.javasdk.annotations.http.Delete;
 import akka.javasdk.annotations.http.Get;
 import akka.javasdk.annotations.http.HttpEndpoint;
+import akka.javasdk.annotations.http.Patch;
 import akka.javasdk.annotations.http.Post;
 import akka.javasdk.annotations.http.Put;
 import akka.javasdk.client.ComponentClient;
+import akka.http.javadsl.model.ContentType;
+import akka.http.javadsl.model.ContentTypes;
+import akka.http.javadsl.model.HttpCharsets;
+import akka.http.javadsl.model.HttpEntities;
+import akka.http.javadsl.model.HttpEntity;
+import akka.http.javadsl.model.HttpHeader;
 import akka.http.javadsl.model.HttpResponse;
+import akka.http.javadsl.model.MediaTypes;
+import akka.http.javadsl.model.StatusCodes;
+import akka.http.javadsl.model.headers.ETag;
+import akka.http.javadsl.model.headers.EntityTag;
+import akka.http.javadsl.model.headers.RawHeader;
+import akka.http.scaladsl.model.EntityStreamSizeException;
+import akka.japi.Pair;
+import akka.javasdk.JsonSupport;
+import akka.javasdk.http.AbstractHttpEndpoint;
 import akka.javasdk.http.HttpResponses;
+import ccf.application.CompiledCrosswalks;
+import ccf.application.CompiledTaxonomies;
+import ccf.application.ShardedTaxonomyEntity;
 import ccf.application.TaxonomyByFilterView;
+import ccf.application.TaxonomyCrosswalkEntity;
+import ccf.application.TaxonomyForkBases;
+import ccf.application.TaxonomyForkEntity;
+import ccf.application.TaxonomyGetStats;
+import ccf.application.TaxonomyBySourceColumnView;
 import ccf.application.TaxonomyEntity;
+import ccf.application.TaxonomyImportChunkEntity;
+import ccf.application.TaxonomyImportWorkflow;
+import ccf.application.TaxonomyShardEntity;
+import ccf.application.TaxonomySuggestions;
+import ccf.application.TaxonomyVersionEntity;
+import ccf.domain.standard.CompiledCrosswalk;
+import ccf.domain.standard.CompiledTaxonomy;
+import ccf.domain.standard.KeywordAutomaton;
+import ccf.domain.standard.RowIndex;
+import ccf.domain.standard.ShardedTaxonomy;
 import ccf.domain.standard.Taxonomy;
+import ccf.domain.standard.TaxonomyCrosswalk;
+import ccf.domain.standard.TaxonomyCsvImport;
+import ccf.domain.standard.TaxonomyDiff;
+import ccf.domain.standard.TaxonomyEvent;
+import ccf.domain.standard.TaxonomyFork;
+import ccf.domain.standard.TaxonomyImport;
+import ccf.domain.standard.TaxonomySourceColumns;
+import ccf.domain.standard.TaxonomyStatus;
+import ccf.domain.standard.TaxonomyVersion;
+import ccf.domain.standard.TaxonomyException;
 import ccf.domain.standard.Taxonomys;
+import ccf.domain.standard.TrigramIndex;
 import ccf.util.CCFLog;
+import akka.stream.Materializer;
+import akka.stream.javadsl.Framing;
+import akka.stream.javadsl.FramingTruncation;
+import akka.stream.javadsl.Source;
+import akka.util.ByteString;
+import com.fasterxml.jackson.core.JsonProcessingException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 @Acl(allow = @Acl.Matcher(principal = Acl.Principal.INTERNET))
 @HttpEndpoint("/taxonomy")
-public class TaxonomyEndpoint {
+public class TaxonomyEndpoint extends AbstractHttpEndpoint {
     private final ComponentClient componentClient;
+    private final Materializer materializer;
 
     private static final Logger logger = LoggerFactory.getLogger(TaxonomyEndpoint.class);
+    private static final int CHUNK_STORE_PARALLELISM = 8;
+    private static final int DEFAULT_SUGGEST_LIMIT = 10;
+    private static final int MAX_SUGGEST_LIMIT = 50;
+    private static final int CLASSIFY_BATCH_LINES = 1000;
+    private static final int DEFAULT_MATCH_LIMIT = 3;
+    private static final double DEFAULT_MATCH_MIN_SCORE = 0.3;
+    private static final int MAX_MATCH_LABELS = 10_000;
+    private static final int MATCH_SLICE_LABELS = 100;
+    // Label matching is CPU bound, it runs on a pool of its own instead of the threads serving requests
+    private static final ExecutorService MATCH_EXECUTOR = Executors.newFixedThreadPool(
+            Runtime.getRuntime().availableProcessors(),
+            Thread.ofPlatform().name("taxonomy-match-", 0).daemon().factory());
+    private static final int MAX_CLASSIFY_LINE_BYTES = 64 * 1024;
+    private static final ByteString NEWLINE = ByteString.fromString("\n");
+    private static final int DIFF_BATCH_ROWS = 500;
+    private static final int TRANSLATE_BLOCK_BYTES = 256 * 1024;
+    // Import and translate bodies may be larger than the server-wide max-content-length, their routes raise the
+    // limit with withSizeLimit
+    private static final long MAX_IMPORT_BYTES = 256L * 1024 * 1024;
+    private static final long MAX_TRANSLATE_BYTES = 256L * 1024 * 1024;
+    private static final long BODY_TIMEOUT_MILLIS = 60_000;
+    private static final int MAX_IMPORT_LINE_BYTES = 64 * 1024;
+    private static final HttpHeader IMMUTABLE = RawHeader.create("Cache-Control", "public, max-age=31536000, immutable");
+    private static final ContentType NDJSON = MediaTypes.applicationWithOpenCharset("x-ndjson")
+            .toContentType(HttpCharsets.UTF_8);
 
-    public TaxonomyEndpoint(ComponentClient componentClient) {
+    public TaxonomyEndpoint(ComponentClient componentClient, Materializer materializer) {
         this.componentClient = componentClient;
+        this.materializer = materializer;
     }
 
+    // Responses carry a strong ETag of the taxonomy's version and event sequence number. A matching If-None-Match
+    // is answered 304 from the entity's revision alone, without fetching or serializing the rows.
+    // A published taxonomy is served from the node-local compiled cache when its revision still matches, so its
+    // rows are only fetched and compiled once per publication.
     @Get("/{taxonomyId}")
     public CompletionStage<HttpResponse> get(String taxonomyId) {
         CCFLog.debug(logger, "Getting taxonomy",
                 Map.of("taxonomyId", taxonomyId));
+        var ifNoneMatch = requestContext().requestHeader("If-None-Match").map(HttpHeader::value);
+        return componentClient.forEventSourcedEntity(taxonomyId)
+                .method(TaxonomyEntity::getRevision)
+                .invokeAsync()
+                .thenCompose(revisionResult -> switch (revisionResult) {
+                    case TaxonomyEntity.TaxonomyResult.Revision revision -> {
+                        String etag = etag(revision);
+                        if (ifNoneMatch.isPresent() && etagMatches(ifNoneMatch.get(), etag)) {
+                            TaxonomyGetStats.notModified(taxonomyId, etag);
+                            yield CompletableFuture.completedFuture(HttpResponse.create()
+                                    .withStatus(StatusCodes.NOT_MODIFIED)
+                                    .addHeader(ETag.create(EntityTag.create(etag, false))));
+                        }
+                        yield taxonomyBody(taxonomyId, revision)
+                                .thenApply(body -> body == null
+                                        ? HttpResponses.internalServerError()
+                                        : jsonWithEtag(taxonomyId, etag, body));
+                    }
+                    case TaxonomyEntity.TaxonomyResult.GetFailed e -> CompletableFuture.completedFuture(
+                            HttpResponses.badRequest("Message: %s".formatted(e.message())));
+                    default -> CompletableFuture.completedFuture(HttpResponses.internalServerError());
+                });
+    }
+
+    // The compiled taxonomy when published, its details otherwise, null when it can no longer be read
+    private CompletionStage<Object> taxonomyBody(String taxonomyId, TaxonomyEntity.TaxonomyResult.Revision revision) {
+        boolean published = revision.status() == TaxonomyStatus.TAXONOMY_PUBLISHED;
+        if (published) {
+            var cached = CompiledTaxonomies.get(taxonomyId, revision.version(), revision.sequenceNumber());
+            TaxonomyGetStats.compiled(cached.isPresent());
+            if (cached.isPresent()) {
+                return CompletableFuture.completedFuture(cached.get());
+            }
+        }
         return componentClient.forEventSourcedEntity(taxonomyId)
                 .method(TaxonomyEntity::getTaxonomy)
                 .invokeAsync()
-                .thenApply(taxonomyResult -> {
-                    return switch (taxonomyResult) {
-                        case TaxonomyEntity.TaxonomyResult.GetSuccess success -> HttpResponses.ok(success.taxonomy());
-                        case TaxonomyEntity.TaxonomyResult.GetFailed e -> HttpResponses.badRequest(
+                .thenApply(taxonomyResult -> switch (taxonomyResult) {
+                    case TaxonomyEntity.TaxonomyResult.GetSuccess success ->
+                        published && success.taxonomy().status() == TaxonomyStatus.TAXONOMY_PUBLISHED
+                                ? CompiledTaxonomies.compiled(success.taxonomy(), revision.sequenceNumber())
+                                : success.taxonomy().details();
+                    default -> null;
+                });
+    }
+
+    private static HttpResponse jsonWithEtag(String taxonomyId, String etag, Object body) {
+        long start = System.nanoTime();
+        byte[] json;
+        try {
+            json = JsonSupport.getObjectMapper().writeValueAsBytes(body);
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
+        TaxonomyGetStats.fullResponse(taxonomyId, etag, json.length, System.nanoTime() - start);
+        return HttpResponse.create()
+                .withEntity(ContentTypes.APPLICATION_JSON, json)
+                .addHeader(ETag.create(EntityTag.create(etag, false)));
+    }
+
+    // Opaque tag value, without the surrounding quotes
+    private static String etag(TaxonomyEntity.TaxonomyResult.Revision revision) {
+        return revision.version() + "-" + revision.sequenceNumber();
+    }
+
+    // If-None-Match is "*" or a list of quoted tags, compared weakly as RFC 9110 requires for it
+    private static boolean etagMatches(String ifNoneMatch, String etag) {
+        for (String candidate : ifNoneMatch.split(",")) {
+            String tag = candidate.trim();
+            if (tag.equals("*")) {
+                return true;
+            }
+            if (tag.startsWith("W/")) {
+                tag = tag.substring(2);
+            }
+            if (tag.equals("\"" + etag + "\"")) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // A published version, addressed as major.minor. Versions are immutable, so they are served from the node-local
+    // compiled cache and on a miss read from their TaxonomyVersionEntity, never from the live TaxonomyEntity.
+    @Get("/{taxonomyId}/versions/{version}")
+    public CompletionStage<HttpResponse> getVersion(String taxonomyId, String version) {
+        CCFLog.debug(logger, "Getting taxonomy version",
+                Map.of("taxonomyId", taxonomyId, "version", version));
+        TaxonomyVersion taxonomyVersion;
+        try {
+            taxonomyVersion = new TaxonomyVersion(version);
+        } catch (IllegalArgumentException e) {
+            return CompletableFuture.completedFuture(HttpResponses.badRequest(
+                    "Message: version must be major.minor, was %s".formatted(version)));
+        }
+        String versionId = TaxonomyVersionEntity.versionId(taxonomyId, taxonomyVersion);
+        String etag = taxonomyVersion.toString();
+        var ifNoneMatch = requestContext().requestHeader("If-None-Match").map(HttpHeader::value);
+        if (ifNoneMatch.isPresent() && etagMatches(ifNoneMatch.get(), etag)) {
+            TaxonomyGetStats.notModified(versionId, etag);
+            return CompletableFuture.completedFuture(HttpResponse.create()
+                    .withStatus(StatusCodes.NOT_MODIFIED)
+                    .addHeader(ETag.create(EntityTag.create(etag, false)))
+                    .addHeader(IMMUTABLE));
+        }
+        return archivedVersion(taxonomyId, taxonomyVersion)
+                .thenApply(compiled -> compiled.isEmpty()
+                        ? HttpResponses.notFound("Message: taxonomy %s has no published version %s".formatted(taxonomyId, version))
+                        : jsonWithEtag(versionId, etag, compiled.get()).addHeader(IMMUTABLE));
+    }
+
+    // A published version from the compiled cache, or from its TaxonomyVersionEntity on a miss. Empty if the
+    // version was never published, a failed read fails the stage so the caller answers 5xx rather than 404.
+    private CompletionStage<Optional<CompiledTaxonomy>> archivedVersion(String taxonomyId, TaxonomyVersion version) {
+        var cached = CompiledTaxonomies.getArchived(taxonomyId, version);
+        TaxonomyGetStats.version(cached.isPresent());
+        if (cached.isPresent()) {
+            return CompletableFuture.completedFuture(cached);
+        }
+        return componentClient.forKeyValueEntity(TaxonomyVersionEntity.versionId(taxonomyId, version))
+                .method(TaxonomyVersionEntity::getVersion)
+                .invokeAsync()
+                .thenApply(result -> switch (result) {
+                    case TaxonomyVersionEntity.VersionResult.Found found ->
+                            Optional.of(CompiledTaxonomies.archived(found.taxonomy()));
+                    case TaxonomyVersionEntity.VersionResult.NotFound notFound -> Optional.<CompiledTaxonomy>empty();
+                });
+    }
+
+    // Creates a fork of a published version. Only the reference to the version is stored, so this is O(1)
+    // whatever the size of the base.
+    @Post("/forks/{forkId}")
+    public CompletionStage<HttpResponse> createFork(String forkId, TaxonomyFork.ForkCreate forkCreate) {
+        CCFLog.debug(logger, "Creating taxonomy fork",
+                Map.of("forkId", forkId, "forkCreate", forkCreate.toString()));
+        if (forkCreate.baseTaxonomyId() == null || forkCreate.baseVersion() == null) {
+            return CompletableFuture.completedFuture(HttpResponses.badRequest("Message: baseTaxonomyId and baseVersion are required"));
+        }
+        return archivedVersion(forkCreate.baseTaxonomyId(), forkCreate.baseVersion())
+                .thenCompose(base -> base.isEmpty()
+                        ? CompletableFuture.completedFuture(HttpResponses.notFound("Message: taxonomy %s has no published version %s"
+                                .formatted(forkCreate.baseTaxonomyId(), forkCreate.baseVersion())))
+                        : componentClient.forEventSourcedEntity(forkId)
+                                .method(TaxonomyForkEntity::createFork)
+                                .invokeAsync(forkCreate)
+                                .thenApply(createResult -> switch (createResult) {
+                                    case TaxonomyForkEntity.ForkResult.Success success -> HttpResponses.created();
+                                    case TaxonomyForkEntity.ForkResult.ForkFailed e -> HttpResponses.badRequest(
+                                            "Message: %s".formatted(e.message()));
+                                    default -> HttpResponses.internalServerError();
+                                }));
+    }
+
+    // The fork merged onto its base, in the TaxonomyDetails shape
+    @Get("/forks/{forkId}")
+    public CompletionStage<HttpResponse> getFork(String forkId) {
+        CCFLog.debug(logger, "Getting taxonomy fork", Map.of("forkId", forkId));
+        return mergedFork(forkId).thenApply(merged -> switch (merged) {
+            case MergedFork fork -> HttpResponses.ok(fork.taxonomy().details());
+            case TaxonomyForkEntity.ForkResult.ForkFailed e -> HttpResponses.badRequest("Message: %s".formatted(e.message()));
+            default -> HttpResponses.internalServerError();
+        });
+    }
+
+    // Patches a fork with the same ops as PATCH /{taxonomyId}/taxrows. The ops are validated against the merged
+    // fork here and only the rows they touch are stored in the fork.
+    @Patch("/forks/{forkId}/taxrows")
+    public CompletionStage<HttpResponse> patchFork(String forkId, Taxonomy.TaxonomyPatch patch) {
+        CCFLog.debug(logger, "Patching taxonomy fork",
+                Map.of("forkId", forkId, "ops", String.valueOf(patch.ops() == null ? 0 : patch.ops().size())));
+        if (patch.ops() == null || patch.ops().isEmpty()) {
+            return CompletableFuture.completedFuture(HttpResponses.badRequest("Message: Patch has no ops"));
+        }
+        return mergedFork(forkId).thenCompose(merged -> {
+            if (!(merged instanceof MergedFork fork)) {
+                return CompletableFuture.completedFuture(merged instanceof TaxonomyForkEntity.ForkResult.ForkFailed e
+                        ? HttpResponses.badRequest("Message: %s".formatted(e.message()))
+                        : HttpResponses.internalServerError());
+            }
+            TaxonomyFork.ForkChanges changes;
+            try {
+                Taxonomy patched = fork.taxonomy().onTaxonomyPatched(new TaxonomyEvent.TaxonomyPatched(patch));
+                changes = TaxonomyFork.changes(fork.sequenceNumber(), patched.rows(), patch);
+            } catch (TaxonomyException e) {
+                return CompletableFuture.completedFuture(HttpResponses.badRequest("Message: %s".formatted(e.getMessage())));
+            }
+            return componentClient.forEventSourcedEntity(forkId)
+                    .method(TaxonomyForkEntity::applyChanges)
+                    .invokeAsync(changes)
+                    .thenApply(changeResult -> switch (changeResult) {
+                        case TaxonomyForkEntity.ForkResult.Success success -> HttpResponses.ok();
+                        case TaxonomyForkEntity.ForkResult.ForkConflict e -> HttpResponse.create()
+                                .withStatus(StatusCodes.CONFLICT)
+                                .withEntity("Message: %s".formatted(e.message()));
+                        case TaxonomyForkEntity.ForkResult.ForkFailed e -> HttpResponses.badRequest(
                                 "Message: %s".formatted(e.message()));
                         default -> HttpResponses.internalServerError();
-                    };
+                    });
+        });
+    }
+
+    private record MergedFork(Taxonomy taxonomy, long sequenceNumber) {
+    }
+
+    // The fork merged onto its base as a MergedFork, or the entity's ForkFailed reply
+    private CompletionStage<Object> mergedFork(String forkId) {
+        return componentClient.forEventSourcedEntity(forkId)
+                .method(TaxonomyForkEntity::getFork)
+                .invokeAsync()
+                .thenCompose(forkResult -> {
+                    if (!(forkResult instanceof TaxonomyForkEntity.ForkResult.ForkState state)) {
+                        return CompletableFuture.completedFuture(forkResult);
+                    }
+                    var fork = state.fork();
+                    return forkBase(fork.baseTaxonomyId(), fork.baseVersion()).thenApply(base -> base.isEmpty()
+                            ? new TaxonomyForkEntity.ForkResult.ForkFailed("Base version %s of taxonomy %s not found"
+                                    .formatted(fork.baseVersion(), fork.baseTaxonomyId()))
+                            : new MergedFork(fork.merge(base.get()), state.sequenceNumber()));
+                });
+    }
+
+    // The shared RowIndex of a published version, built once per node from the archived version
+    private CompletionStage<Optional<RowIndex>> forkBase(String taxonomyId, TaxonomyVersion version) {
+        var cached = TaxonomyForkBases.get(taxonomyId, version);
+        if (cached.isPresent()) {
+            return CompletableFuture.completedFuture(cached);
+        }
+        return archivedVersion(taxonomyId, version).thenApply(compiled -> compiled.map(c -> {
+            RowIndex rows = RowIndex.of(c.rows());
+            TaxonomyForkBases.put(taxonomyId, version, rows);
+            return rows;
+        }));
+    }
+
+    // Rows added, removed, moved, relabeled or updated between two published versions, as newline-delimited JSON.
+    // Added and changed rows come first in the tree order of to, then removed rows in the tree order of from.
+    // Query params: from and to, both major.minor and required
+    @Get("/{taxonomyId}/diff")
+    public CompletionStage<HttpResponse> diff(String taxonomyId) {
+        var queryParams = requestContext().queryParams();
+        var from = queryParams.getString("from");
+        var to = queryParams.getString("to");
+        if (from.isEmpty() || to.isEmpty()) {
+            return CompletableFuture.completedFuture(HttpResponses.badRequest("Message: from and to are required"));
+        }
+        CCFLog.debug(logger, "Diffing taxonomy versions",
+                Map.of("taxonomyId", taxonomyId, "from", from.get(), "to", to.get()));
+        TaxonomyVersion fromVersion;
+        TaxonomyVersion toVersion;
+        try {
+            fromVersion = new TaxonomyVersion(from.get());
+            toVersion = new TaxonomyVersion(to.get());
+        } catch (IllegalArgumentException e) {
+            return CompletableFuture.completedFuture(HttpResponses.badRequest(
+                    "Message: from and to must be major.minor, were %s and %s".formatted(from.get(), to.get())));
+        }
+        return archivedVersion(taxonomyId, fromVersion).thenCombine(archivedVersion(taxonomyId, toVersion),
+                (fromCompiled, toCompiled) -> {
+                    if (fromCompiled.isEmpty() || toCompiled.isEmpty()) {
+                        return HttpResponses.notFound("Message: taxonomy %s has no published version %s".formatted(
+                                taxonomyId, fromCompiled.isEmpty() ? from.get() : to.get()));
+                    }
+                    Source<ByteString, ?> diffs = Source
+                            .fromIterator(() -> TaxonomyDiff.diff(fromCompiled.get(), toCompiled.get()))
+                            .grouped(DIFF_BATCH_ROWS)
+                            .map(TaxonomyEndpoint::ndjson);
+                    return HttpResponse.create().withEntity(HttpEntities.createChunked(NDJSON, diffs));
+                });
+    }
+
+    // Puts rowId mappings from sourceVersion of sourceTaxonomyId to targetVersion of targetTaxonomyId, both
+    // published. Every rowId is checked against its version here, so the crosswalk always compiles.
+    @Put("/crosswalks/{sourceTaxonomyId}/{sourceVersion}/{targetTaxonomyId}/{targetVersion}")
+    public CompletionStage<HttpResponse> putCrosswalk(String sourceTaxonomyId, String sourceVersion,
+            String targetTaxonomyId, String targetVersion, TaxonomyCrosswalk.MappingsPut mappingsPut) {
+        CCFLog.debug(logger, "Putting taxonomy crosswalk", Map.of("source", sourceTaxonomyId + "@" + sourceVersion,
+                "target", targetTaxonomyId + "@" + targetVersion,
+                "mappings", String.valueOf(mappingsPut.mappings() == null ? 0 : mappingsPut.mappings().size())));
+        var versions = crosswalkVersions(sourceVersion, targetVersion);
+        if (versions == null) {
+            return CompletableFuture.completedFuture(HttpResponses.badRequest(
+                    "Message: versions must be major.minor, were %s and %s".formatted(sourceVersion, targetVersion)));
+        }
+        var put = new TaxonomyCrosswalk.CrosswalkPut(sourceTaxonomyId, versions.first(), targetTaxonomyId,
+                versions.second(), mappingsPut);
+        String crosswalkId = TaxonomyCrosswalk.crosswalkId(sourceTaxonomyId, versions.first(), targetTaxonomyId,
+                versions.second());
+        return archivedVersion(sourceTaxonomyId, versions.first())
+                .thenCombine(archivedVersion(targetTaxonomyId, versions.second()), Pair::create)
+                .thenCompose(compiled -> {
+                    if (compiled.first().isEmpty() || compiled.second().isEmpty()) {
+                        return CompletableFuture.completedFuture(HttpResponses.notFound(
+                                "Message: taxonomy %s has no published version %s".formatted(
+                                        compiled.first().isEmpty() ? sourceTaxonomyId : targetTaxonomyId,
+                                        compiled.first().isEmpty() ? sourceVersion : targetVersion)));
+                    }
+                    try {
+                        TaxonomyCrosswalk.validate(crosswalkId, mappingsPut, compiled.first().get(), compiled.second().get());
+                    } catch (TaxonomyException e) {
+                        return CompletableFuture.completedFuture(HttpResponses.badRequest("Message: %s".formatted(e.getMessage())));
+                    }
+                    return componentClient.forKeyValueEntity(crosswalkId)
+                            .method(TaxonomyCrosswalkEntity::putMappings)
+                            .invokeAsync(put)
+                            .thenApply(putResult -> switch (putResult) {
+                                case TaxonomyCrosswalkEntity.CrosswalkResult.Success success -> HttpResponses.ok(success);
+                                case TaxonomyCrosswalkEntity.CrosswalkResult.CrosswalkFailed e -> HttpResponses.badRequest(
+                                        "Message: %s".formatted(e.message()));
+                                default -> HttpResponses.internalServerError();
+                            });
+                });
+    }
+
+    @Get("/crosswalks/{sourceTaxonomyId}/{sourceVersion}/{targetTaxonomyId}/{targetVersion}")
+    public CompletionStage<HttpResponse> getCrosswalk(String sourceTaxonomyId, String sourceVersion,
+            String targetTaxonomyId, String targetVersion) {
+        var versions = crosswalkVersions(sourceVersion, targetVersion);
+        if (versions == null) {
+            return CompletableFuture.completedFuture(HttpResponses.badRequest(
+                    "Message: versions must be major.minor, were %s and %s".formatted(sourceVersion, targetVersion)));
+        }
+        String crosswalkId = TaxonomyCrosswalk.crosswalkId(sourceTaxonomyId, versions.first(), targetTaxonomyId,
+                versions.second());
+        CCFLog.debug(logger, "Getting taxonomy crosswalk", Map.of("crosswalkId", crosswalkId));
+        return componentClient.forKeyValueEntity(crosswalkId)
+                .method(TaxonomyCrosswalkEntity::getCrosswalk)
+                .invokeAsync()
+                .thenApply(getResult -> switch (getResult) {
+                    case TaxonomyCrosswalkEntity.CrosswalkResult.CrosswalkState state -> HttpResponses.ok(state.crosswalk());
+                    case TaxonomyCrosswalkEntity.CrosswalkResult.CrosswalkFailed e -> HttpResponses.notFound(
+                            "Message: %s".formatted(e.message()));
+                    default -> HttpResponses.internalServerError();
+                });
+    }
+
+    // Re-keys a text/csv body of "rowId,value" or "key,rowId,value" lines from source rows to target rows, see
+    // CompiledCrosswalk.translate. Lines with the same key should be sent together, their values are summed per
+    // target row. The body may be up to MAX_TRANSLATE_BYTES, above the server-wide max-content-length. It is read
+    // in blocks of whole lines and never copied into one string: a first pass validates and counts it, so a bad
+    // line is a 400 rather than a cut off 200, then the translated lines are streamed as chunked text/csv, each run
+    // as soon as the next one starts. The counts are in X-Values, X-Unmapped-Values and X-Keys.
+    // Query params: strict (default false) fails on the first value with no mapping
+    @Post("/crosswalks/{sourceTaxonomyId}/{sourceVersion}/{targetTaxonomyId}/{targetVersion}/translate")
+    public CompletionStage<HttpResponse> translate(String sourceTaxonomyId, String sourceVersion,
+            String targetTaxonomyId, String targetVersion, HttpEntity.Strict body) {
+        boolean strict = requestContext().queryParams().getBoolean("strict").orElse(false);
+        var versions = crosswalkVersions(sourceVersion, targetVersion);
+        if (versions == null) {
+            return CompletableFuture.completedFuture(HttpResponses.badRequest(
+                    "Message: versions must be major.minor, were %s and %s".formatted(sourceVersion, targetVersion)));
+        }
+        String crosswalkId = TaxonomyCrosswalk.crosswalkId(sourceTaxonomyId, versions.first(), targetTaxonomyId,
+                versions.second());
+        return body.withSizeLimit(MAX_TRANSLATE_BYTES)
+                .toStrict(BODY_TIMEOUT_MILLIS, materializer)
+                .handle((entity, error) -> error == null
+                        ? translateBody(crosswalkId, strict, entity.getData())
+                        : CompletableFuture.completedFuture(bodyFailed(error, MAX_TRANSLATE_BYTES)))
+                .thenCompose(response -> response);
+    }
+
+    private CompletionStage<HttpResponse> translateBody(String crosswalkId, boolean strict, ByteString data) {
+        CCFLog.debug(logger, "Translating with taxonomy crosswalk",
+                Map.of("crosswalkId", crosswalkId, "bytes", String.valueOf(data.size())));
+        return compiledCrosswalk(crosswalkId).thenApply(compiled -> {
+            if (!(compiled instanceof CompiledCrosswalk crosswalk)) {
+                return compiled instanceof TaxonomyCrosswalkEntity.CrosswalkResult.CrosswalkFailed e
+                        ? HttpResponses.notFound("Message: %s".formatted(e.message()))
+                        : HttpResponses.internalServerError();
+            }
+            long start = System.nanoTime();
+            List<Integer> blockEnds = lineBlocks(data);
+            CompiledCrosswalk.Translation counted;
+            try {
+                var check = crosswalk.translator(strict, false);
+                int from = 0;
+                for (int end : blockEnds) {
+                    check.accept(data.slice(from, end).utf8String(), null);
+                    from = end;
+                }
+                counted = check.finish(null);
+            } catch (TaxonomyException e) {
+                return HttpResponses.badRequest("Message: %s".formatted(e.getMessage()));
+            }
+            CCFLog.info(logger, "Translating with taxonomy crosswalk", Map.of("crosswalkId", crosswalkId,
+                    "values", String.valueOf(counted.values()),
+                    "unmappedValues", String.valueOf(counted.unmappedValues()),
+                    "keys", String.valueOf(counted.keys()),
+                    "validatedMillis", String.valueOf((System.nanoTime() - start) / 1_000_000)));
+            Source<ByteString, NotUsed> csv = Source.fromIterator(
+                    () -> translatedBlocks(crosswalkId, crosswalk, strict, data, blockEnds));
+            return HttpResponse.create()
+                    .withEntity(HttpEntities.createChunked(ContentTypes.TEXT_CSV_UTF8, csv))
+                    .addHeader(RawHeader.create("X-Values", String.valueOf(counted.values())))
+                    .addHeader(RawHeader.create("X-Unmapped-Values", String.valueOf(counted.unmappedValues())))
+                    .addHeader(RawHeader.create("X-Keys", String.valueOf(counted.keys())));
+        });
+    }
+
+    // Ends of blocks of about TRANSLATE_BLOCK_BYTES that end after a newline, a line longer than a block is one
+    // block. Cutting at a newline byte never splits a UTF-8 character.
+    private static List<Integer> lineBlocks(ByteString data) {
+        List<Integer> ends = new ArrayList<>();
+        int size = data.size();
+        int from = 0;
+        while (from < size) {
+            int end = Math.min(from + TRANSLATE_BLOCK_BYTES, size);
+            if (end < size) {
+                int cut = end;
+                while (cut > from && data.apply(cut - 1) != '\n') {
+                    cut--;
+                }
+                if (cut == from) {
+                    while (end < size && data.apply(end - 1) != '\n') {
+                        end++;
+                    }
+                } else {
+                    end = cut;
+                }
+            }
+            ends.add(end);
+            from = end;
+        }
+        return ends;
+    }
+
+    // One chunk of translated lines per block of the body and a last one for the final run. The body was
+    // validated by the first pass, so the translation does not fail part way through the response.
+    private static Iterator<ByteString> translatedBlocks(String crosswalkId, CompiledCrosswalk crosswalk,
+            boolean strict, ByteString data, List<Integer> blockEnds) {
+        var translator = crosswalk.translator(strict, true);
+        return new Iterator<>() {
+            private int block = 0;
+
+            @Override
+            public boolean hasNext() {
+                return block <= blockEnds.size();
+            }
+
+            @Override
+            public ByteString next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                StringBuilder out = new StringBuilder();
+                if (block < blockEnds.size()) {
+                    int from = block == 0 ? 0 : blockEnds.get(block - 1);
+                    translator.accept(data.slice(from, blockEnds.get(block)).utf8String(), out);
+                } else {
+                    var translation = translator.finish(out);
+                    CCFLog.info(logger, "Translated with taxonomy crosswalk", Map.of("crosswalkId", crosswalkId,
+                            "values", String.valueOf(translation.values()),
+                            "outputValues", String.valueOf(translation.outputValues())));
+                }
+                block++;
+                return ByteString.fromString(out.toString());
+            }
+        };
+    }
+
+    private static Pair<TaxonomyVersion, TaxonomyVersion> crosswalkVersions(String sourceVersion, String targetVersion) {
+        try {
+            return Pair.create(new TaxonomyVersion(sourceVersion), new TaxonomyVersion(targetVersion));
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    // The compiled crosswalk from the node-local cache when its revision is current, otherwise compiled from the
+    // mappings and both archived versions. The entity's CrosswalkFailed reply when there is no crosswalk.
+    private CompletionStage<Object> compiledCrosswalk(String crosswalkId) {
+        return componentClient.forKeyValueEntity(crosswalkId)
+                .method(TaxonomyCrosswalkEntity::getRevision)
+                .invokeAsync()
+                .thenCompose(revisionResult -> {
+                    if (!(revisionResult instanceof TaxonomyCrosswalkEntity.CrosswalkResult.Revision revision)) {
+                        return CompletableFuture.completedFuture(revisionResult);
+                    }
+                    var cached = CompiledCrosswalks.get(crosswalkId, revision.revision());
+                    if (cached.isPresent()) {
+                        return CompletableFuture.completedFuture(cached.get());
+                    }
+                    return componentClient.forKeyValueEntity(crosswalkId)
+                            .method(TaxonomyCrosswalkEntity::getCrosswalk)
+                            .invokeAsync()
+                            .thenCompose(stateResult -> {
+                                if (!(stateResult instanceof TaxonomyCrosswalkEntity.CrosswalkResult.CrosswalkState state)) {
+                                    return CompletableFuture.completedFuture(stateResult);
+                                }
+                                var crosswalk = state.crosswalk();
+                                return archivedVersion(crosswalk.sourceTaxonomyId(), crosswalk.sourceVersion())
+                                        .thenCombine(archivedVersion(crosswalk.targetTaxonomyId(), crosswalk.targetVersion()),
+                                                (source, target) -> {
+                                                    if (source.isEmpty() || target.isEmpty()) {
+                                                        return new TaxonomyCrosswalkEntity.CrosswalkResult.CrosswalkFailed(
+                                                                "Versions of taxonomy crosswalk %s not found".formatted(crosswalkId));
+                                                    }
+                                                    long start = System.nanoTime();
+                                                    CompiledCrosswalk compiled = CompiledCrosswalk.compile(crosswalk,
+                                                            source.get(), target.get());
+                                                    CompiledCrosswalks.put(compiled);
+                                                    CCFLog.info(logger, "Compiled taxonomy crosswalk", Map.of(
+                                                            "crosswalkId", crosswalkId,
+                                                            "mappings", String.valueOf(compiled.mappings()),
+                                                            "elapsedMillis", String.valueOf((System.nanoTime() - start) / 1_000_000)));
+                                                    return compiled;
+                                                });
+                            });
+                });
+    }
+
+    // Sharded taxonomies keep each top-level subtree in its own TaxonomyShardEntity, see ShardedTaxonomy. They are
+    // edited shard by shard, so writes to different subtrees run in parallel, and read by fanning out to the shards.
+    @Post("/sharded/{taxonomyId}")
+    public CompletionStage<HttpResponse> createShardedTaxonomy(String taxonomyId, Taxonomy.TaxonomyCreate taxonomy) {
+        CCFLog.debug(logger, "Creating sharded taxonomy",
+                Map.of("taxonomyId", taxonomyId, "taxonomy", taxonomy.toString()));
+        return componentClient.forEventSourcedEntity(taxonomyId)
+                .method(ShardedTaxonomyEntity::createTaxonomy)
+                .invokeAsync(taxonomy)
+                .thenApply(createResult -> switch (createResult) {
+                    case ShardedTaxonomyEntity.ShardedResult.Success success -> HttpResponses.created();
+                    case ShardedTaxonomyEntity.ShardedResult.ShardedFailed e -> HttpResponses.badRequest(
+                            "Message: %s".formatted(e.message()));
+                    default -> HttpResponses.internalServerError();
+                });
+    }
+
+    // The whole taxonomy in the TaxonomyDetails shape, the shards are read in parallel and merged in root order
+    @Get("/sharded/{taxonomyId}")
+    public CompletionStage<HttpResponse> getShardedTaxonomy(String taxonomyId) {
+        CCFLog.debug(logger, "Getting sharded taxonomy", Map.of("taxonomyId", taxonomyId));
+        return componentClient.forEventSourcedEntity(taxonomyId)
+                .method(ShardedTaxonomyEntity::getSkeleton)
+                .invokeAsync()
+                .thenCompose(skeletonResult -> {
+                    if (!(skeletonResult instanceof ShardedTaxonomyEntity.ShardedResult.Skeleton skeleton)) {
+                        return CompletableFuture.completedFuture(
+                                skeletonResult instanceof ShardedTaxonomyEntity.ShardedResult.ShardedFailed e
+                                        ? HttpResponses.notFound("Message: %s".formatted(e.message()))
+                                        : HttpResponses.internalServerError());
+                    }
+                    var sharded = skeleton.taxonomy();
+                    List<CompletableFuture<TaxonomyEntity.TaxonomyResult>> shards = sharded.rootRowIds().stream()
+                            .map(rootRowId -> componentClient
+                                    .forEventSourcedEntity(ShardedTaxonomy.shardId(taxonomyId, rootRowId))
+                                    .method(TaxonomyShardEntity::getShard)
+                                    .invokeAsync()
+                                    .toCompletableFuture())
+                            .toList();
+                    return CompletableFuture.allOf(shards.toArray(CompletableFuture[]::new)).thenApply(done -> {
+                        List<List<Taxonomy.Row>> shardRows = new ArrayList<>(shards.size());
+                        for (var shard : shards) {
+                            if (!(shard.join() instanceof TaxonomyEntity.TaxonomyResult.RowsSuccess rows)) {
+                                return HttpResponses.internalServerError();
+                            }
+                            shardRows.add(rows.rows());
+                        }
+                        try {
+                            return HttpResponses.ok(sharded.merge(shardRows).details());
+                        } catch (TaxonomyException e) {
+                            CCFLog.error(logger, "Merging taxonomy shards failed",
+                                    Map.of("taxonomyId", taxonomyId, "error", e.getMessage()));
+                            return HttpResponses.internalServerError();
+                        }
+                    });
+                });
+    }
+
+    // Adds a top-level row and creates its shard. The row needs no parent, its rowId is generated when missing and
+    // cannot contain ShardedTaxonomy.ROW_ID_SEPARATOR, the rows below it are "<rootRowId>/<id>".
+    @Post("/sharded/{taxonomyId}/roots")
+    public CompletionStage<HttpResponse> addShardRoot(String taxonomyId, Taxonomy.TaxRow taxRow) {
+        var root = taxRow.rowId() != null ? taxRow : new Taxonomy.TaxRow(taxRow.value(), taxRow.description(),
+                taxRow.aliases(), taxRow.keywords(), taxRow.dimensionSrcHints(), taxRow.parent());
+        CCFLog.debug(logger, "Adding sharded taxonomy root",
+                Map.of("taxonomyId", taxonomyId, "root", root.toString()));
+        if (root.parent() != null) {
+            return CompletableFuture.completedFuture(HttpResponses.badRequest(
+                    "Message: a top-level row cannot have a parent, add it to the shard of its subtree"));
+        }
+        if (!ShardedTaxonomy.isRootRowId(root.rowId())) {
+            return CompletableFuture.completedFuture(HttpResponses.badRequest("Message: a top-level rowId cannot contain '%s'"
+                    .formatted(ShardedTaxonomy.ROW_ID_SEPARATOR)));
+        }
+        return componentClient.forEventSourcedEntity(taxonomyId)
+                .method(ShardedTaxonomyEntity::getSkeleton)
+                .invokeAsync()
+                .thenCompose(skeletonResult -> {
+                    if (skeletonResult instanceof ShardedTaxonomyEntity.ShardedResult.ShardedFailed e) {
+                        return CompletableFuture.completedFuture(HttpResponses.notFound("Message: %s".formatted(e.message())));
+                    }
+                    // Only a root can hold a rowId without separator, so a new root cannot collide with any shard row
+                    if (skeletonResult instanceof ShardedTaxonomyEntity.ShardedResult.Skeleton skeleton
+                            && skeleton.taxonomy().rootRowIds().contains(root.rowId())) {
+                        return CompletableFuture.completedFuture(HttpResponses.badRequest(
+                                "Message: row '%s' already exists in sharded taxonomy %s".formatted(root.rowId(), taxonomyId)));
+                    }
+                    // The shard exists before the skeleton lists it, a retry after a failure in between is a no-op
+                    return componentClient.forEventSourcedEntity(ShardedTaxonomy.shardId(taxonomyId, root.rowId()))
+                            .method(TaxonomyShardEntity::initShard)
+                            .invokeAsync(root)
+                            .thenCompose(initResult -> {
+                                if (!(initResult instanceof TaxonomyEntity.TaxonomyResult.Success)) {
+                                    return CompletableFuture.completedFuture(
+                                            initResult instanceof TaxonomyEntity.TaxonomyResult.CreateFailed e
+                                                    ? HttpResponses.badRequest("Message: %s".formatted(e.message()))
+                                                    : HttpResponses.internalServerError());
+                                }
+                                return componentClient.forEventSourcedEntity(taxonomyId)
+                                        .method(ShardedTaxonomyEntity::addRoot)
+                                        .invokeAsync(root.rowId())
+                                        .thenApply(addResult -> switch (addResult) {
+                                            case ShardedTaxonomyEntity.ShardedResult.Success success ->
+                                                HttpResponses.created(new ShardRoot(root.rowId()));
+                                            case ShardedTaxonomyEntity.ShardedResult.ShardedFailed e ->
+                                                HttpResponses.badRequest("Message: %s".formatted(e.message()));
+                                            default -> HttpResponses.internalServerError();
+                                        });
+                            });
+                });
+    }
+
+    private record ShardRoot(String rowId) {
+    }
+
+    // Removes a top-level row with its whole subtree
+    @Delete("/sharded/{taxonomyId}/roots/{rootRowId}")
+    public CompletionStage<HttpResponse> removeShardRoot(String taxonomyId, String rootRowId) {
+        CCFLog.debug(logger, "Removing sharded taxonomy root",
+                Map.of("taxonomyId", taxonomyId, "rootRowId", rootRowId));
+        return componentClient.forEventSourcedEntity(taxonomyId)
+                .method(ShardedTaxonomyEntity::removeRoot)
+                .invokeAsync(rootRowId)
+                .thenCompose(removeResult -> {
+                    if (!(removeResult instanceof ShardedTaxonomyEntity.ShardedResult.Success)) {
+                        return CompletableFuture.completedFuture(
+                                removeResult instanceof ShardedTaxonomyEntity.ShardedResult.ShardedFailed e
+                                        ? HttpResponses.badRequest("Message: %s".formatted(e.message()))
+                                        : HttpResponses.internalServerError());
+                    }
+                    return componentClient.forEventSourcedEntity(ShardedTaxonomy.shardId(taxonomyId, rootRowId))
+                            .method(TaxonomyShardEntity::removeShard)
+                            .invokeAsync()
+                            .thenApply(shardResult -> shardResult instanceof TaxonomyEntity.TaxonomyResult.Success
+                                    ? HttpResponses.ok()
+                                    : HttpResponses.internalServerError());
+                });
+    }
+
+    // One top-level subtree, its root first
+    @Get("/sharded/{taxonomyId}/shards/{rootRowId}")
+    public CompletionStage<HttpResponse> getShard(String taxonomyId, String rootRowId) {
+        CCFLog.debug(logger, "Getting taxonomy shard",
+                Map.of("taxonomyId", taxonomyId, "rootRowId", rootRowId));
+        return unregisteredShard(taxonomyId, rootRowId).thenCompose(unregistered -> unregistered.isPresent()
+                ? CompletableFuture.completedFuture(unregistered.get())
+                : componentClient.forEventSourcedEntity(ShardedTaxonomy.shardId(taxonomyId, rootRowId))
+                        .method(TaxonomyShardEntity::getShard)
+                        .invokeAsync()
+                        .thenApply(shardResult -> switch (shardResult) {
+                            case TaxonomyEntity.TaxonomyResult.RowsSuccess success -> HttpResponses.ok(success.rows());
+                            case TaxonomyEntity.TaxonomyResult.GetFailed e -> HttpResponses.notFound(
+                                    "Message: %s".formatted(e.message()));
+                            default -> HttpResponses.internalServerError();
+                        }));
+    }
+
+    // Patches the rows below one top-level row with the same ops as PATCH /{taxonomyId}/taxrows. Patches of
+    // different shards are independent, a row cannot be moved to another top-level subtree and added rowIds must
+    // start with "<rootRowId>/".
+    @Patch("/sharded/{taxonomyId}/shards/{rootRowId}/taxrows")
+    public CompletionStage<HttpResponse> patchShard(String taxonomyId, String rootRowId, Taxonomy.TaxonomyPatch patch) {
+        CCFLog.debug(logger, "Patching taxonomy shard", Map.of("taxonomyId", taxonomyId, "rootRowId", rootRowId,
+                "ops", String.valueOf(patch.ops() == null ? 0 : patch.ops().size())));
+        return unregisteredShard(taxonomyId, rootRowId).thenCompose(unregistered -> unregistered.isPresent()
+                ? CompletableFuture.completedFuture(unregistered.get())
+                : componentClient.forEventSourcedEntity(ShardedTaxonomy.shardId(taxonomyId, rootRowId))
+                        .method(TaxonomyShardEntity::patchShard)
+                        .invokeAsync(patch)
+                        .thenApply(patchResult -> switch (patchResult) {
+                            case TaxonomyEntity.TaxonomyResult.Patched patched -> HttpResponses.ok(patched);
+                            case TaxonomyEntity.TaxonomyResult.IncorrectPatch e -> HttpResponses.badRequest(
+                                    "Message: %s".formatted(e.message()));
+                            default -> HttpResponses.internalServerError();
+                        }));
+    }
+
+    // A not found response unless rootRowId is a root of the skeleton. A shard whose root was removed from the
+    // skeleton but not yet removed itself is neither readable nor writable.
+    private CompletionStage<Optional<HttpResponse>> unregisteredShard(String taxonomyId, String rootRowId) {
+        return componentClient.forEventSourcedEntity(taxonomyId)
+                .method(ShardedTaxonomyEntity::getSkeleton)
+                .invokeAsync()
+                .thenApply(skeletonResult -> switch (skeletonResult) {
+                    case ShardedTaxonomyEntity.ShardedResult.Skeleton skeleton
+                            when skeleton.taxonomy().rootRowIds().contains(rootRowId) -> Optional.<HttpResponse>empty();
+                    case ShardedTaxonomyEntity.ShardedResult.ShardedFailed e ->
+                        Optional.of(HttpResponses.notFound("Message: %s".formatted(e.message())));
+                    default -> Optional.of(HttpResponses.notFound("Message: root row '%s' not found in sharded taxonomy %s"
+                            .formatted(rootRowId, taxonomyId)));
+                });
+    }
+
+    @Get("/get-stats")
+    public TaxonomyGetStats.Snapshot getStats() {
+        return TaxonomyGetStats.snapshot();
+    }
+
+    // Rows in tree order as newline-delimited JSON, read from the entity one page at a time.
+    // Without limit every row is streamed, the next page is only requested once the client has taken the previous
+    // one. Every page is read at the sequence number of the first one: when the taxonomy is edited while it is
+    // streamed, the stream ends with an {"error": ...} line and is aborted instead of skipping or repeating rows.
+    // With limit a single page is returned, X-Next-After carries the cursor of the next page, if any, and
+    // X-Sequence-Number the state it was read from.
+    // Query params: after, the rowId to continue after, limit (at most 10000) and sequenceNumber, which fails the
+    // page when the taxonomy is no longer at that sequence number
+    @Get("/{taxonomyId}/rows")
+    public CompletionStage<HttpResponse> getRows(String taxonomyId) {
+        var queryParams = requestContext().queryParams();
+        String after = queryParams.getString("after").orElse(null);
+        Integer limit = queryParams.getInteger("limit").orElse(null);
+        Long sequenceNumber = queryParams.getLong("sequenceNumber").orElse(null);
+        CCFLog.debug(logger, "Getting taxonomy rows",
+                Map.of("taxonomyId", taxonomyId, "after", String.valueOf(after), "limit", String.valueOf(limit)));
+        // The first page is read before answering, so errors are still a bad request
+        return rowsPage(taxonomyId, after, limit, sequenceNumber).thenApply(pageResult -> switch (pageResult) {
+            case TaxonomyEntity.TaxonomyResult.RowsPage page when limit != null -> {
+                var response = HttpResponse.create().withEntity(HttpEntities.create(NDJSON, ndjson(page.rows()).toArray()))
+                        .addHeader(RawHeader.create("X-Sequence-Number", String.valueOf(page.sequenceNumber())));
+                yield page.nextAfter() == null ? response : response.addHeader(RawHeader.create("X-Next-After", page.nextAfter()));
+            }
+            case TaxonomyEntity.TaxonomyResult.RowsPage page -> {
+                Source<ByteString, ?> rest = Source.unfoldAsync(new RowsCursor(page.nextAfter(), null),
+                        cursor -> {
+                            if (cursor.error() != null) {
+                                return CompletableFuture.failedFuture(new TaxonomyException(taxonomyId, cursor.error()));
+                            }
+                            if (cursor.after() == null) {
+                                return CompletableFuture.completedFuture(Optional.empty());
+                            }
+                            return rowsPage(taxonomyId, cursor.after(), null, page.sequenceNumber()).thenApply(next -> {
+                                String error = switch (next) {
+                                    case TaxonomyEntity.TaxonomyResult.RowsPage nextPage -> null;
+                                    case TaxonomyEntity.TaxonomyResult.GetFailed e -> e.message();
+                                    default -> "Reading the rows of taxonomy %s failed".formatted(taxonomyId);
+                                };
+                                if (error != null) {
+                                    CCFLog.warn(logger, "Streaming taxonomy rows stopped",
+                                            Map.of("taxonomyId", taxonomyId, "error", error));
+                                    return Optional.of(Pair.create(new RowsCursor(null, error),
+                                            ndjson(List.of(Map.of("error", error)))));
+                                }
+                                var nextPage = (TaxonomyEntity.TaxonomyResult.RowsPage) next;
+                                return Optional.of(Pair.create(new RowsCursor(nextPage.nextAfter(), null),
+                                        ndjson(nextPage.rows())));
+                            });
+                        });
+                yield HttpResponse.create().withEntity(
+                        HttpEntities.createChunked(NDJSON, Source.single(ndjson(page.rows())).concat(rest)));
+            }
+            case TaxonomyEntity.TaxonomyResult.GetFailed e -> HttpResponses.badRequest(
+                    "Message: %s".formatted(e.message()));
+            default -> HttpResponses.internalServerError();
+        });
+    }
+
+    // The position of a row stream: the cursor of the next page, or the error that ends the stream once its
+    // error line has been sent
+    private record RowsCursor(String after, String error) {
+    }
+
+    private CompletionStage<TaxonomyEntity.TaxonomyResult> rowsPage(String taxonomyId, String after, Integer limit,
+            Long sequenceNumber) {
+        return componentClient.forEventSourcedEntity(taxonomyId)
+                .method(TaxonomyEntity::getRowsPage)
+                .invokeAsync(new Taxonomy.RowsPageQuery(after, limit, sequenceNumber));
+    }
+
+    // Query param: depth, levels below rowId to include (default all)
+    @Get("/{taxonomyId}/rows/{rowId}/subtree")
+    public CompletionStage<HttpResponse> getSubtree(String taxonomyId, String rowId) {
+        Integer depth = requestContext().queryParams().getInteger("depth").orElse(null);
+        CCFLog.debug(logger, "Getting taxonomy subtree",
+                Map.of("taxonomyId", taxonomyId, "rowId", rowId, "depth", String.valueOf(depth)));
+        return componentClient.forEventSourcedEntity(taxonomyId)
+                .method(TaxonomyEntity::getSubtree)
+                .invokeAsync(new Taxonomy.SubtreeQuery(rowId, depth))
+                .thenApply(TaxonomyEndpoint::rowsResponse);
+    }
+
+    @Get("/{taxonomyId}/rows/{rowId}/ancestors")
+    public CompletionStage<HttpResponse> getAncestors(String taxonomyId, String rowId) {
+        CCFLog.debug(logger, "Getting taxonomy row ancestors",
+                Map.of("taxonomyId", taxonomyId, "rowId", rowId));
+        return componentClient.forEventSourcedEntity(taxonomyId)
+                .method(TaxonomyEntity::getAncestors)
+                .invokeAsync(rowId)
+                .thenApply(TaxonomyEndpoint::rowsResponse);
+    }
+
+    // Resolves a batch of rowIds to their full paths and depths in one call
+    @Post("/{taxonomyId}/paths")
+    public CompletionStage<HttpResponse> getPaths(String taxonomyId, Taxonomy.PathsQuery pathsQuery) {
+        if (pathsQuery.rowIds() == null) {
+            return CompletableFuture.completedFuture(HttpResponses.badRequest("Message: rowIds is required"));
+        }
+        CCFLog.debug(logger, "Getting taxonomy row paths",
+                Map.of("taxonomyId", taxonomyId, "rowIds", String.valueOf(pathsQuery.rowIds().size())));
+        return componentClient.forEventSourcedEntity(taxonomyId)
+                .method(TaxonomyEntity::getPaths)
+                .invokeAsync(pathsQuery)
+                .thenApply(pathsResult -> switch (pathsResult) {
+                    case TaxonomyEntity.TaxonomyResult.PathsSuccess success -> HttpResponses.ok(success.paths());
+                    case TaxonomyEntity.TaxonomyResult.GetFailed e -> HttpResponses.badRequest(
+                            "Message: %s".formatted(e.message()));
+                    default -> HttpResponses.internalServerError();
+                });
+    }
+
+    // Query params: q, the search text, and limit (default 20)
+    @Get("/{taxonomyId}/search")
+    public CompletionStage<HttpResponse> search(String taxonomyId) {
+        var queryParams = requestContext().queryParams();
+        String q = queryParams.getString("q").orElse("");
+        Integer limit = queryParams.getInteger("limit").orElse(null);
+        CCFLog.debug(logger, "Searching taxonomy",
+                Map.of("taxonomyId", taxonomyId, "q", q));
+        return componentClient.forEventSourcedEntity(taxonomyId)
+                .method(TaxonomyEntity::searchRows)
+                .invokeAsync(new Taxonomy.SearchQuery(q, limit))
+                .thenApply(searchResult -> switch (searchResult) {
+                    case TaxonomyEntity.TaxonomyResult.SearchSuccess success -> HttpResponses.ok(success.hits());
+                    case TaxonomyEntity.TaxonomyResult.GetFailed e -> HttpResponses.badRequest(
+                            "Message: %s".formatted(e.message()));
+                    default -> HttpResponses.internalServerError();
+                });
+    }
+
+    // Bulk fuzzy matching of source labels (e.g. GL account names) against a published taxonomy. Labels are
+    // matched on this node against the trigram index of the compiled taxonomy rather than through the
+    // TaxonomyEntity, in slices of MATCH_SLICE_LABELS run in parallel on MATCH_EXECUTOR.
+    @Post("/{taxonomyId}/match")
+    public CompletionStage<HttpResponse> matchLabels(String taxonomyId, Taxonomy.MatchRequest matchRequest) {
+        CCFLog.debug(logger, "Matching labels to taxonomy rows",
+                Map.of("taxonomyId", taxonomyId));
+        List<String> labels = matchRequest.labels();
+        if (labels == null || labels.size() > MAX_MATCH_LABELS) {
+            return CompletableFuture.completedFuture(HttpResponses.badRequest(
+                    "Message: Between 0 and %d labels can be matched per call".formatted(MAX_MATCH_LABELS)));
+        }
+        int limit = matchRequest.limit() == null ? DEFAULT_MATCH_LIMIT : matchRequest.limit();
+        double minScore = matchRequest.minScore() == null ? DEFAULT_MATCH_MIN_SCORE : matchRequest.minScore();
+        if (limit < 1) {
+            return CompletableFuture.completedFuture(HttpResponses.badRequest("Message: Match limit must be positive"));
+        }
+        long start = System.nanoTime();
+        return publishedTaxonomy(taxonomyId, "labels cant be matched").thenCompose(published -> {
+            if (published.compiled() == null) {
+                return CompletableFuture.completedFuture(HttpResponses.badRequest(
+                        "Message: %s".formatted(published.error())));
+            }
+            TrigramIndex trigrams = published.compiled().trigrams();
+            List<CompletableFuture<List<Taxonomy.LabelMatch>>> slices = new ArrayList<>();
+            for (int from = 0; from < labels.size(); from += MATCH_SLICE_LABELS) {
+                List<String> slice = labels.subList(from, Math.min(from + MATCH_SLICE_LABELS, labels.size()));
+                slices.add(CompletableFuture.supplyAsync(() -> matchSlice(trigrams, slice, limit, minScore),
+                        MATCH_EXECUTOR));
+            }
+            return CompletableFuture.allOf(slices.toArray(CompletableFuture[]::new)).thenApply(__ -> {
+                List<Taxonomy.LabelMatch> matches = new ArrayList<>(labels.size());
+                slices.forEach(slice -> matches.addAll(slice.join()));
+                long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+                CCFLog.info(logger, "Matched labels", Map.of("taxonomyId", taxonomyId,
+                        "labels", String.valueOf(matches.size()), "elapsedMillis", String.valueOf(elapsedMillis)));
+                return HttpResponses.ok(new Taxonomy.LabelMatches(taxonomyId, matches, elapsedMillis));
+            });
+        });
+    }
+
+    private static List<Taxonomy.LabelMatch> matchSlice(TrigramIndex trigrams, List<String> labels, int limit,
+            double minScore) {
+        List<Taxonomy.LabelMatch> matches = new ArrayList<>(labels.size());
+        for (String label : labels) {
+            long labelStart = System.nanoTime();
+            var rowMatches = trigrams.match(label, limit, minScore);
+            matches.add(new Taxonomy.LabelMatch(label, rowMatches, (System.nanoTime() - labelStart) / 1000));
+        }
+        return matches;
+    }
+
+    // Classifies newline-delimited text (e.g. transaction descriptions) by the keywords of a published taxonomy,
+    // read from the node-local compiled cache rather than through the TaxonomyEntity. The body is framed into lines
+    // and classified in batches of CLASSIFY_BATCH_LINES while the response streams, one TextClassification JSON
+    // line per non-blank input line. A line longer than MAX_CLASSIFY_LINE_BYTES fails the stream.
+    @Post("/{taxonomyId}/classify")
+    public CompletionStage<HttpResponse> classify(String taxonomyId, HttpEntity.Strict body) {
+        CCFLog.debug(logger, "Classifying texts by taxonomy keywords",
+                Map.of("taxonomyId", taxonomyId, "bytes", String.valueOf(body.getData().size())));
+        return publishedTaxonomy(taxonomyId, "texts cant be classified").thenApply(published -> {
+            if (published.compiled() == null) {
+                return HttpResponses.badRequest("Message: %s".formatted(published.error()));
+            }
+            KeywordAutomaton keywords = published.compiled().keywords();
+            Source<ByteString, ?> classified = body.getDataBytes()
+                    .via(Framing.delimiter(NEWLINE, MAX_CLASSIFY_LINE_BYTES, FramingTruncation.ALLOW))
+                    .map(line -> stripCarriageReturn(line.utf8String()))
+                    .grouped(CLASSIFY_BATCH_LINES)
+                    .zipWithIndex()
+                    .map(batch -> {
+                        List<String> texts = batch.first();
+                        List<List<Taxonomy.KeywordHit>> hits = new ArrayList<>(texts.size());
+                        texts.forEach(text -> hits.add(keywords.classify(text)));
+                        return ndjsonLines(texts, batch.second() * CLASSIFY_BATCH_LINES, hits);
+                    });
+            return HttpResponse.create().withEntity(HttpEntities.createChunked(NDJSON, classified));
+        });
+    }
+
+    private static String stripCarriageReturn(String line) {
+        return line.endsWith("\r") ? line.substring(0, line.length() - 1) : line;
+    }
+
+    // The published taxonomy from the node-local compiled cache, fetched and compiled on a miss. The entity is
+    // only asked for its revision when cached, error says why the taxonomy cannot be used for action otherwise.
+    private record Published(CompiledTaxonomy compiled, String error) {
+    }
+
+    private CompletionStage<Published> publishedTaxonomy(String taxonomyId, String action) {
+        return componentClient.forEventSourcedEntity(taxonomyId)
+                .method(TaxonomyEntity::getRevision)
+                .invokeAsync()
+                .thenCompose(revisionResult -> switch (revisionResult) {
+                    case TaxonomyEntity.TaxonomyResult.Revision revision
+                            when revision.status() == TaxonomyStatus.TAXONOMY_PUBLISHED ->
+                            taxonomyBody(taxonomyId, revision).thenApply(body -> body instanceof CompiledTaxonomy compiled
+                                    ? new Published(compiled, null)
+                                    : new Published(null, "Taxonomy %s %s, it is no longer published".formatted(taxonomyId, action)));
+                    case TaxonomyEntity.TaxonomyResult.Revision revision -> CompletableFuture.completedFuture(
+                            new Published(null, "Taxonomy %s %s, is in %s state".formatted(taxonomyId, action, revision.status())));
+                    case TaxonomyEntity.TaxonomyResult.GetFailed e ->
+                            CompletableFuture.completedFuture(new Published(null, e.message()));
+                    default -> CompletableFuture.completedFuture(
+                            new Published(null, "Taxonomy %s %s".formatted(taxonomyId, action)));
                 });
     }
 
+    private static ByteString ndjsonLines(List<String> texts, long firstLine, List<List<Taxonomy.KeywordHit>> hits) {
+        List<Taxonomy.TextClassification> classified = new ArrayList<>(texts.size());
+        for (int i = 0; i < texts.size(); i++) {
+            if (!texts.get(i).isBlank()) {
+                classified.add(new Taxonomy.TextClassification(firstLine + i + 1, texts.get(i), hits.get(i)));
+            }
+        }
+        return ndjson(classified);
+    }
+
+    // One JSON document per line
+    private static ByteString ndjson(List<?> values) {
+        var mapper = JsonSupport.getObjectMapper();
+        StringBuilder ndjson = new StringBuilder();
+        try {
+            for (Object value : values) {
+                ndjson.append(mapper.writeValueAsString(value)).append('\n');
+            }
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
+        return ByteString.fromString(ndjson.toString());
+    }
+
+    private static HttpResponse rowsResponse(TaxonomyEntity.TaxonomyResult rowsResult) {
+        return switch (rowsResult) {
+            case TaxonomyEntity.TaxonomyResult.RowsSuccess success -> HttpResponses.ok(success.rows());
+            case TaxonomyEntity.TaxonomyResult.GetFailed e -> HttpResponses.badRequest(
+                    "Message: %s".formatted(e.message()));
+            default -> HttpResponses.internalServerError();
+        };
+    }
+
     @Post("/{taxonomyId}")
     public CompletionStage<HttpResponse> createTaxonomy(String taxonomyId, Taxonomy.TaxonomyCreate taxonomy) {
         CCFLog.debug(logger, "Creating taxonomy",
@@ -78,36 +1139,115 @@ public class TaxonomyEndpoint {
                 });
     }
 
+    // Archived versions never change, so a taxonomy re-created with the version of an archived one cannot be
+    // published, it has to be re-created with a new version
     @Put("/{taxonomyId}/publish")
     public CompletionStage<HttpResponse> publishTaxonomy(String taxonomyId) {
         CCFLog.debug(logger, "Publishing taxonomy",
                 Map.of("taxonomyId", taxonomyId));
         return componentClient.forEventSourcedEntity(taxonomyId)
-                .method(TaxonomyEntity::publishTaxonomy)
-                .invokeAsync(true)
-                .thenApply(publishTaxonomyResult -> switch (publishTaxonomyResult) {
-                    case TaxonomyEntity.TaxonomyResult.Success success -> HttpResponses.ok();
-                    case TaxonomyEntity.TaxonomyResult.PublishFailed e -> HttpResponses.badRequest(
-                            "Message: %s".formatted(e.message()));
-                    default -> HttpResponses.internalServerError();
-                });
+                .method(TaxonomyEntity::getRevision)
+                .invokeAsync()
+                .thenCompose(revisionResult -> {
+                    if (!(revisionResult instanceof TaxonomyEntity.TaxonomyResult.Revision revision)
+                            || revision.status() == TaxonomyStatus.TAXONOMY_PUBLISHED) {
+                        // The entity reports why it cannot be published
+                        return CompletableFuture.completedFuture(Optional.<String>empty());
+                    }
+                    return componentClient
+                            .forKeyValueEntity(TaxonomyVersionEntity.versionId(taxonomyId, revision.version()))
+                            .method(TaxonomyVersionEntity::isArchived)
+                            .invokeAsync()
+                            .thenApply(archived -> archived
+                                    ? Optional.of("Taxonomy %s version %s is already archived, re-create it with a new version"
+                                            .formatted(taxonomyId, revision.version()))
+                                    : Optional.<String>empty());
+                })
+                .thenCompose(rejected -> rejected.isPresent()
+                        ? CompletableFuture.completedFuture(HttpResponses.badRequest("Message: %s".formatted(rejected.get())))
+                        : componentClient.forEventSourcedEntity(taxonomyId)
+                                .method(TaxonomyEntity::publishTaxonomy)
+                                .invokeAsync(true)
+                                .thenApply(publishTaxonomyResult -> switch (publishTaxonomyResult) {
+                                    case TaxonomyEntity.TaxonomyResult.Success success -> HttpResponses.ok();
+                                    case TaxonomyEntity.TaxonomyResult.PublishFailed e -> HttpResponses.badRequest(
+                                            "Message: %s".formatted(e.message()));
+                                    default -> HttpResponses.internalServerError();
+                                }));
     }
 
+    // The published version is archived before the taxonomy is opened, its publish event may not be consumed yet
     @Put("/{taxonomyId}/open")
     public CompletionStage<HttpResponse> openTaxonomy(String taxonomyId) {
         CCFLog.debug(logger, "Opening(unpublishing) taxonomy",
                 Map.of("taxonomyId", taxonomyId));
+        return archivePublishedVersion(taxonomyId)
+                .thenCompose(rejected -> rejected.isPresent()
+                        ? CompletableFuture.completedFuture(HttpResponses.badRequest("Message: %s".formatted(rejected.get())))
+                        : componentClient.forEventSourcedEntity(taxonomyId)
+                                .method(TaxonomyEntity::publishTaxonomy)
+                                .invokeAsync(false)
+                                .thenApply(publishTaxonomyResult -> switch (publishTaxonomyResult) {
+                                    case TaxonomyEntity.TaxonomyResult.Success success -> HttpResponses.ok();
+                                    case TaxonomyEntity.TaxonomyResult.PublishFailed e -> HttpResponses.badRequest(
+                                            "Message: %s".formatted(e.message()));
+                                    default -> HttpResponses.internalServerError();
+                                }));
+    }
+
+    // Stores the current state as its TaxonomyVersionEntity when it is published. The message is there when the
+    // version is already archived with other content.
+    private CompletionStage<Optional<String>> archivePublishedVersion(String taxonomyId) {
         return componentClient.forEventSourcedEntity(taxonomyId)
-                .method(TaxonomyEntity::publishTaxonomy)
-                .invokeAsync(false)
-                .thenApply(publishTaxonomyResult -> switch (publishTaxonomyResult) {
-                    case TaxonomyEntity.TaxonomyResult.Success success -> HttpResponses.ok();
-                    case TaxonomyEntity.TaxonomyResult.PublishFailed e -> HttpResponses.badRequest(
+                .method(TaxonomyEntity::getTaxonomy)
+                .invokeAsync()
+                .thenCompose(taxonomyResult -> {
+                    if (taxonomyResult instanceof TaxonomyEntity.TaxonomyResult.GetSuccess success
+                            && success.taxonomy().status() == TaxonomyStatus.TAXONOMY_PUBLISHED) {
+                        var snapshot = success.taxonomy().versionSnapshot();
+                        return componentClient
+                                .forKeyValueEntity(TaxonomyVersionEntity.versionId(taxonomyId, snapshot.version()))
+                                .method(TaxonomyVersionEntity::storeVersion)
+                                .invokeAsync(snapshot)
+                                .thenApply(stored -> stored instanceof TaxonomyVersionEntity.StoreResult.StoreRejected e
+                                        ? Optional.of(e.message())
+                                        : Optional.<String>empty());
+                    }
+                    return CompletableFuture.completedFuture(Optional.empty());
+                });
+    }
+
+    // Orphaned parents, parent cycles, children lists that disagree with the parent pointers, duplicate sibling
+    // values and empty leaves, see TaxonomyIntegrity. publish runs the same check and fails on any error.
+    @Get("/{taxonomyId}/validate")
+    public CompletionStage<HttpResponse> validateTaxonomy(String taxonomyId) {
+        CCFLog.debug(logger, "Validating taxonomy",
+                Map.of("taxonomyId", taxonomyId));
+        return componentClient.forEventSourcedEntity(taxonomyId)
+                .method(TaxonomyEntity::validateTaxonomy)
+                .invokeAsync()
+                .thenApply(validateResult -> switch (validateResult) {
+                    case TaxonomyEntity.TaxonomyResult.Validated validated -> HttpResponses.ok(validated.report());
+                    case TaxonomyEntity.TaxonomyResult.GetFailed e -> HttpResponses.badRequest(
                             "Message: %s".formatted(e.message()));
                     default -> HttpResponses.internalServerError();
                 });
     }
 
+    // Operator endpoint: the journal length of a taxonomy, the number of events a view or consumer replays for it
+    @Get("/{taxonomyId}/journal")
+    public CompletionStage<HttpResponse> getJournalStats(String taxonomyId) {
+        CCFLog.debug(logger, "Getting taxonomy journal stats",
+                Map.of("taxonomyId", taxonomyId));
+        return componentClient.forEventSourcedEntity(taxonomyId)
+                .method(TaxonomyEntity::getJournalStats)
+                .invokeAsync()
+                .thenApply(statsResult -> switch (statsResult) {
+                    case TaxonomyEntity.TaxonomyResult.JournalStats stats -> HttpResponses.ok(stats);
+                    default -> HttpResponses.internalServerError();
+                });
+    }
+
     @Post("/{taxonomyId}/taxrow")
     public CompletionStage<HttpResponse> addTaxRow(String taxonomyId, Taxonomy.TaxRowAdd taxRowAdd) {
         CCFLog.debug(logger, "Adding tax row",
@@ -153,6 +1293,54 @@ public class TaxonomyEndpoint {
                 });
     }
 
+    @Put("/{taxonomyId}/taxrows")
+    public CompletionStage<HttpResponse> updateTaxRows(String taxonomyId, Taxonomy.TaxRowsUpdate taxRowsUpdate) {
+        CCFLog.debug(logger, "Updating tax rows",
+                Map.of("taxonomyId", taxonomyId, "updates",
+                        String.valueOf(taxRowsUpdate.updates() == null ? 0 : taxRowsUpdate.updates().size())));
+        return componentClient.forEventSourcedEntity(taxonomyId)
+                .method(TaxonomyEntity::updateTaxRows)
+                .invokeAsync(taxRowsUpdate)
+                .thenApply(updateTaxRowsResult -> switch (updateTaxRowsResult) {
+                    case TaxonomyEntity.TaxonomyResult.Success success -> HttpResponses.ok();
+                    case TaxonomyEntity.TaxonomyResult.IncorrectUpate e -> HttpResponses.badRequest(
+                            "Message: %s".formatted(e.message()));
+                    default -> HttpResponses.internalServerError();
+                });
+    }
+
+    // Moves a row and all of its descendants under parent, a root when parent is null
+    @Put("/{taxonomyId}/taxrows/move")
+    public CompletionStage<HttpResponse> moveSubtree(String taxonomyId, Taxonomy.SubtreeMove subtreeMove) {
+        CCFLog.debug(logger, "Moving taxonomy subtree",
+                Map.of("taxonomyId", taxonomyId, "subtreeMove", subtreeMove.toString()));
+        return componentClient.forEventSourcedEntity(taxonomyId)
+                .method(TaxonomyEntity::moveSubtree)
+                .invokeAsync(subtreeMove)
+                .thenApply(moveResult -> switch (moveResult) {
+                    case TaxonomyEntity.TaxonomyResult.Success success -> HttpResponses.ok();
+                    case TaxonomyEntity.TaxonomyResult.IncorrectUpate e -> HttpResponses.badRequest(
+                            "Message: %s".formatted(e.message()));
+                    default -> HttpResponses.internalServerError();
+                });
+    }
+
+    // Mixed add, remove, update and move operations, validated together and persisted as one event
+    @Patch("/{taxonomyId}/taxrows")
+    public CompletionStage<HttpResponse> patchTaxRows(String taxonomyId, Taxonomy.TaxonomyPatch patch) {
+        CCFLog.debug(logger, "Patching tax rows",
+                Map.of("taxonomyId", taxonomyId, "ops", String.valueOf(patch.ops() == null ? 0 : patch.ops().size())));
+        return componentClient.forEventSourcedEntity(taxonomyId)
+                .method(TaxonomyEntity::patchTaxonomy)
+                .invokeAsync(patch)
+                .thenApply(patchResult -> switch (patchResult) {
+                    case TaxonomyEntity.TaxonomyResult.Patched patched -> HttpResponses.ok(patched);
+                    case TaxonomyEntity.TaxonomyResult.IncorrectPatch e -> HttpResponses.badRequest(
+                            "Message: %s".formatted(e.message()));
+                    default -> HttpResponses.internalServerError();
+                });
+    }
+
     @Delete("/{taxonomyId}/taxrows")
     public CompletionStage<HttpResponse> removeTaxRows(String taxonomyId, Taxonomy.TaxRowsRemove taxRowsRemove) {
         CCFLog.debug(logger, "Removing tax rows",
@@ -184,6 +1372,252 @@ public class TaxonomyEndpoint {
                 });
     }
 
+    // Imports a "Level 1..Level 6" CSV body, parsed as it arrives, see parseCsv. Hierarchy paths are resolved to
+    // rowIds here and the rows are persisted in size-bounded TaxonomyTaxRowsAdd chunks, one command per chunk, in
+    // CSV order.
+    // Query params: dimension (default account), replace (default false), chunkRows (default 1000)
+    @Post("/{taxonomyId}/import/csv")
+    public CompletionStage<HttpResponse> importCsv(String taxonomyId, HttpEntity.Strict body) {
+        var queryParams = requestContext().queryParams();
+        String dimension = queryParams.getString("dimension").orElse("account");
+        boolean replace = queryParams.getBoolean("replace").orElse(false);
+        int chunkRows = queryParams.getInteger("chunkRows").orElse(TaxonomyCsvImport.DEFAULT_ROWS_PER_CHUNK);
+        CCFLog.debug(logger, "Importing taxonomy csv",
+                Map.of("taxonomyId", taxonomyId, "dimension", dimension, "replace", String.valueOf(replace),
+                        "chunkRows", String.valueOf(chunkRows)));
+        if (chunkRows < 1) {
+            return CompletableFuture.completedFuture(HttpResponses.badRequest("Message: chunkRows must be positive"));
+        }
+
+        TaxonomyCsvImport csv = new TaxonomyCsvImport(taxonomyId, dimension);
+        return parseCsv(body, csv).thenCompose(rejected -> rejected.isPresent()
+                ? CompletableFuture.completedFuture(rejected.get())
+                : addCsvChunks(taxonomyId, csv, replace, chunkRows));
+    }
+
+    private CompletionStage<HttpResponse> addCsvChunks(String taxonomyId, TaxonomyCsvImport csv, boolean replace,
+            int chunkRows) {
+        List<Taxonomy.TaxRowsAdd> chunks = TaxonomyCsvImport.chunk(csv.rows(), replace, chunkRows,
+                TaxonomyCsvImport.DEFAULT_CHARS_PER_CHUNK);
+
+        long start = System.nanoTime();
+        CompletionStage<TaxonomyEntity.TaxonomyResult> result =
+                CompletableFuture.completedFuture(new TaxonomyEntity.TaxonomyResult.Success(taxonomyId));
+        int imported = 0;
+        for (int i = 0; i < chunks.size(); i++) {
+            var chunk = chunks.get(i);
+            var chunkNumber = i + 1;
+            imported += chunk.taxRows().size();
+            var importedRows = imported;
+            result = result.thenCompose(previous -> {
+                if (!(previous instanceof TaxonomyEntity.TaxonomyResult.Success)) {
+                    return CompletableFuture.completedFuture(previous);
+                }
+                return componentClient.forEventSourcedEntity(taxonomyId)
+                        .method(TaxonomyEntity::addTaxRows)
+                        .invokeAsync(chunk)
+                        .thenApply(chunkResult -> {
+                            CCFLog.info(logger, "Imported taxonomy csv chunk",
+                                    Map.of("taxonomyId", taxonomyId,
+                                            "chunk", chunkNumber + "/" + chunks.size(),
+                                            "rows", String.valueOf(importedRows),
+                                            "rowsPerSecond", "%.1f".formatted(rowsPerSecond(importedRows, start))));
+                            return chunkResult;
+                        });
+            });
+        }
+        int totalRows = imported;
+        return result.thenApply(importResult -> switch (importResult) {
+            case TaxonomyEntity.TaxonomyResult.Success success -> {
+                long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+                yield HttpResponses.ok(new TaxonomyCsvImport.ImportResult(taxonomyId, csv.csvLines(), totalRows,
+                        csv.duplicates(), chunks.size(), elapsedMillis, rowsPerSecond(totalRows, start)));
+            }
+            case TaxonomyEntity.TaxonomyResult.IncorrectAdd e -> HttpResponses.badRequest(
+                    "Message: %s".formatted(e.message()));
+            default -> HttpResponses.internalServerError();
+        });
+    }
+
+    // Parses a "Level 1..Level 6" CSV body into csv as its bytes arrive, framed into lines and never copied into one
+    // string. The body may be up to MAX_IMPORT_BYTES, above the server-wide max-content-length. The response to
+    // send instead of importing is present when the body was rejected.
+    private CompletionStage<Optional<HttpResponse>> parseCsv(HttpEntity body, TaxonomyCsvImport csv) {
+        return body.withSizeLimit(MAX_IMPORT_BYTES)
+                .getDataBytes()
+                .via(Framing.delimiter(NEWLINE, MAX_IMPORT_LINE_BYTES, FramingTruncation.ALLOW))
+                .runForeach(line -> csv.readLine(stripCarriageReturn(line.utf8String())), materializer)
+                .handle((done, error) -> error == null
+                        ? Optional.empty()
+                        : Optional.of(bodyFailed(error, MAX_IMPORT_BYTES)));
+    }
+
+    // The response to a body that could not be read, 413 when it was larger than maxBytes
+    private static HttpResponse bodyFailed(Throwable error, long maxBytes) {
+        Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+        if (cause instanceof EntityStreamSizeException) {
+            return HttpResponse.create().withStatus(StatusCodes.PAYLOAD_TOO_LARGE)
+                    .withEntity("Message: Request body is larger than %d bytes".formatted(maxBytes));
+        }
+        return HttpResponses.badRequest("Message: %s".formatted(cause.getMessage()));
+    }
+
+    // Starts a checkpointed import of a "Level 1..Level 6" CSV body, driven by TaxonomyImportWorkflow.
+    // The chunks are stored first under a key of their own (at most CHUNK_STORE_PARALLELISM writes in flight), then
+    // the workflow applies them one at a time, retrying failed chunks with backoff and resuming from the last
+    // persisted chunk.
+    // The body is parsed as it arrives, see parseCsv. Query params as for import/csv
+    @Post("/{taxonomyId}/imports/{importId}")
+    public CompletionStage<HttpResponse> startImport(String taxonomyId, String importId, HttpEntity.Strict body) {
+        var queryParams = requestContext().queryParams();
+        String dimension = queryParams.getString("dimension").orElse("account");
+        boolean replace = queryParams.getBoolean("replace").orElse(false);
+        int chunkRows = queryParams.getInteger("chunkRows").orElse(TaxonomyCsvImport.DEFAULT_ROWS_PER_CHUNK);
+        CCFLog.debug(logger, "Starting taxonomy import",
+                Map.of("taxonomyId", taxonomyId, "importId", importId, "dimension", dimension,
+                        "replace", String.valueOf(replace), "chunkRows", String.valueOf(chunkRows)));
+        if (chunkRows < 1) {
+            return CompletableFuture.completedFuture(HttpResponses.badRequest("Message: chunkRows must be positive"));
+        }
+
+        TaxonomyCsvImport csv = new TaxonomyCsvImport(taxonomyId, dimension);
+        return parseCsv(body, csv).thenCompose(rejected -> rejected.isPresent()
+                ? CompletableFuture.completedFuture(rejected.get())
+                : storeAndStartImport(taxonomyId, importId, csv, replace, chunkRows));
+    }
+
+    private CompletionStage<HttpResponse> storeAndStartImport(String taxonomyId, String importId,
+            TaxonomyCsvImport csv, boolean replace, int chunkRows) {
+        List<Taxonomy.TaxRowsAdd> chunks = TaxonomyCsvImport.chunk(csv.rows(), replace, chunkRows,
+                TaxonomyCsvImport.DEFAULT_CHARS_PER_CHUNK);
+
+        String chunkKey = TaxonomyImportChunkEntity.chunkKey(importId);
+        var start = new TaxonomyImport.ImportStart(taxonomyId, chunkKey, chunks.size(), csv.rows().size());
+        // An existing import is rejected before any chunk is stored. Two concurrent starts store their chunks under
+        // different chunk keys, the one the workflow rejects removes its chunks again.
+        return componentClient.forWorkflow(importId)
+                .method(TaxonomyImportWorkflow::getProgress)
+                .invokeAsync()
+                .handle((progress, error) -> error == null)
+                .thenCompose(exists -> {
+                    if (exists) {
+                        return CompletableFuture.completedFuture(HttpResponses.badRequest(
+                                "Message: Import %s already exists".formatted(importId)));
+                    }
+                    return storeChunks(chunkKey, chunks)
+                            .thenCompose(__ -> componentClient.forWorkflow(importId)
+                                    .method(TaxonomyImportWorkflow::startImport)
+                                    .invokeAsync(start))
+                            .handle((progress, error) -> {
+                                if (error == null) {
+                                    return CompletableFuture.completedFuture(HttpResponses.created(progress));
+                                }
+                                return removeChunks(chunkKey, chunks.size()).thenApply(__ -> HttpResponses.badRequest(
+                                        "Message: Import %s not started: %s".formatted(importId, error.getMessage())));
+                            })
+                            .thenCompose(response -> response);
+                });
+    }
+
+    private CompletionStage<Done> storeChunks(String chunkKey, List<Taxonomy.TaxRowsAdd> chunks) {
+        CompletionStage<Done> stored = CompletableFuture.completedFuture(Done.getInstance());
+        for (int from = 0; from < chunks.size(); from += CHUNK_STORE_PARALLELISM) {
+            int windowStart = from;
+            int windowEnd = Math.min(from + CHUNK_STORE_PARALLELISM, chunks.size());
+            stored = stored.thenCompose(__ -> {
+                var writes = new CompletableFuture<?>[windowEnd - windowStart];
+                for (int i = windowStart; i < windowEnd; i++) {
+                    writes[i - windowStart] = componentClient
+                            .forKeyValueEntity(TaxonomyImportChunkEntity.chunkId(chunkKey, i))
+                            .method(TaxonomyImportChunkEntity::storeChunk)
+                            .invokeAsync(chunks.get(i))
+                            .toCompletableFuture();
+                }
+                return CompletableFuture.allOf(writes).thenApply(v -> Done.getInstance());
+            });
+        }
+        return stored;
+    }
+
+    // Best effort, failed removals are only logged
+    private CompletionStage<Done> removeChunks(String chunkKey, int count) {
+        var removes = new CompletableFuture<?>[count];
+        for (int i = 0; i < count; i++) {
+            String chunkId = TaxonomyImportChunkEntity.chunkId(chunkKey, i);
+            removes[i] = componentClient.forKeyValueEntity(chunkId)
+                    .method(TaxonomyImportChunkEntity::removeChunk)
+                    .invokeAsync()
+                    .exceptionally(e -> {
+                        CCFLog.warn(logger, "Removing taxonomy import chunk failed",
+                                Map.of("chunk_id", chunkId, "error", String.valueOf(e.getMessage())));
+                        return Done.getInstance();
+                    })
+                    .toCompletableFuture();
+        }
+        return CompletableFuture.allOf(removes).thenApply(v -> Done.getInstance());
+    }
+
+    @Get("/{taxonomyId}/imports/{importId}")
+    public CompletionStage<TaxonomyImport.ImportProgress> getImport(String taxonomyId, String importId) {
+        CCFLog.debug(logger, "Getting taxonomy import",
+                Map.of("taxonomyId", taxonomyId, "importId", importId));
+        return componentClient.forWorkflow(importId)
+                .method(TaxonomyImportWorkflow::getProgress)
+                .invokeAsync();
+    }
+
+    // Resumes a failed import from its last persisted chunk
+    @Put("/{taxonomyId}/imports/{importId}/retry")
+    public CompletionStage<HttpResponse> retryImport(String taxonomyId, String importId) {
+        CCFLog.debug(logger, "Retrying taxonomy import",
+                Map.of("taxonomyId", taxonomyId, "importId", importId));
+        return componentClient.forWorkflow(importId)
+                .method(TaxonomyImportWorkflow::retryChunk)
+                .invokeAsync()
+                .thenApply(done -> HttpResponses.ok());
+    }
+
+    private static double rowsPerSecond(int rows, long startNanos) {
+        long elapsedNanos = Math.max(1, System.nanoTime() - startNanos);
+        return rows * 1_000_000_000.0 / elapsedNanos;
+    }
+
+    // Autocomplete over the value, aliases and keywords of all published taxonomies.
+    // Query params: prefix, and limit (default 10, at most 50)
+    @Get("/suggest")
+    public CompletionStage<HttpResponse> suggest() {
+        var queryParams = requestContext().queryParams();
+        String prefix = queryParams.getString("prefix").orElse("");
+        int limit = Math.min(queryParams.getInteger("limit").orElse(DEFAULT_SUGGEST_LIMIT), MAX_SUGGEST_LIMIT);
+        CCFLog.debug(logger, "Suggesting taxonomy rows",
+                Map.of("prefix", prefix, "limit", String.valueOf(limit)));
+        if (limit < 1) {
+            return CompletableFuture.completedFuture(HttpResponses.badRequest("Message: limit must be positive"));
+        }
+        return TaxonomySuggestions.synced(componentClient)
+                .thenApply(index -> HttpResponses.ok(index.suggest(prefix, limit)));
+    }
+
+    // Rows fed by a column of a dimension source table, across all taxonomies.
+    // Query params: dimension and column, both required
+    @Get("/source-columns")
+    public CompletionStage<HttpResponse> getRowsBySourceColumn() {
+        var queryParams = requestContext().queryParams();
+        var dimension = queryParams.getString("dimension");
+        var column = queryParams.getString("column");
+        if (dimension.isEmpty() || column.isEmpty()) {
+            return CompletableFuture.completedFuture(HttpResponses.badRequest("Message: dimension and column are required"));
+        }
+        CCFLog.debug(logger, "Getting taxonomy rows by source column",
+                Map.of("dimension", dimension.get(), "column", column.get()));
+        return componentClient.forView()
+                .method(TaxonomyBySourceColumnView::getTaxonomiesBySourceColumn)
+                .invokeAsync(TaxonomySourceColumns.columnKey(dimension.get(), column.get()))
+                .thenApply(found -> HttpResponses.ok(found.taxonomies().stream()
+                        .flatMap(taxonomy -> taxonomy.rowsFor(dimension.get(), column.get()).stream())
+                        .toList()));
+    }
+
     @Get("/all")
     public CompletionStage<Taxonomys> getAllTaxonomies() {
         CCFLog.debug(logger, "get all taxonomies", Map.of());
@@ -0,0 +1,28 @@
+package ccf.application;
+
+import ccf.domain.standard.CompiledCrosswalk;
+import ccf.util.collection.WeightedLruCache;
+
+import java.util.Optional;
+
+// Node-local LRU cache of compiled crosswalks, keyed by crosswalk id, which names the source and target versions.
+// The mappings of a crosswalk can change, so only a lookup with the revision the table was compiled at hits.
+// Least recently used entries are evicted once the rows and mappings they hold exceed MAX_CACHED_SIZE.
+public final class CompiledCrosswalks {
+    private static final long MAX_CACHED_SIZE = 2_000_000;
+
+    private static final WeightedLruCache<String, CompiledCrosswalk> CACHE =
+            new WeightedLruCache<>(MAX_CACHED_SIZE, CompiledCrosswalk::size);
+
+    private CompiledCrosswalks() {
+    }
+
+    public static synchronized Optional<CompiledCrosswalk> get(String crosswalkId, long revision) {
+        CompiledCrosswalk compiled = CACHE.get(crosswalkId);
+        return compiled != null && compiled.revision() == revision ? Optional.of(compiled) : Optional.empty();
+    }
+
+    public static synchronized void put(CompiledCrosswalk compiled) {
+        CACHE.put(compiled.id(), compiled);
+    }
+}
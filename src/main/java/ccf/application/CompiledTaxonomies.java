@@ -0,0 +1,75 @@
+package ccf.application;
+
+import ccf.domain.standard.CompiledTaxonomy;
+import ccf.domain.standard.Taxonomy;
+import ccf.domain.standard.TaxonomyVersion;
+import ccf.util.CCFLog;
+import ccf.util.collection.WeightedLruCache;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Map;
+import java.util.Optional;
+
+// Node-local LRU cache of compiled published taxonomies, keyed by (taxonomyId, version). A taxonomy can be
+// unpublished, edited and published again under the same version, so each entry also records the entity's
+// sequence number when it was compiled and only a lookup with the same sequence number hits.
+// Archived versions (TaxonomyVersionEntity) never change and are cached under their own keys, without a sequence
+// number. Least recently used entries of both kinds are evicted once the cached rows exceed MAX_CACHED_ROWS.
+public final class CompiledTaxonomies {
+    private static final Logger logger = LoggerFactory.getLogger(CompiledTaxonomies.class);
+    private static final long MAX_CACHED_ROWS = 2_000_000;
+
+    private static final long ARCHIVED = -1;
+
+    private record Key(String taxonomyId, TaxonomyVersion version, boolean archived) {
+    }
+
+    private record Entry(long sequenceNumber, CompiledTaxonomy compiled) {
+    }
+
+    private static final WeightedLruCache<Key, Entry> CACHE =
+            new WeightedLruCache<>(MAX_CACHED_ROWS, entry -> entry.compiled().size());
+
+    private CompiledTaxonomies() {
+    }
+
+    public static synchronized Optional<CompiledTaxonomy> get(String taxonomyId, TaxonomyVersion version,
+            long sequenceNumber) {
+        Entry entry = CACHE.get(new Key(taxonomyId, version, false));
+        return entry != null && entry.sequenceNumber() == sequenceNumber ? Optional.of(entry.compiled()) : Optional.empty();
+    }
+
+    // The cached compiled form of taxonomy at sequenceNumber, compiled and cached on a miss
+    public static CompiledTaxonomy compiled(Taxonomy taxonomy, long sequenceNumber) {
+        var cached = get(taxonomy.id(), taxonomy.version(), sequenceNumber);
+        if (cached.isPresent()) {
+            return cached.get();
+        }
+        long start = System.nanoTime();
+        CompiledTaxonomy compiled = CompiledTaxonomy.compile(taxonomy);
+        CCFLog.info(logger, "Compiled taxonomy",
+                Map.of("taxonomy_id", taxonomy.id(), "version", String.valueOf(taxonomy.version()),
+                        "rows", String.valueOf(compiled.size()),
+                        "elapsedMillis", String.valueOf((System.nanoTime() - start) / 1_000_000)));
+        put(new Key(taxonomy.id(), taxonomy.version(), false), new Entry(sequenceNumber, compiled));
+        return compiled;
+    }
+
+    public static synchronized Optional<CompiledTaxonomy> getArchived(String taxonomyId, TaxonomyVersion version) {
+        Entry entry = CACHE.get(new Key(taxonomyId, version, true));
+        return entry == null ? Optional.empty() : Optional.of(entry.compiled());
+    }
+
+    // Compiles and caches an archived version read from its TaxonomyVersionEntity
+    public static CompiledTaxonomy archived(Taxonomy snapshot) {
+        CompiledTaxonomy compiled = CompiledTaxonomy.compile(snapshot);
+        put(new Key(snapshot.id(), snapshot.version(), true), new Entry(ARCHIVED, compiled));
+        return compiled;
+    }
+
+    private static synchronized void put(Key key, Entry entry) {
+        CACHE.put(key, entry);
+    }
+}
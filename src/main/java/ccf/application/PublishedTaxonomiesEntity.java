@@ -0,0 +1,29 @@
+package ccf.application;
+
+import akka.Done;
+import akka.javasdk.annotations.ComponentId;
+import akka.javasdk.keyvalueentity.KeyValueEntity;
+import ccf.domain.standard.PublishedTaxonomies;
+
+// Registry of the published taxonomies, kept by TaxonomySuggestConsumer. A single instance (REGISTRY_ID) is used.
+@ComponentId("published_taxonomies")
+public class PublishedTaxonomiesEntity extends KeyValueEntity<PublishedTaxonomies> {
+    public static final String REGISTRY_ID = "all";
+
+    @Override
+    public PublishedTaxonomies emptyState() {
+        return PublishedTaxonomies.empty();
+    }
+
+    public Effect<Done> setPublished(PublishedTaxonomies.PublishedChange change) {
+        boolean published = currentState().taxonomies().containsKey(change.taxonomyId());
+        if (!change.published() && !published) {
+            return effects().reply(Done.getInstance());
+        }
+        return effects().updateState(currentState().onChange(change)).thenReply(Done.getInstance());
+    }
+
+    public ReadOnlyEffect<PublishedTaxonomies> getPublished() {
+        return effects().reply(currentState());
+    }
+}
@@ -0,0 +1,105 @@
+package ccf.application;
+
+import akka.javasdk.annotations.ComponentId;
+import akka.javasdk.eventsourcedentity.EventSourcedEntity;
+import akka.javasdk.eventsourcedentity.EventSourcedEntityContext;
+import ccf.domain.standard.ShardedTaxonomy;
+import ccf.domain.standard.ShardedTaxonomyEvent;
+import ccf.domain.standard.Taxonomy.TaxonomyCreate;
+import ccf.util.CCFLog;
+
+import com.fasterxml.jackson.annotation.JsonSubTypes;
+import com.fasterxml.jackson.annotation.JsonTypeInfo;
+
+import java.util.Map;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+// Coordinator of a sharded taxonomy: holds the ShardedTaxonomy skeleton, never any row below the roots. Row writes
+// go straight to the TaxonomyShardEntity of their top-level subtree, only adding or removing a root passes here.
+@ComponentId("sharded_taxonomy")
+public class ShardedTaxonomyEntity extends EventSourcedEntity<ShardedTaxonomy, ShardedTaxonomyEvent> {
+
+    private final String entityId;
+    private final Logger logger = LoggerFactory.getLogger(ShardedTaxonomyEntity.class);
+
+    public ShardedTaxonomyEntity(EventSourcedEntityContext context) {
+        entityId = context.entityId();
+    }
+
+    @JsonTypeInfo(use = JsonTypeInfo.Id.NAME)
+    @JsonSubTypes({
+            @JsonSubTypes.Type(value = ShardedResult.Success.class, name = "Success"),
+            @JsonSubTypes.Type(value = ShardedResult.Skeleton.class, name = "Skeleton"),
+            @JsonSubTypes.Type(value = ShardedResult.ShardedFailed.class, name = "ShardedFailed")})
+    public sealed interface ShardedResult {
+        record Success(String id) implements ShardedResult {
+        }
+
+        record Skeleton(ShardedTaxonomy taxonomy) implements ShardedResult {
+        }
+
+        record ShardedFailed(String message) implements ShardedResult {
+        }
+    }
+
+    @Override
+    public ShardedTaxonomy emptyState() {
+        return ShardedTaxonomy.empty(entityId);
+    }
+
+    public Effect<ShardedResult> createTaxonomy(TaxonomyCreate taxonomyCreate) {
+        CCFLog.info(logger, "Create sharded taxonomy", Map.of("taxonomy_id", entityId, "taxonomyCreate", taxonomyCreate.toString()));
+        if (currentState().exists()) {
+            return effects().reply(new ShardedResult.ShardedFailed("Sharded taxonomy %s already exists".formatted(entityId)));
+        }
+        return effects().persist(new ShardedTaxonomyEvent.ShardedTaxonomyCreated(taxonomyCreate))
+                .thenReply(newState -> new ShardedResult.Success(entityId));
+    }
+
+    public ReadOnlyEffect<ShardedResult> getSkeleton() {
+        if (!currentState().exists()) {
+            return effects().reply(notFound());
+        }
+        return effects().reply(new ShardedResult.Skeleton(currentState()));
+    }
+
+    // Registers a root whose shard has been initialized. Adding a registered root again is a no-op.
+    public Effect<ShardedResult> addRoot(String rootRowId) {
+        CCFLog.info(logger, "Add sharded taxonomy root", Map.of("taxonomy_id", entityId, "rootRowId", rootRowId));
+        if (!currentState().exists()) {
+            return effects().reply(notFound());
+        }
+        if (currentState().rootRowIds().contains(rootRowId)) {
+            return effects().reply(new ShardedResult.Success(entityId));
+        }
+        return effects().persist(new ShardedTaxonomyEvent.ShardRootAdded(rootRowId))
+                .thenReply(newState -> new ShardedResult.Success(entityId));
+    }
+
+    public Effect<ShardedResult> removeRoot(String rootRowId) {
+        CCFLog.info(logger, "Remove sharded taxonomy root", Map.of("taxonomy_id", entityId, "rootRowId", rootRowId));
+        if (!currentState().exists()) {
+            return effects().reply(notFound());
+        }
+        if (!currentState().rootRowIds().contains(rootRowId)) {
+            return effects().reply(new ShardedResult.ShardedFailed(
+                    "Root row '%s' not found in sharded taxonomy %s".formatted(rootRowId, entityId)));
+        }
+        return effects().persist(new ShardedTaxonomyEvent.ShardRootRemoved(rootRowId))
+                .thenReply(newState -> new ShardedResult.Success(entityId));
+    }
+
+    private ShardedResult notFound() {
+        return new ShardedResult.ShardedFailed("Sharded taxonomy %s not found".formatted(entityId));
+    }
+
+    @Override
+    public ShardedTaxonomy applyEvent(ShardedTaxonomyEvent event) {
+        return switch (event) {
+            case ShardedTaxonomyEvent.ShardedTaxonomyCreated evt -> currentState().onShardedTaxonomyCreated(evt);
+            case ShardedTaxonomyEvent.ShardRootAdded evt -> currentState().onShardRootAdded(evt);
+            case ShardedTaxonomyEvent.ShardRootRemoved evt -> currentState().onShardRootRemoved(evt);
+        };
+    }
+}
@@ -36,12 +36,17 @@ public class TaxonomyByFilterView extends View {
                     yield effects().deleteRow();
                 }
                 case TaxonomyEvent.TaxonomyPublished published ->
-                    effects().updateRow(rowState().onTaxonomyPublished(published.isPublish()));
+                    effects().updateRow(rowState().onTaxonomyPublished(published.isPublish(),
+                            published.taxonomy() == null ? null : published.taxonomy().version()));
                 case TaxonomyEvent.TaxonomyTaxRowAdded added -> effects().updateRow(rowState().onTaxonomyTaxRowAdded(added.taxRowAdd()));
                 case TaxonomyEvent.TaxonomyTaxRowsAdded added -> effects().updateRow(rowState().onTaxonomyTaxRowsAdded(added.taxRowsAdd()));
                 case TaxonomyEvent.TaxonomyTaxRowRemoved removed -> effects().updateRow(rowState().onTaxonomyTaxRowRemoved(removed.rowId()));
                 case TaxonomyEvent.TaxonomyTaxRowsRemoved removed -> effects().updateRow(rowState().onTaxonomyTaxRowsRemoved(removed.taxRowsRemove()));
                 case TaxonomyEvent.TaxonomyTaxRowUpdated updated -> effects().updateRow(rowState().onTaxonomyTaxRowUpdated(updated.taxRowUpdate()));
+                case TaxonomyEvent.TaxonomyTaxRowsUpdated updated -> effects().updateRow(rowState().onTaxonomyTaxRowsUpdated(updated.taxRowsUpdate()));
+                case TaxonomyEvent.TaxonomySubtreeMoved moved -> effects().updateRow(rowState().onTaxonomySubtreeMoved(moved.subtreeMove()));
+                case TaxonomyEvent.TaxonomyPatched patched -> effects().updateRow(rowState().onTaxonomyPatched(patched.patch()));
+                case TaxonomyEvent.TaxonomyRebased rebased -> effects().updateRow(TaxonomyRow.onTaxonomyRebased(rebased));
                 default -> effects().updateRow(rowState());
             };
             return ret;
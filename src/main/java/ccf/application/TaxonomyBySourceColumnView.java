@@ -0,0 +1,67 @@
+package ccf.application;
+
+import java.util.List;
+import java.util.Map;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import akka.javasdk.annotations.ComponentId;
+import akka.javasdk.annotations.Consume;
+import akka.javasdk.annotations.Query;
+import akka.javasdk.view.TableUpdater;
+import akka.javasdk.view.View;
+import ccf.domain.standard.TaxonomyEvent;
+import ccf.domain.standard.TaxonomySourceColumns;
+import ccf.util.CCFLog;
+
+// Reverse index from dimension source columns to the taxonomy rows they feed, one view row per taxonomy
+@ComponentId("taxonomy_by_source_column")
+public class TaxonomyBySourceColumnView extends View {
+
+    @Consume.FromEventSourcedEntity(TaxonomyEntity.class)
+    public static class TaxonomyBySourceColumn extends TableUpdater<TaxonomySourceColumns> {
+        private static final Logger logger = LoggerFactory.getLogger(TaxonomyBySourceColumn.class);
+
+        public Effect<TaxonomySourceColumns> onEvent(TaxonomyEvent event) {
+            String taxonomyId = updateContext().eventSubject().orElse("");
+            return switch (event) {
+                case TaxonomyEvent.TaxonomyCreated created -> effects().updateRow(TaxonomySourceColumns.empty(taxonomyId));
+                case TaxonomyEvent.TaxonomyRemoved removed -> {
+                    CCFLog.info(logger, "Taxonomy removed from source column view", Map.of("taxonomy_id", taxonomyId));
+                    yield effects().deleteRow();
+                }
+                case TaxonomyEvent.TaxonomyPublished published ->
+                    effects().updateRow(current(taxonomyId).onTaxonomyPublished(published.isPublish()));
+                case TaxonomyEvent.TaxonomyTaxRowAdded added ->
+                    effects().updateRow(current(taxonomyId).onTaxRowAdded(added.taxRowAdd().taxRow()));
+                case TaxonomyEvent.TaxonomyTaxRowsAdded added ->
+                    effects().updateRow(current(taxonomyId).onTaxRowsAdded(added.taxRowsAdd()));
+                case TaxonomyEvent.TaxonomyTaxRowRemoved removed ->
+                    effects().updateRow(current(taxonomyId).onTaxRowsRemoved(List.of(removed.rowId())));
+                case TaxonomyEvent.TaxonomyTaxRowsRemoved removed ->
+                    effects().updateRow(current(taxonomyId).onTaxRowsRemoved(removed.taxRowsRemove().rowIds()));
+                case TaxonomyEvent.TaxonomyTaxRowUpdated updated ->
+                    effects().updateRow(current(taxonomyId).onTaxRowUpdated(updated.taxRowUpdate()));
+                case TaxonomyEvent.TaxonomyTaxRowsUpdated updated ->
+                    effects().updateRow(current(taxonomyId).onTaxRowsUpdated(updated.taxRowsUpdate()));
+                // A move changes no hints
+                case TaxonomyEvent.TaxonomySubtreeMoved moved -> effects().updateRow(current(taxonomyId));
+                case TaxonomyEvent.TaxonomyPatched patched ->
+                    effects().updateRow(current(taxonomyId).onTaxonomyPatched(patched.patch()));
+                case TaxonomyEvent.TaxonomyRebased rebased ->
+                    effects().updateRow(TaxonomySourceColumns.onTaxonomyRebased(taxonomyId, rebased));
+            };
+        }
+
+        private TaxonomySourceColumns current(String taxonomyId) {
+            return rowState() == null ? TaxonomySourceColumns.empty(taxonomyId) : rowState();
+        }
+    }
+
+    // columnKey is TaxonomySourceColumns.columnKey(dimension, column)
+    @Query("SELECT * AS taxonomies FROM taxonomy_by_source_column WHERE :columnKey = ANY(columnKeys)")
+    public QueryEffect<TaxonomySourceColumns.TaxonomySourceColumnsList> getTaxonomiesBySourceColumn(String columnKey) {
+        return queryResult();
+    }
+}
@@ -0,0 +1,76 @@
+package ccf.application;
+
+import akka.javasdk.annotations.ComponentId;
+import akka.javasdk.keyvalueentity.KeyValueEntity;
+import ccf.domain.standard.TaxonomyCrosswalk;
+import ccf.domain.standard.TaxonomyException;
+import ccf.util.CCFLog;
+
+import com.fasterxml.jackson.annotation.JsonSubTypes;
+import com.fasterxml.jackson.annotation.JsonTypeInfo;
+
+import java.util.Map;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+// Holds the mappings of a TaxonomyCrosswalk, the entity id is TaxonomyCrosswalk.crosswalkId. The endpoint checks
+// a put against both published versions before sending it, the entity only merges and counts revisions.
+@ComponentId("taxonomy_crosswalk")
+public class TaxonomyCrosswalkEntity extends KeyValueEntity<TaxonomyCrosswalk> {
+
+    private final Logger logger = LoggerFactory.getLogger(TaxonomyCrosswalkEntity.class);
+
+    @JsonTypeInfo(use = JsonTypeInfo.Id.NAME)
+    @JsonSubTypes({
+            @JsonSubTypes.Type(value = CrosswalkResult.Success.class, name = "Success"),
+            @JsonSubTypes.Type(value = CrosswalkResult.CrosswalkState.class, name = "CrosswalkState"),
+            @JsonSubTypes.Type(value = CrosswalkResult.Revision.class, name = "Revision"),
+            @JsonSubTypes.Type(value = CrosswalkResult.CrosswalkFailed.class, name = "CrosswalkFailed")})
+    public sealed interface CrosswalkResult {
+        record Success(String id, int mappings, long revision) implements CrosswalkResult {
+        }
+
+        record CrosswalkState(TaxonomyCrosswalk crosswalk) implements CrosswalkResult {
+        }
+
+        record Revision(long revision) implements CrosswalkResult {
+        }
+
+        record CrosswalkFailed(String message) implements CrosswalkResult {
+        }
+    }
+
+    public Effect<CrosswalkResult> putMappings(TaxonomyCrosswalk.CrosswalkPut put) {
+        String id = commandContext().entityId();
+        CCFLog.info(logger, "Put taxonomy crosswalk mappings", Map.of("crosswalk_id", id,
+                "mappings", String.valueOf(put.mappingsPut().mappings().size())));
+        TaxonomyCrosswalk crosswalk = currentState() == null ? TaxonomyCrosswalk.empty(id, put) : currentState();
+        TaxonomyCrosswalk next;
+        try {
+            next = crosswalk.onMappingsPut(put.mappingsPut());
+        } catch (TaxonomyException e) {
+            return effects().reply(new CrosswalkResult.CrosswalkFailed(e.getMessage()));
+        }
+        return effects().updateState(next)
+                .thenReply(new CrosswalkResult.Success(id, next.mappings().size(), next.revision()));
+    }
+
+    public ReadOnlyEffect<CrosswalkResult> getCrosswalk() {
+        if (currentState() == null) {
+            return effects().reply(notFound());
+        }
+        return effects().reply(new CrosswalkResult.CrosswalkState(currentState()));
+    }
+
+    // Lets a reader check its compiled table without fetching the mappings
+    public ReadOnlyEffect<CrosswalkResult> getRevision() {
+        if (currentState() == null) {
+            return effects().reply(notFound());
+        }
+        return effects().reply(new CrosswalkResult.Revision(currentState().revision()));
+    }
+
+    private CrosswalkResult notFound() {
+        return new CrosswalkResult.CrosswalkFailed("Taxonomy crosswalk %s not found".formatted(commandContext().entityId()));
+    }
+}
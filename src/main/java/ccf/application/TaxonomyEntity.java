@@ -3,18 +3,25 @@ package ccf.application;
 import akka.javasdk.annotations.ComponentId;
 import akka.javasdk.eventsourcedentity.EventSourcedEntity;
 import akka.javasdk.eventsourcedentity.EventSourcedEntityContext;
+import ccf.domain.standard.CompiledTaxonomy;
+import ccf.domain.standard.RowIndex;
 import ccf.domain.standard.Taxonomy;
 import ccf.domain.standard.TaxonomyEvent;
 import ccf.domain.standard.TaxonomyException;
+import ccf.domain.standard.TaxonomyIntegrity;
 import ccf.domain.standard.TaxonomyStatus;
+import ccf.domain.standard.TaxonomyVersion;
 import ccf.domain.standard.Taxonomy.TaxonomyCreate;
 import ccf.util.CCFLog;
 
 import com.fasterxml.jackson.annotation.JsonSubTypes;
 import com.fasterxml.jackson.annotation.JsonTypeInfo;
 
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -22,6 +29,11 @@ import org.slf4j.LoggerFactory;
 @ComponentId("taxonomy")
 public class TaxonomyEntity extends EventSourcedEntity<Taxonomy, TaxonomyEvent> {
 
+    private static final int DEFAULT_SEARCH_LIMIT = 20;
+    private static final int DEFAULT_ROWS_PAGE_LIMIT = 500;
+    private static final int MAX_ROWS_PAGE_LIMIT = 10_000;
+    static final int MAX_PATCH_OPS = 10_000;
+
     private final String entityId;
     private final Logger logger = LoggerFactory.getLogger(TaxonomyEntity.class);
 
@@ -40,7 +52,16 @@ public class TaxonomyEntity extends EventSourcedEntity<Taxonomy, TaxonomyEvent>
             @JsonSubTypes.Type(value = TaxonomyResult.IncorrectAdd.class, name = "IncorrectAdd"),
             @JsonSubTypes.Type(value = TaxonomyResult.PublishFailed.class, name = "PublishFailed"),
             @JsonSubTypes.Type(value = TaxonomyResult.IncorrectRemove.class, name = "IncorrectRemove"),
-            @JsonSubTypes.Type(value = TaxonomyResult.IncorrectUpate.class, name = "IncorrectUpate")})
+            @JsonSubTypes.Type(value = TaxonomyResult.IncorrectUpate.class, name = "IncorrectUpate"),
+            @JsonSubTypes.Type(value = TaxonomyResult.JournalStats.class, name = "JournalStats"),
+            @JsonSubTypes.Type(value = TaxonomyResult.RowsSuccess.class, name = "RowsSuccess"),
+            @JsonSubTypes.Type(value = TaxonomyResult.PathsSuccess.class, name = "PathsSuccess"),
+            @JsonSubTypes.Type(value = TaxonomyResult.SearchSuccess.class, name = "SearchSuccess"),
+            @JsonSubTypes.Type(value = TaxonomyResult.Revision.class, name = "Revision"),
+            @JsonSubTypes.Type(value = TaxonomyResult.RowsPage.class, name = "RowsPage"),
+            @JsonSubTypes.Type(value = TaxonomyResult.Patched.class, name = "Patched"),
+            @JsonSubTypes.Type(value = TaxonomyResult.IncorrectPatch.class, name = "IncorrectPatch"),
+            @JsonSubTypes.Type(value = TaxonomyResult.Validated.class, name = "Validated")})
     public sealed interface TaxonomyResult {
 
         record CreateFailed(String message) implements TaxonomyResult {
@@ -69,11 +90,46 @@ public class TaxonomyEntity extends EventSourcedEntity<Taxonomy, TaxonomyEvent>
 
         record IncorrectUpate(String message) implements TaxonomyResult {
         }
+
+        record RowsSuccess(String id, List<Taxonomy.Row> rows) implements TaxonomyResult {
+        }
+
+        // nextAfter is the cursor of the next page, null after the last page. sequenceNumber is the state the page
+        // was read from.
+        record RowsPage(String id, List<Taxonomy.Row> rows, String nextAfter, long sequenceNumber) implements TaxonomyResult {
+        }
+
+        // rows is the number of rows after the patch
+        record Patched(String id, int ops, int rows) implements TaxonomyResult {
+        }
+
+        record IncorrectPatch(String message) implements TaxonomyResult {
+        }
+
+        record PathsSuccess(String id, List<Taxonomy.Breadcrumb> paths) implements TaxonomyResult {
+        }
+
+        record SearchSuccess(String id, String q, List<Taxonomy.SearchHit> hits) implements TaxonomyResult {
+        }
+
+        // sequenceNumber changes with every event, so (version, sequenceNumber) identifies the taxonomy's content
+        record Revision(String id, TaxonomyVersion version, TaxonomyStatus status, long sequenceNumber)
+                implements TaxonomyResult {
+        }
+
+        // sequenceNumber is the journal length. eventsSinceRebase counts from the last TaxonomyRebased event
+        // (inclusive), the whole journal if it holds none.
+        record JournalStats(String id, long sequenceNumber, Long rebasedAt, long eventsSinceRebase)
+                implements TaxonomyResult {
+        }
+
+        record Validated(TaxonomyIntegrity.IntegrityReport report) implements TaxonomyResult {
+        }
     }
 
     @Override
     public Taxonomy emptyState() {
-        return new Taxonomy(entityId, null, null, null, TaxonomyStatus.TAXONOMY_EMPTY, List.of());
+        return new Taxonomy(entityId, null, null, null, TaxonomyStatus.TAXONOMY_EMPTY, RowIndex.empty(), null, null);
     }
 
 
@@ -94,6 +150,140 @@ public class TaxonomyEntity extends EventSourcedEntity<Taxonomy, TaxonomyEvent>
         }
     }
 
+    // Subtree and ancestor slices come from the Euler tour numbering of the rows, no recursive walk.
+    // A published taxonomy is served from its cached compiled form.
+    public ReadOnlyEffect<TaxonomyResult> getSubtree(Taxonomy.SubtreeQuery subtreeQuery) {
+        CCFLog.debug(logger, "getSubtree", Map.of("taxonomy_id", entityId, "subtreeQuery", subtreeQuery.toString()));
+        var failed = validateRowQuery(subtreeQuery.rowId());
+        if (failed != null) {
+            return effects().reply(failed);
+        }
+        if (subtreeQuery.depth() != null && subtreeQuery.depth() < 0) {
+            return effects().reply(new TaxonomyResult.GetFailed("Subtree depth must not be negative"));
+        }
+        var compiled = compiledIfPublished();
+        if (compiled != null) {
+            return effects().reply(new TaxonomyResult.RowsSuccess(entityId,
+                    compiled.subtree(subtreeQuery.rowId(), subtreeQuery.depth())));
+        }
+        var rows = currentState().rows();
+        var subtree = rows.intervals().subtree(subtreeQuery.rowId(), subtreeQuery.depth());
+        return effects().reply(new TaxonomyResult.RowsSuccess(entityId, toRows(rows, subtree)));
+    }
+
+    public ReadOnlyEffect<TaxonomyResult> getAncestors(String rowId) {
+        CCFLog.debug(logger, "getAncestors", Map.of("taxonomy_id", entityId, "rowId", rowId));
+        var failed = validateRowQuery(rowId);
+        if (failed != null) {
+            return effects().reply(failed);
+        }
+        var compiled = compiledIfPublished();
+        if (compiled != null) {
+            return effects().reply(new TaxonomyResult.RowsSuccess(entityId, compiled.ancestors(rowId)));
+        }
+        var rows = currentState().rows();
+        return effects().reply(new TaxonomyResult.RowsSuccess(entityId, toRows(rows, rows.intervals().ancestors(rowId))));
+    }
+
+    // One page of rows in tree order, published taxonomies page through their compiled form
+    public ReadOnlyEffect<TaxonomyResult> getRowsPage(Taxonomy.RowsPageQuery pageQuery) {
+        if (currentState().status() == TaxonomyStatus.TAXONOMY_DISABLED || currentState().status() == TaxonomyStatus.TAXONOMY_EMPTY) {
+            return effects().reply(new TaxonomyResult.GetFailed("Taxonomy %s cant be retrieved, is in %s state".formatted(entityId, currentState().status().toString())));
+        }
+        int limit = pageQuery.limit() == null ? DEFAULT_ROWS_PAGE_LIMIT : pageQuery.limit();
+        if (limit < 1 || limit > MAX_ROWS_PAGE_LIMIT) {
+            return effects().reply(new TaxonomyResult.GetFailed("Page limit must be between 1 and %d".formatted(MAX_ROWS_PAGE_LIMIT)));
+        }
+        // The cursor only means the same position in the state the previous page was read from, checked before the
+        // cursor row so an edit is reported as such and not as a missing row
+        long sequenceNumber = commandContext().sequenceNumber();
+        if (pageQuery.sequenceNumber() != null && pageQuery.sequenceNumber() != sequenceNumber) {
+            return effects().reply(new TaxonomyResult.GetFailed(
+                    "Taxonomy %s changed while its rows were read, sequence number %d is now %d, read the rows again"
+                            .formatted(entityId, pageQuery.sequenceNumber(), sequenceNumber)));
+        }
+        String after = pageQuery.after();
+        var compiled = compiledIfPublished();
+        List<Taxonomy.Row> page;
+        if (compiled != null) {
+            if (after != null && !compiled.contains(after)) {
+                return effects().reply(new TaxonomyResult.GetFailed("Tax row with ID '%s' not found".formatted(after)));
+            }
+            // One extra row tells whether another page follows
+            page = compiled.rowsAfter(after, limit + 1);
+        } else {
+            var rows = currentState().rows();
+            if (after != null && !rows.intervals().contains(after)) {
+                return effects().reply(new TaxonomyResult.GetFailed("Tax row with ID '%s' not found".formatted(after)));
+            }
+            page = toRows(rows, rows.intervals().after(after, limit + 1));
+        }
+        if (page.size() <= limit) {
+            return effects().reply(new TaxonomyResult.RowsPage(entityId, page, null, sequenceNumber));
+        }
+        page = page.subList(0, limit);
+        return effects().reply(new TaxonomyResult.RowsPage(entityId, page, page.get(limit - 1).rowId(), sequenceNumber));
+    }
+
+    // Version, status and sequence number without the rows, enough for a caller to validate an ETag or a cached
+    // compiled form
+    public ReadOnlyEffect<TaxonomyResult> getRevision() {
+        if (currentState().status() == TaxonomyStatus.TAXONOMY_DISABLED || currentState().status() == TaxonomyStatus.TAXONOMY_EMPTY) {
+            return effects().reply(new TaxonomyResult.GetFailed("Taxonomy %s cant be retrieved, is in %s state".formatted(entityId, currentState().status().toString())));
+        }
+        return effects().reply(new TaxonomyResult.Revision(entityId, currentState().version(), currentState().status(),
+                commandContext().sequenceNumber()));
+    }
+
+    // Resolves many rowIds to their breadcrumb paths, unknown rowIds get a null path
+    public ReadOnlyEffect<TaxonomyResult> getPaths(Taxonomy.PathsQuery pathsQuery) {
+        CCFLog.debug(logger, "getPaths", Map.of("taxonomy_id", entityId, "rowIds", String.valueOf(pathsQuery.rowIds().size())));
+        if (currentState().status() == TaxonomyStatus.TAXONOMY_DISABLED || currentState().status() == TaxonomyStatus.TAXONOMY_EMPTY) {
+            return effects().reply(new TaxonomyResult.GetFailed("Taxonomy %s cant be retrieved, is in %s state".formatted(entityId, currentState().status().toString())));
+        }
+        var breadcrumbs = currentState().rows().breadcrumbs();
+        return effects().reply(new TaxonomyResult.PathsSuccess(entityId,
+                pathsQuery.rowIds().stream().map(breadcrumbs::get).toList()));
+    }
+
+    public ReadOnlyEffect<TaxonomyResult> searchRows(Taxonomy.SearchQuery searchQuery) {
+        CCFLog.debug(logger, "searchRows", Map.of("taxonomy_id", entityId, "searchQuery", searchQuery.toString()));
+        if (currentState().status() == TaxonomyStatus.TAXONOMY_DISABLED || currentState().status() == TaxonomyStatus.TAXONOMY_EMPTY) {
+            return effects().reply(new TaxonomyResult.GetFailed("Taxonomy %s cant be retrieved, is in %s state".formatted(entityId, currentState().status().toString())));
+        }
+        int limit = searchQuery.limit() == null ? DEFAULT_SEARCH_LIMIT : searchQuery.limit();
+        if (limit < 1) {
+            return effects().reply(new TaxonomyResult.GetFailed("Search limit must be positive"));
+        }
+        var rows = currentState().rows();
+        return effects().reply(new TaxonomyResult.SearchSuccess(entityId, searchQuery.q(),
+                rows.search().search(rows, searchQuery.q(), limit)));
+    }
+
+    private TaxonomyResult.GetFailed validateRowQuery(String rowId) {
+        if (currentState().status() == TaxonomyStatus.TAXONOMY_DISABLED || currentState().status() == TaxonomyStatus.TAXONOMY_EMPTY) {
+            return new TaxonomyResult.GetFailed("Taxonomy %s cant be retrieved, is in %s state".formatted(entityId, currentState().status().toString()));
+        }
+        var compiled = compiledIfPublished();
+        boolean found = compiled != null ? compiled.contains(rowId) : currentState().rows().intervals().contains(rowId);
+        if (!found) {
+            return new TaxonomyResult.GetFailed("Tax row with ID '%s' not found".formatted(rowId));
+        }
+        return null;
+    }
+
+    // Published rows no longer change, they are read from the node-local compiled cache
+    private CompiledTaxonomy compiledIfPublished() {
+        if (currentState().status() != TaxonomyStatus.TAXONOMY_PUBLISHED) {
+            return null;
+        }
+        return CompiledTaxonomies.compiled(currentState(), commandContext().sequenceNumber());
+    }
+
+    private static List<Taxonomy.Row> toRows(RowIndex rows, List<String> rowIds) {
+        return rowIds.stream().map(rowId -> rows.get(rowId).orElseThrow()).toList();
+    }
+
     public Effect<TaxonomyResult> createTaxonomy(TaxonomyCreate taxonomyCreate) {
         try {
             CCFLog.info(logger, "Create taxonomy",
@@ -146,12 +336,37 @@ public class TaxonomyEntity extends EventSourcedEntity<Taxonomy, TaxonomyEvent>
                         return effects().reply(new TaxonomyResult.PublishFailed("Taxonomy %s already published".formatted(entityId)));
                     }
                     else {
-                        var event = new TaxonomyEvent.TaxonomyPublished(taxonomyPublish);
+                        var published = currentState();
+                        var event = new TaxonomyEvent.TaxonomyPublished(false,
+                                new TaxonomyCreate(published.name(), published.description(), published.nextDraftVersion()));
                         return effects().persist(event).thenReply(newState -> new TaxonomyResult.Success(entityId));
                     }   
                 default:
-                    var event = new TaxonomyEvent.TaxonomyPublished(taxonomyPublish);
-                    return effects().persist(event).thenReply(newState -> new TaxonomyResult.Success(entityId));
+                    if (!taxonomyPublish) {
+                        // Already open, there is no published version to move away from
+                        CCFLog.debug(logger, "Taxonomy already open", Map.of("taxonomy_id", entityId));
+                        return effects().reply(new TaxonomyResult.Success(entityId));
+                    }
+                    // A published version can no longer be fixed, so any integrity error blocks the publish
+                    var report = TaxonomyIntegrity.check(entityId, currentState().rows());
+                    if (!report.isValid()) {
+                        CCFLog.info(logger, "Taxonomy failed integrity check", Map.of("taxonomy_id", entityId,
+                                "errors", String.valueOf(report.errors()), "counts", report.counts().toString()));
+                        return effects().reply(new TaxonomyResult.PublishFailed(
+                                "Taxonomy %s has %d integrity errors %s, first: %s".formatted(entityId, report.errors(),
+                                        report.counts(), firstError(report))));
+                    }
+                    // Only the header goes into the journal, TaxonomyVersionConsumer archives the rows of the
+                    // published state as an immutable version
+                    var state = currentState();
+                    var event = new TaxonomyEvent.TaxonomyPublished(true,
+                            new TaxonomyCreate(state.name(), state.description(), state.version()));
+                    return effects().persist(event).thenReply(newState -> {
+                        // The published rows no longer change, build their breadcrumb paths and search indexes now
+                        newState.rows().breadcrumbs();
+                        newState.rows().search();
+                        return new TaxonomyResult.Success(entityId);
+                    });
             }
         } catch (Exception e) {
             CCFLog.error(logger, "Publishing Taxonomy failed", Map.of("taxonomy_id", entityId, "taxonomyPublish",
@@ -160,6 +375,23 @@ public class TaxonomyEntity extends EventSourcedEntity<Taxonomy, TaxonomyEvent>
         }
     }
 
+    private static String firstError(TaxonomyIntegrity.IntegrityReport report) {
+        return report.issues().stream()
+                .filter(issue -> !TaxonomyIntegrity.EMPTY_LEAF.equals(issue.type()))
+                .map(TaxonomyIntegrity.Issue::message)
+                .findFirst().orElse("");
+    }
+
+    // The integrity report publishTaxonomy checks, for any state with rows
+    public ReadOnlyEffect<TaxonomyResult> validateTaxonomy() {
+        CCFLog.debug(logger, "validateTaxonomy", Map.of("taxonomy_id", entityId));
+        if (currentState().status() == TaxonomyStatus.TAXONOMY_DISABLED || currentState().status() == TaxonomyStatus.TAXONOMY_EMPTY) {
+            return effects().reply(new TaxonomyResult.GetFailed("Taxonomy %s cant be validated, is in %s state"
+                    .formatted(entityId, currentState().status().toString())));
+        }
+        return effects().reply(new TaxonomyResult.Validated(TaxonomyIntegrity.check(entityId, currentState().rows())));
+    }
+
     public Effect<TaxonomyResult> addTaxRow(Taxonomy.TaxRowAdd taxRowAdd) {
         try {
             CCFLog.info(logger, "Add tax row", Map.of("taxonomy_id", entityId, "taxRowAdd", taxRowAdd.toString()));
@@ -185,25 +417,22 @@ public class TaxonomyEntity extends EventSourcedEntity<Taxonomy, TaxonomyEvent>
         }
     }
     private boolean isParent(String rowId) {
-        var rows = currentState().rows();
-        return rows.stream().anyMatch(row -> row.parent() != null && row.parent().equals(rowId));
+        return currentState().rows().hasChildren(rowId);
     }
+    // Validation runs against the RowIndex of the current state, each check is a hash lookup
     private void validateTaxonomyRowForMod(String action, String rowId, String value, String parent, Boolean checkDuplicates) {
         var rows = currentState().rows();
         switch (action) {
             case "addRow":
-                if (checkDuplicates) {
-                    if (rows.stream().anyMatch(row -> row.rowId().equals(rowId))) {
-                        throw new TaxonomyException(currentState().id(), "Tax row with ID '" + rowId + "' already exists");
-                    }
+                if (checkDuplicates && rows.contains(rowId)) {
+                    throw new TaxonomyException(currentState().id(), "Tax row with ID '" + rowId + "' already exists");
                 }
-                if (parent != null &&
-                        rows.stream().noneMatch(r -> r.rowId().equals(parent))) {
+                if (parent != null && !rows.contains(parent)) {
                     throw new TaxonomyException(currentState().id(), "Parent row with ID '" + parent + "' does not exist");
                 }
                 break;
             case "removeRow":
-                if (rows.stream().noneMatch(row -> row.rowId().equals(rowId))) {
+                if (!rows.contains(rowId)) {
                     throw new TaxonomyException(currentState().id(), "Tax row with ID '" + rowId + "' not found");
                 }
                 if (isParent(rowId)) {
@@ -211,14 +440,49 @@ public class TaxonomyEntity extends EventSourcedEntity<Taxonomy, TaxonomyEvent>
                 }
                 break;
             case "updateRow":
-                if (rows.stream().noneMatch(row -> row.rowId().equals(rowId))) {
+                if (!rows.contains(rowId)) {
                     throw new TaxonomyException(currentState().id(), "Tax row with ID '" + rowId + "' not found");
                 }
+                if (parent != null && !rows.contains(parent)) {
+                    throw new TaxonomyException(currentState().id(), "Parent row with ID '" + parent + "' is not a valid parent for '" + rowId + "'");
+                }
+                currentState().checkNoCycle(rows, rowId, parent);
                 break;
             default:
                 throw new TaxonomyException(currentState().id(), "Invalid action: " + action);
         }
     }
+    // Validates a batch in one pass. Rows may reference parents defined earlier in the same batch,
+    // a replacing batch is validated against an empty taxonomy.
+    private void validateTaxRowsAdd(Taxonomy.TaxRowsAdd taxRowsAdd) {
+        var rows = taxRowsAdd.isReplace() ? RowIndex.empty() : currentState().rows();
+        Set<String> batchIds = new HashSet<>();
+        for (Taxonomy.TaxRow row : taxRowsAdd.taxRows()) {
+            if (rows.contains(row.rowId()) || !batchIds.add(row.rowId())) {
+                throw new TaxonomyException(currentState().id(), "Tax row with ID '" + row.rowId() + "' already exists");
+            }
+            if (row.parent() != null && !rows.contains(row.parent()) && !batchIds.contains(row.parent())) {
+                throw new TaxonomyException(currentState().id(), "Parent row with ID '" + row.parent() + "' does not exist");
+            }
+        }
+    }
+    // Rows are removed in batch order, so a parent can be removed after all of its children in the same batch
+    private void validateTaxRowsRemove(Taxonomy.TaxRowsRemove taxRowsRemove) {
+        var rows = currentState().rows();
+        Set<String> removed = new HashSet<>();
+        Map<String, Integer> removedChildren = new HashMap<>();
+        for (String rowId : taxRowsRemove.rowIds()) {
+            var row = rows.get(rowId).filter(r -> !removed.contains(r.rowId()))
+                    .orElseThrow(() -> new TaxonomyException(currentState().id(), "Tax row with ID '" + rowId + "' not found"));
+            if (row.children().size() > removedChildren.getOrDefault(rowId, 0)) {
+                throw new TaxonomyException(currentState().id(), "Tax row with ID '" + rowId + "' cannot be removed, it is a parent of other rows");
+            }
+            removed.add(rowId);
+            if (row.parent() != null) {
+                removedChildren.merge(row.parent(), 1, Integer::sum);
+            }
+        }
+    }
     public Effect<TaxonomyResult> removeTaxRow(String rowId) {
         try {   
             CCFLog.info(logger, "Remove tax row", Map.of("taxonomy_id", entityId, "rowId", rowId));
@@ -240,27 +504,43 @@ public class TaxonomyEntity extends EventSourcedEntity<Taxonomy, TaxonomyEvent>
     }
 
     public Effect<TaxonomyResult> addTaxRows(Taxonomy.TaxRowsAdd taxRowsAdd) {
+        CCFLog.info(logger, "Add tax rows", Map.of("taxonomy_id", entityId, "taxRowsAdd", taxRowsAdd.toString()));
+        return addTaxRows("addTaxRows", taxRowsAdd, null, null);
+    }
+
+    // A chunk of TaxonomyImportWorkflow. The workflow sends a chunk again when it can't tell whether the previous
+    // attempt was applied, a chunk already recorded for its import is acknowledged without adding its rows again.
+    public Effect<TaxonomyResult> importTaxRows(Taxonomy.TaxRowsImport taxRowsImport) {
+        CCFLog.info(logger, "Import tax rows", Map.of("taxonomy_id", entityId, "import_id", taxRowsImport.importId(),
+                "chunk", String.valueOf(taxRowsImport.chunk()),
+                "rows", String.valueOf(taxRowsImport.taxRowsAdd().taxRows().size())));
+        if (currentState().isChunkImported(taxRowsImport.importId(), taxRowsImport.chunk())) {
+            CCFLog.debug(logger, "Taxonomy import chunk already applied", Map.of("taxonomy_id", entityId,
+                    "import_id", taxRowsImport.importId(), "chunk", String.valueOf(taxRowsImport.chunk())));
+            return effects().reply(new TaxonomyResult.Success(entityId));
+        }
+        return addTaxRows("importTaxRows", taxRowsImport.taxRowsAdd(), taxRowsImport.importId(),
+                taxRowsImport.chunk());
+    }
+
+    private Effect<TaxonomyResult> addTaxRows(String action, Taxonomy.TaxRowsAdd taxRowsAdd, String importId,
+            Integer chunk) {
         try {
-            CCFLog.info(logger, "Add tax rows", Map.of("taxonomy_id", entityId, "taxRowsAdd", taxRowsAdd.toString()));
             switch (currentState().status()) {
                 case TaxonomyStatus.TAXONOMY_EMPTY:
                 case TaxonomyStatus.TAXONOMY_DISABLED:
                 case TaxonomyStatus.TAXONOMY_PUBLISHED:
                     CCFLog.debug(logger, "Taxonomy rows cannot be added", Map.of("taxonomy_id", entityId)); 
-                    return effects().reply(new TaxonomyResult.IncorrectAdd("addTaxRows", "Taxonomy %s rows cannot be added, is in %s state".formatted(entityId, currentState().status().toString())));
+                    return effects().reply(new TaxonomyResult.IncorrectAdd(action, "Taxonomy %s rows cannot be added, is in %s state".formatted(entityId, currentState().status().toString())));
                 default:
-                    if(!taxRowsAdd.isReplace()) {
-                        for (Taxonomy.TaxRow row : taxRowsAdd.taxRows()) {
-                            validateTaxonomyRowForMod("addRow", row.rowId(), row.value(), row.parent(), true);
-                        }
-                    }
-                    var event = new TaxonomyEvent.TaxonomyTaxRowsAdded(taxRowsAdd);
+                    validateTaxRowsAdd(taxRowsAdd);
+                    var event = new TaxonomyEvent.TaxonomyTaxRowsAdded(taxRowsAdd, importId, chunk);
                     return effects().persist(event).thenReply(newState -> new TaxonomyResult.Success(entityId));
             }
         } catch (Exception e) {
             CCFLog.error(logger, "Adding Taxonomy Tax Rows failed", Map.of("taxonomy_id", entityId, "taxRowsAdd",
                     taxRowsAdd.toString(), "error", e.getMessage()));
-            return effects().reply(new TaxonomyResult.IncorrectAdd("addTaxRows", e.getMessage()));
+            return effects().reply(new TaxonomyResult.IncorrectAdd(action, e.getMessage()));
         }
     }
 
@@ -274,9 +554,7 @@ public class TaxonomyEntity extends EventSourcedEntity<Taxonomy, TaxonomyEvent>
                     CCFLog.debug(logger, "Taxonomy rows cannot be removed", Map.of("taxonomy_id", entityId));
                     return effects().reply(new TaxonomyResult.IncorrectRemove("removeTaxRows", "Taxonomy %s rows cannot be removed, is in %s state".formatted(entityId, currentState().status().toString())));
                 default:   
-                    for (String rowId : taxRowsRemove.rowIds()) {
-                        validateTaxonomyRowForMod("removeRow", rowId, null, null, false);
-                    }
+                    validateTaxRowsRemove(taxRowsRemove);
                     var event = new TaxonomyEvent.TaxonomyTaxRowsRemoved(taxRowsRemove);
                     return effects().persist(event).thenReply(newState -> new TaxonomyResult.Success(entityId));
             }
@@ -308,6 +586,103 @@ public class TaxonomyEntity extends EventSourcedEntity<Taxonomy, TaxonomyEvent>
         }
     }   
 
+    // Moves a row and its descendants under a new parent with one event. The descendants follow through their own
+    // parent pointers, so only the row and its old and new parent change.
+    public Effect<TaxonomyResult> moveSubtree(Taxonomy.SubtreeMove subtreeMove) {
+        try {
+            CCFLog.info(logger, "Move subtree", Map.of("taxonomy_id", entityId, "subtreeMove", subtreeMove.toString()));
+            switch (currentState().status()) {
+                case TaxonomyStatus.TAXONOMY_EMPTY:
+                case TaxonomyStatus.TAXONOMY_DISABLED:
+                case TaxonomyStatus.TAXONOMY_PUBLISHED:
+                    CCFLog.debug(logger, "Taxonomy subtree cannot be moved", Map.of("taxonomy_id", entityId));
+                    return effects().reply(new TaxonomyResult.IncorrectUpate("Taxonomy %s subtree cannot be moved, is in %s state".formatted(entityId, currentState().status().toString())));
+                default:
+                    if (subtreeMove.rowId() == null) {
+                        return effects().reply(new TaxonomyResult.IncorrectUpate("rowId is required"));
+                    }
+                    var event = new TaxonomyEvent.TaxonomySubtreeMoved(subtreeMove);
+                    // Throws for a missing row or parent, or a parent inside the moved subtree
+                    currentState().onTaxonomySubtreeMoved(event);
+                    return effects().persist(event).thenReply(newState -> new TaxonomyResult.Success(entityId));
+            }
+        } catch (Exception e) {
+            CCFLog.error(logger, "Moving Taxonomy subtree failed", Map.of("taxonomy_id", entityId, "subtreeMove",
+                    subtreeMove.toString(), "error", String.valueOf(e.getMessage())));
+            return effects().reply(new TaxonomyResult.IncorrectUpate(e.getMessage()));
+        }
+    }
+
+    // Updates many rows with one event, validated together by applying them to the current RowIndex
+    public Effect<TaxonomyResult> updateTaxRows(Taxonomy.TaxRowsUpdate taxRowsUpdate) {
+        try {
+            int updates = taxRowsUpdate.updates() == null ? 0 : taxRowsUpdate.updates().size();
+            CCFLog.info(logger, "Update tax rows", Map.of("taxonomy_id", entityId, "updates", String.valueOf(updates)));
+            switch (currentState().status()) {
+                case TaxonomyStatus.TAXONOMY_EMPTY:
+                case TaxonomyStatus.TAXONOMY_DISABLED:
+                case TaxonomyStatus.TAXONOMY_PUBLISHED:
+                    CCFLog.debug(logger, "Taxonomy rows cannot be updated", Map.of("taxonomy_id", entityId));
+                    return effects().reply(new TaxonomyResult.IncorrectUpate("Taxonomy %s rows cannot be updated, is in %s state".formatted(entityId, currentState().status().toString())));
+                default:
+                    if (updates == 0 || updates > MAX_PATCH_OPS) {
+                        return effects().reply(new TaxonomyResult.IncorrectUpate("Between 1 and %d updates are allowed, got %d".formatted(MAX_PATCH_OPS, updates)));
+                    }
+                    if (taxRowsUpdate.updates().stream().anyMatch(update -> update.rowId() == null || update.row() == null)) {
+                        return effects().reply(new TaxonomyResult.IncorrectUpate("Every update needs a rowId and a row"));
+                    }
+                    var event = new TaxonomyEvent.TaxonomyTaxRowsUpdated(taxRowsUpdate);
+                    currentState().onTaxonomyTaxRowsUpdated(event);
+                    return effects().persist(event).thenReply(newState -> new TaxonomyResult.Success(entityId));
+            }
+        } catch (Exception e) {
+            CCFLog.error(logger, "Updating Taxonomy Tax Rows failed", Map.of("taxonomy_id", entityId, "error", String.valueOf(e.getMessage())));
+            return effects().reply(new TaxonomyResult.IncorrectUpate(e.getMessage()));
+        }
+    }
+
+    // Applies a mixed batch of add, remove, update and move operations as one TaxonomyPatched event. The patch is
+    // validated by applying it to the current RowIndex, which leaves the state untouched, so either every
+    // operation is persisted or none is.
+    public Effect<TaxonomyResult> patchTaxonomy(Taxonomy.TaxonomyPatch patch) {
+        try {
+            int ops = patch.ops() == null ? 0 : patch.ops().size();
+            CCFLog.info(logger, "Patch taxonomy", Map.of("taxonomy_id", entityId, "ops", String.valueOf(ops)));
+            switch (currentState().status()) {
+                case TaxonomyStatus.TAXONOMY_EMPTY:
+                case TaxonomyStatus.TAXONOMY_DISABLED:
+                case TaxonomyStatus.TAXONOMY_PUBLISHED:
+                    CCFLog.debug(logger, "Taxonomy cannot be patched", Map.of("taxonomy_id", entityId));
+                    return effects().reply(new TaxonomyResult.IncorrectPatch("Taxonomy %s cannot be patched, is in %s state".formatted(entityId, currentState().status().toString())));
+                default:
+                    if (ops == 0) {
+                        return effects().reply(new TaxonomyResult.IncorrectPatch("Patch has no ops"));
+                    }
+                    if (ops > MAX_PATCH_OPS) {
+                        return effects().reply(new TaxonomyResult.IncorrectPatch("Patch has %d ops, at most %d are allowed".formatted(ops, MAX_PATCH_OPS)));
+                    }
+                    var event = new TaxonomyEvent.TaxonomyPatched(patch);
+                    currentState().onTaxonomyPatched(event);
+                    return effects().persist(event).thenReply(newState -> new TaxonomyResult.Patched(entityId, ops, newState.rows().size()));
+            }
+        } catch (Exception e) {
+            CCFLog.error(logger, "Patching Taxonomy failed", Map.of("taxonomy_id", entityId, "error", String.valueOf(e.getMessage())));
+            return effects().reply(new TaxonomyResult.IncorrectPatch(e.getMessage()));
+        }
+    }
+
+    public ReadOnlyEffect<TaxonomyResult> getJournalStats() {
+        long sequenceNumber = commandContext().sequenceNumber();
+        return effects().reply(new TaxonomyResult.JournalStats(entityId, sequenceNumber, currentState().rebasedAt(),
+                eventsSinceRebase(sequenceNumber)));
+    }
+
+    // Events from the last rebase (inclusive) up to sequenceNumber, or the whole journal if never rebased
+    private long eventsSinceRebase(long sequenceNumber) {
+        var rebasedAt = currentState().rebasedAt();
+        return rebasedAt == null ? sequenceNumber : sequenceNumber - rebasedAt + 1;
+    }
+
     @Override
     public Taxonomy applyEvent(TaxonomyEvent event) {
         try {
@@ -320,6 +695,10 @@ public class TaxonomyEntity extends EventSourcedEntity<Taxonomy, TaxonomyEvent>
                 case TaxonomyEvent.TaxonomyTaxRowRemoved evt -> currentState().onTaxonomyTaxRowRemoved(evt);
                 case TaxonomyEvent.TaxonomyTaxRowsRemoved evt -> currentState().onTaxonomyTaxRowsRemoved(evt);
                 case TaxonomyEvent.TaxonomyTaxRowUpdated evt -> currentState().onTaxonomyTaxRowUpdated(evt);
+                case TaxonomyEvent.TaxonomySubtreeMoved evt -> currentState().onTaxonomySubtreeMoved(evt);
+                case TaxonomyEvent.TaxonomyTaxRowsUpdated evt -> currentState().onTaxonomyTaxRowsUpdated(evt);
+                case TaxonomyEvent.TaxonomyPatched evt -> currentState().onTaxonomyPatched(evt);
+                case TaxonomyEvent.TaxonomyRebased evt -> currentState().onTaxonomyRebased(evt);
                 default -> currentState();
             };
         } catch (TaxonomyException e) {
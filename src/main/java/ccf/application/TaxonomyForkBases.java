@@ -0,0 +1,30 @@
+package ccf.application;
+
+import ccf.domain.standard.RowIndex;
+import ccf.domain.standard.TaxonomyVersion;
+import ccf.util.collection.WeightedLruCache;
+
+import java.util.Optional;
+
+// Node-local LRU cache of the RowIndex of published versions that forks are based on, keyed by (taxonomyId,
+// version). Every fork of a version merges its changes onto the same shared index. Versions are immutable, so
+// entries never go stale. Least recently used entries are evicted once the cached rows exceed MAX_CACHED_ROWS.
+public final class TaxonomyForkBases {
+    private static final long MAX_CACHED_ROWS = 1_000_000;
+
+    private record Key(String taxonomyId, TaxonomyVersion version) {
+    }
+
+    private static final WeightedLruCache<Key, RowIndex> CACHE = new WeightedLruCache<>(MAX_CACHED_ROWS, RowIndex::size);
+
+    private TaxonomyForkBases() {
+    }
+
+    public static synchronized Optional<RowIndex> get(String taxonomyId, TaxonomyVersion version) {
+        return Optional.ofNullable(CACHE.get(new Key(taxonomyId, version)));
+    }
+
+    public static synchronized void put(String taxonomyId, TaxonomyVersion version, RowIndex rows) {
+        CACHE.put(new Key(taxonomyId, version), rows);
+    }
+}
@@ -0,0 +1,95 @@
+package ccf.application;
+
+import akka.javasdk.annotations.ComponentId;
+import akka.javasdk.eventsourcedentity.EventSourcedEntity;
+import akka.javasdk.eventsourcedentity.EventSourcedEntityContext;
+import ccf.domain.standard.TaxonomyFork;
+import ccf.domain.standard.TaxonomyForkEvent;
+import ccf.util.CCFLog;
+
+import com.fasterxml.jackson.annotation.JsonSubTypes;
+import com.fasterxml.jackson.annotation.JsonTypeInfo;
+
+import java.util.Map;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+// Holds the changes of a TaxonomyFork. The base rows never pass through this entity: the endpoint merges them
+// with the fork, validates a change against the merged rows, and sends the resulting overrides together with
+// the sequence number it read, so a change computed against an outdated fork is rejected.
+@ComponentId("taxonomy_fork")
+public class TaxonomyForkEntity extends EventSourcedEntity<TaxonomyFork, TaxonomyForkEvent> {
+
+    private final String entityId;
+    private final Logger logger = LoggerFactory.getLogger(TaxonomyForkEntity.class);
+
+    public TaxonomyForkEntity(EventSourcedEntityContext context) {
+        entityId = context.entityId();
+    }
+
+    @JsonTypeInfo(use = JsonTypeInfo.Id.NAME)
+    @JsonSubTypes({
+            @JsonSubTypes.Type(value = ForkResult.Success.class, name = "Success"),
+            @JsonSubTypes.Type(value = ForkResult.ForkState.class, name = "ForkState"),
+            @JsonSubTypes.Type(value = ForkResult.ForkFailed.class, name = "ForkFailed"),
+            @JsonSubTypes.Type(value = ForkResult.ForkConflict.class, name = "ForkConflict")})
+    public sealed interface ForkResult {
+        record Success(String id) implements ForkResult {
+        }
+
+        record ForkState(TaxonomyFork fork, long sequenceNumber) implements ForkResult {
+        }
+
+        record ForkFailed(String message) implements ForkResult {
+        }
+
+        record ForkConflict(String message) implements ForkResult {
+        }
+    }
+
+    @Override
+    public TaxonomyFork emptyState() {
+        return TaxonomyFork.empty(entityId);
+    }
+
+    public Effect<ForkResult> createFork(TaxonomyFork.ForkCreate forkCreate) {
+        CCFLog.info(logger, "Create taxonomy fork", Map.of("fork_id", entityId, "forkCreate", forkCreate.toString()));
+        if (currentState().exists()) {
+            return effects().reply(new ForkResult.ForkFailed("Taxonomy fork %s already exists".formatted(entityId)));
+        }
+        if (forkCreate.baseTaxonomyId() == null || forkCreate.baseVersion() == null) {
+            return effects().reply(new ForkResult.ForkFailed("baseTaxonomyId and baseVersion are required"));
+        }
+        return effects().persist(new TaxonomyForkEvent.ForkCreated(forkCreate))
+                .thenReply(newState -> new ForkResult.Success(entityId));
+    }
+
+    public ReadOnlyEffect<ForkResult> getFork() {
+        if (!currentState().exists()) {
+            return effects().reply(new ForkResult.ForkFailed("Taxonomy fork %s not found".formatted(entityId)));
+        }
+        return effects().reply(new ForkResult.ForkState(currentState(), commandContext().sequenceNumber()));
+    }
+
+    public Effect<ForkResult> applyChanges(TaxonomyFork.ForkChanges changes) {
+        CCFLog.info(logger, "Change taxonomy fork", Map.of("fork_id", entityId,
+                "rows", String.valueOf(changes.rows().size()), "removed", String.valueOf(changes.removedRowIds().size())));
+        if (!currentState().exists()) {
+            return effects().reply(new ForkResult.ForkFailed("Taxonomy fork %s not found".formatted(entityId)));
+        }
+        if (changes.expectedSequenceNumber() != commandContext().sequenceNumber()) {
+            return effects().reply(new ForkResult.ForkConflict(
+                    "Taxonomy fork %s changed concurrently, read it again and retry".formatted(entityId)));
+        }
+        return effects().persist(new TaxonomyForkEvent.ForkRowsChanged(changes.rows(), changes.removedRowIds()))
+                .thenReply(newState -> new ForkResult.Success(entityId));
+    }
+
+    @Override
+    public TaxonomyFork applyEvent(TaxonomyForkEvent event) {
+        return switch (event) {
+            case TaxonomyForkEvent.ForkCreated evt -> currentState().onForkCreated(evt);
+            case TaxonomyForkEvent.ForkRowsChanged evt -> currentState().onForkRowsChanged(evt);
+        };
+    }
+}
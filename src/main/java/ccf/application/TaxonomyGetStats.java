@@ -0,0 +1,75 @@
+package ccf.application;
+
+import ccf.util.collection.WeightedLruCache;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+// Node-local counters for GET /taxonomy/{id}: conditional (If-None-Match) hits and misses, and compiled cache hits
+// and misses. The size and serialization time of the last full response per taxonomy is remembered, so each 304
+// for that ETag is credited with the bytes and CPU it did not spend. Only the MAX_REMEMBERED most recently served
+// taxonomies and versions are remembered, a 304 for an older one is counted without a credit. Reads of archived versions count their cache
+// hits and their misses, which are the only ones that read a TaxonomyVersionEntity.
+public final class TaxonomyGetStats {
+    private record FullResponse(String etag, long bytes, long serializeNanos) {
+    }
+
+    public record Snapshot(long requests, long notModified, long fullResponses, long bytesServed, long bytesSaved,
+            long serializeMillisSpent, long serializeMillisSaved, long compiledHits, long compiledMisses,
+            long versionHits, long versionMisses) {
+    }
+
+    private static final int MAX_REMEMBERED = 10_000;
+
+    private static final WeightedLruCache<String, FullResponse> LAST_FULL =
+            new WeightedLruCache<>(MAX_REMEMBERED, fullResponse -> 1);
+    private static final AtomicLong notModified = new AtomicLong();
+    private static final AtomicLong fullResponses = new AtomicLong();
+    private static final AtomicLong bytesServed = new AtomicLong();
+    private static final AtomicLong bytesSaved = new AtomicLong();
+    private static final AtomicLong serializeNanosSpent = new AtomicLong();
+    private static final AtomicLong serializeNanosSaved = new AtomicLong();
+    private static final AtomicLong compiledHits = new AtomicLong();
+    private static final AtomicLong compiledMisses = new AtomicLong();
+    private static final AtomicLong versionHits = new AtomicLong();
+    private static final AtomicLong versionMisses = new AtomicLong();
+
+    private TaxonomyGetStats() {
+    }
+
+    public static void notModified(String taxonomyId, String etag) {
+        notModified.incrementAndGet();
+        FullResponse last;
+        synchronized (LAST_FULL) {
+            last = LAST_FULL.get(taxonomyId);
+        }
+        if (last != null && last.etag().equals(etag)) {
+            bytesSaved.addAndGet(last.bytes());
+            serializeNanosSaved.addAndGet(last.serializeNanos());
+        }
+    }
+
+    public static void fullResponse(String taxonomyId, String etag, long bytes, long serializeNanos) {
+        fullResponses.incrementAndGet();
+        bytesServed.addAndGet(bytes);
+        serializeNanosSpent.addAndGet(serializeNanos);
+        synchronized (LAST_FULL) {
+            LAST_FULL.put(taxonomyId, new FullResponse(etag, bytes, serializeNanos));
+        }
+    }
+
+    public static void compiled(boolean hit) {
+        (hit ? compiledHits : compiledMisses).incrementAndGet();
+    }
+
+    public static void version(boolean hit) {
+        (hit ? versionHits : versionMisses).incrementAndGet();
+    }
+
+    public static Snapshot snapshot() {
+        long notModifiedCount = notModified.get();
+        long fullCount = fullResponses.get();
+        return new Snapshot(notModifiedCount + fullCount, notModifiedCount, fullCount, bytesServed.get(),
+                bytesSaved.get(), serializeNanosSpent.get() / 1_000_000, serializeNanosSaved.get() / 1_000_000,
+                compiledHits.get(), compiledMisses.get(), versionHits.get(), versionMisses.get());
+    }
+}
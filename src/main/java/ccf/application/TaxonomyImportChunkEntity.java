@@ -0,0 +1,38 @@
+package ccf.application;
+
+import java.util.UUID;
+
+import akka.Done;
+import akka.javasdk.annotations.ComponentId;
+import akka.javasdk.keyvalueentity.KeyValueEntity;
+import ccf.domain.standard.Taxonomy;
+
+// Holds one chunk of rows of a TaxonomyImportWorkflow until it has been applied to the taxonomy.
+// The entity id is "<chunkKey>-<chunk number>", chunkKey is new for every start of an import so a second start
+// with the same importId cannot overwrite the chunks of a running one.
+@ComponentId("taxonomy_import_chunk")
+public class TaxonomyImportChunkEntity extends KeyValueEntity<Taxonomy.TaxRowsAdd> {
+
+    public static String chunkKey(String importId) {
+        return importId + "-" + UUID.randomUUID();
+    }
+
+    public static String chunkId(String chunkKey, int chunk) {
+        return chunkKey + "-" + chunk;
+    }
+
+    public Effect<Done> storeChunk(Taxonomy.TaxRowsAdd chunk) {
+        return effects().updateState(chunk).thenReply(Done.getInstance());
+    }
+
+    public ReadOnlyEffect<Taxonomy.TaxRowsAdd> getChunk() {
+        if (currentState() == null) {
+            return effects().error("Import chunk %s not found".formatted(commandContext().entityId()));
+        }
+        return effects().reply(currentState());
+    }
+
+    public Effect<Done> removeChunk() {
+        return effects().deleteEntity().thenReply(Done.getInstance());
+    }
+}
@@ -0,0 +1,201 @@
+package ccf.application;
+
+import akka.Done;
+import akka.javasdk.annotations.ComponentId;
+import akka.javasdk.client.ComponentClient;
+import akka.javasdk.workflow.Workflow;
+import ccf.domain.standard.Taxonomy;
+import ccf.domain.standard.TaxonomyImport;
+import ccf.domain.standard.TaxonomyImportStatus;
+import ccf.util.CCFLog;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.Map;
+
+import static java.time.Duration.ofMillis;
+import static java.time.Duration.ofSeconds;
+
+// Drives TaxonomyEntity.importTaxRows through the chunks of an import, one chunk at a time.
+// The taxonomy applies commands in order and later chunks reference parents from earlier ones, so a single
+// chunk is in flight per import. The cursor (nextChunk) is persisted after every chunk, a restarted workflow
+// resumes from it. A chunk is only removed once the cursor has moved past it, so a step that is retried after its
+// chunk was applied still finds the chunk. The entity records the last chunk applied per import and acknowledges
+// such a chunk without adding its rows again. Failed calls are retried with exponential backoff using a timer,
+// rejected chunks fail the import. A failed import is paused, not ended, and resumes from its cursor with
+// retryChunk once the cause is fixed.
+@ComponentId("taxonomy_import")
+public class TaxonomyImportWorkflow extends Workflow<TaxonomyImport> {
+
+    public record ChunkRef(String importId, String chunkKey, String taxonomyId, int chunk) {
+    }
+
+    public record ChunkResult(boolean success, int rows, String error, boolean retryable) {
+    }
+
+    public record RetryAfter(long delayMillis) {
+    }
+
+    private static final int MAX_ATTEMPTS = 8;
+    private static final Duration RETRY_BASE_DELAY = ofMillis(500);
+    private static final Duration RETRY_MAX_DELAY = ofSeconds(60);
+
+    private final ComponentClient componentClient;
+    private final Logger logger = LoggerFactory.getLogger(TaxonomyImportWorkflow.class);
+
+    public TaxonomyImportWorkflow(ComponentClient componentClient) {
+        this.componentClient = componentClient;
+    }
+
+    @Override
+    public WorkflowDef<TaxonomyImport> definition() {
+        Step importChunk = step("import-chunk")
+                .call(ChunkRef.class, this::importChunk)
+                .andThen(ChunkResult.class, result -> {
+                    var state = currentState();
+                    if (result.success()) {
+                        var next = state.onChunkImported(result.rows());
+                        CCFLog.info(logger, "Taxonomy import chunk done",
+                                Map.of("import_id", state.importId(), "taxonomy_id", state.taxonomyId(),
+                                        "chunk", next.nextChunk() + "/" + next.totalChunks(),
+                                        "rowsPerSecond", "%.1f".formatted(next.progress().rowsPerSecond())));
+                        if (next.isDone()) {
+                            return effects().updateState(next.onCompleted())
+                                    .transitionTo("remove-chunk", chunkRef(state));
+                        }
+                        return effects().updateState(next).transitionTo("import-chunk", chunkRef(next));
+                    }
+                    var failed = state.onChunkFailed(result.error());
+                    if (!result.retryable() || failed.attempts() >= MAX_ATTEMPTS) {
+                        CCFLog.error(logger, "Taxonomy import failed",
+                                Map.of("import_id", state.importId(), "taxonomy_id", state.taxonomyId(),
+                                        "chunk", String.valueOf(state.nextChunk()), "error", String.valueOf(result.error())));
+                        // Paused rather than ended, so retryChunk can resume it from the cursor
+                        return effects().updateState(failed.onFailed(result.error())).pause();
+                    }
+                    var delay = failed.retryDelay(RETRY_BASE_DELAY, RETRY_MAX_DELAY);
+                    return effects().updateState(failed).transitionTo("wait-retry", new RetryAfter(delay.toMillis()));
+                });
+
+        // Pauses the workflow, the timer resumes it through retryChunk
+        Step waitRetry = step("wait-retry")
+                .call(RetryAfter.class, retryAfter -> {
+                    String importId = currentState().importId();
+                    timers().createSingleTimer("taxonomy-import-retry-" + importId, ofMillis(retryAfter.delayMillis()),
+                            componentClient.forWorkflow(importId)
+                                    .method(TaxonomyImportWorkflow::retryChunk)
+                                    .deferred());
+                    return Done.done();
+                })
+                .andThen(Done.class, __ -> effects().pause());
+
+        // Removes the last chunk once the completed state is persisted
+        Step removeLastChunk = step("remove-chunk")
+                .call(ChunkRef.class, ref -> {
+                    removeChunk(TaxonomyImportChunkEntity.chunkId(ref.chunkKey(), ref.chunk()));
+                    return Done.done();
+                })
+                .andThen(Done.class, __ -> effects().end());
+
+        Step failover = step("failover")
+                .call(() -> Done.done())
+                .andThen(Done.class, __ -> effects()
+                        .updateState(currentState().onFailed("Import step failed after retries"))
+                        .pause());
+
+        return workflow()
+                .defaultStepTimeout(ofSeconds(60))
+                .defaultStepRecoverStrategy(maxRetries(2).failoverTo("failover"))
+                .addStep(importChunk)
+                .addStep(waitRetry)
+                .addStep(removeLastChunk)
+                .addStep(failover);
+    }
+
+    public Effect<TaxonomyImport.ImportProgress> startImport(TaxonomyImport.ImportStart start) {
+        if (currentState() != null) {
+            return effects().error("Import %s already exists".formatted(commandContext().workflowId()));
+        }
+        var state = TaxonomyImport.start(commandContext().workflowId(), start);
+        CCFLog.info(logger, "Taxonomy import started",
+                Map.of("import_id", state.importId(), "taxonomy_id", state.taxonomyId(),
+                        "chunks", String.valueOf(state.totalChunks()), "rows", String.valueOf(state.totalRows())));
+        if (state.isDone()) {
+            var completed = state.onCompleted();
+            return effects().updateState(completed).end().thenReply(completed.progress());
+        }
+        return effects()
+                .updateState(state)
+                .transitionTo("import-chunk", chunkRef(state))
+                .thenReply(state.progress());
+    }
+
+    // Called by the retry timer, or by an operator to resume a failed import from its cursor
+    public Effect<Done> retryChunk() {
+        if (currentState() == null) {
+            return effects().error("Import %s not found".formatted(commandContext().workflowId()));
+        }
+        if (currentState().status() != TaxonomyImportStatus.IMPORT_WAITING_RETRY
+                && currentState().status() != TaxonomyImportStatus.IMPORT_FAILED) {
+            return effects().reply(Done.getInstance());
+        }
+        var resumed = currentState().onResumed();
+        return effects()
+                .updateState(resumed)
+                .transitionTo("import-chunk", chunkRef(resumed))
+                .thenReply(Done.getInstance());
+    }
+
+    public ReadOnlyEffect<TaxonomyImport.ImportProgress> getProgress() {
+        if (currentState() == null) {
+            return effects().error("Import %s not found".formatted(commandContext().workflowId()));
+        }
+        return effects().reply(currentState().progress());
+    }
+
+    private static ChunkRef chunkRef(TaxonomyImport state) {
+        return new ChunkRef(state.importId(), state.chunkKey(), state.taxonomyId(), state.nextChunk());
+    }
+
+    private ChunkResult importChunk(ChunkRef ref) {
+        String chunkId = TaxonomyImportChunkEntity.chunkId(ref.chunkKey(), ref.chunk());
+        // The cursor is at ref.chunk, so the previous chunk is applied and persisted as such
+        if (ref.chunk() > 0) {
+            removeChunk(TaxonomyImportChunkEntity.chunkId(ref.chunkKey(), ref.chunk() - 1));
+        }
+        try {
+            var chunk = componentClient.forKeyValueEntity(chunkId)
+                    .method(TaxonomyImportChunkEntity::getChunk)
+                    .invoke();
+            var result = componentClient.forEventSourcedEntity(ref.taxonomyId())
+                    .method(TaxonomyEntity::importTaxRows)
+                    .invoke(new Taxonomy.TaxRowsImport(ref.importId(), ref.chunk(), chunk));
+            return switch (result) {
+                case TaxonomyEntity.TaxonomyResult.Success success ->
+                    new ChunkResult(true, chunk.taxRows().size(), null, false);
+                case TaxonomyEntity.TaxonomyResult.IncorrectAdd e -> new ChunkResult(false, 0, e.message(), false);
+                default -> new ChunkResult(false, 0, "Unexpected result " + result, false);
+            };
+        } catch (Exception e) {
+            CCFLog.warn(logger, "Taxonomy import chunk call failed",
+                    Map.of("import_id", ref.importId(), "chunk", String.valueOf(ref.chunk()),
+                            "error", String.valueOf(e.getMessage())));
+            return new ChunkResult(false, 0, e.getMessage(), true);
+        }
+    }
+
+    // Best effort, a chunk left behind is harmless once the cursor has moved past it. Removing a chunk that is
+    // already gone is a no-op, so a retried step can remove again.
+    private void removeChunk(String chunkId) {
+        try {
+            componentClient.forKeyValueEntity(chunkId)
+                    .method(TaxonomyImportChunkEntity::removeChunk)
+                    .invoke();
+        } catch (Exception e) {
+            CCFLog.warn(logger, "Removing taxonomy import chunk failed",
+                    Map.of("chunk_id", chunkId, "error", String.valueOf(e.getMessage())));
+        }
+    }
+}
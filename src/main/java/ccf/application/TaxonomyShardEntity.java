@@ -0,0 +1,128 @@
+package ccf.application;
+
+import akka.javasdk.annotations.ComponentId;
+import akka.javasdk.eventsourcedentity.EventSourcedEntity;
+import akka.javasdk.eventsourcedentity.EventSourcedEntityContext;
+import ccf.application.TaxonomyEntity.TaxonomyResult;
+import ccf.domain.standard.RowIndex;
+import ccf.domain.standard.ShardedTaxonomy;
+import ccf.domain.standard.Taxonomy;
+import ccf.domain.standard.TaxonomyEvent;
+import ccf.domain.standard.TaxonomyStatus;
+import ccf.domain.standard.TaxonomyVersion;
+import ccf.util.CCFLog;
+
+import java.util.List;
+import java.util.Map;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+// One top-level subtree of a ShardedTaxonomy, the entity id is ShardedTaxonomy.shardId(taxonomyId, rootRowId).
+// The shard is a Taxonomy with a single root and is written with the same patch ops as TaxonomyEntity, so its
+// rows are validated by the same code. A patch may not add, remove or move the root, roots are changed through
+// the ShardedTaxonomyEntity, and may only add rows the shard owns (ShardedTaxonomy.ownerOf). Shards are not
+// consumed by the taxonomy views.
+@ComponentId("taxonomy_shard")
+public class TaxonomyShardEntity extends EventSourcedEntity<Taxonomy, TaxonomyEvent> {
+
+    private final String entityId;
+    private final Logger logger = LoggerFactory.getLogger(TaxonomyShardEntity.class);
+
+    public TaxonomyShardEntity(EventSourcedEntityContext context) {
+        entityId = context.entityId();
+    }
+
+    @Override
+    public Taxonomy emptyState() {
+        return new Taxonomy(entityId, null, null, null, TaxonomyStatus.TAXONOMY_EMPTY, RowIndex.empty(), null, null);
+    }
+
+    // Creates the shard with its root row. Creating it again with the same root is a no-op, so a root add that
+    // failed after this step can be retried.
+    public Effect<TaxonomyResult> initShard(Taxonomy.TaxRow root) {
+        CCFLog.info(logger, "Init taxonomy shard", Map.of("shard_id", entityId, "root", root.toString()));
+        if (root.parent() != null) {
+            return effects().reply(new TaxonomyResult.CreateFailed("Shard root '%s' cannot have a parent".formatted(root.rowId())));
+        }
+        if (!ShardedTaxonomy.isRootRowId(root.rowId())) {
+            return effects().reply(new TaxonomyResult.CreateFailed("Shard root rowId '%s' cannot contain '%s'"
+                    .formatted(root.rowId(), ShardedTaxonomy.ROW_ID_SEPARATOR)));
+        }
+        if (currentState().status() != TaxonomyStatus.TAXONOMY_EMPTY) {
+            return currentState().rows().roots().equals(List.of(root.rowId()))
+                    ? effects().reply(new TaxonomyResult.Success(entityId))
+                    : effects().reply(new TaxonomyResult.CreateFailed("Taxonomy shard %s already exists".formatted(entityId)));
+        }
+        return effects().persistAll(List.of(
+                        new TaxonomyEvent.TaxonomyCreated(new Taxonomy.TaxonomyCreate(null, null, new TaxonomyVersion())),
+                        new TaxonomyEvent.TaxonomyTaxRowAdded(new Taxonomy.TaxRowAdd(root))))
+                .thenReply(newState -> new TaxonomyResult.Success(entityId));
+    }
+
+    public Effect<TaxonomyResult> patchShard(Taxonomy.TaxonomyPatch patch) {
+        try {
+            int ops = patch.ops() == null ? 0 : patch.ops().size();
+            CCFLog.info(logger, "Patch taxonomy shard", Map.of("shard_id", entityId, "ops", String.valueOf(ops)));
+            if (currentState().status() == TaxonomyStatus.TAXONOMY_EMPTY) {
+                return effects().reply(new TaxonomyResult.IncorrectPatch("Taxonomy shard %s not found".formatted(entityId)));
+            }
+            if (ops == 0) {
+                return effects().reply(new TaxonomyResult.IncorrectPatch("Patch has no ops"));
+            }
+            if (ops > TaxonomyEntity.MAX_PATCH_OPS) {
+                return effects().reply(new TaxonomyResult.IncorrectPatch("Patch has %d ops, at most %d are allowed"
+                        .formatted(ops, TaxonomyEntity.MAX_PATCH_OPS)));
+            }
+            String root = currentState().rows().roots().getFirst();
+            for (int i = 0; i < ops; i++) {
+                var op = patch.ops().get(i);
+                if ("add".equals(op.op()) && op.row() != null && (root.equals(op.row().rowId())
+                        || !root.equals(ShardedTaxonomy.ownerOf(op.row().rowId())))) {
+                    return effects().reply(new TaxonomyResult.IncorrectPatch(
+                            "Patch op %d (add): rowId '%s' does not belong to shard %s, rowIds below its root start with '%s%s'"
+                                    .formatted(i, op.row().rowId(), entityId, root, ShardedTaxonomy.ROW_ID_SEPARATOR)));
+                }
+            }
+            var event = new TaxonomyEvent.TaxonomyPatched(patch);
+            var patched = currentState().onTaxonomyPatched(event);
+            if (!patched.rows().roots().equals(currentState().rows().roots())) {
+                return effects().reply(new TaxonomyResult.IncorrectPatch(
+                        "Patch would change the root of shard %s, rows cannot leave or become a top-level subtree"
+                                .formatted(entityId)));
+            }
+            return effects().persist(event).thenReply(newState -> new TaxonomyResult.Patched(entityId, ops, newState.rows().size()));
+        } catch (Exception e) {
+            CCFLog.error(logger, "Patching taxonomy shard failed", Map.of("shard_id", entityId, "error", String.valueOf(e.getMessage())));
+            return effects().reply(new TaxonomyResult.IncorrectPatch(e.getMessage()));
+        }
+    }
+
+    // The shard's rows in tree order, its root first
+    public ReadOnlyEffect<TaxonomyResult> getShard() {
+        if (currentState().status() == TaxonomyStatus.TAXONOMY_EMPTY) {
+            return effects().reply(new TaxonomyResult.GetFailed("Taxonomy shard %s not found".formatted(entityId)));
+        }
+        return effects().reply(new TaxonomyResult.RowsSuccess(entityId, currentState().rows().toList()));
+    }
+
+    public Effect<TaxonomyResult> removeShard() {
+        CCFLog.info(logger, "Remove taxonomy shard", Map.of("shard_id", entityId));
+        if (currentState().status() == TaxonomyStatus.TAXONOMY_EMPTY) {
+            return effects().reply(new TaxonomyResult.Success(entityId));
+        }
+        return effects().persist(new TaxonomyEvent.TaxonomyRemoved())
+                .thenReply(newState -> new TaxonomyResult.Success(entityId));
+    }
+
+    @Override
+    public Taxonomy applyEvent(TaxonomyEvent event) {
+        return switch (event) {
+            case TaxonomyEvent.TaxonomyCreated evt -> currentState().onTaxonomyCreated(evt);
+            case TaxonomyEvent.TaxonomyTaxRowAdded evt -> currentState().onTaxonomyTaxRowAdded(evt);
+            case TaxonomyEvent.TaxonomyPatched evt -> currentState().onTaxonomyPatched(evt);
+            case TaxonomyEvent.TaxonomyRemoved evt -> currentState().onTaxonomyRemoved(evt);
+            // Not persisted by shards
+            default -> currentState();
+        };
+    }
+}
@@ -0,0 +1,52 @@
+package ccf.application;
+
+import akka.javasdk.annotations.ComponentId;
+import akka.javasdk.annotations.Consume;
+import akka.javasdk.client.ComponentClient;
+import akka.javasdk.consumer.Consumer;
+import ccf.domain.standard.PublishedTaxonomies;
+import ccf.domain.standard.TaxonomyEvent;
+import ccf.domain.standard.TaxonomyStatus;
+import ccf.domain.standard.TaxonomyVersion;
+import ccf.util.CCFLog;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Map;
+
+// Keeps the PublishedTaxonomiesEntity registry in step with publish, unpublish and remove events.
+// The autocomplete index of each node syncs from the registry, see TaxonomySuggestions.
+@ComponentId("taxonomy_suggest_consumer")
+@Consume.FromEventSourcedEntity(TaxonomyEntity.class)
+public class TaxonomySuggestConsumer extends Consumer {
+    private static final Logger logger = LoggerFactory.getLogger(TaxonomySuggestConsumer.class);
+
+    private final ComponentClient componentClient;
+
+    public TaxonomySuggestConsumer(ComponentClient componentClient) {
+        this.componentClient = componentClient;
+    }
+
+    public Effect onEvent(TaxonomyEvent event) {
+        String taxonomyId = messageContext().eventSubject().orElseThrow();
+        return switch (event) {
+            case TaxonomyEvent.TaxonomyPublished published -> setPublished(taxonomyId, published.isPublish(),
+                    published.isPublish() && published.taxonomy() != null ? published.taxonomy().version() : null);
+            case TaxonomyEvent.TaxonomyRemoved removed -> setPublished(taxonomyId, false, null);
+            case TaxonomyEvent.TaxonomyRebased rebased -> rebased.status() == TaxonomyStatus.TAXONOMY_PUBLISHED
+                    ? setPublished(taxonomyId, true, rebased.taxonomy().version())
+                    : setPublished(taxonomyId, false, null);
+            default -> effects().ignore();
+        };
+    }
+
+    private Effect setPublished(String taxonomyId, boolean published, TaxonomyVersion taxonomyVersion) {
+        CCFLog.info(logger, "Updating published taxonomies",
+                Map.of("taxonomy_id", taxonomyId, "published", String.valueOf(published)));
+        componentClient.forKeyValueEntity(PublishedTaxonomiesEntity.REGISTRY_ID)
+                .method(PublishedTaxonomiesEntity::setPublished)
+                .invoke(new PublishedTaxonomies.PublishedChange(taxonomyId, published, taxonomyVersion));
+        return effects().done();
+    }
+}
@@ -0,0 +1,99 @@
+package ccf.application;
+
+import akka.javasdk.client.ComponentClient;
+import ccf.domain.standard.PublishedTaxonomies;
+import ccf.domain.standard.Taxonomy;
+import ccf.domain.standard.TaxonomyStatus;
+import ccf.domain.standard.TaxonomySuggestIndex;
+import ccf.domain.standard.TaxonomyVersion;
+import ccf.util.CCFLog;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+
+// Node-local autocomplete index over all published taxonomies. It is brought in line with the
+// PublishedTaxonomiesEntity registry at most once per SYNC_INTERVAL_MILLIS, re-indexing only the taxonomies whose
+// registry version changed, so every node converges after a restart or on events consumed elsewhere.
+public final class TaxonomySuggestions {
+    private static final Logger logger = LoggerFactory.getLogger(TaxonomySuggestions.class);
+    private static final long SYNC_INTERVAL_MILLIS = 1000;
+    private static final TaxonomySuggestIndex INDEX = new TaxonomySuggestIndex();
+
+    private static long lastSyncMillis = 0;
+    private static CompletableFuture<TaxonomySuggestIndex> inFlight = null;
+
+    private TaxonomySuggestions() {
+    }
+
+    public static synchronized CompletionStage<TaxonomySuggestIndex> synced(ComponentClient componentClient) {
+        if (inFlight != null) {
+            return inFlight;
+        }
+        long now = System.currentTimeMillis();
+        if (now - lastSyncMillis < SYNC_INTERVAL_MILLIS) {
+            return CompletableFuture.completedFuture(INDEX);
+        }
+        lastSyncMillis = now;
+        var sync = componentClient.forKeyValueEntity(PublishedTaxonomiesEntity.REGISTRY_ID)
+                .method(PublishedTaxonomiesEntity::getPublished)
+                .invokeAsync()
+                .thenCompose(published -> sync(componentClient, published))
+                .exceptionally(e -> {
+                    // Serve the previous index, the next request retries
+                    CCFLog.warn(logger, "Syncing taxonomy suggestions failed", Map.of("error", String.valueOf(e.getMessage())));
+                    return INDEX;
+                })
+                .toCompletableFuture();
+        inFlight = sync;
+        sync.whenComplete((index, e) -> clearInFlight());
+        return sync;
+    }
+
+    private static synchronized void clearInFlight() {
+        inFlight = null;
+    }
+
+    private static CompletionStage<TaxonomySuggestIndex> sync(ComponentClient componentClient,
+            PublishedTaxonomies published) {
+        Map<String, Long> local = INDEX.versions();
+        local.keySet().stream()
+                .filter(taxonomyId -> !published.taxonomies().containsKey(taxonomyId))
+                .forEach(INDEX::remove);
+        List<CompletableFuture<?>> updates = new ArrayList<>();
+        published.taxonomies().forEach((taxonomyId, version) -> {
+            if (version.equals(local.get(taxonomyId))) {
+                return;
+            }
+            updates.add(componentClient.forEventSourcedEntity(taxonomyId)
+                    .method(TaxonomyEntity::getTaxonomy)
+                    .invokeAsync()
+                    .thenAccept(result -> {
+                        if (result instanceof TaxonomyEntity.TaxonomyResult.GetSuccess success
+                                && isPublished(success.taxonomy(), published.taxonomyVersion(taxonomyId))) {
+                            INDEX.index(taxonomyId, version, success.taxonomy().rows().toList());
+                            CCFLog.info(logger, "Indexed taxonomy suggestions",
+                                    Map.of("taxonomy_id", taxonomyId, "entries", String.valueOf(INDEX.size())));
+                        } else {
+                            // Opened or republished since the registry was read, the next sync sees the change
+                            CCFLog.info(logger, "Taxonomy not at its published version, suggestions not indexed",
+                                    Map.of("taxonomy_id", taxonomyId));
+                        }
+                    })
+                    .toCompletableFuture());
+        });
+        return CompletableFuture.allOf(updates.toArray(CompletableFuture[]::new)).thenApply(v -> INDEX);
+    }
+
+    // The rows of a taxonomy are only indexed while it is still published at the version in the registry, a
+    // registry entry without a version (written before versions were recorded) only needs the status
+    static boolean isPublished(Taxonomy taxonomy, TaxonomyVersion publishedVersion) {
+        return taxonomy.status() == TaxonomyStatus.TAXONOMY_PUBLISHED
+                && (publishedVersion == null || publishedVersion.equals(taxonomy.version()));
+    }
+}
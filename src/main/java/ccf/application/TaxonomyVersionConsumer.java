@@ -0,0 +1,76 @@
+package ccf.application;
+
+import akka.javasdk.annotations.ComponentId;
+import akka.javasdk.annotations.Consume;
+import akka.javasdk.client.ComponentClient;
+import akka.javasdk.consumer.Consumer;
+import ccf.domain.standard.Taxonomy;
+import ccf.domain.standard.TaxonomyEvent;
+import ccf.domain.standard.TaxonomyStatus;
+import ccf.domain.standard.TaxonomyVersion;
+import ccf.util.CCFLog;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Map;
+
+// Archives every published version of a taxonomy into its own TaxonomyVersionEntity.
+// The publish event only carries the version, the rows are read from the entity while it is still that published
+// version. A published taxonomy cannot be edited before it is opened, and opening archives the version first (see
+// TaxonomyEndpoint.openTaxonomy), so a taxonomy that has moved on by the time the event is consumed is archived.
+@ComponentId("taxonomy_version_consumer")
+@Consume.FromEventSourcedEntity(TaxonomyEntity.class)
+public class TaxonomyVersionConsumer extends Consumer {
+    private static final Logger logger = LoggerFactory.getLogger(TaxonomyVersionConsumer.class);
+
+    private final ComponentClient componentClient;
+
+    public TaxonomyVersionConsumer(ComponentClient componentClient) {
+        this.componentClient = componentClient;
+    }
+
+    public Effect onEvent(TaxonomyEvent event) {
+        String taxonomyId = messageContext().eventSubject().orElseThrow();
+        return switch (event) {
+            case TaxonomyEvent.TaxonomyPublished published when published.isPublish() && published.taxonomy() != null ->
+                    archivePublished(taxonomyId, published.taxonomy().version());
+            // A journal rebased while published still carries the rows of the published version
+            case TaxonomyEvent.TaxonomyRebased rebased when rebased.status() == TaxonomyStatus.TAXONOMY_PUBLISHED ->
+                    storeVersion(new Taxonomy(taxonomyId, rebased.taxonomy().name(), rebased.taxonomy().description(),
+                            rebased.taxonomy().version(), TaxonomyStatus.TAXONOMY_PUBLISHED,
+                            rebased.rows(), null, null));
+            default -> effects().ignore();
+        };
+    }
+
+    private Effect archivePublished(String taxonomyId, TaxonomyVersion version) {
+        var result = componentClient.forEventSourcedEntity(taxonomyId)
+                .method(TaxonomyEntity::getTaxonomy)
+                .invoke();
+        if (result instanceof TaxonomyEntity.TaxonomyResult.GetSuccess success
+                && success.taxonomy().status() == TaxonomyStatus.TAXONOMY_PUBLISHED
+                && version.equals(success.taxonomy().version())) {
+            return storeVersion(success.taxonomy().versionSnapshot());
+        }
+        CCFLog.info(logger, "Taxonomy moved past the published version, archived when it was opened",
+                Map.of("taxonomy_id", taxonomyId, "version", String.valueOf(version)));
+        return effects().done();
+    }
+
+    private Effect storeVersion(Taxonomy snapshot) {
+        CCFLog.info(logger, "Archiving taxonomy version",
+                Map.of("taxonomy_id", snapshot.id(), "version", String.valueOf(snapshot.version()),
+                        "rows", String.valueOf(snapshot.rows().size())));
+        var result = componentClient.forKeyValueEntity(TaxonomyVersionEntity.versionId(snapshot.id(), snapshot.version()))
+                .method(TaxonomyVersionEntity::storeVersion)
+                .invoke(snapshot);
+        if (result instanceof TaxonomyVersionEntity.StoreResult.StoreRejected rejected) {
+            // Retrying cannot change an archived version, the publish endpoint refuses an archived version up front
+            CCFLog.error(logger, "Taxonomy version not archived",
+                    Map.of("taxonomy_id", snapshot.id(), "version", String.valueOf(snapshot.version()),
+                            "error", rejected.message()));
+        }
+        return effects().done();
+    }
+}
@@ -0,0 +1,80 @@
+package ccf.application;
+
+import java.util.Objects;
+
+import akka.javasdk.annotations.ComponentId;
+import akka.javasdk.keyvalueentity.KeyValueEntity;
+import ccf.domain.standard.Taxonomy;
+import ccf.domain.standard.TaxonomyVersion;
+
+import com.fasterxml.jackson.annotation.JsonSubTypes;
+import com.fasterxml.jackson.annotation.JsonTypeInfo;
+
+// Immutable snapshot of one published version of a taxonomy, written by TaxonomyVersionConsumer.
+// The entity id is "<taxonomyId>@<major.minor>", reads of a version never go through the TaxonomyEntity.
+@ComponentId("taxonomy_version")
+public class TaxonomyVersionEntity extends KeyValueEntity<Taxonomy> {
+
+    @JsonTypeInfo(use = JsonTypeInfo.Id.NAME)
+    @JsonSubTypes({
+            @JsonSubTypes.Type(value = StoreResult.Stored.class, name = "Stored"),
+            @JsonSubTypes.Type(value = StoreResult.StoreRejected.class, name = "StoreRejected")})
+    public sealed interface StoreResult {
+        record Stored(String id) implements StoreResult {
+        }
+
+        record StoreRejected(String message) implements StoreResult {
+        }
+    }
+
+    // NotFound only when the version was never archived, a failed read surfaces as an error of the call
+    @JsonTypeInfo(use = JsonTypeInfo.Id.NAME)
+    @JsonSubTypes({
+            @JsonSubTypes.Type(value = VersionResult.Found.class, name = "Found"),
+            @JsonSubTypes.Type(value = VersionResult.NotFound.class, name = "NotFound")})
+    public sealed interface VersionResult {
+        record Found(Taxonomy taxonomy) implements VersionResult {
+        }
+
+        record NotFound(String message) implements VersionResult {
+        }
+    }
+
+    public static String versionId(String taxonomyId, TaxonomyVersion version) {
+        return taxonomyId + "@" + version;
+    }
+
+    // A version is only published once. Storing the same snapshot again (a redelivered publish event, or the
+    // archive taken when the taxonomy is opened) is a no-op. A different snapshot under the same version is
+    // rejected, the compiled caches, forks and crosswalks built on the archive rely on it never changing.
+    public Effect<StoreResult> storeVersion(Taxonomy snapshot) {
+        String id = commandContext().entityId();
+        if (currentState() == null) {
+            return effects().updateState(snapshot).thenReply(new StoreResult.Stored(id));
+        }
+        if (!sameSnapshot(currentState(), snapshot)) {
+            return effects().reply(new StoreResult.StoreRejected(
+                    "Taxonomy version %s is already archived with different content".formatted(id)));
+        }
+        return effects().reply(new StoreResult.Stored(id));
+    }
+
+    public ReadOnlyEffect<VersionResult> getVersion() {
+        if (currentState() == null) {
+            return effects().reply(new VersionResult.NotFound(
+                    "Taxonomy version %s not found".formatted(commandContext().entityId())));
+        }
+        return effects().reply(new VersionResult.Found(currentState()));
+    }
+
+    public ReadOnlyEffect<Boolean> isArchived() {
+        return effects().reply(currentState() != null);
+    }
+
+    private static boolean sameSnapshot(Taxonomy archived, Taxonomy snapshot) {
+        return Objects.equals(archived.name(), snapshot.name())
+                && Objects.equals(archived.description(), snapshot.description())
+                && archived.rows().size() == snapshot.rows().size()
+                && archived.rows().toList().equals(snapshot.rows().toList());
+    }
+}
@@ -0,0 +1,38 @@
+package ccf.domain.standard;
+
+import ccf.domain.standard.Taxonomy.Breadcrumb;
+
+// Breadcrumbs holds the full path ("Profit and Loss > Income > Revenue") of every row, indexed by the row's
+// TreeIntervals position. Paths are built in tour order, each from its parent's path, so building is a single
+// pass and a lookup is one hash probe. Like TreeIntervals it is computed once per RowIndex.
+public final class Breadcrumbs {
+    public static final String SEPARATOR = " > ";
+
+    private final TreeIntervals intervals;
+    private final String[] paths;
+
+    private Breadcrumbs(TreeIntervals intervals, String[] paths) {
+        this.intervals = intervals;
+        this.paths = paths;
+    }
+
+    static Breadcrumbs of(RowIndex rows) {
+        TreeIntervals intervals = rows.intervals();
+        String[] paths = new String[intervals.size()];
+        for (int position = 0; position < paths.length; position++) {
+            String value = rows.get(intervals.rowIdAt(position)).map(Taxonomy.Row::value).orElse("");
+            int parent = intervals.parentAt(position);
+            paths[position] = parent < 0 ? value : paths[parent] + SEPARATOR + value;
+        }
+        return new Breadcrumbs(intervals, paths);
+    }
+
+    // path is null and depth -1 for rows that are not in the taxonomy
+    public Breadcrumb get(String rowId) {
+        int position = intervals.position(rowId);
+        if (position < 0) {
+            return new Breadcrumb(rowId, null, -1);
+        }
+        return new Breadcrumb(rowId, paths[position], intervals.depthAt(position));
+    }
+}
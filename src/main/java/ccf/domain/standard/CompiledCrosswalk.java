@@ -0,0 +1,269 @@
+package ccf.domain.standard;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.Arrays;
+
+// CompiledCrosswalk is the translation table of a TaxonomyCrosswalk, indexed by the ordinals of the compiled
+// source and target versions. The mappings of source ordinal s are [start[s], start[s + 1]) in targets and weights
+// (compressed sparse rows), so translating a value is a hash lookup of its rowId and a scan of its targets.
+public final class CompiledCrosswalk {
+    private final String id;
+    private final long revision;
+    private final CompiledTaxonomy source;
+    private final CompiledTaxonomy target;
+    private final OrdinalTable sourceOrdinals;
+    private final int[] start;
+    private final int[] targets;
+    private final double[] weights;
+
+    private static final double[] POWERS_OF_TEN = {1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11, 1e12,
+            1e13, 1e14, 1e15};
+    private static final int OUTPUT_SCALE = 9;
+
+    // Values read and written by one translation. Unmapped values have a source row that is not in the source
+    // version or has no mappings, they are left out of the output.
+    public record Translation(long values, long unmappedValues, long keys, long outputValues) {
+    }
+
+    private CompiledCrosswalk(TaxonomyCrosswalk crosswalk, CompiledTaxonomy source, CompiledTaxonomy target) {
+        this.id = crosswalk.id();
+        this.revision = crosswalk.revision();
+        this.source = source;
+        this.target = target;
+        this.sourceOrdinals = new OrdinalTable(source);
+        int n = crosswalk.mappings().size();
+        int[] sourceOf = new int[n];
+        int[] targetOf = new int[n];
+        this.start = new int[source.size() + 1];
+        for (int i = 0; i < n; i++) {
+            var mapping = crosswalk.mappings().get(i);
+            sourceOf[i] = sourceOrdinals.get(mapping.sourceRowId());
+            targetOf[i] = target.ordinal(mapping.targetRowId());
+            if (sourceOf[i] < 0 || targetOf[i] < 0) {
+                throw new TaxonomyException(id, "Mapping %s to %s is not in versions %s and %s".formatted(
+                        mapping.sourceRowId(), mapping.targetRowId(), source.version(), target.version()));
+            }
+            start[sourceOf[i] + 1]++;
+        }
+        for (int s = 0; s < source.size(); s++) {
+            start[s + 1] += start[s];
+        }
+        // Counting sort by source ordinal, mappings of a source row stay in the order they were put
+        this.targets = new int[n];
+        this.weights = new double[n];
+        int[] fill = Arrays.copyOf(start, source.size());
+        for (int i = 0; i < n; i++) {
+            int at = fill[sourceOf[i]]++;
+            targets[at] = targetOf[i];
+            weights[at] = crosswalk.mappings().get(i).weightOrDefault();
+        }
+    }
+
+    public static CompiledCrosswalk compile(TaxonomyCrosswalk crosswalk, CompiledTaxonomy source,
+            CompiledTaxonomy target) {
+        return new CompiledCrosswalk(crosswalk, source, target);
+    }
+
+    public String id() {
+        return id;
+    }
+
+    public long revision() {
+        return revision;
+    }
+
+    public int mappings() {
+        return targets.length;
+    }
+
+    // Rows of both versions and the mappings, the size the node-local cache accounts for
+    public long size() {
+        return (long) source.size() + target.size() + targets.length;
+    }
+
+    // Re-keys the lines "rowId,value" or "key,rowId,value" of input in one pass and appends "targetRowId,value" or
+    // "key,targetRowId,value" lines to out. Values are weighted and summed per target row over each run of lines
+    // with the same key, so the values of one company or period should be sent together. Each run is written in
+    // the tree order of the target. The key is everything before the rowId and may itself contain commas.
+    // With strict an unmapped value fails the translation instead of being counted.
+    public Translation translate(String input, boolean strict, StringBuilder out) {
+        var translator = translator(strict, true);
+        translator.accept(input, out);
+        return translator.finish(out);
+    }
+
+    // A translation fed in blocks of whole lines, so a large input is never held as one string and the output of
+    // a run is appended as soon as the next run starts. Without write it only validates and counts the input.
+    public Translator translator(boolean strict, boolean write) {
+        return new Translator(strict, write);
+    }
+
+    public final class Translator {
+        private final boolean strict;
+        private final boolean write;
+        private final double[] sums;
+        // touchedIn[t] is the run that last touched t, so sums never need clearing between runs
+        private final int[] touchedIn;
+        private int[] touched;
+        private int touchedCount = 0;
+        private int run = 1;
+        private String runKey = null;
+        private long values = 0;
+        private long unmapped = 0;
+        private long keys = 0;
+        private long output = 0;
+        private int lineNumber = 0;
+
+        private Translator(boolean strict, boolean write) {
+            this.strict = strict;
+            this.write = write;
+            this.sums = write ? new double[target.size()] : new double[0];
+            this.touchedIn = write ? new int[target.size()] : new int[0];
+            this.touched = new int[write ? Math.min(target.size(), 1024) : 0];
+        }
+
+        // Translates the lines of input, a last line without a newline is taken as complete
+        public void accept(String input, StringBuilder out) {
+            int lineStart = 0;
+            int length = input.length();
+            while (lineStart < length) {
+                int lineEnd = input.indexOf('\n', lineStart);
+                if (lineEnd < 0) {
+                    lineEnd = length;
+                }
+                int next = lineEnd + 1;
+                if (lineEnd > lineStart && input.charAt(lineEnd - 1) == '\r') {
+                    lineEnd--;
+                }
+                lineNumber++;
+                if (lineEnd == lineStart) {
+                    lineStart = next;
+                    continue;
+                }
+                int valueComma = input.lastIndexOf(',', lineEnd - 1);
+                if (valueComma < lineStart) {
+                    throw new TaxonomyException(id,
+                            "Line %d: expected rowId,value or key,rowId,value".formatted(lineNumber));
+                }
+                int rowComma = input.lastIndexOf(',', valueComma - 1);
+                int rowStart = rowComma < lineStart ? lineStart : rowComma + 1;
+                double value = parseValue(input, valueComma + 1, lineEnd, lineNumber);
+                // The key is only copied when a new run starts
+                boolean keyed = rowComma >= lineStart;
+                if (values == 0 || keyed != (runKey != null) || keyed && !(runKey.length() == rowComma - lineStart
+                        && input.regionMatches(lineStart, runKey, 0, runKey.length()))) {
+                    if (values > 0) {
+                        endRun(out);
+                    }
+                    runKey = keyed ? input.substring(lineStart, rowComma) : null;
+                    keys++;
+                }
+                values++;
+                int s = sourceOrdinals.get(input, rowStart, valueComma);
+                if (s < 0 || start[s] == start[s + 1]) {
+                    if (strict) {
+                        throw new TaxonomyException(id, "Line %d: source row %s has no mapping".formatted(
+                                lineNumber, input.substring(rowStart, valueComma)));
+                    }
+                    unmapped++;
+                } else if (write) {
+                    for (int m = start[s]; m < start[s + 1]; m++) {
+                        int t = targets[m];
+                        if (touchedIn[t] != run) {
+                            touchedIn[t] = run;
+                            sums[t] = 0;
+                            if (touchedCount == touched.length) {
+                                touched = Arrays.copyOf(touched, Math.min(target.size(), touched.length * 2));
+                            }
+                            touched[touchedCount++] = t;
+                        }
+                        sums[t] += value * weights[m];
+                    }
+                }
+                lineStart = next;
+            }
+        }
+
+        // Writes the last run, the translator is not used after this
+        public Translation finish(StringBuilder out) {
+            if (values > 0) {
+                endRun(out);
+            }
+            return new Translation(values, unmapped, keys, output);
+        }
+
+        private void endRun(StringBuilder out) {
+            if (write) {
+                output += writeRun(runKey, sums, touched, touchedCount, out);
+            }
+            touchedCount = 0;
+            run++;
+        }
+    }
+
+    // Plain decimals of up to 15 digits are parsed exactly without a substring, anything else by Double.parseDouble
+    private double parseValue(String input, int from, int to, int lineNumber) {
+        int i = from;
+        boolean negative = i < to && input.charAt(i) == '-';
+        if (negative) {
+            i++;
+        }
+        long digits = 0;
+        int digitCount = 0;
+        int scale = -1;
+        for (; i < to && digitCount <= 15; i++) {
+            char c = input.charAt(i);
+            if (c >= '0' && c <= '9') {
+                digits = digits * 10 + (c - '0');
+                digitCount++;
+                if (scale >= 0) {
+                    scale++;
+                }
+            } else if (c == '.' && scale < 0) {
+                scale = 0;
+            } else {
+                break;
+            }
+        }
+        if (i == to && digitCount > 0 && digitCount <= 15) {
+            double value = scale > 0 ? digits / POWERS_OF_TEN[scale] : digits;
+            return negative ? -value : value;
+        }
+        try {
+            double value = Double.parseDouble(input.substring(from, to));
+            if (Double.isFinite(value)) {
+                return value;
+            }
+        } catch (NumberFormatException e) {
+            // reported below
+        }
+        throw new TaxonomyException(id, "Line %d: value %s is not a number".formatted(
+                lineNumber, input.substring(from, to)));
+    }
+
+    private int writeRun(String key, double[] sums, int[] touched, int touchedCount, StringBuilder out) {
+        Arrays.sort(touched, 0, touchedCount);
+        for (int i = 0; i < touchedCount; i++) {
+            int t = touched[i];
+            if (key != null) {
+                out.append(key).append(',');
+            }
+            out.append(target.rowId(t)).append(',').append(format(sums[t])).append('\n');
+        }
+        return touchedCount;
+    }
+
+    // Sums are written as plain decimals rounded to OUTPUT_SCALE places, never in exponent notation and without
+    // trailing zeros, so 1.0E7 is written as 10000000 and 0.1 + 0.2 as 0.3
+    private String format(double sum) {
+        if (!Double.isFinite(sum)) {
+            throw new TaxonomyException(id, "Translated value %s is out of range".formatted(sum));
+        }
+        if (sum == Math.rint(sum) && Math.abs(sum) < POWERS_OF_TEN[15]) {
+            return Long.toString((long) sum);
+        }
+        return BigDecimal.valueOf(sum).setScale(OUTPUT_SCALE, RoundingMode.HALF_EVEN).stripTrailingZeros()
+                .toPlainString();
+    }
+}
@@ -0,0 +1,563 @@
+package ccf.domain.standard;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+
+import ccf.domain.standard.Taxonomy.Row;
+import ccf.util.serializer.CompiledTaxonomySerializer;
+
+// CompiledTaxonomy is the read-only form of a published taxonomy. Rows are numbered by ordinal in tree order
+// (as RowIndex.toList()), so a subtree is the contiguous ordinal range [o, end[o]). The tree is an int[] parent
+// array plus CSR-encoded children, and every string is stored once in a deduplicated pool and referenced by int.
+// Row records are only built for the rows a query returns, and it is serialized straight from the arrays with
+// the same JSON shape as Taxonomy.TaxonomyDetails.
+@JsonSerialize(using = CompiledTaxonomySerializer.class)
+public final class CompiledTaxonomy {
+    // Bits of flags, set when the row's list or map is null rather than empty
+    private static final byte NULL_ALIASES = 1;
+    private static final byte NULL_KEYWORDS = 2;
+    private static final byte NULL_HINTS = 4;
+    private static final byte NULL_CHILDREN = 8;
+
+    private final String id;
+    private final String name;
+    private final String description;
+    private final TaxonomyVersion version;
+    private final TaxonomyStatus status;
+
+    private final String[] pool;
+    private final int[] idRefs;
+    private final int[] byId;
+    private final int[] parent;
+    private final int[] depth;
+    private final int[] end;
+    // children of o are childOrdinals[childStart[o] .. childStart[o + 1]), -(ref + 1) for an id not in the taxonomy
+    private final int[] childStart;
+    private final int[] childOrdinals;
+    private final int[] valueRefs;
+    private final int[] descriptionRefs;
+    private final int[] formulaRefs;
+    private final int[] aliasStart;
+    private final int[] aliasRefs;
+    private final int[] keywordStart;
+    private final int[] keywordRefs;
+    // dimensionSrcHints as (dimension, column) ref pairs, column -1 for a dimension with no columns
+    private final int[] hintStart;
+    private final int[] hintDimensions;
+    private final int[] hintColumns;
+    private final byte[] flags;
+    // Rows whose parent field is not the parent they were reached from (a dangling or inconsistent parent)
+    private final Map<Integer, String> parentOverrides;
+    // Built on first use by TaxonomyDiff, see hashes()
+    private volatile Hashes hashes;
+    // Built on first use by the classify endpoint, see keywords()
+    private volatile KeywordAutomaton keywords;
+    private volatile TrigramIndex trigrams;
+
+    // attributes[o] hashes every field of o except value, parent and children. subtree[o] hashes o's rowId,
+    // value, parent and attributes together with the subtree hashes of its children, so two rows with equal
+    // subtree hashes root identical subtrees.
+    public record Hashes(long[] attributes, long[] subtree) {
+    }
+
+    private CompiledTaxonomy(Taxonomy taxonomy, Builder b) {
+        this.id = taxonomy.id();
+        this.name = taxonomy.name();
+        this.description = taxonomy.description();
+        this.version = taxonomy.version();
+        this.status = taxonomy.status();
+        this.pool = b.pool.toArray(String[]::new);
+        this.idRefs = b.idRefs;
+        this.byId = b.byId;
+        this.parent = b.parent;
+        this.depth = b.depth;
+        this.end = b.end;
+        this.childStart = b.childStart;
+        this.childOrdinals = b.childOrdinals.toArray();
+        this.valueRefs = b.valueRefs;
+        this.descriptionRefs = b.descriptionRefs;
+        this.formulaRefs = b.formulaRefs;
+        this.aliasStart = b.aliasStart;
+        this.aliasRefs = b.aliasRefs.toArray();
+        this.keywordStart = b.keywordStart;
+        this.keywordRefs = b.keywordRefs.toArray();
+        this.hintStart = b.hintStart;
+        this.hintDimensions = b.hintDimensions.toArray();
+        this.hintColumns = b.hintColumns.toArray();
+        this.flags = b.flags;
+        this.parentOverrides = b.parentOverrides.isEmpty() ? Map.of() : new HashMap<>(b.parentOverrides);
+    }
+
+    public static CompiledTaxonomy compile(Taxonomy taxonomy) {
+        return new CompiledTaxonomy(taxonomy, new Builder(taxonomy.rows()));
+    }
+
+    public String id() {
+        return id;
+    }
+
+    public String name() {
+        return name;
+    }
+
+    public String description() {
+        return description;
+    }
+
+    public TaxonomyVersion version() {
+        return version;
+    }
+
+    public TaxonomyStatus status() {
+        return status;
+    }
+
+    public int size() {
+        return idRefs.length;
+    }
+
+    public boolean contains(String rowId) {
+        return ordinal(rowId) >= 0;
+    }
+
+    // Binary search over the ordinals sorted by rowId, -1 if rowId is not in the taxonomy
+    public int ordinal(String rowId) {
+        int low = 0;
+        int high = byId.length - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int cmp = pool[idRefs[byId[mid]]].compareTo(rowId);
+            if (cmp < 0) {
+                low = mid + 1;
+            } else if (cmp > 0) {
+                high = mid - 1;
+            } else {
+                return byId[mid];
+            }
+        }
+        return -1;
+    }
+
+    // rowId followed by its descendants in tree order, down to maxDepth levels below rowId (null for all)
+    public List<Row> subtree(String rowId, Integer maxDepth) {
+        int o = ordinal(rowId);
+        if (o < 0) {
+            return List.of();
+        }
+        int depthLimit = maxDepth == null ? Integer.MAX_VALUE : depth[o] + maxDepth;
+        List<Row> slice = new ArrayList<>();
+        for (int i = o; i < end[o]; i++) {
+            if (depth[i] <= depthLimit) {
+                slice.add(row(i));
+            } else {
+                // Skip the whole subtree below the depth limit
+                i = end[i] - 1;
+            }
+        }
+        return slice;
+    }
+
+    // Ancestors of rowId from the root down to its parent
+    public List<Row> ancestors(String rowId) {
+        int o = ordinal(rowId);
+        if (o < 0) {
+            return List.of();
+        }
+        Row[] path = new Row[depth[o]];
+        for (int p = parent[o], i = path.length - 1; p >= 0; p = parent[p], i--) {
+            path[i] = row(p);
+        }
+        return List.of(path);
+    }
+
+    // Up to limit rows following after in tree order, from the first row when after is null.
+    // Empty when after is not in the taxonomy.
+    public List<Row> rowsAfter(String after, int limit) {
+        int from = 0;
+        if (after != null) {
+            int o = ordinal(after);
+            if (o < 0) {
+                return List.of();
+            }
+            from = o + 1;
+        }
+        int to = (int) Math.min((long) from + limit, size());
+        List<Row> page = new ArrayList<>(Math.max(0, to - from));
+        for (int o = from; o < to; o++) {
+            page.add(row(o));
+        }
+        return page;
+    }
+
+    public List<Row> rows() {
+        List<Row> rows = new ArrayList<>(size());
+        for (int o = 0; o < size(); o++) {
+            rows.add(row(o));
+        }
+        return rows;
+    }
+
+    // Aho-Corasick automaton over the row keywords for classifying free text, built once per compiled taxonomy
+    public KeywordAutomaton keywords() {
+        KeywordAutomaton built = keywords;
+        if (built == null) {
+            built = KeywordAutomaton.of(rows());
+            keywords = built;
+        }
+        return built;
+    }
+
+    // Trigram index over the values, aliases and keywords for fuzzy label matching, built once per compiled taxonomy
+    public TrigramIndex trigrams() {
+        TrigramIndex built = trigrams;
+        if (built == null) {
+            built = TrigramIndex.of(rows());
+            trigrams = built;
+        }
+        return built;
+    }
+
+    // End of the subtree of o, exclusive: the subtree is the ordinal range [o, subtreeEnd(o))
+    public int subtreeEnd(int o) {
+        return end[o];
+    }
+
+    public Hashes hashes() {
+        Hashes built = hashes;
+        if (built == null) {
+            built = buildHashes();
+            hashes = built;
+        }
+        return built;
+    }
+
+    // Each pooled string is hashed once, rows combine the hashes of their refs. Children have higher ordinals than
+    // their parent, so one pass in reverse tree order sees every child before its parent.
+    private Hashes buildHashes() {
+        long[] poolHashes = new long[pool.length];
+        for (int i = 0; i < pool.length; i++) {
+            poolHashes[i] = hash(pool[i]);
+        }
+        long[] attributes = new long[size()];
+        long[] subtree = new long[size()];
+        for (int o = size() - 1; o >= 0; o--) {
+            long h = mix(poolHashes[idRefs[o]], ref(poolHashes, descriptionRefs[o]));
+            h = mix(h, ref(poolHashes, formulaRefs[o]));
+            h = mix(h, flags[o]);
+            h = refs(h, poolHashes, aliasRefs, aliasStart[o], aliasStart[o + 1]);
+            h = refs(h, poolHashes, keywordRefs, keywordStart[o], keywordStart[o + 1]);
+            h = refs(h, poolHashes, hintDimensions, hintStart[o], hintStart[o + 1]);
+            h = refs(h, poolHashes, hintColumns, hintStart[o], hintStart[o + 1]);
+            attributes[o] = h;
+            long parentHash;
+            if (!parentOverrides.isEmpty() && parentOverrides.containsKey(o)) {
+                parentHash = parentOverrides.get(o) == null ? 0 : hash(parentOverrides.get(o));
+            } else {
+                parentHash = parent[o] < 0 ? 0 : poolHashes[idRefs[parent[o]]];
+            }
+            h = mix(mix(h, ref(poolHashes, valueRefs[o])), parentHash);
+            for (int i = childStart[o]; i < childStart[o + 1]; i++) {
+                int child = childOrdinals[i];
+                h = mix(h, child >= 0 ? subtree[child] : poolHashes[-child - 1]);
+            }
+            subtree[o] = h;
+        }
+        return new Hashes(attributes, subtree);
+    }
+
+    private static long refs(long h, long[] poolHashes, int[] refs, int from, int to) {
+        h = mix(h, to - from);
+        for (int i = from; i < to; i++) {
+            h = mix(h, ref(poolHashes, refs[i]));
+        }
+        return h;
+    }
+
+    private static long ref(long[] poolHashes, int ref) {
+        return ref < 0 ? 0x5bd1e995L : poolHashes[ref];
+    }
+
+    // 64-bit FNV-1a over the chars
+    private static long hash(String s) {
+        long h = 0xcbf29ce484222325L;
+        for (int i = 0; i < s.length(); i++) {
+            h = (h ^ s.charAt(i)) * 0x100000001b3L;
+        }
+        return h;
+    }
+
+    // Order-sensitive combine with a splitmix64 finalizer
+    private static long mix(long h, long value) {
+        long z = h * 0x9e3779b97f4a7c15L + value;
+        z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+        return z ^ (z >>> 31);
+    }
+
+    public Row row(int o) {
+        return new Row(rowId(o), value(o), description(o), aliases(o), keywords(o), dimensionSrcHints(o),
+                parentId(o), children(o), formula(o));
+    }
+
+    // Field accessors by ordinal, used by the serializer to write rows without building Row records
+
+    public String rowId(int o) {
+        return pool[idRefs[o]];
+    }
+
+    public String value(int o) {
+        return string(valueRefs[o]);
+    }
+
+    public String description(int o) {
+        return string(descriptionRefs[o]);
+    }
+
+    public String formula(int o) {
+        return string(formulaRefs[o]);
+    }
+
+    public String parentId(int o) {
+        if (!parentOverrides.isEmpty() && parentOverrides.containsKey(o)) {
+            return parentOverrides.get(o);
+        }
+        return parent[o] < 0 ? null : rowId(parent[o]);
+    }
+
+    public List<String> aliases(int o) {
+        return (flags[o] & NULL_ALIASES) != 0 ? null : strings(aliasRefs, aliasStart[o], aliasStart[o + 1]);
+    }
+
+    public List<String> keywords(int o) {
+        return (flags[o] & NULL_KEYWORDS) != 0 ? null : strings(keywordRefs, keywordStart[o], keywordStart[o + 1]);
+    }
+
+    public List<String> children(int o) {
+        if ((flags[o] & NULL_CHILDREN) != 0) {
+            return null;
+        }
+        String[] children = new String[childStart[o + 1] - childStart[o]];
+        for (int i = 0; i < children.length; i++) {
+            int child = childOrdinals[childStart[o] + i];
+            children[i] = child >= 0 ? rowId(child) : pool[-child - 1];
+        }
+        return Arrays.asList(children);
+    }
+
+    public Map<String, List<String>> dimensionSrcHints(int o) {
+        if ((flags[o] & NULL_HINTS) != 0) {
+            return null;
+        }
+        Map<String, List<String>> hints = new LinkedHashMap<>();
+        for (int i = hintStart[o]; i < hintStart[o + 1]; i++) {
+            List<String> columns = hints.computeIfAbsent(string(hintDimensions[i]), k -> new ArrayList<>());
+            if (hintColumns[i] != -1) {
+                columns.add(string(hintColumns[i]));
+            }
+        }
+        return hints;
+    }
+
+    // dimensionSrcHints of o as pairs, the columns of a dimension are adjacent. column is null for a dimension
+    // without columns.
+    public int hintCount(int o) {
+        return (flags[o] & NULL_HINTS) != 0 ? -1 : hintStart[o + 1] - hintStart[o];
+    }
+
+    public String hintDimension(int o, int i) {
+        return string(hintDimensions[hintStart[o] + i]);
+    }
+
+    public String hintColumn(int o, int i) {
+        return string(hintColumns[hintStart[o] + i]);
+    }
+
+    private String string(int ref) {
+        return ref < 0 ? null : pool[ref];
+    }
+
+    private List<String> strings(int[] refs, int from, int to) {
+        String[] strings = new String[to - from];
+        for (int i = from; i < to; i++) {
+            strings[i - from] = string(refs[i]);
+        }
+        return Arrays.asList(strings);
+    }
+
+    // Collects the arrays in one pass over the rows in tree order
+    private static final class Builder {
+        final List<String> pool = new ArrayList<>();
+        final Map<String, Integer> poolRefs = new HashMap<>();
+        final int[] idRefs;
+        final int[] byId;
+        final int[] parent;
+        final int[] depth;
+        final int[] end;
+        final int[] childStart;
+        final IntList childOrdinals = new IntList();
+        final int[] valueRefs;
+        final int[] descriptionRefs;
+        final int[] formulaRefs;
+        final int[] aliasStart;
+        final IntList aliasRefs = new IntList();
+        final int[] keywordStart;
+        final IntList keywordRefs = new IntList();
+        final int[] hintStart;
+        final IntList hintDimensions = new IntList();
+        final IntList hintColumns = new IntList();
+        final byte[] flags;
+        final Map<Integer, String> parentOverrides = new HashMap<>();
+
+        Builder(RowIndex rowIndex) {
+            List<Row> rows = rowIndex.toList();
+            int size = rows.size();
+            idRefs = new int[size];
+            parent = new int[size];
+            depth = new int[size];
+            end = new int[size];
+            childStart = new int[size + 1];
+            valueRefs = new int[size];
+            descriptionRefs = new int[size];
+            formulaRefs = new int[size];
+            aliasStart = new int[size + 1];
+            keywordStart = new int[size + 1];
+            hintStart = new int[size + 1];
+            flags = new byte[size];
+
+            Map<String, Integer> ordinals = new HashMap<>(size * 2);
+            for (int o = 0; o < size; o++) {
+                ordinals.put(rows.get(o).rowId(), o);
+                idRefs[o] = ref(rows.get(o).rowId());
+            }
+            Arrays.fill(parent, -1);
+            for (int o = 0; o < size; o++) {
+                Row row = rows.get(o);
+                valueRefs[o] = ref(row.value());
+                descriptionRefs[o] = ref(row.description());
+                formulaRefs[o] = ref(row.formula());
+                if (row.children() == null) {
+                    flags[o] |= NULL_CHILDREN;
+                } else {
+                    for (String child : row.children()) {
+                        Integer c = ordinals.get(child);
+                        if (c != null && c > o && parent[c] < 0) {
+                            parent[c] = o;
+                        }
+                        childOrdinals.add(c != null ? c : -ref(child) - 1);
+                    }
+                }
+                childStart[o + 1] = childOrdinals.size();
+                if (row.aliases() == null) {
+                    flags[o] |= NULL_ALIASES;
+                } else {
+                    row.aliases().forEach(alias -> aliasRefs.add(ref(alias)));
+                }
+                aliasStart[o + 1] = aliasRefs.size();
+                if (row.keywords() == null) {
+                    flags[o] |= NULL_KEYWORDS;
+                } else {
+                    row.keywords().forEach(keyword -> keywordRefs.add(ref(keyword)));
+                }
+                keywordStart[o + 1] = keywordRefs.size();
+                if (row.dimensionSrcHints() == null) {
+                    flags[o] |= NULL_HINTS;
+                } else {
+                    row.dimensionSrcHints().forEach((dimension, columns) -> {
+                        if (columns == null || columns.isEmpty()) {
+                            hintDimensions.add(ref(dimension));
+                            hintColumns.add(-1);
+                        } else {
+                            columns.forEach(column -> {
+                                hintDimensions.add(ref(dimension));
+                                hintColumns.add(ref(column));
+                            });
+                        }
+                    });
+                }
+                hintStart[o + 1] = hintDimensions.size();
+            }
+            // Walk the tree order with the stack of open ancestors. A row's subtree ends at the first row that is
+            // not below it, and a parent that is not an open ancestor (rows not reachable from a root) is dropped.
+            int[] stack = new int[size];
+            boolean[] open = new boolean[size];
+            int top = 0;
+            for (int o = 0; o < size; o++) {
+                if (parent[o] >= 0 && !open[parent[o]]) {
+                    parent[o] = -1;
+                }
+                while (top > 0 && stack[top - 1] != parent[o]) {
+                    int closed = stack[--top];
+                    open[closed] = false;
+                    end[closed] = o;
+                }
+                depth[o] = top;
+                open[o] = true;
+                stack[top++] = o;
+            }
+            while (top > 0) {
+                end[stack[--top]] = size;
+            }
+            for (int o = 0; o < size; o++) {
+                String recorded = rows.get(o).parent();
+                String reached = parent[o] < 0 ? null : rows.get(parent[o]).rowId();
+                if (recorded == null ? reached != null : !recorded.equals(reached)) {
+                    parentOverrides.put(o, recorded);
+                }
+            }
+            byId = sortedById(rows);
+        }
+
+        private static int[] sortedById(List<Row> rows) {
+            Integer[] ordinals = new Integer[rows.size()];
+            for (int o = 0; o < ordinals.length; o++) {
+                ordinals[o] = o;
+            }
+            Arrays.sort(ordinals, (a, b) -> rows.get(a).rowId().compareTo(rows.get(b).rowId()));
+            int[] byId = new int[ordinals.length];
+            for (int i = 0; i < byId.length; i++) {
+                byId[i] = ordinals[i];
+            }
+            return byId;
+        }
+
+        // -1 for null
+        private int ref(String s) {
+            if (s == null) {
+                return -1;
+            }
+            Integer ref = poolRefs.get(s);
+            if (ref == null) {
+                ref = pool.size();
+                pool.add(s);
+                poolRefs.put(s, ref);
+            }
+            return ref;
+        }
+    }
+
+    private static final class IntList {
+        private int[] values = new int[16];
+        private int size = 0;
+
+        void add(int value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+
+        int size() {
+            return size;
+        }
+
+        int[] toArray() {
+            return Arrays.copyOf(values, size);
+        }
+    }
+}
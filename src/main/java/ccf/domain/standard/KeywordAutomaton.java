@@ -0,0 +1,315 @@
+package ccf.domain.standard;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import ccf.domain.standard.Taxonomy.KeywordHit;
+import ccf.domain.standard.Taxonomy.Row;
+
+// KeywordAutomaton is an Aho-Corasick automaton over the keywords of the rows of a taxonomy. classify() finds
+// every row with a keyword in a text in one pass over the text, whatever the number of keywords.
+// Texts and keywords are normalized the same way: lower-cased, with each run of other characters than letters and
+// digits read as one space. Keywords are padded with a space on both sides, so they only match whole words.
+// It is immutable and built once per compiled taxonomy (see CompiledTaxonomy.keywords()), classify() is safe to
+// call in parallel.
+public final class KeywordAutomaton {
+    private static final char SPACE = ' ';
+
+    // Transitions of state s are edgeChars/edgeTargets[edgeStart[s] .. edgeStart[s + 1]), sorted by char.
+    // The root has a transition for every char, so a failed lookup never has to go past it.
+    private final int[] edgeStart;
+    private final char[] edgeChars;
+    private final int[] edgeTargets;
+    private final int[] rootTargets;
+    private final int[] fail;
+    // Keyword ending at a state (-1 for none), and the next state on the fail chain with one (-1 for none)
+    private final int[] output;
+    private final int[] outputLink;
+
+    private final String[] keywords;
+    private final int[] keywordLengths;
+    private final int[][] keywordRows;
+    private final String[] rowIds;
+    private final String[] rowValues;
+
+    private KeywordAutomaton(int[] edgeStart, char[] edgeChars, int[] edgeTargets, int[] rootTargets, int[] fail,
+            int[] output, int[] outputLink, String[] keywords, int[] keywordLengths, int[][] keywordRows,
+            String[] rowIds, String[] rowValues) {
+        this.edgeStart = edgeStart;
+        this.edgeChars = edgeChars;
+        this.edgeTargets = edgeTargets;
+        this.rootTargets = rootTargets;
+        this.fail = fail;
+        this.output = output;
+        this.outputLink = outputLink;
+        this.keywords = keywords;
+        this.keywordLengths = keywordLengths;
+        this.keywordRows = keywordRows;
+        this.rowIds = rowIds;
+        this.rowValues = rowValues;
+    }
+
+    // rows in tree order, rows without keywords are skipped
+    static KeywordAutomaton of(List<Row> rows) {
+        // Normalized keyword -> (first spelling seen, rows having it)
+        Map<String, String> spellings = new LinkedHashMap<>();
+        Map<String, List<Integer>> rowsByKeyword = new HashMap<>();
+        List<String> rowIds = new ArrayList<>();
+        List<String> rowValues = new ArrayList<>();
+        for (Row row : rows) {
+            if (row.keywords() == null || row.keywords().isEmpty()) {
+                continue;
+            }
+            int rowNumber = -1;
+            for (String keyword : row.keywords()) {
+                String normalized = normalize(keyword);
+                if (normalized.isEmpty()) {
+                    continue;
+                }
+                if (rowNumber < 0) {
+                    rowNumber = rowIds.size();
+                    rowIds.add(row.rowId());
+                    rowValues.add(row.value());
+                }
+                spellings.putIfAbsent(normalized, keyword.strip());
+                List<Integer> keywordRows = rowsByKeyword.computeIfAbsent(normalized, k -> new ArrayList<>(1));
+                if (!keywordRows.contains(rowNumber)) {
+                    keywordRows.add(rowNumber);
+                }
+            }
+        }
+
+        String[] keywords = new String[spellings.size()];
+        int[] keywordLengths = new int[keywords.length];
+        int[][] keywordRows = new int[keywords.length][];
+        // Build the trie with maps, then flatten it into sorted edge arrays
+        List<TreeMap<Character, Integer>> trie = new ArrayList<>();
+        List<Integer> outputs = new ArrayList<>();
+        trie.add(new TreeMap<>());
+        outputs.add(-1);
+        int keyword = 0;
+        for (var entry : spellings.entrySet()) {
+            String normalized = entry.getKey();
+            keywords[keyword] = entry.getValue();
+            keywordLengths[keyword] = normalized.length();
+            keywordRows[keyword] = rowsByKeyword.get(normalized).stream().mapToInt(Integer::intValue).toArray();
+            String padded = SPACE + normalized + SPACE;
+            int state = 0;
+            for (int i = 0; i < padded.length(); i++) {
+                Integer next = trie.get(state).get(padded.charAt(i));
+                if (next == null) {
+                    next = trie.size();
+                    trie.get(state).put(padded.charAt(i), next);
+                    trie.add(new TreeMap<>());
+                    outputs.add(-1);
+                }
+                state = next;
+            }
+            outputs.set(state, keyword);
+            keyword++;
+        }
+
+        int states = trie.size();
+        int[] edgeStart = new int[states + 1];
+        for (int s = 0; s < states; s++) {
+            edgeStart[s + 1] = edgeStart[s] + trie.get(s).size();
+        }
+        char[] edgeChars = new char[edgeStart[states]];
+        int[] edgeTargets = new int[edgeStart[states]];
+        for (int s = 0; s < states; s++) {
+            int e = edgeStart[s];
+            for (var edge : trie.get(s).entrySet()) {
+                edgeChars[e] = edge.getKey();
+                edgeTargets[e++] = edge.getValue();
+            }
+        }
+        int[] rootTargets = new int[Character.MAX_VALUE + 1];
+        trie.get(0).forEach((c, target) -> rootTargets[c] = target);
+
+        // Fail links in breadth-first order, so a state's fail target is always resolved before it is used
+        int[] fail = new int[states];
+        int[] output = outputs.stream().mapToInt(Integer::intValue).toArray();
+        int[] outputLink = new int[states];
+        Arrays.fill(outputLink, -1);
+        ArrayDeque<Integer> queue = new ArrayDeque<>();
+        for (int e = edgeStart[0]; e < edgeStart[1]; e++) {
+            queue.add(edgeTargets[e]);
+        }
+        while (!queue.isEmpty()) {
+            int state = queue.poll();
+            for (int e = edgeStart[state]; e < edgeStart[state + 1]; e++) {
+                int child = edgeTargets[e];
+                int f = fail[state];
+                int target;
+                while ((target = transition(edgeStart, edgeChars, edgeTargets, rootTargets, f, edgeChars[e])) < 0) {
+                    f = fail[f];
+                }
+                fail[child] = target;
+                outputLink[child] = output[fail[child]] >= 0 ? fail[child] : outputLink[fail[child]];
+                queue.add(child);
+            }
+        }
+        return new KeywordAutomaton(edgeStart, edgeChars, edgeTargets, rootTargets, fail, output, outputLink,
+                keywords, keywordLengths, keywordRows, rowIds.toArray(String[]::new), rowValues.toArray(String[]::new));
+    }
+
+    public int keywordCount() {
+        return keywords.length;
+    }
+
+    // Rows with at least one keyword in text, most keywords matched first, then longest keyword matched
+    public List<KeywordHit> classify(String text) {
+        if (text == null || keywords.length == 0) {
+            return List.of();
+        }
+        int[] found = new int[8];
+        int foundCount = 0;
+        int state = next(0, SPACE);
+        boolean lastSpace = true;
+        for (int i = 0; i <= text.length(); i++) {
+            char c;
+            if (i == text.length()) {
+                if (lastSpace) {
+                    break;
+                }
+                c = SPACE;
+            } else {
+                c = text.charAt(i);
+                if (Character.isLetterOrDigit(c)) {
+                    c = Character.toLowerCase(c);
+                } else if (lastSpace) {
+                    continue;
+                } else {
+                    c = SPACE;
+                }
+            }
+            lastSpace = c == SPACE;
+            state = next(state, c);
+            for (int s = output[state] >= 0 ? state : outputLink[state]; s >= 0; s = outputLink[s]) {
+                if (indexOf(found, foundCount, output[s]) < 0) {
+                    if (foundCount == found.length) {
+                        found = Arrays.copyOf(found, found.length * 2);
+                    }
+                    found[foundCount++] = output[s];
+                }
+            }
+        }
+        if (foundCount == 0) {
+            return List.of();
+        }
+
+        // Group the keywords found by row, in order of first occurrence. A text matches few rows, so plain
+        // arrays and linear scans are cheaper here than maps.
+        int[] hitRows = new int[foundCount];
+        int[][] hitKeywords = new int[foundCount][];
+        int[] hitKeywordCounts = new int[foundCount];
+        int[] hitLongest = new int[foundCount];
+        int hitCount = 0;
+        for (int f = 0; f < foundCount; f++) {
+            int keyword = found[f];
+            for (int rowNumber : keywordRows[keyword]) {
+                int hit = indexOf(hitRows, hitCount, rowNumber);
+                if (hit < 0) {
+                    if (hitCount == hitRows.length) {
+                        hitRows = Arrays.copyOf(hitRows, hitCount * 2);
+                        hitKeywords = Arrays.copyOf(hitKeywords, hitCount * 2);
+                        hitKeywordCounts = Arrays.copyOf(hitKeywordCounts, hitCount * 2);
+                        hitLongest = Arrays.copyOf(hitLongest, hitCount * 2);
+                    }
+                    hit = hitCount++;
+                    hitRows[hit] = rowNumber;
+                    hitKeywords[hit] = new int[2];
+                }
+                if (hitKeywordCounts[hit] == hitKeywords[hit].length) {
+                    hitKeywords[hit] = Arrays.copyOf(hitKeywords[hit], hitKeywordCounts[hit] * 2);
+                }
+                hitKeywords[hit][hitKeywordCounts[hit]++] = keyword;
+                hitLongest[hit] = Math.max(hitLongest[hit], keywordLengths[keyword]);
+            }
+        }
+        Integer[] ranked = new Integer[hitCount];
+        for (int hit = 0; hit < hitCount; hit++) {
+            ranked[hit] = hit;
+        }
+        int[] counts = hitKeywordCounts;
+        int[] longest = hitLongest;
+        int[] rowNumbers = hitRows;
+        Arrays.sort(ranked, Comparator.<Integer>comparingInt(hit -> -counts[hit])
+                .thenComparingInt(hit -> -longest[hit])
+                .thenComparing(hit -> rowIds[rowNumbers[hit]]));
+        KeywordHit[] hits = new KeywordHit[hitCount];
+        for (int i = 0; i < hitCount; i++) {
+            int hit = ranked[i];
+            String[] rowKeywords = new String[hitKeywordCounts[hit]];
+            for (int k = 0; k < rowKeywords.length; k++) {
+                rowKeywords[k] = keywords[hitKeywords[hit][k]];
+            }
+            hits[i] = new KeywordHit(rowIds[hitRows[hit]], rowValues[hitRows[hit]], List.of(rowKeywords));
+        }
+        return List.of(hits);
+    }
+
+    private static int indexOf(int[] values, int count, int value) {
+        for (int i = 0; i < count; i++) {
+            if (values[i] == value) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private int next(int state, char c) {
+        int target;
+        while ((target = transition(edgeStart, edgeChars, edgeTargets, rootTargets, state, c)) < 0) {
+            state = fail[state];
+        }
+        return target;
+    }
+
+    // Target of the transition from state on c, -1 when there is none. From the root it is never -1.
+    private static int transition(int[] edgeStart, char[] edgeChars, int[] edgeTargets, int[] rootTargets,
+            int state, char c) {
+        if (state == 0) {
+            return rootTargets[c];
+        }
+        int from = edgeStart[state];
+        int to = edgeStart[state + 1];
+        if (to - from <= 8) {
+            for (int e = from; e < to; e++) {
+                if (edgeChars[e] == c) {
+                    return edgeTargets[e];
+                }
+            }
+            return -1;
+        }
+        int e = Arrays.binarySearch(edgeChars, from, to, c);
+        return e < 0 ? -1 : edgeTargets[e];
+    }
+
+    // Lower-cased words joined by single spaces
+    static String normalize(String text) {
+        if (text == null) {
+            return "";
+        }
+        StringBuilder normalized = new StringBuilder(text.length());
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (Character.isLetterOrDigit(c)) {
+                normalized.append(Character.toLowerCase(c));
+            } else if (!normalized.isEmpty() && normalized.charAt(normalized.length() - 1) != SPACE) {
+                normalized.append(SPACE);
+            }
+        }
+        if (!normalized.isEmpty() && normalized.charAt(normalized.length() - 1) == SPACE) {
+            normalized.setLength(normalized.length() - 1);
+        }
+        return normalized.toString();
+    }
+}
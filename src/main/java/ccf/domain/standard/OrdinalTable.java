@@ -0,0 +1,77 @@
+package ccf.domain.standard;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.IntFunction;
+
+// rowId to ordinal of a CompiledTaxonomy (or position in a list of rows), linear probing over a power of two table at most half full.
+// A hash lookup per id, for joins over many rowIds where CompiledTaxonomy.ordinal would binary search each one.
+// The hash of each slot's rowId is kept next to it, so a probe only reads the rowId string on a hash match.
+final class OrdinalTable {
+    private final IntFunction<String> rowIds;
+    private final int[] slots;
+    private final int[] hashes;
+    private final int mask;
+
+    OrdinalTable(CompiledTaxonomy taxonomy) {
+        this(taxonomy.size(), taxonomy::rowId);
+    }
+
+    OrdinalTable(List<Taxonomy.Row> rows) {
+        this(rows.size(), o -> rows.get(o).rowId());
+    }
+
+    private OrdinalTable(int size, IntFunction<String> rowIds) {
+        this.rowIds = rowIds;
+        int capacity = Integer.highestOneBit(Math.max(2, size) * 2 - 1) << 1;
+        this.slots = new int[capacity];
+        this.hashes = new int[capacity];
+        this.mask = capacity - 1;
+        Arrays.fill(slots, -1);
+        for (int o = 0; o < size; o++) {
+            int hash = spread(rowIds.apply(o).hashCode());
+            int slot = hash & mask;
+            while (slots[slot] >= 0) {
+                slot = (slot + 1) & mask;
+            }
+            slots[slot] = o;
+            hashes[slot] = hash;
+        }
+    }
+
+    int get(String rowId) {
+        int hash = spread(rowId.hashCode());
+        int slot = hash & mask;
+        for (int o = slots[slot]; o >= 0; o = slots[slot]) {
+            if (hashes[slot] == hash && rowIds.apply(o).equals(rowId)) {
+                return o;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return -1;
+    }
+
+    // As get(text.substring(from, to)) without allocating the substring
+    int get(String text, int from, int to) {
+        int h = 0;
+        for (int i = from; i < to; i++) {
+            h = 31 * h + text.charAt(i);
+        }
+        int hash = spread(h);
+        int length = to - from;
+        int slot = hash & mask;
+        for (int o = slots[slot]; o >= 0; o = slots[slot]) {
+            String rowId;
+            if (hashes[slot] == hash && (rowId = rowIds.apply(o)).length() == length
+                    && rowId.regionMatches(0, text, from, length)) {
+                return o;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return -1;
+    }
+
+    private static int spread(int h) {
+        return (h ^ (h >>> 16)) * 0x45d9f3b;
+    }
+}
@@ -0,0 +1,40 @@
+package ccf.domain.standard;
+
+import java.util.HashMap;
+import java.util.Map;
+
+// Registry of the published taxonomies. Every change stamps the taxonomy with a new version, so a reader
+// holding an older copy can tell which taxonomies were republished, unpublished or removed since.
+// taxonomyVersions holds the taxonomy version each one was published at, it is null in registries written before
+// it was recorded and has no entry for taxonomies published before then.
+public record PublishedTaxonomies(Map<String, Long> taxonomies, long version,
+        Map<String, TaxonomyVersion> taxonomyVersions) {
+
+    // taxonomyVersion is the published version, null on unpublish and for events that do not carry it
+    public record PublishedChange(String taxonomyId, boolean published, TaxonomyVersion taxonomyVersion) {
+    }
+
+    public static PublishedTaxonomies empty() {
+        return new PublishedTaxonomies(Map.of(), 0, Map.of());
+    }
+
+    public TaxonomyVersion taxonomyVersion(String taxonomyId) {
+        return taxonomyVersions == null ? null : taxonomyVersions.get(taxonomyId);
+    }
+
+    public PublishedTaxonomies onChange(PublishedChange change) {
+        Map<String, Long> next = new HashMap<>(taxonomies == null ? Map.of() : taxonomies);
+        Map<String, TaxonomyVersion> nextVersions =
+                new HashMap<>(taxonomyVersions == null ? Map.of() : taxonomyVersions);
+        nextVersions.remove(change.taxonomyId());
+        if (change.published()) {
+            next.put(change.taxonomyId(), version + 1);
+            if (change.taxonomyVersion() != null) {
+                nextVersions.put(change.taxonomyId(), change.taxonomyVersion());
+            }
+        } else {
+            next.remove(change.taxonomyId());
+        }
+        return new PublishedTaxonomies(Map.copyOf(next), version + 1, Map.copyOf(nextVersions));
+    }
+}
@@ -0,0 +1,388 @@
+package ccf.domain.standard;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Stream;
+
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+
+import ccf.domain.standard.Taxonomy.Row;
+import ccf.util.collection.PersistentHashMap;
+import ccf.util.collection.PersistentVector;
+import ccf.util.serializer.RowIndexSnapshotDeserializer;
+import ccf.util.serializer.RowIndexSnapshotSerializer;
+
+// RowIndex holds the rows of a Taxonomy keyed by rowId. Each stored Row carries its own children list, which
+// together with the list of root rows forms the parent -> children index.
+// RowIndex is immutable: put/remove return a new index that shares all untouched rows with this one, and any
+// previous state can be cached or shared safely. Children lists and roots are PersistentVectors, so a put costs
+// O(log n) and appending a child O(log32 k). Removing a child rebuilds its parent's list, a batch of changes goes
+// through a Builder which rebuilds each touched list once.
+// It is (de)serialized with the compact TaxonomySnapshotCodec, which keeps entity snapshots small and fast to
+// recover. Snapshots written as a plain list of rows are still read. API responses use Taxonomy.details().
+@JsonSerialize(using = RowIndexSnapshotSerializer.class)
+@JsonDeserialize(using = RowIndexSnapshotDeserializer.class)
+public final class RowIndex {
+    private static final RowIndex EMPTY = new RowIndex(PersistentHashMap.empty(), PersistentVector.empty());
+
+    private final PersistentHashMap<String, Row> rows;
+    private final PersistentVector<String> roots;
+    // Derived from the immutable rows on first use
+    private volatile TreeIntervals intervals;
+    private volatile Breadcrumbs breadcrumbs;
+    // Unlike the derived structures above, a built search index is carried over to the indexes returned
+    // by put/remove, updated for the changed row only
+    private volatile SearchIndex search;
+
+    private RowIndex(PersistentHashMap<String, Row> rows, PersistentVector<String> roots) {
+        this.rows = rows;
+        this.roots = roots;
+    }
+
+    public static RowIndex empty() {
+        return EMPTY;
+    }
+
+    public static RowIndex of(List<Row> rows) {
+        if (rows == null || rows.isEmpty()) {
+            return EMPTY;
+        }
+        PersistentHashMap<String, Row> map = PersistentHashMap.empty();
+        List<String> roots = new ArrayList<>();
+        for (Row row : rows) {
+            map = map.plus(row.rowId(), withChildren(row,
+                    row.children() == null ? PersistentVector.empty() : PersistentVector.of(row.children())));
+            if (row.parent() == null) {
+                roots.add(row.rowId());
+            }
+        }
+        return new RowIndex(map, PersistentVector.of(roots));
+    }
+
+    // Rows in tree order: each root followed by its descendants, depth first
+    public List<Row> toList() {
+        List<Row> list = new ArrayList<>(rows.size());
+        Deque<String> stack = new ArrayDeque<>();
+        for (int i = roots.size() - 1; i >= 0; i--) {
+            stack.push(roots.get(i));
+        }
+        while (!stack.isEmpty()) {
+            Row row = rows.get(stack.pop());
+            if (row == null) {
+                continue;
+            }
+            list.add(row);
+            for (int i = row.children().size() - 1; i >= 0; i--) {
+                stack.push(row.children().get(i));
+            }
+        }
+        if (list.size() != rows.size()) {
+            // Rows not reachable from a root (e.g. from an inconsistent snapshot) are kept at the end
+            Set<String> seen = new HashSet<>();
+            list.forEach(row -> seen.add(row.rowId()));
+            rows.forEach((rowId, row) -> {
+                if (!seen.contains(rowId)) {
+                    list.add(row);
+                }
+            });
+        }
+        return list;
+    }
+
+    // Every stored row exactly once, in no particular order. Unlike toList() it does not follow the children lists,
+    // so it holds for an inconsistent index too.
+    public List<Row> rowsUnordered() {
+        return rows.values();
+    }
+
+    public Stream<Row> stream() {
+        return toList().stream();
+    }
+
+    public int size() {
+        return rows.size();
+    }
+
+    public boolean isEmpty() {
+        return rows.isEmpty();
+    }
+
+    public boolean contains(String rowId) {
+        return rows.containsKey(rowId);
+    }
+
+    public Optional<Row> get(String rowId) {
+        return Optional.ofNullable(rows.get(rowId));
+    }
+
+    public List<String> roots() {
+        return roots;
+    }
+
+    public List<String> children(String rowId) {
+        Row row = rows.get(rowId);
+        return row == null ? List.of() : row.children();
+    }
+
+    public boolean hasChildren(String rowId) {
+        return !children(rowId).isEmpty();
+    }
+
+    // True when ancestor is a proper ancestor of rowId. Answered from the Euler tour intervals when this index has
+    // already built them, otherwise by following parent pointers up from rowId, O(depth).
+    public boolean isAncestor(String ancestor, String rowId) {
+        TreeIntervals built = intervals;
+        if (built != null) {
+            return built.isAncestor(ancestor, rowId);
+        }
+        Row row = rows.get(rowId);
+        // Bounded by size in case an inconsistent snapshot holds a parent cycle
+        for (int steps = 0; row != null && row.parent() != null && steps < rows.size(); steps++) {
+            if (row.parent().equals(ancestor)) {
+                return true;
+            }
+            row = rows.get(row.parent());
+        }
+        return false;
+    }
+
+    // Euler tour numbering for subtree and ancestor queries, computed once per index
+    public TreeIntervals intervals() {
+        TreeIntervals result = intervals;
+        if (result == null) {
+            result = TreeIntervals.of(this);
+            intervals = result;
+        }
+        return result;
+    }
+
+    public Breadcrumbs breadcrumbs() {
+        Breadcrumbs result = breadcrumbs;
+        if (result == null) {
+            result = Breadcrumbs.of(this);
+            breadcrumbs = result;
+        }
+        return result;
+    }
+
+    // Inverted index for keyword and alias search, built on first use or at publish
+    public SearchIndex search() {
+        SearchIndex result = search;
+        if (result == null) {
+            result = SearchIndex.of(this);
+            search = result;
+        }
+        return result;
+    }
+
+    // Adds a row, or replaces the row with the same rowId. The row's own children list is ignored,
+    // children are tracked through the parent pointers of the rows that are put.
+    public RowIndex put(Row row) {
+        return toBuilder().put(row).build();
+    }
+
+    // Removes a row and drops it from its parent's children. Children of the removed row are not touched.
+    public RowIndex remove(String rowId) {
+        return toBuilder().remove(rowId).build();
+    }
+
+    // A builder starting from this index, for applying a batch of changes in one pass
+    public Builder toBuilder() {
+        return new Builder(this);
+    }
+
+    // Builder applies puts and removes to a copy of an index. Children lists touched by the batch are collected in
+    // Children and written back once by build(), so a batch of k adds or removes under one parent costs O(k)
+    // instead of a list copy per row. The rows read from a builder may carry a stale children list, use
+    // hasChildren() instead.
+    public static final class Builder {
+        private final RowIndex base;
+        private PersistentHashMap<String, Row> rows;
+        private final Children roots;
+        private final Map<String, Children> children = new HashMap<>();
+        private SearchIndex search;
+
+        private Builder(RowIndex base) {
+            this.base = base;
+            this.rows = base.rows;
+            this.roots = new Children(base.roots);
+            this.search = base.search;
+        }
+
+        public boolean contains(String rowId) {
+            return rows.containsKey(rowId);
+        }
+
+        public Optional<Row> get(String rowId) {
+            return Optional.ofNullable(rows.get(rowId));
+        }
+
+        public boolean hasChildren(String rowId) {
+            Children touched = children.get(rowId);
+            if (touched != null) {
+                return touched.size() > 0;
+            }
+            Row row = rows.get(rowId);
+            return row != null && !row.children().isEmpty();
+        }
+
+        // True when ancestor is a proper ancestor of rowId, by following parent pointers up from rowId
+        public boolean isAncestor(String ancestor, String rowId) {
+            Row row = rows.get(rowId);
+            for (int steps = 0; row != null && row.parent() != null && steps < rows.size(); steps++) {
+                if (row.parent().equals(ancestor)) {
+                    return true;
+                }
+                row = rows.get(row.parent());
+            }
+            return false;
+        }
+
+        public Builder put(Row row) {
+            Row previous = rows.get(row.rowId());
+            if (previous == null || !Objects.equals(previous.parent(), row.parent())) {
+                if (previous != null) {
+                    unlink(previous.parent(), row.rowId());
+                }
+                link(row.parent(), row.rowId());
+            }
+            // A row put again after a remove in the same batch starts without children
+            List<String> kept = previous == null ? PersistentVector.empty() : previous.children();
+            rows = rows.plus(row.rowId(), withChildren(row, kept));
+            if (search != null) {
+                search = search.update(previous, row);
+            }
+            return this;
+        }
+
+        public Builder remove(String rowId) {
+            Row removed = rows.get(rowId);
+            if (removed == null) {
+                return this;
+            }
+            rows = rows.minus(rowId);
+            children.remove(rowId);
+            unlink(removed.parent(), rowId);
+            if (search != null) {
+                search = search.update(removed, null);
+            }
+            return this;
+        }
+
+        // Only a parent that is present is linked to, as for a single put
+        private void link(String parent, String rowId) {
+            if (parent == null) {
+                roots.add(rowId);
+            } else if (rows.containsKey(parent)) {
+                children.computeIfAbsent(parent, p -> new Children(rows.get(p).children())).add(rowId);
+            }
+        }
+
+        private void unlink(String parent, String rowId) {
+            if (parent == null) {
+                roots.remove(rowId);
+            } else if (rows.containsKey(parent)) {
+                children.computeIfAbsent(parent, p -> new Children(rows.get(p).children())).remove(rowId);
+            }
+        }
+
+        public RowIndex build() {
+            if (rows == base.rows && children.isEmpty() && !roots.changed()) {
+                return base;
+            }
+            PersistentHashMap<String, Row> built = rows;
+            for (Map.Entry<String, Children> entry : children.entrySet()) {
+                Row parent = built.get(entry.getKey());
+                if (parent != null && entry.getValue().changed()) {
+                    built = built.plus(entry.getKey(), withChildren(parent, entry.getValue().build()));
+                }
+            }
+            RowIndex index = new RowIndex(built, roots.build());
+            index.search = search;
+            return index;
+        }
+    }
+
+    // The children of one parent, or the roots, while a batch is applied: the list before the batch, with
+    // removed ids filtered out and added ids appended in order. Each id is added or removed in O(1).
+    private static final class Children {
+        private final PersistentVector<String> before;
+        // The ids in before, built on the first remove
+        private Set<String> beforeIds;
+        private final Set<String> removed = new HashSet<>();
+        private final Set<String> added = new LinkedHashSet<>();
+
+        Children(List<String> before) {
+            this.before = PersistentVector.of(before);
+        }
+
+        void add(String rowId) {
+            added.add(rowId);
+        }
+
+        void remove(String rowId) {
+            // Ids removed from before stay filtered out even when added again, they are appended as new
+            if (added.remove(rowId)) {
+                return;
+            }
+            if (beforeIds == null) {
+                beforeIds = new HashSet<>(before);
+            }
+            if (beforeIds.contains(rowId)) {
+                removed.add(rowId);
+            }
+        }
+
+        int size() {
+            return before.size() - removed.size() + added.size();
+        }
+
+        boolean changed() {
+            return !removed.isEmpty() || !added.isEmpty();
+        }
+
+        PersistentVector<String> build() {
+            if (removed.isEmpty()) {
+                return before.plusAll(added);
+            }
+            List<String> kept = new ArrayList<>(size());
+            for (String rowId : before) {
+                if (!removed.contains(rowId)) {
+                    kept.add(rowId);
+                }
+            }
+            kept.addAll(added);
+            return PersistentVector.of(kept);
+        }
+    }
+
+    private static Row withChildren(Row row, List<String> children) {
+        return new Row(row.rowId(), row.value(), row.description(), row.aliases(), row.keywords(),
+                row.dimensionSrcHints(), row.parent(), children, row.formula());
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof RowIndex other && toList().equals(other.toList());
+    }
+
+    @Override
+    public int hashCode() {
+        return toList().hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return toList().toString();
+    }
+}
@@ -0,0 +1,164 @@
+package ccf.domain.standard;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.PriorityQueue;
+import java.util.Set;
+
+import ccf.domain.standard.Taxonomy.Row;
+import ccf.domain.standard.Taxonomy.SearchHit;
+import ccf.util.collection.PersistentHashMap;
+
+// SearchIndex is an inverted index over the value, aliases, keywords and description of the rows of a RowIndex:
+// token -> (rowId -> weight). It is immutable and persistent like RowIndex, so once built it is carried along
+// incrementally by RowIndex.put/remove, re-indexing only the row that changed.
+// Results are ranked by the number of query tokens matched, then by the sum of field weight * idf.
+public final class SearchIndex {
+    private static final int VALUE_WEIGHT = 4;
+    private static final int ALIAS_WEIGHT = 3;
+    private static final int KEYWORD_WEIGHT = 2;
+    private static final int DESCRIPTION_WEIGHT = 1;
+
+    private static final SearchIndex EMPTY = new SearchIndex(PersistentHashMap.empty());
+
+    private final PersistentHashMap<String, PersistentHashMap<String, Integer>> postings;
+
+    private SearchIndex(PersistentHashMap<String, PersistentHashMap<String, Integer>> postings) {
+        this.postings = postings;
+    }
+
+    static SearchIndex of(RowIndex rows) {
+        SearchIndex index = EMPTY;
+        for (Row row : rows.toList()) {
+            index = index.with(row);
+        }
+        return index;
+    }
+
+    // previous and next are the old and new version of one row, either may be null
+    SearchIndex update(Row previous, Row next) {
+        if (previous != null && next != null && sameText(previous, next)) {
+            return this;
+        }
+        SearchIndex index = previous == null ? this : without(previous);
+        return next == null ? index : index.with(next);
+    }
+
+    public List<SearchHit> search(RowIndex rows, String query, int limit) {
+        Set<String> queryTokens = new LinkedHashSet<>(tokenize(query));
+        Map<String, double[]> scores = new HashMap<>();
+        int total = Math.max(1, rows.size());
+        for (String token : queryTokens) {
+            PersistentHashMap<String, Integer> rowWeights = postings.get(token);
+            if (rowWeights == null) {
+                continue;
+            }
+            double idf = Math.log(1.0 + (double) total / rowWeights.size());
+            rowWeights.forEach((rowId, weight) -> {
+                double[] score = scores.computeIfAbsent(rowId, k -> new double[2]);
+                score[0]++;
+                score[1] += weight * idf;
+            });
+        }
+        // Keep the best limit rows in a heap whose head is the weakest, only those are looked up
+        Comparator<Map.Entry<String, double[]>> ranking = Comparator
+                .<Map.Entry<String, double[]>>comparingDouble(e -> e.getValue()[0])
+                .thenComparingDouble(e -> e.getValue()[1])
+                .thenComparing(Map.Entry::getKey, Comparator.reverseOrder());
+        PriorityQueue<Map.Entry<String, double[]>> best = new PriorityQueue<>(limit + 1, ranking);
+        for (var entry : scores.entrySet()) {
+            if (best.size() < limit) {
+                best.add(entry);
+            } else if (ranking.compare(entry, best.peek()) > 0) {
+                best.poll();
+                best.add(entry);
+            }
+        }
+        List<SearchHit> hits = new ArrayList<>(best.size());
+        while (!best.isEmpty()) {
+            var entry = best.poll();
+            rows.get(entry.getKey()).ifPresent(row -> hits.add(
+                    new SearchHit(entry.getKey(), row.value(), (int) entry.getValue()[0], entry.getValue()[1])));
+        }
+        Collections.reverse(hits);
+        return hits;
+    }
+
+    private SearchIndex with(Row row) {
+        var next = postings;
+        for (var entry : tokenWeights(row).entrySet()) {
+            PersistentHashMap<String, Integer> rowWeights = next.get(entry.getKey());
+            if (rowWeights == null) {
+                rowWeights = PersistentHashMap.empty();
+            }
+            next = next.plus(entry.getKey(), rowWeights.plus(row.rowId(), entry.getValue()));
+        }
+        return new SearchIndex(next);
+    }
+
+    private SearchIndex without(Row row) {
+        var next = postings;
+        for (String token : tokenWeights(row).keySet()) {
+            PersistentHashMap<String, Integer> rowWeights = next.get(token);
+            if (rowWeights == null) {
+                continue;
+            }
+            rowWeights = rowWeights.minus(row.rowId());
+            next = rowWeights.isEmpty() ? next.minus(token) : next.plus(token, rowWeights);
+        }
+        return new SearchIndex(next);
+    }
+
+    private static Map<String, Integer> tokenWeights(Row row) {
+        Map<String, Integer> weights = new HashMap<>();
+        addTokens(weights, row.value(), VALUE_WEIGHT);
+        if (row.aliases() != null) {
+            row.aliases().forEach(alias -> addTokens(weights, alias, ALIAS_WEIGHT));
+        }
+        if (row.keywords() != null) {
+            row.keywords().forEach(keyword -> addTokens(weights, keyword, KEYWORD_WEIGHT));
+        }
+        addTokens(weights, row.description(), DESCRIPTION_WEIGHT);
+        return weights;
+    }
+
+    // A token's weight in a row is the highest weight of the fields it occurs in
+    private static void addTokens(Map<String, Integer> weights, String text, int weight) {
+        for (String token : tokenize(text)) {
+            weights.merge(token, weight, Math::max);
+        }
+    }
+
+    private static boolean sameText(Row a, Row b) {
+        return Objects.equals(a.value(), b.value())
+                && Objects.equals(a.aliases(), b.aliases())
+                && Objects.equals(a.keywords(), b.keywords())
+                && Objects.equals(a.description(), b.description());
+    }
+
+    // Lower-cased runs of letters and digits
+    public static List<String> tokenize(String text) {
+        List<String> tokens = new ArrayList<>();
+        if (text == null) {
+            return tokens;
+        }
+        int start = -1;
+        for (int i = 0; i <= text.length(); i++) {
+            boolean tokenChar = i < text.length() && Character.isLetterOrDigit(text.charAt(i));
+            if (tokenChar && start < 0) {
+                start = i;
+            } else if (!tokenChar && start >= 0) {
+                tokens.add(text.substring(start, i).toLowerCase(Locale.ROOT));
+                start = -1;
+            }
+        }
+        return tokens;
+    }
+}
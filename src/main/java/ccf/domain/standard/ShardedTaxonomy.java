@@ -0,0 +1,90 @@
+package ccf.domain.standard;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import ccf.domain.standard.Taxonomy.Row;
+import ccf.util.CCFLog;
+
+// Skeleton of a taxonomy partitioned by top-level subtree. Each root row and its descendants live in their own
+// shard (a Taxonomy held by the shard entity shardId(id, rootRowId)), the skeleton only holds the metadata and the
+// root rowIds in order. Shards are written independently, so edits of different subtrees do not wait on each
+// other, and a subtree never moves between shards.
+// rowIds are unique across shards by construction: a root rowId has no ROW_ID_SEPARATOR and every rowId below it
+// starts with "<rootRowId>/", so the root owning a rowId is read off the rowId and no shard needs to ask another.
+public record ShardedTaxonomy(String id, String name, String description, TaxonomyVersion version,
+        List<String> rootRowIds) {
+
+    private static final Logger logger = LoggerFactory.getLogger(ShardedTaxonomy.class);
+    public static final char ROW_ID_SEPARATOR = '/';
+
+    public static String shardId(String taxonomyId, String rootRowId) {
+        return taxonomyId + "#" + rootRowId;
+    }
+
+    public static boolean isRootRowId(String rowId) {
+        return rowId != null && !rowId.isBlank() && rowId.indexOf(ROW_ID_SEPARATOR) < 0;
+    }
+
+    // The root whose shard may hold rowId, null for a rowId that no shard may hold
+    public static String ownerOf(String rowId) {
+        if (rowId == null || rowId.isBlank()) {
+            return null;
+        }
+        int separator = rowId.indexOf(ROW_ID_SEPARATOR);
+        if (separator < 0) {
+            return rowId;
+        }
+        return separator == 0 || separator == rowId.length() - 1 ? null : rowId.substring(0, separator);
+    }
+
+    public static ShardedTaxonomy empty(String id) {
+        return new ShardedTaxonomy(id, null, null, null, List.of());
+    }
+
+    public boolean exists() {
+        return version != null;
+    }
+
+    public ShardedTaxonomy onShardedTaxonomyCreated(ShardedTaxonomyEvent.ShardedTaxonomyCreated created) {
+        CCFLog.info(logger, "Sharded taxonomy created", Map.of("taxonomy", id, "taxonomyCreate",
+                created.taxonomyCreate().toString()));
+        var taxonomyCreate = created.taxonomyCreate();
+        return new ShardedTaxonomy(id, taxonomyCreate.name(), taxonomyCreate.description(),
+                taxonomyCreate.version() == null ? new TaxonomyVersion() : taxonomyCreate.version(), List.of());
+    }
+
+    public ShardedTaxonomy onShardRootAdded(ShardedTaxonomyEvent.ShardRootAdded added) {
+        CCFLog.info(logger, "Sharded taxonomy root added", Map.of("taxonomy", id, "rootRowId", added.rootRowId()));
+        List<String> roots = new ArrayList<>(rootRowIds);
+        roots.add(added.rootRowId());
+        return new ShardedTaxonomy(id, name, description, version, List.copyOf(roots));
+    }
+
+    public ShardedTaxonomy onShardRootRemoved(ShardedTaxonomyEvent.ShardRootRemoved removed) {
+        CCFLog.info(logger, "Sharded taxonomy root removed", Map.of("taxonomy", id, "rootRowId", removed.rootRowId()));
+        List<String> roots = new ArrayList<>(rootRowIds);
+        roots.remove(removed.rootRowId());
+        return new ShardedTaxonomy(id, name, description, version, List.copyOf(roots));
+    }
+
+    // The shards' rows, each in tree order, merged in skeleton order into one taxonomy. Shards only accept rowIds
+    // they own (see ownerOf), a rowId in two shards means the shards are corrupt and fails the merge.
+    public Taxonomy merge(List<List<Row>> shardRows) {
+        Map<String, Row> rows = new LinkedHashMap<>();
+        for (List<Row> shard : shardRows) {
+            for (Row row : shard) {
+                if (rows.putIfAbsent(row.rowId(), row) != null) {
+                    throw new TaxonomyException(id, "Row '%s' is in more than one shard".formatted(row.rowId()));
+                }
+            }
+        }
+        return new Taxonomy(id, name, description, version, TaxonomyStatus.TAXONOMY_INITIALIZED,
+                RowIndex.of(new ArrayList<>(rows.values())), null, null);
+    }
+}
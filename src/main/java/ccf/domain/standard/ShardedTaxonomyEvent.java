@@ -0,0 +1,15 @@
+package ccf.domain.standard;
+import akka.javasdk.annotations.TypeName;
+
+import ccf.domain.standard.Taxonomy.TaxonomyCreate;
+public sealed interface ShardedTaxonomyEvent {
+    @TypeName("sharded-taxonomy-created")
+    record ShardedTaxonomyCreated(TaxonomyCreate taxonomyCreate) implements ShardedTaxonomyEvent {
+    }
+    @TypeName("sharded-taxonomy-root-added")
+    record ShardRootAdded(String rootRowId) implements ShardedTaxonomyEvent {
+    }
+    @TypeName("sharded-taxonomy-root-removed")
+    record ShardRootRemoved(String rootRowId) implements ShardedTaxonomyEvent {
+    }
+}
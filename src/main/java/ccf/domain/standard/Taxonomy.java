@@ -1,18 +1,82 @@
 package ccf.domain.standard;
 
-import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import java.util.function.BiPredicate;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import ccf.util.CCFLog;
 
+// rebasedAt is the sequence number of the last TaxonomyRebased event, null if the journal was never rebased.
+// importedChunks is the last chunk applied for each of the latest imports (importId -> chunk), null or empty
+// before any import.
 public record Taxonomy(String id, String name, String description, TaxonomyVersion version,
-        TaxonomyStatus status, List<Row> rows) {
+        TaxonomyStatus status, RowIndex rows, Long rebasedAt, Map<String, Integer> importedChunks) {
 
     private static final Logger logger = LoggerFactory.getLogger(Taxonomy.class);
+    // Imports are kept in importedChunks until this many later imports have added rows
+    private static final int MAX_IMPORTS_TRACKED = 32;
+
+    // API shape of a Taxonomy, rows as a plain list in tree order
+    public record TaxonomyDetails(String id, String name, String description, TaxonomyVersion version,
+            TaxonomyStatus status, List<Row> rows) {
+    }
+
+    // depth limits the levels below rowId, null for the whole subtree
+    public record SubtreeQuery(String rowId, Integer depth) {
+    }
+
+    // Cursor pagination in tree order: rows after the row with rowId after (null for the first page). A page read
+    // with the sequenceNumber of the first page fails once the taxonomy has changed since, null reads any state.
+    public record RowsPageQuery(String after, Integer limit, Long sequenceNumber) {
+    }
+
+    public record PathsQuery(List<String> rowIds) {
+    }
+
+    // Full path of a row from its root, depth 0 for a root row
+    public record Breadcrumb(String rowId, String path, int depth) {
+    }
+
+    public record SearchQuery(String q, Integer limit) {
+    }
+
+    // matchedTokens is the number of distinct query tokens found in the row
+    public record SearchHit(String rowId, String value, int matchedTokens, double score) {
+    }
+
+    // limit is the number of rows returned per label, minScore the lowest trigram similarity (0..1) returned
+    public record MatchRequest(List<String> labels, Integer limit, Double minScore) {
+    }
+
+    // text is the value, alias or keyword of the row that matched, field says which
+    public record RowMatch(String rowId, String value, String text, String field, double score) {
+    }
+
+    public record LabelMatch(String label, List<RowMatch> matches, long micros) {
+    }
+
+    // matches are in the order of the request's labels
+    public record LabelMatches(String id, List<LabelMatch> matches, long elapsedMillis) {
+    }
+
+    // keywords are the keywords of the row found in the text, in order of first occurrence
+    public record KeywordHit(String rowId, String value, List<String> keywords) {
+    }
+
+    // One line of a classification stream, line is the 1-based line number of text in the input
+    public record TextClassification(long line, String text, List<KeywordHit> hits) {
+    }
+
+    // One changed row between two versions. changes is "added", "removed", or any of "moved" (new parent),
+    // "relabeled" (new value) and "updated" (description, aliases, keywords, hints or formula)
+    public record RowDiff(String rowId, List<String> changes, String value, String fromValue, String parent,
+            String fromParent) {
+    }
 
     public record TaxonomyCreate(String name, String description, TaxonomyVersion version) {
     }
@@ -23,6 +87,10 @@ public record Taxonomy(String id, String name, String description, TaxonomyVersi
     public record TaxRowsAdd(List<TaxRow> taxRows, Boolean isReplace) {
     }
 
+    // One chunk of an import, sent by TaxonomyImportWorkflow. chunk numbers the chunks of importId from 0.
+    public record TaxRowsImport(String importId, int chunk, TaxRowsAdd taxRowsAdd) {
+    }
+
     public record TaxRowsRemove(List<String> rowIds) {
     }
 
@@ -32,6 +100,22 @@ public record Taxonomy(String id, String name, String description, TaxonomyVersi
         }
     }
 
+    // Moves rowId and all of its descendants under parent, a root when parent is null
+    public record SubtreeMove(String rowId, String parent) {
+    }
+
+    public record TaxRowsUpdate(List<TaxRowUpdate> updates) {
+    }
+
+    // One operation of a patch: "add" (row), "remove" (rowId), "update" (rowId and the row's new fields in updates,
+    // parent included) or "move" (rowId under parent, a root when parent is null)
+    public record PatchOp(String op, String rowId, TaxRow row, TaxRowUpdate.Updates updates, String parent) {
+    }
+
+    // Operations are applied in order, a later operation sees the rows added, moved or removed by earlier ones
+    public record TaxonomyPatch(List<PatchOp> ops) {
+    }
+
     public record Row(String rowId, String value, String description, List<String> aliases, List<String> keywords,
             Map<String, List<String>> dimensionSrcHints, String parent, List<String> children, String formula) {
     }
@@ -48,235 +132,270 @@ public record Taxonomy(String id, String name, String description, TaxonomyVersi
         }
     }
     
+    // The version a published taxonomy moves to when it is opened again, so a published version is never edited
+    public TaxonomyVersion nextDraftVersion() {
+        return new TaxonomyVersion(version.major(), version.minor() + 1);
+    }
+
+    // The state archived as a published version, see TaxonomyVersionEntity
+    public Taxonomy versionSnapshot() {
+        return new Taxonomy(id, name, description, version, TaxonomyStatus.TAXONOMY_PUBLISHED, rows, null, null);
+    }
+
+    // The chunks of an import are applied in order, so a chunk at or before the last one applied was applied
+    public boolean isChunkImported(String importId, int chunk) {
+        Integer last = importedChunks == null ? null : importedChunks.get(importId);
+        return last != null && chunk <= last;
+    }
+
+    public TaxonomyDetails details() {
+        return new TaxonomyDetails(id, name, description, version, status, rows == null ? List.of() : rows.toList());
+    }
+
     public Taxonomy onTaxonomyCreated(TaxonomyEvent.TaxonomyCreated created) {
         CCFLog.info(logger, "Taxonomy created", Map.of("taxonomy", created.taxonomyCreate().toString()));
 
         return new Taxonomy(this.id, created.taxonomyCreate().name(), created.taxonomyCreate().description(),
-                created.taxonomyCreate().version(), TaxonomyStatus.TAXONOMY_INITIALIZED, List.<Row>of());
+                created.taxonomyCreate().version(), TaxonomyStatus.TAXONOMY_INITIALIZED, RowIndex.empty(), this.rebasedAt(),
+                this.importedChunks());
     }
 
     public Taxonomy onTaxonomyRemoved(TaxonomyEvent.TaxonomyRemoved removed) {
         CCFLog.info(logger, "Taxonomy removed", Map.of("taxonomy", this.id));
-        return new Taxonomy(this.id(), null, null, null, TaxonomyStatus.TAXONOMY_EMPTY, List.of());
+        return new Taxonomy(this.id(), null, null, null, TaxonomyStatus.TAXONOMY_EMPTY, RowIndex.empty(), this.rebasedAt(),
+                this.importedChunks());
     }
 
     public Taxonomy onTaxonomyPublished(TaxonomyEvent.TaxonomyPublished published) {
         CCFLog.info(logger, "Taxonomy published",
                 Map.of("taxonomy", this.id, "isPublished", published.isPublish().toString()));
+        // Opening a published version moves the taxonomy to its next draft version
+        TaxonomyVersion version = published.taxonomy() == null ? this.version() : published.taxonomy().version();
         if (!published.isPublish()) {
-            return new Taxonomy(this.id(), this.name(), this.description(), this.version(),
-                    TaxonomyStatus.TAXONOMY_INITIALIZED, this.rows());
+            return new Taxonomy(this.id(), this.name(), this.description(), version,
+                    TaxonomyStatus.TAXONOMY_INITIALIZED, this.rows(), this.rebasedAt(), this.importedChunks());
         } else {
-            return new Taxonomy(this.id(), this.name(), this.description(), this.version(),
-                    TaxonomyStatus.TAXONOMY_PUBLISHED, this.rows());
+            return new Taxonomy(this.id(), this.name(), this.description(), version,
+                    TaxonomyStatus.TAXONOMY_PUBLISHED, this.rows(), this.rebasedAt(), this.importedChunks());
         }
     }
 
-    private void addRowAndUpdateParent(TaxRow taxRow) {
-        // Convert TaxRow to Row
-        Row newRow = new Row(
+    // Row handlers apply to a RowIndex.Builder and the state gets the built index, the previous state's rows are
+    // never modified. A batch goes through one builder, so its children lists are rebuilt once.
+    private void addRowAndUpdateParent(RowIndex.Builder rows, TaxRow taxRow) {
+        // Parent must already be indexed, the new row is linked into its children
+        if (taxRow.parent() != null && !rows.contains(taxRow.parent())) {
+            throw new TaxonomyException(this.id(), "Parent row with ID '" + taxRow.parent() + "' not found");
+        }
+        rows.put(new Row(
             taxRow.rowId(),
-            taxRow.value(), 
+            taxRow.value(),
             taxRow.description(),
             taxRow.aliases(),
             taxRow.keywords(),
             taxRow.dimensionSrcHints(),
             taxRow.parent(),
-            new ArrayList<>(),
+            List.of(),
             null
-        );
-
-        // Get parent row if it exists
-        if (taxRow.parent() != null) {
-            Row parentRow = rows.stream()
-                .filter(r -> r.rowId().equals(taxRow.parent()))
-                .findFirst()
-                .orElseThrow(() -> new TaxonomyException(this.id(), "Parent row with ID '" + taxRow.parent() + "' not found"));
-
-            // Create new parent row with updated children
-            List<String> updatedChildren = new ArrayList<>(parentRow.children());
-            updatedChildren.add(newRow.rowId());
-            
-            Row updatedParent = new Row(
-                parentRow.rowId(),
-                parentRow.value(),
-                parentRow.description(), 
-                parentRow.aliases(),
-                parentRow.keywords(),
-                parentRow.dimensionSrcHints(),
-                parentRow.parent(),
-                updatedChildren,
-                parentRow.formula()
-            );
-
-            // Update parent in rows list
-            rows.remove(parentRow);
-            rows.add(updatedParent);
-        }
-
-        // Add new row
-        rows.add(newRow);
+        ));
     }
 
     public Taxonomy onTaxonomyTaxRowAdded(TaxonomyEvent.TaxonomyTaxRowAdded added) {
         CCFLog.info(logger, "Taxonomy tax row added", Map.of("taxonomy", added.taxRowAdd().toString()));
-        addRowAndUpdateParent(added.taxRowAdd().taxRow());
-        return new Taxonomy(this.id(), this.name(), this.description(), this.version(), this.status(),
-                rows);
+        var rows = this.rows().toBuilder();
+        addRowAndUpdateParent(rows, added.taxRowAdd().taxRow());
+        return withRows(rows.build());
     }
-    private void removeRowAndUpdateParent(String rowId) {
+    private void removeRowAndUpdateParent(RowIndex.Builder rows, String rowId) {
         // Check if row is a parent of any other rows
-        boolean isParent = rows.stream()
-            .anyMatch(r -> rowId.equals(r.parent()));
-        
-        if (isParent) {
+        if (rows.hasChildren(rowId)) {
             throw new TaxonomyException(this.id(), "Cannot remove row with ID '" + rowId + "' because it is a parent of other rows");
         }
-        // Get the row to be removed
-        Row taxRow = rows.stream()
-            .filter(r -> r.rowId().equals(rowId))
-            .findFirst()
-            .orElseThrow(() -> new TaxonomyException(this.id(), "Tax row with ID '" + rowId + "' not found"));
-
-        // If row has a parent, remove it from parent's children list
-        if (taxRow.parent() != null) {
-            Row parentRow = rows.stream()
-                .filter(r -> r.rowId().equals(taxRow.parent()))
-                .findFirst()
-                .orElseThrow(() -> new TaxonomyException(this.id(), "Parent row with ID '" + taxRow.parent() + "' not found"));
-
-            // Create new parent row with updated children
-            List<String> updatedChildren = new ArrayList<>(parentRow.children());
-            updatedChildren.remove(taxRow.rowId());
-            
-            Row updatedParent = new Row(
-                parentRow.rowId(),
-                parentRow.value(),
-                parentRow.description(),
-                parentRow.aliases(),
-                parentRow.keywords(), 
-                parentRow.dimensionSrcHints(),
-                parentRow.parent(),
-                updatedChildren,
-                parentRow.formula()
-            );
-
-            // Update parent in rows list
-            rows.remove(parentRow);
-            rows.add(updatedParent);
+        if (!rows.contains(rowId)) {
+            throw new TaxonomyException(this.id(), "Tax row with ID '" + rowId + "' not found");
         }
-
-        // Remove the row by matching rowId
-        rows.removeIf(row -> row.rowId().equals(taxRow.rowId()));
+        // Removing the row also drops it from its parent's children
+        rows.remove(rowId);
     }
 
     public Taxonomy onTaxonomyTaxRowRemoved(TaxonomyEvent.TaxonomyTaxRowRemoved removed) {
         CCFLog.info(logger, "Taxonomy tax row removed", Map.of("taxonomy", removed.rowId()));
-        removeRowAndUpdateParent(removed.rowId());
-        return new Taxonomy(this.id(), this.name(), this.description(), this.version(), this.status(), this.rows());
+        var rows = this.rows().toBuilder();
+        removeRowAndUpdateParent(rows, removed.rowId());
+        return withRows(rows.build());
     }
        
     public Taxonomy onTaxonomyTaxRowsAdded(TaxonomyEvent.TaxonomyTaxRowsAdded added) {
         CCFLog.info(logger, "Taxonomy tax rows added", Map.of("taxonomy", added.taxRowsAdd().toString()));
-        var rows = this.rows();
-        if (added.taxRowsAdd().isReplace()) {
-            rows.clear();
+        var rows = (added.taxRowsAdd().isReplace() ? RowIndex.empty() : this.rows()).toBuilder();
+        for (TaxRow taxRow : added.taxRowsAdd().taxRows()) {
+            addRowAndUpdateParent(rows, taxRow);
+        }
+        if (added.importId() == null) {
+            return withRows(rows.build());
+        }
+        return new Taxonomy(this.id(), this.name(), this.description(), this.version(), this.status(),
+                rows.build(), this.rebasedAt(), withImportedChunk(added.importId(), added.chunk()));
+    }
+
+    // The latest import moves to the end, the oldest is dropped past MAX_IMPORTS_TRACKED
+    private Map<String, Integer> withImportedChunk(String importId, int chunk) {
+        var chunks = new LinkedHashMap<String, Integer>();
+        if (importedChunks != null) {
+            chunks.putAll(importedChunks);
+        }
+        chunks.remove(importId);
+        chunks.put(importId, chunk);
+        if (chunks.size() > MAX_IMPORTS_TRACKED) {
+            chunks.remove(chunks.keySet().iterator().next());
         }
-        added.taxRowsAdd().taxRows().forEach(this::addRowAndUpdateParent);
-        return new Taxonomy(this.id(), this.name(), this.description(), this.version(), this.status(), rows);
+        return chunks;
     }
 
     public Taxonomy onTaxonomyTaxRowsRemoved(TaxonomyEvent.TaxonomyTaxRowsRemoved removed) {
         CCFLog.info(logger, "Taxonomy tax rows removed", Map.of("taxonomy", removed.taxRowsRemove().toString()));
-        removed.taxRowsRemove().rowIds().forEach(this::removeRowAndUpdateParent);
-        return new Taxonomy(this.id(), this.name(), this.description(), this.version(), this.status(),
-                rows);
+        var rows = this.rows().toBuilder();
+        for (String rowId : removed.taxRowsRemove().rowIds()) {
+            removeRowAndUpdateParent(rows, rowId);
+        }
+        return withRows(rows.build());
     }
-    private void updateRowAndUpdateParent(TaxRowUpdate taxRowUpdate) {
+    private void updateRowAndUpdateParent(RowIndex.Builder rows, TaxRowUpdate taxRowUpdate) {
         // Find the existing row
-        Row existingRow = rows.stream()
-                .filter(r -> r.rowId().equals(taxRowUpdate.rowId()))
-                .findFirst()
+        Row existingRow = rows.get(taxRowUpdate.rowId())
                 .orElseThrow(() -> new TaxonomyException(this.id(),
                         "Tax row with ID '" + taxRowUpdate.rowId() + "' not found"));
 
-        // Handle parent change if needed
-        if (!existingRow.parent().equals(taxRowUpdate.row().parent())) {
-            // Remove from old parent's children if it had a parent
-            if (existingRow.parent() != null) {
-                Row oldParentRow = rows.stream()
-                        .filter(r -> r.rowId().equals(existingRow.parent()))
-                        .findFirst()
-                        .orElseThrow(() -> new TaxonomyException(this.id(),
-                                "Parent row with ID '" + existingRow.parent() + "' not found"));
-
-                List<String> updatedOldParentChildren = new ArrayList<>(oldParentRow.children());
-                updatedOldParentChildren.remove(existingRow.rowId());
-
-                Row updatedOldParent = new Row(
-                    oldParentRow.rowId(),
-                    oldParentRow.value(),
-                    oldParentRow.description(),
-                    oldParentRow.aliases(),
-                    oldParentRow.keywords(),
-                    oldParentRow.dimensionSrcHints(),
-                    oldParentRow.parent(),
-                    updatedOldParentChildren,
-                    oldParentRow.formula()
-                );
-
-                rows.remove(oldParentRow);
-                rows.add(updatedOldParent);
-            }
-
-            // Add to new parent's children if it has a new parent
-            if (taxRowUpdate.row().parent() != null) {
-                Row newParentRow = rows.stream()
-                        .filter(r -> r.rowId().equals(taxRowUpdate.row().parent()))
-                        .findFirst()
-                        .orElseThrow(() -> new TaxonomyException(this.id(),
-                                "New parent row with ID '" + taxRowUpdate.row().parent() + "' not found"));
-
-                List<String> updatedNewParentChildren = new ArrayList<>(newParentRow.children());
-                updatedNewParentChildren.add(existingRow.rowId());
-
-                Row updatedNewParent = new Row(
-                    newParentRow.rowId(),
-                    newParentRow.value(),
-                    newParentRow.description(),
-                    newParentRow.aliases(),
-                    newParentRow.keywords(),
-                    newParentRow.dimensionSrcHints(),
-                    newParentRow.parent(),
-                    updatedNewParentChildren,
-                    newParentRow.formula()
-                );
-
-                rows.remove(newParentRow);
-                rows.add(updatedNewParent);
-            }
+        // A changed parent must exist, the index moves the row between the children of old and new parent
+        String newParent = taxRowUpdate.row().parent();
+        if (!Objects.equals(existingRow.parent(), newParent) && newParent != null && !rows.contains(newParent)) {
+            throw new TaxonomyException(this.id(),
+                    "New parent row with ID '" + newParent + "' not found");
         }
 
         // Update the row itself
-        Row updatedRow = new Row(
+        rows.put(new Row(
             existingRow.rowId(),
             taxRowUpdate.row().value(),
             taxRowUpdate.row().description(),
             taxRowUpdate.row().aliases(),
             taxRowUpdate.row().keywords(),
             taxRowUpdate.row().dimensionSrcHints(),
-            taxRowUpdate.row().parent(),
+            newParent,
             existingRow.children(),
             existingRow.formula()
-        );
-
-        rows.remove(existingRow);
-        rows.add(updatedRow);
+        ));
     }
 
     public Taxonomy onTaxonomyTaxRowUpdated(TaxonomyEvent.TaxonomyTaxRowUpdated updated) {
         CCFLog.info(logger, "Taxonomy tax row updated", Map.of("taxonomy", updated.taxRowUpdate().toString()));
-        updateRowAndUpdateParent(updated.taxRowUpdate());
-        return new Taxonomy(this.id(), this.name(), this.description(), this.version(), this.status(), this.rows());
+        var rows = this.rows().toBuilder();
+        updateRowAndUpdateParent(rows, updated.taxRowUpdate());
+        return withRows(rows.build());
+    }
+
+    // All operations of the patch in one pass over one RowIndex. Also used by the entity to validate a patch
+    // before persisting it, an invalid operation throws a TaxonomyException naming its position.
+    public Taxonomy onTaxonomyPatched(TaxonomyEvent.TaxonomyPatched patched) {
+        CCFLog.info(logger, "Taxonomy patched",
+                Map.of("taxonomy", this.id, "ops", String.valueOf(patched.patch().ops().size())));
+        var rows = this.rows().toBuilder();
+        var ops = patched.patch().ops();
+        for (int i = 0; i < ops.size(); i++) {
+            try {
+                applyPatchOp(rows, ops.get(i));
+            } catch (TaxonomyException e) {
+                throw new TaxonomyException(this.id(), "Patch op %d (%s): %s".formatted(i, ops.get(i).op(), e.reason()),
+                        e);
+            }
+        }
+        return withRows(rows.build());
+    }
+
+    private void applyPatchOp(RowIndex.Builder rows, PatchOp op) {
+        if (!"add".equals(op.op()) && op.rowId() == null) {
+            throw new TaxonomyException(this.id(), "rowId is required");
+        }
+        switch (op.op() == null ? "" : op.op()) {
+            case "add":
+                if (op.row() == null) {
+                    throw new TaxonomyException(this.id(), "add needs a row");
+                }
+                if (rows.contains(op.row().rowId())) {
+                    throw new TaxonomyException(this.id(), "Tax row with ID '" + op.row().rowId() + "' already exists");
+                }
+                addRowAndUpdateParent(rows, op.row());
+                break;
+            case "remove":
+                removeRowAndUpdateParent(rows, op.rowId());
+                break;
+            case "update":
+                if (op.updates() == null) {
+                    throw new TaxonomyException(this.id(), "update needs updates");
+                }
+                checkNoCycle(rows::isAncestor, op.rowId(), op.updates().parent());
+                updateRowAndUpdateParent(rows, new TaxRowUpdate(op.rowId(), op.updates()));
+                break;
+            case "move":
+                moveSubtree(rows, op.rowId(), op.parent());
+                break;
+            default:
+                throw new TaxonomyException(this.id(), "Unknown op '" + op.op() + "'");
+        }
+    }
+
+    // A row cannot be moved below itself or one of its descendants, also used by the entity to validate an update
+    public void checkNoCycle(RowIndex rows, String rowId, String newParent) {
+        checkNoCycle(rows::isAncestor, rowId, newParent);
+    }
+
+    private void checkNoCycle(BiPredicate<String, String> isAncestor, String rowId, String newParent) {
+        if (newParent != null && (newParent.equals(rowId) || isAncestor.test(rowId, newParent))) {
+            throw new TaxonomyException(this.id(), "Tax row with ID '" + rowId + "' cannot be moved below itself");
+        }
+    }
+
+    // Moves the row under newParent, its descendants follow through their own parent pointers untouched
+    private void moveSubtree(RowIndex.Builder rows, String rowId, String newParent) {
+        Row row = rows.get(rowId).orElseThrow(() -> new TaxonomyException(this.id(),
+                "Tax row with ID '" + rowId + "' not found"));
+        checkNoCycle(rows::isAncestor, rowId, newParent);
+        updateRowAndUpdateParent(rows, new TaxRowUpdate(rowId, new TaxRowUpdate.Updates(
+                row.value(), row.description(), row.aliases(), row.keywords(), row.dimensionSrcHints(), newParent)));
+    }
+
+    public Taxonomy onTaxonomySubtreeMoved(TaxonomyEvent.TaxonomySubtreeMoved moved) {
+        CCFLog.info(logger, "Taxonomy subtree moved", Map.of("taxonomy", this.id, "move", moved.subtreeMove().toString()));
+        var rows = this.rows().toBuilder();
+        moveSubtree(rows, moved.subtreeMove().rowId(), moved.subtreeMove().parent());
+        return withRows(rows.build());
+    }
+
+    // Updates are applied in order against one RowIndex.Builder, each costs O(log n) plus its cycle check.
+    // Also used by the entity to validate the batch before persisting it.
+    public Taxonomy onTaxonomyTaxRowsUpdated(TaxonomyEvent.TaxonomyTaxRowsUpdated updated) {
+        CCFLog.info(logger, "Taxonomy tax rows updated",
+                Map.of("taxonomy", this.id, "rows", String.valueOf(updated.taxRowsUpdate().updates().size())));
+        var rows = this.rows().toBuilder();
+        for (TaxRowUpdate update : updated.taxRowsUpdate().updates()) {
+            checkNoCycle(rows::isAncestor, update.rowId(), update.row().parent());
+            updateRowAndUpdateParent(rows, update);
+        }
+        return withRows(rows.build());
+    }
+
+    private Taxonomy withRows(RowIndex rows) {
+        return new Taxonomy(this.id(), this.name(), this.description(), this.version(), this.status(),
+                rows, this.rebasedAt(), this.importedChunks());
+    }
+
+    // The rebased event carries the complete taxonomy, earlier events are not needed to rebuild it
+    public Taxonomy onTaxonomyRebased(TaxonomyEvent.TaxonomyRebased rebased) {
+        CCFLog.info(logger, "Taxonomy rebased",
+                Map.of("taxonomy", this.id, "rows", String.valueOf(rebased.rows().size()),
+                        "sequenceNumber", String.valueOf(rebased.sequenceNumber())));
+        return new Taxonomy(this.id(), rebased.taxonomy().name(), rebased.taxonomy().description(),
+                rebased.taxonomy().version(), rebased.status(), rebased.rows(), rebased.sequenceNumber(),
+                this.importedChunks());
     }
 }
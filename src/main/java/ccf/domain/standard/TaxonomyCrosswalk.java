@@ -0,0 +1,108 @@
+package ccf.domain.standard;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import ccf.util.CCFLog;
+
+// rowId to rowId mappings from a published version of a source taxonomy to a published version of a target
+// taxonomy, used to restate values keyed by source rows as values keyed by target rows. A source row can map to
+// several target rows and several source rows to the same target row. The weight of a mapping is the share of
+// the source value carried to the target row (1 when null), so a split is weighted and a contra account can be
+// mapped with -1. revision increases with every change, CompiledCrosswalk caches are keyed on it.
+public record TaxonomyCrosswalk(String id, String sourceTaxonomyId, TaxonomyVersion sourceVersion,
+        String targetTaxonomyId, TaxonomyVersion targetVersion, List<Mapping> mappings, long revision) {
+
+    private static final Logger logger = LoggerFactory.getLogger(TaxonomyCrosswalk.class);
+    public static final int MAX_MAPPINGS = 200_000;
+
+    public record Mapping(String sourceRowId, String targetRowId, Double weight) {
+        public double weightOrDefault() {
+            return weight == null ? 1.0 : weight;
+        }
+    }
+
+    // Without isReplace the mappings are merged into the existing ones by (sourceRowId, targetRowId) and a
+    // mapping with weight 0 removes that pair
+    public record MappingsPut(List<Mapping> mappings, Boolean isReplace) {
+    }
+
+    public record CrosswalkPut(String sourceTaxonomyId, TaxonomyVersion sourceVersion, String targetTaxonomyId,
+            TaxonomyVersion targetVersion, MappingsPut mappingsPut) {
+    }
+
+    // "<source>@<major.minor>:<target>@<major.minor>", one crosswalk per pair of versions
+    public static String crosswalkId(String sourceTaxonomyId, TaxonomyVersion sourceVersion, String targetTaxonomyId,
+            TaxonomyVersion targetVersion) {
+        return sourceTaxonomyId + "@" + sourceVersion + ":" + targetTaxonomyId + "@" + targetVersion;
+    }
+
+    public static TaxonomyCrosswalk empty(String id, CrosswalkPut put) {
+        return new TaxonomyCrosswalk(id, put.sourceTaxonomyId(), put.sourceVersion(), put.targetTaxonomyId(),
+                put.targetVersion(), List.of(), 0);
+    }
+
+    public TaxonomyCrosswalk onMappingsPut(MappingsPut put) {
+        Map<String, Mapping> merged = new LinkedHashMap<>();
+        if (!Boolean.TRUE.equals(put.isReplace())) {
+            mappings.forEach(mapping -> merged.put(pairKey(mapping), mapping));
+        }
+        for (Mapping mapping : put.mappings()) {
+            if (mapping.weightOrDefault() == 0) {
+                merged.remove(pairKey(mapping));
+            } else {
+                merged.put(pairKey(mapping), mapping);
+            }
+        }
+        if (merged.size() > MAX_MAPPINGS) {
+            throw new TaxonomyException(id, "Crosswalk would have %d mappings, at most %d are allowed"
+                    .formatted(merged.size(), MAX_MAPPINGS));
+        }
+        CCFLog.info(logger, "Taxonomy crosswalk mappings put", Map.of("crosswalk", id,
+                "put", String.valueOf(put.mappings().size()), "mappings", String.valueOf(merged.size())));
+        return new TaxonomyCrosswalk(id, sourceTaxonomyId, sourceVersion, targetTaxonomyId, targetVersion,
+                new ArrayList<>(merged.values()), revision + 1);
+    }
+
+    // Checks the mappings of a put against both versions: every rowId must exist on its side, weights must be
+    // finite and a (sourceRowId, targetRowId) pair can only appear once
+    public static void validate(String id, MappingsPut put, CompiledTaxonomy source, CompiledTaxonomy target) {
+        if (put.mappings() == null || put.mappings().isEmpty()) {
+            throw new TaxonomyException(id, "Crosswalk put has no mappings");
+        }
+        if (put.mappings().size() > MAX_MAPPINGS) {
+            throw new TaxonomyException(id, "Crosswalk put has %d mappings, at most %d are allowed"
+                    .formatted(put.mappings().size(), MAX_MAPPINGS));
+        }
+        Set<String> pairs = new HashSet<>();
+        for (int i = 0; i < put.mappings().size(); i++) {
+            Mapping mapping = put.mappings().get(i);
+            if (mapping.sourceRowId() == null || !source.contains(mapping.sourceRowId())) {
+                throw new TaxonomyException(id, "Mapping %d: source row %s not found in %s version %s".formatted(
+                        i, mapping.sourceRowId(), source.id(), source.version()));
+            }
+            if (mapping.targetRowId() == null || !target.contains(mapping.targetRowId())) {
+                throw new TaxonomyException(id, "Mapping %d: target row %s not found in %s version %s".formatted(
+                        i, mapping.targetRowId(), target.id(), target.version()));
+            }
+            if (!Double.isFinite(mapping.weightOrDefault())) {
+                throw new TaxonomyException(id, "Mapping %d: weight must be a finite number".formatted(i));
+            }
+            if (!pairs.add(pairKey(mapping))) {
+                throw new TaxonomyException(id, "Mapping %d: %s to %s is mapped more than once".formatted(
+                        i, mapping.sourceRowId(), mapping.targetRowId()));
+            }
+        }
+    }
+
+    private static String pairKey(Mapping mapping) {
+        return mapping.sourceRowId() + "\n" + mapping.targetRowId();
+    }
+}
@@ -0,0 +1,153 @@
+package ccf.domain.standard;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import ccf.domain.standard.Taxonomy.TaxRow;
+import ccf.domain.standard.Taxonomy.TaxRowsAdd;
+
+// TaxonomyCsvImport turns a "Level 1,...,Level 6" CSV into taxonomy rows, the same way
+// scripts/create_taxonomy_from_csv.sh does, but resolving hierarchy paths to rowIds with a path -> rowId map.
+// RowIds are derived from the taxonomy id and the row's path, so importing the same CSV again yields the same rows.
+public final class TaxonomyCsvImport {
+    public static final int DEFAULT_ROWS_PER_CHUNK = 1000;
+    public static final int DEFAULT_CHARS_PER_CHUNK = 1_000_000;
+    private static final int MAX_LEVELS = 6;
+    private static final int ROW_OVERHEAD_CHARS = 128;
+    private static final char PATH_SEPARATOR = '\u001f';
+
+    public record ImportResult(String taxonomyId, int csvLines, int rows, int duplicates, int chunks,
+            long elapsedMillis, double rowsPerSecond) {
+    }
+
+    private final String taxonomyId;
+    private final String dimensionName;
+    private final Map<String, String> rowIdByPath = new HashMap<>();
+    private final Map<String, String> descriptionPathByRowId = new HashMap<>();
+    private final List<TaxRow> rows = new ArrayList<>();
+    private int csvLines = 0;
+    private int duplicates = 0;
+    private boolean header = true;
+
+    public TaxonomyCsvImport(String taxonomyId, String dimensionName) {
+        this.taxonomyId = taxonomyId;
+        this.dimensionName = dimensionName;
+    }
+
+    // Reads the CSV one line at a time as its lines arrive, the first non-empty line is the header
+    public void readLine(String line) {
+        if (line.isBlank()) {
+            return;
+        }
+        if (header) {
+            header = false;
+            return;
+        }
+        addLine(line);
+    }
+
+    public void addLine(String line) {
+        csvLines++;
+        List<String> levels = splitCsvLine(line);
+        if (levels.size() > MAX_LEVELS) {
+            throw new IllegalArgumentException("CSV line %d has more than %d levels".formatted(csvLines, MAX_LEVELS));
+        }
+        StringBuilder path = new StringBuilder();
+        String parent = null;
+        for (String level : levels) {
+            String value = level.replace("\"", "").trim();
+            if (value.isEmpty()) {
+                continue;
+            }
+            if (!path.isEmpty()) {
+                path.append(PATH_SEPARATOR);
+            }
+            path.append(value);
+            String key = path.toString();
+            String rowId = rowIdByPath.get(key);
+            if (rowId == null) {
+                rowId = rowId(taxonomyId, key);
+                rowIdByPath.put(key, rowId);
+                String descriptionPath = parent == null ? value : descriptionPathByRowId.get(parent) + "->" + value;
+                descriptionPathByRowId.put(rowId, descriptionPath);
+                rows.add(new TaxRow(rowId, value, "This is the " + descriptionPath + " " + dimensionName,
+                        List.of(), List.of(), Map.of(), parent));
+            } else {
+                duplicates++;
+            }
+            parent = rowId;
+        }
+    }
+
+    public List<TaxRow> rows() {
+        return rows;
+    }
+
+    public int csvLines() {
+        return csvLines;
+    }
+
+    public int duplicates() {
+        return duplicates;
+    }
+
+    // Splits rows into TaxRowsAdd chunks bounded by row count and by an estimate of their serialized size.
+    // Only the first chunk carries isReplace, rows keep their order so parents always precede their children.
+    public static List<TaxRowsAdd> chunk(List<TaxRow> rows, boolean isReplace, int maxRows, int maxChars) {
+        List<TaxRowsAdd> chunks = new ArrayList<>();
+        List<TaxRow> current = new ArrayList<>();
+        int currentChars = 0;
+        for (TaxRow row : rows) {
+            int rowChars = estimateChars(row);
+            if (!current.isEmpty() && (current.size() >= maxRows || currentChars + rowChars > maxChars)) {
+                chunks.add(new TaxRowsAdd(List.copyOf(current), isReplace && chunks.isEmpty()));
+                current = new ArrayList<>();
+                currentChars = 0;
+            }
+            current.add(row);
+            currentChars += rowChars;
+        }
+        if (!current.isEmpty() || (isReplace && chunks.isEmpty())) {
+            chunks.add(new TaxRowsAdd(List.copyOf(current), isReplace && chunks.isEmpty()));
+        }
+        return chunks;
+    }
+
+    public static String rowId(String taxonomyId, String path) {
+        return UUID.nameUUIDFromBytes((taxonomyId + PATH_SEPARATOR + path).getBytes(StandardCharsets.UTF_8)).toString();
+    }
+
+    private static int estimateChars(TaxRow row) {
+        int chars = ROW_OVERHEAD_CHARS + row.rowId().length() + row.value().length() + row.description().length();
+        return row.parent() == null ? chars : chars + row.parent().length();
+    }
+
+    // Splits on commas, honouring double-quoted fields ("a, b") and escaped quotes ("")
+    static List<String> splitCsvLine(String line) {
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (c == '"') {
+                if (quoted && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    field.append('"');
+                    i++;
+                } else {
+                    quoted = !quoted;
+                }
+            } else if (c == ',' && !quoted) {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+        fields.add(field.toString());
+        return fields;
+    }
+}
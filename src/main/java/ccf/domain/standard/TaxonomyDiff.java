@@ -0,0 +1,105 @@
+package ccf.domain.standard;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+
+import ccf.domain.standard.Taxonomy.RowDiff;
+
+// Structural diff of two compiled versions, produced lazily in two passes. The first walks the to version in
+// tree order and reports added and changed rows, the second walks the from version and reports removed rows.
+// Rows are joined on rowId through an open addressing hash table of ordinals, and a row whose subtree hash is the
+// same in both versions has its whole subtree skipped. Linear in the rows of both versions.
+public final class TaxonomyDiff implements Iterator<RowDiff> {
+    private final CompiledTaxonomy from;
+    private final CompiledTaxonomy to;
+    private final CompiledTaxonomy.Hashes fromHashes;
+    private final CompiledTaxonomy.Hashes toHashes;
+    private final OrdinalTable fromIds;
+    private OrdinalTable toIds;
+
+    private boolean removals = false;
+    private int next = 0;
+    private RowDiff pending;
+
+    private TaxonomyDiff(CompiledTaxonomy from, CompiledTaxonomy to) {
+        this.from = from;
+        this.to = to;
+        this.fromHashes = from.hashes();
+        this.toHashes = to.hashes();
+        this.fromIds = new OrdinalTable(from);
+    }
+
+    public static Iterator<RowDiff> diff(CompiledTaxonomy from, CompiledTaxonomy to) {
+        return new TaxonomyDiff(from, to);
+    }
+
+    @Override
+    public boolean hasNext() {
+        while (pending == null) {
+            if (!removals) {
+                if (next < to.size()) {
+                    pending = changed(next);
+                } else {
+                    removals = true;
+                    next = 0;
+                    toIds = new OrdinalTable(to);
+                }
+            } else if (next < from.size()) {
+                pending = removed(next);
+            } else {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public RowDiff next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        RowDiff diff = pending;
+        pending = null;
+        return diff;
+    }
+
+    // Added or changed row at ordinal o of to, null if it has no change of its own. Advances next.
+    private RowDiff changed(int o) {
+        int f = fromIds.get(to.rowId(o));
+        if (f < 0) {
+            next = o + 1;
+            return new RowDiff(to.rowId(o), List.of("added"), to.value(o), null, to.parentId(o), null);
+        }
+        if (fromHashes.subtree()[f] == toHashes.subtree()[o]) {
+            next = to.subtreeEnd(o);
+            return null;
+        }
+        next = o + 1;
+        List<String> changes = new ArrayList<>(3);
+        if (!Objects.equals(from.parentId(f), to.parentId(o))) {
+            changes.add("moved");
+        }
+        if (!Objects.equals(from.value(f), to.value(o))) {
+            changes.add("relabeled");
+        }
+        if (fromHashes.attributes()[f] != toHashes.attributes()[o]) {
+            changes.add("updated");
+        }
+        return changes.isEmpty() ? null
+                : new RowDiff(to.rowId(o), changes, to.value(o), from.value(f), to.parentId(o), from.parentId(f));
+    }
+
+    // Row at ordinal f of from if it is no longer in to, null otherwise. Advances next.
+    private RowDiff removed(int f) {
+        int o = toIds.get(from.rowId(f));
+        if (o < 0) {
+            next = f + 1;
+            return new RowDiff(from.rowId(f), List.of("removed"), null, from.value(f), null, from.parentId(f));
+        }
+        next = fromHashes.subtree()[f] == toHashes.subtree()[o] ? from.subtreeEnd(f) : f + 1;
+        return null;
+    }
+}
@@ -1,10 +1,15 @@
 package ccf.domain.standard;
 import akka.javasdk.annotations.TypeName;
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+
+import ccf.domain.standard.Taxonomy.SubtreeMove;
 import ccf.domain.standard.Taxonomy.TaxRowAdd;
 import ccf.domain.standard.Taxonomy.TaxRowUpdate;
 import ccf.domain.standard.Taxonomy.TaxRowsAdd;
+import ccf.domain.standard.Taxonomy.TaxRowsUpdate;
 import ccf.domain.standard.Taxonomy.TaxRowsRemove;
 import ccf.domain.standard.Taxonomy.TaxonomyCreate;
+import ccf.domain.standard.Taxonomy.TaxonomyPatch;
 public sealed interface TaxonomyEvent {
     @TypeName("taxonomy-created")
     record TaxonomyCreated(TaxonomyCreate taxonomyCreate) implements TaxonomyEvent {
@@ -12,8 +17,12 @@ public sealed interface TaxonomyEvent {
     @TypeName("taxonomy-removed")
     record TaxonomyRemoved() implements TaxonomyEvent {
     }
+    // On publish taxonomy is the header of the published version, on open it carries the next draft version. It is
+    // null in events written before versions were recorded. The rows are not in the event, TaxonomyVersionConsumer
+    // archives them from the entity; publish events of earlier builds that still carry rows are read without them.
     @TypeName("taxonomy-published")
-    record TaxonomyPublished(Boolean isPublish) implements TaxonomyEvent {
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    record TaxonomyPublished(Boolean isPublish, TaxonomyCreate taxonomy) implements TaxonomyEvent {
     }
     @TypeName("taxonomy-taxrow-added")
     record TaxonomyTaxRowAdded(TaxRowAdd taxRowAdd) implements TaxonomyEvent {
@@ -21,8 +30,9 @@ public sealed interface TaxonomyEvent {
     @TypeName("taxonomy-taxrow-removed")
     record TaxonomyTaxRowRemoved(String rowId) implements TaxonomyEvent {
     }
+    // importId and chunk are set when the rows are a chunk of an import, null for rows added through the API
     @TypeName("taxonomy-taxrows-added")
-    record TaxonomyTaxRowsAdded(TaxRowsAdd taxRowsAdd) implements TaxonomyEvent {
+    record TaxonomyTaxRowsAdded(TaxRowsAdd taxRowsAdd, String importId, Integer chunk) implements TaxonomyEvent {
     }
     @TypeName("taxonomy-taxrows-removed")
     record TaxonomyTaxRowsRemoved(TaxRowsRemove taxRowsRemove) implements TaxonomyEvent {
@@ -30,4 +40,20 @@ public sealed interface TaxonomyEvent {
     @TypeName("taxonomy-taxrow-updated")
     record TaxonomyTaxRowUpdated(TaxRowUpdate taxRowUpdate) implements TaxonomyEvent {
     }
+    @TypeName("taxonomy-subtree-moved")
+    record TaxonomySubtreeMoved(SubtreeMove subtreeMove) implements TaxonomyEvent {
+    }
+    @TypeName("taxonomy-taxrows-updated")
+    record TaxonomyTaxRowsUpdated(TaxRowsUpdate taxRowsUpdate) implements TaxonomyEvent {
+    }
+    @TypeName("taxonomy-patched")
+    record TaxonomyPatched(TaxonomyPatch patch) implements TaxonomyEvent {
+    }
+    // Snapshot of the whole taxonomy in the journal, consumers rebuild from it alone. It is no longer written, the
+    // journals that hold one still replay. rows is in the compact snapshot codec or, in the earliest events, a plain
+    // list of rows. sequenceNumber is the sequence number of this event.
+    @TypeName("taxonomy-rebased")
+    record TaxonomyRebased(TaxonomyCreate taxonomy, TaxonomyStatus status, RowIndex rows, Long sequenceNumber)
+            implements TaxonomyEvent {
+    }
 }
\ No newline at end of file
@@ -1,11 +1,27 @@
 package ccf.domain.standard;
 
 public class TaxonomyException extends RuntimeException {
+    private final String taxonomyId;
+    private final String reason;
+
     public TaxonomyException(String id,String message) {
         super("Taxonomy id " + id + ":" + message);
+        this.taxonomyId = id;
+        this.reason = message;
     }
 
     public TaxonomyException(String id,String message, Throwable cause) {
         super("Taxonomy id " + id + ":" + message, cause);
+        this.taxonomyId = id;
+        this.reason = message;
     }   
+
+    public String taxonomyId() {
+        return taxonomyId;
+    }
+
+    // The message without the "Taxonomy id <id>:" prefix
+    public String reason() {
+        return reason;
+    }
 }
@@ -0,0 +1,136 @@
+package ccf.domain.standard;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import ccf.domain.standard.Taxonomy.Row;
+import ccf.util.CCFLog;
+
+// A copy-on-write fork of a published taxonomy version. The base is only referenced by (baseTaxonomyId,
+// baseVersion), the fork stores the rows it changed: overrides holds rows added or edited in the fork, removed
+// the rowIds deleted from it. Creating a fork costs O(1) and its state grows with its changes, not with the base.
+// merge() overlays the changes on the base rows, which are shared by every fork of the same version.
+public record TaxonomyFork(String id, String name, String description, String baseTaxonomyId,
+        TaxonomyVersion baseVersion, Map<String, Row> overrides, Set<String> removed) {
+
+    private static final Logger logger = LoggerFactory.getLogger(TaxonomyFork.class);
+
+    public record ForkCreate(String name, String description, String baseTaxonomyId, TaxonomyVersion baseVersion) {
+    }
+
+    // Changes computed against the fork at expectedSequenceNumber: rows are stored as overrides, removedRowIds
+    // are dropped from the fork
+    public record ForkChanges(long expectedSequenceNumber, List<Row> rows, List<String> removedRowIds) {
+    }
+
+    public static TaxonomyFork empty(String id) {
+        return new TaxonomyFork(id, null, null, null, null, Map.of(), Set.of());
+    }
+
+    public boolean exists() {
+        return baseTaxonomyId != null;
+    }
+
+    public TaxonomyFork onForkCreated(TaxonomyForkEvent.ForkCreated created) {
+        CCFLog.info(logger, "Taxonomy fork created", Map.of("fork", id, "forkCreate", created.forkCreate().toString()));
+        var forkCreate = created.forkCreate();
+        return new TaxonomyFork(id, forkCreate.name(), forkCreate.description(), forkCreate.baseTaxonomyId(),
+                forkCreate.baseVersion(), Map.of(), Set.of());
+    }
+
+    public TaxonomyFork onForkRowsChanged(TaxonomyForkEvent.ForkRowsChanged changed) {
+        CCFLog.info(logger, "Taxonomy fork rows changed", Map.of("fork", id,
+                "rows", String.valueOf(changed.rows().size()), "removed", String.valueOf(changed.removedRowIds().size())));
+        Map<String, Row> nextOverrides = new LinkedHashMap<>(overrides);
+        Set<String> nextRemoved = new LinkedHashSet<>(removed);
+        for (String rowId : changed.removedRowIds()) {
+            nextOverrides.remove(rowId);
+            nextRemoved.add(rowId);
+        }
+        for (Row row : changed.rows()) {
+            // A row linked to a new parent moves to the end of the overrides, so merge() appends it to its
+            // parent's children in the order the links were made
+            Row previous = nextOverrides.get(row.rowId());
+            if (previous != null && !Objects.equals(previous.parent(), row.parent())) {
+                nextOverrides.remove(row.rowId());
+            }
+            nextOverrides.put(row.rowId(), row);
+            nextRemoved.remove(row.rowId());
+        }
+        return new TaxonomyFork(id, name, description, baseTaxonomyId, baseVersion, nextOverrides, nextRemoved);
+    }
+
+    // The fork as a taxonomy: base with the removed rows dropped and the overrides put on top. The base RowIndex is
+    // shared, so this costs O(changes * log n) and allocates only for the changed rows and their parents.
+    public Taxonomy merge(RowIndex base) {
+        RowIndex.Builder rows = base.toBuilder();
+        for (String rowId : removed) {
+            rows.remove(rowId);
+        }
+        for (Row row : parentsFirst()) {
+            rows.put(row);
+        }
+        return new Taxonomy(id, name, description, baseVersion, TaxonomyStatus.TAXONOMY_INITIALIZED, rows.build(), null,
+                null);
+    }
+
+    // The changes that take the fork to after for the rows touched by patch, after being the merged fork with
+    // the patch applied. Children lists are not stored, RowIndex rebuilds them from the parents.
+    public static ForkChanges changes(long sequenceNumber, RowIndex after, Taxonomy.TaxonomyPatch patch) {
+        // In the order of each row's last op, as the rows were last linked
+        Set<String> touched = new LinkedHashSet<>();
+        for (int i = patch.ops().size() - 1; i >= 0; i--) {
+            var op = patch.ops().get(i);
+            touched.add("add".equals(op.op()) ? op.row().rowId() : op.rowId());
+        }
+        List<String> ordered = new ArrayList<>(touched);
+        Collections.reverse(ordered);
+        List<Row> rows = new ArrayList<>();
+        List<String> removedRowIds = new ArrayList<>();
+        for (String rowId : ordered) {
+            after.get(rowId).ifPresentOrElse(
+                    row -> rows.add(new Row(row.rowId(), row.value(), row.description(), row.aliases(), row.keywords(),
+                            row.dimensionSrcHints(), row.parent(), List.of(), row.formula())),
+                    () -> removedRowIds.add(rowId));
+        }
+        return new ForkChanges(sequenceNumber, rows, removedRowIds);
+    }
+
+    // RowIndex.put only links a row to a parent that is already present, so an override whose parent is also an
+    // override is put after it. Otherwise overrides keep the order they were first made in.
+    private List<Row> parentsFirst() {
+        Map<String, List<Row>> waiting = new HashMap<>();
+        Deque<Row> ready = new ArrayDeque<>();
+        for (Row row : overrides.values()) {
+            if (row.parent() != null && overrides.containsKey(row.parent())) {
+                waiting.computeIfAbsent(row.parent(), k -> new ArrayList<>()).add(row);
+            } else {
+                ready.add(row);
+            }
+        }
+        List<Row> ordered = new ArrayList<>(overrides.size());
+        while (!ready.isEmpty()) {
+            Row row = ready.poll();
+            ordered.add(row);
+            List<Row> children = waiting.remove(row.rowId());
+            if (children != null) {
+                ready.addAll(children);
+            }
+        }
+        // Left over only for a parent cycle, which patch validation rejects
+        waiting.values().forEach(ordered::addAll);
+        return ordered;
+    }
+}
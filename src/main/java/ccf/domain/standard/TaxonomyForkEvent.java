@@ -0,0 +1,15 @@
+package ccf.domain.standard;
+import akka.javasdk.annotations.TypeName;
+import java.util.List;
+
+import ccf.domain.standard.Taxonomy.Row;
+import ccf.domain.standard.TaxonomyFork.ForkCreate;
+public sealed interface TaxonomyForkEvent {
+    @TypeName("taxonomy-fork-created")
+    record ForkCreated(ForkCreate forkCreate) implements TaxonomyForkEvent {
+    }
+    // rows are the fork's new overrides, removedRowIds the rows no longer in the fork
+    @TypeName("taxonomy-fork-rows-changed")
+    record ForkRowsChanged(List<Row> rows, List<String> removedRowIds) implements TaxonomyForkEvent {
+    }
+}
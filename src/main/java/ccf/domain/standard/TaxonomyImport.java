@@ -0,0 +1,71 @@
+package ccf.domain.standard;
+
+import java.time.Duration;
+import java.time.Instant;
+
+// State of a checkpointed taxonomy import. nextChunk is the durable cursor: every chunk before it has been
+// persisted on the taxonomy, so a resumed import continues from there without re-sending completed chunks.
+// chunkKey is unique per start of the import, the chunks are stored under it (see TaxonomyImportChunkEntity).
+public record TaxonomyImport(String importId, String taxonomyId, String chunkKey, TaxonomyImportStatus status,
+        int totalChunks, int totalRows, int nextChunk, int importedRows, int attempts, String lastError,
+        Instant startedAt, Instant updatedAt) {
+
+    public record ImportStart(String taxonomyId, String chunkKey, int totalChunks, int totalRows) {
+    }
+
+    public record ImportProgress(String importId, String taxonomyId, TaxonomyImportStatus status,
+            int totalChunks, int completedChunks, int totalRows, int importedRows, int attempts,
+            String lastError, long elapsedMillis, double rowsPerSecond) {
+    }
+
+    public static TaxonomyImport start(String importId, ImportStart start) {
+        Instant now = Instant.now();
+        return new TaxonomyImport(importId, start.taxonomyId(), start.chunkKey(), TaxonomyImportStatus.IMPORT_RUNNING,
+                start.totalChunks(), start.totalRows(), 0, 0, 0, null, now, now);
+    }
+
+    public boolean isDone() {
+        return nextChunk >= totalChunks;
+    }
+
+    public TaxonomyImport onChunkImported(int rows) {
+        return new TaxonomyImport(importId, taxonomyId, chunkKey, TaxonomyImportStatus.IMPORT_RUNNING, totalChunks, totalRows,
+                nextChunk + 1, importedRows + rows, 0, null, startedAt, Instant.now());
+    }
+
+    public TaxonomyImport onChunkFailed(String error) {
+        return new TaxonomyImport(importId, taxonomyId, chunkKey, TaxonomyImportStatus.IMPORT_WAITING_RETRY, totalChunks,
+                totalRows, nextChunk, importedRows, attempts + 1, error, startedAt, Instant.now());
+    }
+
+    // A timer resuming a retry keeps counting attempts, resuming a failed import starts a fresh retry budget
+    public TaxonomyImport onResumed() {
+        int resumedAttempts = status == TaxonomyImportStatus.IMPORT_FAILED ? 0 : attempts;
+        return new TaxonomyImport(importId, taxonomyId, chunkKey, TaxonomyImportStatus.IMPORT_RUNNING, totalChunks, totalRows,
+                nextChunk, importedRows, resumedAttempts, lastError, startedAt, Instant.now());
+    }
+
+    public TaxonomyImport onFailed(String error) {
+        return new TaxonomyImport(importId, taxonomyId, chunkKey, TaxonomyImportStatus.IMPORT_FAILED, totalChunks, totalRows,
+                nextChunk, importedRows, attempts, error, startedAt, Instant.now());
+    }
+
+    public TaxonomyImport onCompleted() {
+        return new TaxonomyImport(importId, taxonomyId, chunkKey, TaxonomyImportStatus.IMPORT_COMPLETED, totalChunks, totalRows,
+                nextChunk, importedRows, attempts, null, startedAt, Instant.now());
+    }
+
+    // Exponential backoff for the next attempt of the current chunk, capped at max
+    public Duration retryDelay(Duration base, Duration max) {
+        long millis = base.toMillis() << Math.min(attempts, 16);
+        return Duration.ofMillis(Math.min(millis, max.toMillis()));
+    }
+
+    public ImportProgress progress() {
+        Instant end = status == TaxonomyImportStatus.IMPORT_COMPLETED ? updatedAt : Instant.now();
+        long elapsedMillis = Math.max(0, Duration.between(startedAt, end).toMillis());
+        double rowsPerSecond = elapsedMillis == 0 ? 0 : importedRows * 1000.0 / elapsedMillis;
+        return new ImportProgress(importId, taxonomyId, status, totalChunks, nextChunk, totalRows, importedRows,
+                attempts, lastError, elapsedMillis, rowsPerSecond);
+    }
+}
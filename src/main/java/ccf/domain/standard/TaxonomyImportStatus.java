@@ -0,0 +1,8 @@
+package ccf.domain.standard;
+
+public enum TaxonomyImportStatus {
+    IMPORT_RUNNING,
+    IMPORT_WAITING_RETRY,
+    IMPORT_COMPLETED,
+    IMPORT_FAILED
+}
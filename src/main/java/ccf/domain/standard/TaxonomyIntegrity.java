@@ -0,0 +1,205 @@
+package ccf.domain.standard;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import ccf.domain.standard.Taxonomy.Row;
+
+// Whole-taxonomy integrity check. Rows are numbered once through an OrdinalTable and every check runs over int
+// arrays indexed by that number, so the check is linear in the rows and their children lists:
+// - ORPHANED_PARENT: parent points to a row that does not exist
+// - CYCLE: following parent pointers comes back to the same row, reported once per cycle
+// - CHILDREN_MISMATCH: a children list (or the roots) disagrees with the parent pointers, the row is missing,
+//   listed under the wrong parent, listed twice or not listed under its parent
+// - DUPLICATE_SIBLING_VALUE: siblings with the same value, ignoring case and surrounding blanks
+// - EMPTY_LEAF: a leaf with neither dimension source hints nor a formula, so nothing can feed it
+// Empty leaves are warnings, every other issue is an error and blocks publishing.
+public final class TaxonomyIntegrity {
+    public static final int MAX_REPORTED_ISSUES = 1000;
+
+    public static final String ORPHANED_PARENT = "ORPHANED_PARENT";
+    public static final String CYCLE = "CYCLE";
+    public static final String CHILDREN_MISMATCH = "CHILDREN_MISMATCH";
+    public static final String DUPLICATE_SIBLING_VALUE = "DUPLICATE_SIBLING_VALUE";
+    public static final String EMPTY_LEAF = "EMPTY_LEAF";
+
+    // rowIds lists the rows involved: the cycle in parent order, or the siblings sharing a value
+    public record Issue(String type, String rowId, String parent, List<String> rowIds, String message) {
+    }
+
+    // counts has every issue found per type, issues at most MAX_REPORTED_ISSUES of them
+    public record IntegrityReport(String id, int rows, boolean isValid, int errors, int warnings,
+            Map<String, Integer> counts, List<Issue> issues, long elapsedMicros) {
+    }
+
+    private static final int ROOT = -1;
+    private static final int MISSING = -2;
+
+    private final String id;
+    private final List<Row> rows;
+    private final OrdinalTable ordinals;
+    private final int[] parents;
+    private final Map<String, Integer> counts = new LinkedHashMap<>();
+    private final List<Issue> issues = new ArrayList<>();
+
+    private TaxonomyIntegrity(String id, RowIndex index) {
+        this.id = id;
+        this.rows = index.rowsUnordered();
+        this.ordinals = new OrdinalTable(rows);
+        this.parents = new int[rows.size()];
+        for (int o = 0; o < rows.size(); o++) {
+            String parent = rows.get(o).parent();
+            int p = parent == null ? ROOT : ordinals.get(parent);
+            parents[o] = parent != null && p < 0 ? MISSING : p;
+        }
+        for (String type : List.of(ORPHANED_PARENT, CYCLE, CHILDREN_MISMATCH, DUPLICATE_SIBLING_VALUE, EMPTY_LEAF)) {
+            counts.put(type, 0);
+        }
+    }
+
+    public static IntegrityReport check(String id, RowIndex index) {
+        long start = System.nanoTime();
+        TaxonomyIntegrity integrity = new TaxonomyIntegrity(id, index);
+        integrity.checkParents();
+        integrity.checkChildren(index.roots());
+        integrity.checkCycles();
+        integrity.checkSiblingValues();
+        integrity.checkLeaves();
+        return integrity.report((System.nanoTime() - start) / 1_000);
+    }
+
+    private void checkParents() {
+        for (int o = 0; o < rows.size(); o++) {
+            if (parents[o] == MISSING) {
+                Row row = rows.get(o);
+                issue(ORPHANED_PARENT, row.rowId(), row.parent(), List.of(),
+                        "Parent row '%s' of '%s' does not exist", row.parent(), row.rowId());
+            }
+        }
+    }
+
+    // Each row must be listed exactly once, by the row its parent points to, or in the roots for no parent
+    private void checkChildren(List<String> roots) {
+        boolean[] listed = new boolean[rows.size()];
+        checkListed(null, ROOT, roots, listed);
+        for (int o = 0; o < rows.size(); o++) {
+            List<String> children = rows.get(o).children();
+            checkListed(rows.get(o).rowId(), o, children == null ? List.of() : children, listed);
+        }
+        for (int o = 0; o < rows.size(); o++) {
+            Row row = rows.get(o);
+            if (!listed[o] && parents[o] != MISSING) {
+                issue(CHILDREN_MISMATCH, row.rowId(), row.parent(), List.of(), row.parent() == null
+                        ? "Root row '%s' is not in the roots"
+                        : "Row '%s' is not in the children of its parent '%s'", row.rowId(), row.parent());
+            }
+        }
+    }
+
+    private void checkListed(String parentId, int parent, List<String> children, boolean[] listed) {
+        for (String childId : children) {
+            int child = ordinals.get(childId);
+            if (child < 0) {
+                issue(CHILDREN_MISMATCH, childId, parentId, List.of(),
+                        "Row '%s' in %s does not exist", childId, under(parentId));
+            } else if (parents[child] != parent) {
+                issue(CHILDREN_MISMATCH, childId, parentId, List.of(), "Row '%s' is in %s but its parent is '%s'",
+                        childId, under(parentId), rows.get(child).parent());
+            } else if (listed[child]) {
+                issue(CHILDREN_MISMATCH, childId, parentId, List.of(),
+                        "Row '%s' is listed more than once in %s", childId, under(parentId));
+            } else {
+                listed[child] = true;
+            }
+        }
+    }
+
+    private static String under(String parentId) {
+        return parentId == null ? "the roots" : "the children of '" + parentId + "'";
+    }
+
+    // Walks up from every row not yet seen. A walk that reaches a row of the same walk has found a cycle, one that
+    // reaches a root, a missing parent or a row of an earlier walk has not. Every row is walked over once.
+    private void checkCycles() {
+        int[] walk = new int[rows.size()];
+        for (int o = 0; o < rows.size(); o++) {
+            int at = o;
+            while (at >= 0 && walk[at] == 0) {
+                walk[at] = o + 1;
+                at = parents[at];
+            }
+            if (at >= 0 && walk[at] == o + 1) {
+                List<String> cycle = new ArrayList<>();
+                int c = at;
+                do {
+                    cycle.add(rows.get(c).rowId());
+                    c = parents[c];
+                } while (c != at);
+                issue(CYCLE, rows.get(at).rowId(), rows.get(at).parent(), cycle,
+                        "Rows %s form a parent cycle", cycle);
+            }
+        }
+    }
+
+    private record SiblingValue(int parent, String value) {
+    }
+
+    // Siblings by parent pointers, keyed by parent ordinal and normalized value. Only values seen twice get a list.
+    private void checkSiblingValues() {
+        Map<SiblingValue, Integer> first = new HashMap<>(rows.size() * 2);
+        Map<Integer, List<Integer>> duplicates = new LinkedHashMap<>();
+        for (int o = 0; o < rows.size(); o++) {
+            String value = rows.get(o).value();
+            if (value == null || value.isBlank() || parents[o] == MISSING) {
+                continue;
+            }
+            Integer seen = first.putIfAbsent(new SiblingValue(parents[o], value.strip().toLowerCase(Locale.ROOT)), o);
+            if (seen != null) {
+                duplicates.computeIfAbsent(seen, k -> new ArrayList<>(List.of(k))).add(o);
+            }
+        }
+        for (List<Integer> same : duplicates.values()) {
+            Row firstRow = rows.get(same.get(0));
+            List<String> rowIds = same.stream().map(o -> rows.get(o).rowId()).toList();
+            issue(DUPLICATE_SIBLING_VALUE, firstRow.rowId(), firstRow.parent(), rowIds,
+                    "Sibling rows %s share the value '%s'", rowIds, firstRow.value());
+        }
+    }
+
+    // Leaves by parent pointers, a stale children list does not make a row a parent. Checked last, so the reported
+    // issues hold the errors before any warning.
+    private void checkLeaves() {
+        boolean[] parent = new boolean[rows.size()];
+        for (int o = 0; o < rows.size(); o++) {
+            if (parents[o] >= 0) {
+                parent[parents[o]] = true;
+            }
+        }
+        for (int o = 0; o < rows.size(); o++) {
+            Row row = rows.get(o);
+            if (!parent[o] && (row.dimensionSrcHints() == null || row.dimensionSrcHints().isEmpty())
+                    && (row.formula() == null || row.formula().isBlank())) {
+                issue(EMPTY_LEAF, row.rowId(), row.parent(), List.of(),
+                        "Leaf row '%s' has no dimension source hints and no formula", row.rowId());
+            }
+        }
+    }
+
+    // The message is only formatted for the issues that are reported
+    private void issue(String type, String rowId, String parent, List<String> rowIds, String format, Object... args) {
+        counts.merge(type, 1, Integer::sum);
+        if (issues.size() < MAX_REPORTED_ISSUES) {
+            issues.add(new Issue(type, rowId, parent, rowIds, format.formatted(args)));
+        }
+    }
+
+    private IntegrityReport report(long elapsedMicros) {
+        int warnings = counts.get(EMPTY_LEAF);
+        int errors = counts.values().stream().mapToInt(Integer::intValue).sum() - warnings;
+        return new IntegrityReport(id, rows.size(), errors == 0, errors, warnings, counts, issues, elapsedMicros);
+    }
+}
@@ -1,8 +1,10 @@
 package ccf.domain.standard;
 
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 
 
 import ccf.domain.standard.Taxonomy.TaxRowAdd;
@@ -28,218 +30,220 @@ public record TaxonomyRow(String name, String description, TaxonomyVersion versi
         public record KeyValue(String key, String value) {
         }
 
-        private List<String> convertDimensionSrcHintsToStrings(Map<String, List<String>> dimensionSrcHints) {
+        private static List<String> convertDimensionSrcHintsToStrings(Map<String, List<String>> dimensionSrcHints) {
+                if (dimensionSrcHints == null) {
+                        return List.of();
+                }
                 return dimensionSrcHints.entrySet().stream()
                         .flatMap(entry -> entry.getValue().stream()
                                 .map(value -> entry.getKey() + ": " + value))
                         .toList();
         }
         
-        private void addRowAndUpdateParent(Taxonomy.TaxRow taxRow) {
-            // Create new row with empty children list
-            TRRow newRow = new TRRow(
-                taxRow.rowId(),
-                taxRow.value(),
-                taxRow.description(),
-                taxRow.aliases(),
-                taxRow.keywords(),
-                convertDimensionSrcHintsToStrings(taxRow.dimensionSrcHints()),
-                taxRow.parent(),
-                new ArrayList<>(),
-                null
-            );
-
-            // Get parent row if it exists
-            if (taxRow.parent() != null) {
-                TRRow parentRow = trRows.stream()
-                    .filter(r -> r.id().equals(taxRow.parent()))
-                    .findFirst()
-                    .orElseThrow(() -> new TaxonomyException(this.name, "Parent row with ID '" + taxRow.parent() + "' not found"));
-
-                // Create new parent row with updated children
+        // Handlers index the current rows by id once, apply the change to that index and return a new
+        // TaxonomyRow with a fresh list. The list of the previous row state is never modified.
+        private LinkedHashMap<String, TRRow> indexRows() {
+                LinkedHashMap<String, TRRow> rows = new LinkedHashMap<>();
+                if (trRows != null) {
+                        trRows.forEach(row -> rows.put(row.id(), row));
+                }
+                return rows;
+        }
+
+        private TaxonomyRow withRows(LinkedHashMap<String, TRRow> rows) {
+                return new TaxonomyRow(name, description, version, List.copyOf(rows.values()), isPublished);
+        }
+
+        private static TRRow withChildren(TRRow row, List<String> children) {
+                return new TRRow(row.id(), row.value(), row.description(), row.aliases(), row.keywords(),
+                        row.dimensionSrcHints(), row.parent(), children, row.formula());
+        }
+
+        private TRRow findRow(LinkedHashMap<String, TRRow> rows, String rowId, String message) {
+                TRRow row = rows.get(rowId);
+                if (row == null) {
+                        throw new TaxonomyException(this.name, message);
+                }
+                return row;
+        }
+
+        // Parent rows keep their position, only their children list is replaced
+        private void addChild(LinkedHashMap<String, TRRow> rows, TRRow parentRow, String rowId) {
                 List<String> updatedChildren = new ArrayList<>(parentRow.children());
-                updatedChildren.add(newRow.id());
-                
-                TRRow updatedParent = new TRRow(
-                    parentRow.id(),
-                    parentRow.value(),
-                    parentRow.description(),
-                    parentRow.aliases(),
-                    parentRow.keywords(),
-                    parentRow.dimensionSrcHints(),
-                    parentRow.parent(),
-                    updatedChildren,
-                    parentRow.formula()
-                );
-
-                // Update parent in rows list
-                trRows.remove(parentRow);
-                trRows.add(updatedParent);
-            }
-
-            // Add new row
-            trRows.add(newRow);
-        }
-
-        private void removeRowAndUpdateParent(String rowId) {
-            // Check if row is a parent of any other rows
-            boolean isParent = trRows.stream()
-                .anyMatch(r -> rowId.equals(r.parent()));
-            
-            if (isParent) {
-                throw new TaxonomyException(this.name, "Cannot remove row with ID '" + rowId + "' because it is a parent of other rows");
-            }
-
-            // Get the row to be removed
-            TRRow taxRow = trRows.stream()
-                .filter(r -> r.id().equals(rowId))
-                .findFirst()
-                .orElseThrow(() -> new TaxonomyException(this.name, "Tax row with ID '" + rowId + "' not found"));
-
-            // If row has a parent, remove it from parent's children list
-            if (taxRow.parent() != null) {
-                TRRow parentRow = trRows.stream()
-                    .filter(r -> r.id().equals(taxRow.parent()))
-                    .findFirst()
-                    .orElseThrow(() -> new TaxonomyException(this.name, "Parent row with ID '" + taxRow.parent() + "' not found"));
-
-                // Create new parent row with updated children
+                updatedChildren.add(rowId);
+                rows.put(parentRow.id(), withChildren(parentRow, updatedChildren));
+        }
+
+        private void removeChild(LinkedHashMap<String, TRRow> rows, TRRow parentRow, String rowId) {
                 List<String> updatedChildren = new ArrayList<>(parentRow.children());
-                updatedChildren.remove(taxRow.id());
-                
-                TRRow updatedParent = new TRRow(
-                    parentRow.id(),
-                    parentRow.value(),
-                    parentRow.description(),
-                    parentRow.aliases(),
-                    parentRow.keywords(),
-                    parentRow.dimensionSrcHints(),
-                    parentRow.parent(),
-                    updatedChildren,
-                    parentRow.formula()
-                );
-
-                // Update parent in rows list
-                trRows.remove(parentRow);
-                trRows.add(updatedParent);
-            }
-
-            // Remove the row
-            trRows.removeIf(row -> row.id().equals(taxRow.id()));
-        }
-
-        private void updateRowAndUpdateParent(TaxRowUpdate taxRowUpdate) {
-            // Find the existing row
-            TRRow existingRow = trRows.stream()
-                .filter(r -> r.id().equals(taxRowUpdate.rowId()))
-                .findFirst()
-                .orElseThrow(() -> new TaxonomyException(this.name,
-                        "Tax row with ID '" + taxRowUpdate.rowId() + "' not found"));
-
-            // Handle parent change if needed
-            if (!existingRow.parent().equals(taxRowUpdate.row().parent())) {
-                // Remove from old parent's children if it had a parent
-                if (existingRow.parent() != null) {
-                    TRRow oldParentRow = trRows.stream()
-                        .filter(r -> r.id().equals(existingRow.parent()))
-                        .findFirst()
-                        .orElseThrow(() -> new TaxonomyException(this.name,
-                                "Parent row with ID '" + existingRow.parent() + "' not found"));
-
-                    List<String> updatedOldParentChildren = new ArrayList<>(oldParentRow.children());
-                    updatedOldParentChildren.remove(existingRow.id());
-
-                    TRRow updatedOldParent = new TRRow(
-                        oldParentRow.id(),
-                        oldParentRow.value(),
-                        oldParentRow.description(),
-                        oldParentRow.aliases(),
-                        oldParentRow.keywords(),
-                        oldParentRow.dimensionSrcHints(),
-                        oldParentRow.parent(),
-                        updatedOldParentChildren,
-                        oldParentRow.formula()
-                    );
-
-                    trRows.remove(oldParentRow);
-                    trRows.add(updatedOldParent);
+                updatedChildren.remove(rowId);
+                rows.put(parentRow.id(), withChildren(parentRow, updatedChildren));
+        }
+
+        private void addRowAndUpdateParent(LinkedHashMap<String, TRRow> rows, Taxonomy.TaxRow taxRow) {
+                if (taxRow.parent() != null) {
+                        TRRow parentRow = findRow(rows, taxRow.parent(),
+                                "Parent row with ID '" + taxRow.parent() + "' not found");
+                        addChild(rows, parentRow, taxRow.rowId());
+                }
+                rows.put(taxRow.rowId(), new TRRow(
+                        taxRow.rowId(),
+                        taxRow.value(),
+                        taxRow.description(),
+                        taxRow.aliases(),
+                        taxRow.keywords(),
+                        convertDimensionSrcHintsToStrings(taxRow.dimensionSrcHints()),
+                        taxRow.parent(),
+                        List.of(),
+                        null
+                ));
+        }
+
+        private void removeRowAndUpdateParent(LinkedHashMap<String, TRRow> rows, String rowId) {
+                TRRow taxRow = findRow(rows, rowId, "Tax row with ID '" + rowId + "' not found");
+                // Check if row is a parent of any other rows
+                if (taxRow.children() != null && !taxRow.children().isEmpty()) {
+                        throw new TaxonomyException(this.name, "Cannot remove row with ID '" + rowId + "' because it is a parent of other rows");
                 }
+                // If row has a parent, remove it from parent's children list
+                if (taxRow.parent() != null) {
+                        TRRow parentRow = findRow(rows, taxRow.parent(),
+                                "Parent row with ID '" + taxRow.parent() + "' not found");
+                        removeChild(rows, parentRow, rowId);
+                }
+                rows.remove(rowId);
+        }
 
-                // Add to new parent's children if it has a new parent
-                if (taxRowUpdate.row().parent() != null) {
-                    TRRow newParentRow = trRows.stream()
-                        .filter(r -> r.id().equals(taxRowUpdate.row().parent()))
-                        .findFirst()
-                        .orElseThrow(() -> new TaxonomyException(this.name,
-                                "New parent row with ID '" + taxRowUpdate.row().parent() + "' not found"));
-
-                    List<String> updatedNewParentChildren = new ArrayList<>(newParentRow.children());
-                    updatedNewParentChildren.add(taxRowUpdate.rowId());
-
-                    TRRow updatedNewParent = new TRRow(
-                        newParentRow.id(),
-                        newParentRow.value(),
-                        newParentRow.description(),
-                        newParentRow.aliases(),
-                        newParentRow.keywords(),
-                        newParentRow.dimensionSrcHints(),
-                        newParentRow.parent(),
-                        updatedNewParentChildren,
-                        newParentRow.formula()
-                    );
-
-                    trRows.remove(newParentRow);
-                    trRows.add(updatedNewParent);
+        private void updateRowAndUpdateParent(LinkedHashMap<String, TRRow> rows, TaxRowUpdate taxRowUpdate) {
+                TRRow existingRow = findRow(rows, taxRowUpdate.rowId(),
+                        "Tax row with ID '" + taxRowUpdate.rowId() + "' not found");
+                String newParent = taxRowUpdate.row().parent();
+
+                // Handle parent change if needed
+                if (!Objects.equals(existingRow.parent(), newParent)) {
+                        if (existingRow.parent() != null) {
+                                TRRow oldParentRow = findRow(rows, existingRow.parent(),
+                                        "Parent row with ID '" + existingRow.parent() + "' not found");
+                                removeChild(rows, oldParentRow, existingRow.id());
+                        }
+                        if (newParent != null) {
+                                TRRow newParentRow = findRow(rows, newParent,
+                                        "New parent row with ID '" + newParent + "' not found");
+                                addChild(rows, newParentRow, existingRow.id());
+                        }
                 }
-            }
 
-            // Update the row itself
-            TRRow updatedRow = new TRRow(
-                existingRow.id(),
-                taxRowUpdate.row().value(),
-                taxRowUpdate.row().description(),
-                taxRowUpdate.row().aliases(),
-                taxRowUpdate.row().keywords(),  
-                convertDimensionSrcHintsToStrings(taxRowUpdate.row().dimensionSrcHints()),
-                taxRowUpdate.row().parent(),
-                existingRow.children(),
-                existingRow.formula()
-            );
-            
-            trRows.remove(existingRow);
-            trRows.add(updatedRow);
+                // Update the row itself
+                rows.put(existingRow.id(), new TRRow(
+                        existingRow.id(),
+                        taxRowUpdate.row().value(),
+                        taxRowUpdate.row().description(),
+                        taxRowUpdate.row().aliases(),
+                        taxRowUpdate.row().keywords(),
+                        convertDimensionSrcHintsToStrings(taxRowUpdate.row().dimensionSrcHints()),
+                        newParent,
+                        existingRow.children(),
+                        existingRow.formula()
+                ));
         }
 
-        public TaxonomyRow onTaxonomyPublished(Boolean isPublished) {
-                return new TaxonomyRow(this.name, this.description, this.version, this.trRows, isPublished);
+        // version is the published or next draft version, null to keep the current one
+        public TaxonomyRow onTaxonomyPublished(Boolean isPublished, TaxonomyVersion version) {
+                return new TaxonomyRow(this.name, this.description, version == null ? this.version : version,
+                                this.trRows, isPublished);
         }
 
         public TaxonomyRow onTaxonomyTaxRowAdded(TaxRowAdd taxRowAdd) {
-                addRowAndUpdateParent(taxRowAdd.taxRow());
-                return new TaxonomyRow(name, description, version, trRows, isPublished);
+                var rows = indexRows();
+                addRowAndUpdateParent(rows, taxRowAdd.taxRow());
+                return withRows(rows);
         }
 
         public TaxonomyRow onTaxonomyTaxRowsAdded(TaxRowsAdd taxRowsAdd) {
-                var rows = this.trRows();
-                if (taxRowsAdd.isReplace()) {
-                    rows.clear();
-                }
-                taxRowsAdd.taxRows().forEach(this::addRowAndUpdateParent);
-                return new TaxonomyRow(name, description, version, rows, isPublished);
+                var rows = taxRowsAdd.isReplace() ? new LinkedHashMap<String, TRRow>() : indexRows();
+                taxRowsAdd.taxRows().forEach(taxRow -> addRowAndUpdateParent(rows, taxRow));
+                return withRows(rows);
         }
 
         public TaxonomyRow onTaxonomyTaxRowRemoved(String rowId) {
-                removeRowAndUpdateParent(rowId);
-                return new TaxonomyRow(name, description, version, trRows, isPublished);
+                var rows = indexRows();
+                removeRowAndUpdateParent(rows, rowId);
+                return withRows(rows);
         }
         public TaxonomyRow onTaxonomyTaxRowsRemoved(TaxRowsRemove taxRowsRemove) {
-                var rows = this.trRows();
-                taxRowsRemove.rowIds().forEach(this::removeRowAndUpdateParent);
-                return new TaxonomyRow(name, description, version, rows, isPublished);   
+                var rows = indexRows();
+                taxRowsRemove.rowIds().forEach(rowId -> removeRowAndUpdateParent(rows, rowId));
+                return withRows(rows);
         }
         
         public TaxonomyRow onTaxonomyTaxRowUpdated(TaxRowUpdate taxRowUpdate) {
-                updateRowAndUpdateParent(taxRowUpdate);
-                return new TaxonomyRow(name, description, version, trRows, isPublished);
+                var rows = indexRows();
+                updateRowAndUpdateParent(rows, taxRowUpdate);
+                return withRows(rows);
+        }
+
+        // The batch is applied to one index of the rows instead of re-indexing the list per update
+        public TaxonomyRow onTaxonomyTaxRowsUpdated(Taxonomy.TaxRowsUpdate taxRowsUpdate) {
+                var rows = indexRows();
+                taxRowsUpdate.updates().forEach(update -> updateRowAndUpdateParent(rows, update));
+                return withRows(rows);
+        }
+
+        // Only the moved row and its old and new parent change, descendants keep their parent
+        public TaxonomyRow onTaxonomySubtreeMoved(Taxonomy.SubtreeMove subtreeMove) {
+                var rows = indexRows();
+                moveRow(rows, subtreeMove.rowId(), subtreeMove.parent());
+                return withRows(rows);
+        }
+
+        public TaxonomyRow onTaxonomyPatched(Taxonomy.TaxonomyPatch patch) {
+                var rows = indexRows();
+                for (Taxonomy.PatchOp op : patch.ops()) {
+                        switch (op.op()) {
+                                case "add" -> addRowAndUpdateParent(rows, op.row());
+                                case "remove" -> removeRowAndUpdateParent(rows, op.rowId());
+                                case "update" -> updateRowAndUpdateParent(rows, new TaxRowUpdate(op.rowId(), op.updates()));
+                                case "move" -> moveRow(rows, op.rowId(), op.parent());
+                                default -> throw new TaxonomyException(this.name, "Unknown op '" + op.op() + "'");
+                        }
+                }
+                return withRows(rows);
+        }
+
+        private void moveRow(LinkedHashMap<String, TRRow> rows, String rowId, String newParent) {
+                TRRow existingRow = findRow(rows, rowId, "Tax row with ID '" + rowId + "' not found");
+                if (Objects.equals(existingRow.parent(), newParent)) {
+                        return;
+                }
+                if (existingRow.parent() != null) {
+                        removeChild(rows, findRow(rows, existingRow.parent(),
+                                "Parent row with ID '" + existingRow.parent() + "' not found"), rowId);
+                }
+                if (newParent != null) {
+                        addChild(rows, findRow(rows, newParent,
+                                "New parent row with ID '" + newParent + "' not found"), rowId);
+                }
+                rows.put(rowId, new TRRow(existingRow.id(), existingRow.value(), existingRow.description(),
+                        existingRow.aliases(), existingRow.keywords(), existingRow.dimensionSrcHints(), newParent,
+                        existingRow.children(), existingRow.formula()));
+        }
+
+        // Built from the rebased event alone, any previous row state is replaced
+        public static TaxonomyRow onTaxonomyRebased(TaxonomyEvent.TaxonomyRebased rebased) {
+                List<TRRow> rows = rebased.rows().toList().stream()
+                        .map(row -> new TRRow(
+                                row.rowId(),
+                                row.value(),
+                                row.description(),
+                                row.aliases(),
+                                row.keywords(),
+                                row.dimensionSrcHints() == null ? List.of()
+                                        : convertDimensionSrcHintsToStrings(row.dimensionSrcHints()),
+                                row.parent(),
+                                row.children(),
+                                row.formula()))
+                        .toList();
+                return new TaxonomyRow(rebased.taxonomy().name(), rebased.taxonomy().description(),
+                        rebased.taxonomy().version(), rows, rebased.status() == TaxonomyStatus.TAXONOMY_PUBLISHED);
         }
-}
\ No newline at end of file
+}
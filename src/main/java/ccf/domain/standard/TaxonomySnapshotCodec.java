@@ -0,0 +1,274 @@
+package ccf.domain.standard;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import ccf.domain.standard.Taxonomy.Row;
+
+// TaxonomySnapshotCodec is the compact binary encoding of the rows of a Taxonomy, used for entity snapshots
+// instead of a JSON list of Row objects.
+// Layout (all integers are unsigned varints, strings and lists are length-prefixed):
+//   version byte
+//   string table: count, then each string as its UTF-8 length and bytes
+//   rows: count, then the rowId of every row as a string reference
+//   per row: value, description, aliases, keywords, dimensionSrcHints, parent, children, formula
+// Every string is stored once in the table and referenced by index + 1 (0 is null). Parent and children are
+// row references, the row's index + 1, or minus the string reference of an id that is not a row.
+// Lists and maps are written as size + 1 so null stays distinct from empty.
+public final class TaxonomySnapshotCodec {
+    public static final byte VERSION = 1;
+
+    private TaxonomySnapshotCodec() {
+    }
+
+    public static byte[] encode(RowIndex rows) {
+        List<Row> list = rows.toList();
+        Strings strings = new Strings();
+        Map<String, Integer> rowIndex = new HashMap<>(list.size() * 2);
+        for (int i = 0; i < list.size(); i++) {
+            rowIndex.put(list.get(i).rowId(), i);
+        }
+
+        // Rows are encoded first so the string table is complete before it is written
+        Output body = new Output(list.size() * 32);
+        body.writeVarint(list.size());
+        for (Row row : list) {
+            body.writeVarint(strings.ref(row.rowId()));
+        }
+        for (Row row : list) {
+            body.writeVarint(strings.ref(row.value()));
+            body.writeVarint(strings.ref(row.description()));
+            writeStrings(body, strings, row.aliases());
+            writeStrings(body, strings, row.keywords());
+            if (row.dimensionSrcHints() == null) {
+                body.writeVarint(0);
+            } else {
+                body.writeVarint(row.dimensionSrcHints().size() + 1);
+                for (var hint : row.dimensionSrcHints().entrySet()) {
+                    body.writeVarint(strings.ref(hint.getKey()));
+                    writeStrings(body, strings, hint.getValue());
+                }
+            }
+            body.writeSignedVarint(rowRef(rowIndex, strings, row.parent()));
+            if (row.children() == null) {
+                body.writeVarint(0);
+            } else {
+                body.writeVarint(row.children().size() + 1);
+                for (String child : row.children()) {
+                    body.writeSignedVarint(rowRef(rowIndex, strings, child));
+                }
+            }
+            body.writeVarint(strings.ref(row.formula()));
+        }
+
+        Output out = new Output(body.size() + strings.bytes + strings.values.size() * 2 + 8);
+        out.write(VERSION);
+        out.writeVarint(strings.values.size());
+        for (String value : strings.values) {
+            byte[] utf8 = value.getBytes(StandardCharsets.UTF_8);
+            out.writeVarint(utf8.length);
+            out.write(utf8, 0, utf8.length);
+        }
+        out.write(body.buffer(), 0, body.size());
+        return out.toByteArray();
+    }
+
+    public static RowIndex decode(byte[] bytes) {
+        Input in = new Input(bytes);
+        int version = in.readByte();
+        if (version != VERSION) {
+            throw new IllegalArgumentException("Unsupported taxonomy snapshot version %d".formatted(version));
+        }
+        String[] strings = new String[in.readVarint()];
+        for (int i = 0; i < strings.length; i++) {
+            strings[i] = in.readUtf8(in.readVarint());
+        }
+
+        String[] rowIds = new String[in.readVarint()];
+        for (int i = 0; i < rowIds.length; i++) {
+            rowIds[i] = string(strings, in.readVarint());
+        }
+        List<Row> rows = new ArrayList<>(rowIds.length);
+        for (String rowId : rowIds) {
+            String value = string(strings, in.readVarint());
+            String description = string(strings, in.readVarint());
+            List<String> aliases = readStrings(in, strings);
+            List<String> keywords = readStrings(in, strings);
+            Map<String, List<String>> hints = null;
+            int hintCount = in.readVarint();
+            if (hintCount > 0) {
+                hints = new LinkedHashMap<>();
+                for (int i = 0; i < hintCount - 1; i++) {
+                    hints.put(string(strings, in.readVarint()), readStrings(in, strings));
+                }
+                hints = Collections.unmodifiableMap(hints);
+            }
+            String parent = rowId(rowIds, strings, in.readSignedVarint());
+            List<String> children = null;
+            int childCount = in.readVarint();
+            if (childCount > 0) {
+                children = new ArrayList<>(childCount - 1);
+                for (int i = 0; i < childCount - 1; i++) {
+                    children.add(rowId(rowIds, strings, in.readSignedVarint()));
+                }
+                children = Collections.unmodifiableList(children);
+            }
+            String formula = string(strings, in.readVarint());
+            rows.add(new Row(rowId, value, description, aliases, keywords, hints, parent, children, formula));
+        }
+        if (!in.isAtEnd()) {
+            throw new IllegalArgumentException("Trailing bytes in taxonomy snapshot");
+        }
+        return RowIndex.of(rows);
+    }
+
+    private static int rowRef(Map<String, Integer> rowIndex, Strings strings, String rowId) {
+        if (rowId == null) {
+            return 0;
+        }
+        Integer index = rowIndex.get(rowId);
+        return index != null ? index + 1 : -strings.ref(rowId);
+    }
+
+    private static String rowId(String[] rowIds, String[] strings, int ref) {
+        if (ref == 0) {
+            return null;
+        }
+        if (ref > 0) {
+            if (ref > rowIds.length) {
+                throw new IllegalArgumentException("Row reference %d out of range".formatted(ref));
+            }
+            return rowIds[ref - 1];
+        }
+        return string(strings, -ref);
+    }
+
+    private static String string(String[] strings, int ref) {
+        if (ref == 0) {
+            return null;
+        }
+        if (ref > strings.length) {
+            throw new IllegalArgumentException("String reference %d out of range".formatted(ref));
+        }
+        return strings[ref - 1];
+    }
+
+    private static void writeStrings(Output out, Strings strings, List<String> values) {
+        if (values == null) {
+            out.writeVarint(0);
+            return;
+        }
+        out.writeVarint(values.size() + 1);
+        for (String value : values) {
+            out.writeVarint(strings.ref(value));
+        }
+    }
+
+    private static List<String> readStrings(Input in, String[] strings) {
+        int count = in.readVarint();
+        if (count == 0) {
+            return null;
+        }
+        List<String> values = new ArrayList<>(count - 1);
+        for (int i = 0; i < count - 1; i++) {
+            values.add(string(strings, in.readVarint()));
+        }
+        return Collections.unmodifiableList(values);
+    }
+
+    // Interned string table, references are index + 1
+    private static final class Strings {
+        final Map<String, Integer> refs = new HashMap<>();
+        final List<String> values = new ArrayList<>();
+        int bytes = 0;
+
+        int ref(String value) {
+            if (value == null) {
+                return 0;
+            }
+            Integer ref = refs.get(value);
+            if (ref == null) {
+                values.add(value);
+                ref = values.size();
+                refs.put(value, ref);
+                bytes += value.length() + 2;
+            }
+            return ref;
+        }
+    }
+
+    private static final class Output extends ByteArrayOutputStream {
+        Output(int size) {
+            super(Math.max(size, 16));
+        }
+
+        void writeVarint(int value) {
+            while ((value & ~0x7f) != 0) {
+                write((value & 0x7f) | 0x80);
+                value >>>= 7;
+            }
+            write(value);
+        }
+
+        // Zigzag encoding keeps small negative references short
+        void writeSignedVarint(int value) {
+            writeVarint((value << 1) ^ (value >> 31));
+        }
+
+        byte[] buffer() {
+            return buf;
+        }
+    }
+
+    private static final class Input {
+        private final byte[] bytes;
+        private int position = 0;
+
+        Input(byte[] bytes) {
+            this.bytes = bytes;
+        }
+
+        int readByte() {
+            if (position >= bytes.length) {
+                throw new IllegalArgumentException("Truncated taxonomy snapshot");
+            }
+            return bytes[position++];
+        }
+
+        int readVarint() {
+            int value = 0;
+            for (int shift = 0; shift < 32; shift += 7) {
+                int b = readByte();
+                value |= (b & 0x7f) << shift;
+                if ((b & 0x80) == 0) {
+                    return value;
+                }
+            }
+            throw new IllegalArgumentException("Malformed varint in taxonomy snapshot");
+        }
+
+        int readSignedVarint() {
+            int value = readVarint();
+            return (value >>> 1) ^ -(value & 1);
+        }
+
+        String readUtf8(int length) {
+            if (length < 0 || position + length > bytes.length) {
+                throw new IllegalArgumentException("Truncated taxonomy snapshot");
+            }
+            String value = new String(bytes, position, length, StandardCharsets.UTF_8);
+            position += length;
+            return value;
+        }
+
+        boolean isAtEnd() {
+            return position == bytes.length;
+        }
+    }
+}
@@ -0,0 +1,131 @@
+package ccf.domain.standard;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import ccf.domain.standard.Taxonomy.TaxRow;
+
+// TaxonomySourceColumns is the row of the taxonomy_by_source_column view: every (dimension, column) of the
+// dimensionSrcHints of a taxonomy's rows, with the row it feeds. columnKeys holds the same pairs as flat
+// "dimension:column" strings, so the view can look up a pair with an indexed ANY() match.
+public record TaxonomySourceColumns(String taxonomyId, Boolean isPublished, List<SourceColumn> columns,
+        List<String> columnKeys) {
+
+    public record SourceColumn(String dimension, String column, String rowId) {
+    }
+
+    // One row fed by a source column, as returned to callers
+    public record SourceColumnRow(String taxonomyId, String rowId, Boolean isPublished) {
+    }
+
+    public record TaxonomySourceColumnsList(Collection<TaxonomySourceColumns> taxonomies) {
+    }
+
+    public static String columnKey(String dimension, String column) {
+        return dimension + ":" + column;
+    }
+
+    public static TaxonomySourceColumns empty(String taxonomyId) {
+        return new TaxonomySourceColumns(taxonomyId, false, List.of(), List.of());
+    }
+
+    // Rows of this taxonomy fed by column of dimension
+    public List<SourceColumnRow> rowsFor(String dimension, String column) {
+        return columns.stream()
+                .filter(c -> c.dimension().equals(dimension) && c.column().equals(column))
+                .map(c -> new SourceColumnRow(taxonomyId, c.rowId(), isPublished))
+                .toList();
+    }
+
+    public TaxonomySourceColumns onTaxonomyPublished(Boolean isPublished) {
+        return new TaxonomySourceColumns(taxonomyId, isPublished, columns, columnKeys);
+    }
+
+    public TaxonomySourceColumns onTaxRowAdded(TaxRow taxRow) {
+        List<SourceColumn> next = new ArrayList<>(columns);
+        addHints(next, taxRow.rowId(), taxRow.dimensionSrcHints());
+        return withColumns(next);
+    }
+
+    public TaxonomySourceColumns onTaxRowsAdded(Taxonomy.TaxRowsAdd taxRowsAdd) {
+        List<SourceColumn> next = Boolean.TRUE.equals(taxRowsAdd.isReplace()) ? new ArrayList<>() : new ArrayList<>(columns);
+        taxRowsAdd.taxRows().forEach(taxRow -> addHints(next, taxRow.rowId(), taxRow.dimensionSrcHints()));
+        return withColumns(next);
+    }
+
+    public TaxonomySourceColumns onTaxRowsRemoved(Collection<String> rowIds) {
+        Set<String> removed = Set.copyOf(rowIds);
+        return withColumns(columns.stream().filter(c -> !removed.contains(c.rowId())).toList());
+    }
+
+    // The row's hints are replaced as a whole, as in Taxonomy
+    public TaxonomySourceColumns onTaxRowUpdated(Taxonomy.TaxRowUpdate taxRowUpdate) {
+        List<SourceColumn> next = new ArrayList<>(
+                columns.stream().filter(c -> !c.rowId().equals(taxRowUpdate.rowId())).toList());
+        addHints(next, taxRowUpdate.rowId(), taxRowUpdate.row().dimensionSrcHints());
+        return withColumns(next);
+    }
+
+    public TaxonomySourceColumns onTaxRowsUpdated(Taxonomy.TaxRowsUpdate taxRowsUpdate) {
+        Map<String, Map<String, List<String>>> touched = new LinkedHashMap<>();
+        taxRowsUpdate.updates().forEach(update -> touched.put(update.rowId(), update.row().dimensionSrcHints()));
+        return withHints(touched);
+    }
+
+    // Rows added, updated or removed by the patch get their final hints (none when removed) in one pass over columns.
+    // Moves do not change hints.
+    public TaxonomySourceColumns onTaxonomyPatched(Taxonomy.TaxonomyPatch patch) {
+        Map<String, Map<String, List<String>>> touched = new LinkedHashMap<>();
+        for (Taxonomy.PatchOp op : patch.ops()) {
+            switch (op.op()) {
+                case "add" -> touched.put(op.row().rowId(), op.row().dimensionSrcHints());
+                case "update" -> touched.put(op.rowId(), op.updates().dimensionSrcHints());
+                case "remove" -> touched.put(op.rowId(), null);
+                default -> {
+                }
+            }
+        }
+        return withHints(touched);
+    }
+
+    // Replaces the hints of the touched rows, null hints drop the row
+    private TaxonomySourceColumns withHints(Map<String, Map<String, List<String>>> touched) {
+        if (touched.isEmpty()) {
+            return this;
+        }
+        List<SourceColumn> next = new ArrayList<>(
+                columns.stream().filter(c -> !touched.containsKey(c.rowId())).toList());
+        touched.forEach((rowId, hints) -> addHints(next, rowId, hints));
+        return withColumns(next);
+    }
+
+    public static TaxonomySourceColumns onTaxonomyRebased(String taxonomyId, TaxonomyEvent.TaxonomyRebased rebased) {
+        List<SourceColumn> columns = new ArrayList<>();
+        rebased.rows().toList().forEach(row -> addHints(columns, row.rowId(), row.dimensionSrcHints()));
+        return new TaxonomySourceColumns(taxonomyId, rebased.status() == TaxonomyStatus.TAXONOMY_PUBLISHED,
+                List.copyOf(columns), columnKeys(columns));
+    }
+
+    private TaxonomySourceColumns withColumns(List<SourceColumn> next) {
+        return new TaxonomySourceColumns(taxonomyId, isPublished, List.copyOf(next), columnKeys(next));
+    }
+
+    private static void addHints(List<SourceColumn> columns, String rowId, Map<String, List<String>> dimensionSrcHints) {
+        if (dimensionSrcHints == null) {
+            return;
+        }
+        dimensionSrcHints.forEach((dimension, sourceColumns) -> {
+            if (sourceColumns != null) {
+                sourceColumns.forEach(column -> columns.add(new SourceColumn(dimension, column, rowId)));
+            }
+        });
+    }
+
+    private static List<String> columnKeys(List<SourceColumn> columns) {
+        return columns.stream().map(c -> columnKey(c.dimension(), c.column())).distinct().toList();
+    }
+}
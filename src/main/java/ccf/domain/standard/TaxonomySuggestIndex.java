@@ -0,0 +1,106 @@
+package ccf.domain.standard;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+import ccf.domain.standard.Taxonomy.Row;
+import ccf.util.collection.PrefixTrie;
+
+// TaxonomySuggestIndex is the autocomplete index over the value, aliases and keywords of the rows of all published
+// taxonomies. Labels are keyed in a PrefixTrie by their lower-cased text and by the text from each later word, so
+// "adv" suggests "Advertising Revenue" and "rev" does too. Keys are capped at MAX_KEY_LENGTH characters and at
+// MAX_WORD_KEYS word starts per label, which bounds the memory used per label.
+// The suggestions of each taxonomy are kept so a taxonomy can be removed or replaced on its own.
+public final class TaxonomySuggestIndex {
+    public static final int MAX_KEY_LENGTH = 64;
+    public static final int MAX_WORD_KEYS = 4;
+
+    private static final List<String> FIELD_ORDER = List.of("value", "alias", "keyword");
+    private static final Comparator<TaxonomySuggestion> SUGGESTION_ORDER = Comparator
+            .<TaxonomySuggestion>comparingInt(s -> FIELD_ORDER.indexOf(s.field()))
+            .thenComparing(TaxonomySuggestion::label)
+            .thenComparing(TaxonomySuggestion::taxonomyId)
+            .thenComparing(TaxonomySuggestion::rowId);
+
+    private final PrefixTrie<TaxonomySuggestion> trie = new PrefixTrie<>();
+    private final Map<String, List<TaxonomySuggestion>> suggestionsByTaxonomy = new HashMap<>();
+    private final Map<String, Long> versions = new HashMap<>();
+
+    public synchronized int size() {
+        return trie.size();
+    }
+
+    public synchronized Map<String, Long> versions() {
+        return Map.copyOf(versions);
+    }
+
+    // Replaces the entries of a taxonomy with its current rows
+    public synchronized void index(String taxonomyId, long version, List<Row> rows) {
+        removeEntries(taxonomyId);
+        List<TaxonomySuggestion> suggestions = new ArrayList<>();
+        for (Row row : rows) {
+            suggestions.add(new TaxonomySuggestion(taxonomyId, row.rowId(), row.value(), "value"));
+            if (row.aliases() != null) {
+                row.aliases().forEach(alias -> suggestions.add(new TaxonomySuggestion(taxonomyId, row.rowId(), alias, "alias")));
+            }
+            if (row.keywords() != null) {
+                row.keywords().forEach(keyword -> suggestions.add(new TaxonomySuggestion(taxonomyId, row.rowId(), keyword, "keyword")));
+            }
+        }
+        suggestions.removeIf(suggestion -> suggestion.label() == null);
+        suggestions.forEach(suggestion -> keys(suggestion.label()).forEach(key -> trie.put(key, suggestion)));
+        suggestionsByTaxonomy.put(taxonomyId, suggestions);
+        versions.put(taxonomyId, version);
+    }
+
+    public synchronized void remove(String taxonomyId) {
+        removeEntries(taxonomyId);
+        versions.remove(taxonomyId);
+    }
+
+    // Top limit suggestions, shortest completions first, one per taxonomy row
+    public synchronized List<TaxonomySuggestion> suggest(String prefix, int limit) {
+        String key = normalize(prefix);
+        if (key.isEmpty()) {
+            return List.of();
+        }
+        Set<String> seenRows = new HashSet<>();
+        return trie.complete(key, limit, SUGGESTION_ORDER,
+                suggestion -> seenRows.add(suggestion.taxonomyId() + '\u001f' + suggestion.rowId()));
+    }
+
+    // The label's text from its start and from each later word start
+    private static List<String> keys(String label) {
+        String text = normalize(label);
+        List<String> keys = new ArrayList<>(2);
+        for (int i = 0; i < text.length() && keys.size() < MAX_WORD_KEYS; i++) {
+            boolean wordStart = i == 0 || (!Character.isLetterOrDigit(text.charAt(i - 1)) && Character.isLetterOrDigit(text.charAt(i)));
+            if (wordStart) {
+                keys.add(text.substring(i, Math.min(text.length(), i + MAX_KEY_LENGTH)));
+            }
+        }
+        return keys;
+    }
+
+    private void removeEntries(String taxonomyId) {
+        List<TaxonomySuggestion> suggestions = suggestionsByTaxonomy.remove(taxonomyId);
+        if (suggestions == null) {
+            return;
+        }
+        Set<String> keys = new HashSet<>();
+        suggestions.forEach(suggestion -> keys.addAll(keys(suggestion.label())));
+        for (String key : keys) {
+            trie.remove(key, suggestion -> suggestion.taxonomyId().equals(taxonomyId));
+        }
+    }
+
+    private static String normalize(String text) {
+        return text == null ? "" : text.trim().toLowerCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,5 @@
+package ccf.domain.standard;
+
+// field is the Row field the label comes from: value, alias or keyword
+public record TaxonomySuggestion(String taxonomyId, String rowId, String label, String field) {
+}
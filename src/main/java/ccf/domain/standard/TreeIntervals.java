@@ -0,0 +1,170 @@
+package ccf.domain.standard;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// TreeIntervals numbers the rows of a RowIndex in depth-first (Euler tour) order. Each row gets an enter
+// position and the position of the last row of its subtree, so a subtree is the contiguous range
+// [enter, exit] of the tour and "a is an ancestor of b" is an O(1) interval test.
+// Built once per RowIndex (see RowIndex.intervals()), the tree is immutable so the numbering never goes stale.
+public final class TreeIntervals {
+    private final String[] order;
+    private final int[] exit;
+    private final int[] depth;
+    private final int[] parent;
+    private final Map<String, Integer> enter;
+
+    private TreeIntervals(String[] order, int[] exit, int[] depth, int[] parent, Map<String, Integer> enter) {
+        this.order = order;
+        this.exit = exit;
+        this.depth = depth;
+        this.parent = parent;
+        this.enter = enter;
+    }
+
+    static TreeIntervals of(RowIndex rows) {
+        int size = rows.size();
+        String[] order = new String[size];
+        int[] exit = new int[size];
+        int[] depth = new int[size];
+        int[] parent = new int[size];
+        Map<String, Integer> enter = new HashMap<>(size * 2);
+
+        // Iterative DFS, the stack holds positions whose subtree is still open
+        int next = 0;
+        int[] stack = new int[size];
+        int[] childCursor = new int[size];
+        for (String root : rows.roots()) {
+            if (!rows.contains(root) || enter.containsKey(root)) {
+                continue;
+            }
+            int top = 0;
+            enter.put(root, next);
+            order[next] = root;
+            depth[next] = 0;
+            parent[next] = -1;
+            stack[top++] = next++;
+            while (top > 0) {
+                int current = stack[top - 1];
+                List<String> children = rows.children(order[current]);
+                if (childCursor[current] < children.size()) {
+                    String child = children.get(childCursor[current]++);
+                    if (!rows.contains(child) || enter.containsKey(child)) {
+                        continue;
+                    }
+                    enter.put(child, next);
+                    order[next] = child;
+                    depth[next] = depth[current] + 1;
+                    parent[next] = current;
+                    stack[top++] = next++;
+                } else {
+                    exit[current] = next - 1;
+                    top--;
+                }
+            }
+        }
+        if (next < size) {
+            // Rows unreachable from a root are left out, a shorter array keeps positions contiguous
+            order = Arrays.copyOf(order, next);
+        }
+        return new TreeIntervals(order, exit, depth, parent, enter);
+    }
+
+    // Tour positions, parents always come before their children
+    int size() {
+        return order.length;
+    }
+
+    int position(String rowId) {
+        Integer position = enter.get(rowId);
+        return position == null ? -1 : position;
+    }
+
+    String rowIdAt(int position) {
+        return order[position];
+    }
+
+    int parentAt(int position) {
+        return parent[position];
+    }
+
+    int depthAt(int position) {
+        return depth[position];
+    }
+
+    public boolean contains(String rowId) {
+        return enter.containsKey(rowId);
+    }
+
+    // True when ancestor is a proper ancestor of rowId
+    public boolean isAncestor(String ancestor, String rowId) {
+        Integer a = enter.get(ancestor);
+        Integer r = enter.get(rowId);
+        return a != null && r != null && a < r && r <= exit[a];
+    }
+
+    public int depth(String rowId) {
+        Integer position = enter.get(rowId);
+        return position == null ? -1 : depth[position];
+    }
+
+    public int subtreeSize(String rowId) {
+        Integer position = enter.get(rowId);
+        return position == null ? 0 : exit[position] - position + 1;
+    }
+
+    // rowId followed by its descendants in tree order, down to maxDepth levels below rowId (null for all)
+    public List<String> subtree(String rowId, Integer maxDepth) {
+        Integer position = enter.get(rowId);
+        if (position == null) {
+            return List.of();
+        }
+        int end = exit[position];
+        if (maxDepth == null) {
+            return Collections.unmodifiableList(Arrays.asList(order).subList(position, end + 1));
+        }
+        int depthLimit = depth[position] + maxDepth;
+        List<String> slice = new ArrayList<>();
+        for (int i = position; i <= end; i++) {
+            if (depth[i] <= depthLimit) {
+                slice.add(order[i]);
+            } else {
+                // Skip the whole subtree below the depth limit
+                i = exit[i];
+            }
+        }
+        return slice;
+    }
+
+    // Up to limit rowIds following after in tree order, from the first row when after is null.
+    // Empty when after is not in the tour.
+    public List<String> after(String after, int limit) {
+        int from = 0;
+        if (after != null) {
+            Integer position = enter.get(after);
+            if (position == null) {
+                return List.of();
+            }
+            from = position + 1;
+        }
+        int to = (int) Math.min((long) from + limit, order.length);
+        return from >= to ? List.of() : Collections.unmodifiableList(Arrays.asList(order).subList(from, to));
+    }
+
+    // Ancestors of rowId from the root down to its parent
+    public List<String> ancestors(String rowId) {
+        Integer position = enter.get(rowId);
+        if (position == null) {
+            return List.of();
+        }
+        String[] path = new String[depth[position]];
+        for (int p = parent[position], i = path.length - 1; p >= 0; p = parent[p], i--) {
+            path[i] = order[p];
+        }
+        return List.of(path);
+    }
+}
@@ -0,0 +1,216 @@
+package ccf.domain.standard;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+import ccf.domain.standard.Taxonomy.Row;
+import ccf.domain.standard.Taxonomy.RowMatch;
+
+// TrigramIndex scores free-text labels against the value, aliases and keywords of the rows of a taxonomy by
+// trigram similarity (shared / (query + label - shared) distinct trigrams, as in pg_trgm). Trigrams are packed
+// into longs and map to posting arrays of label numbers, so a query only touches labels sharing a trigram.
+// It is immutable and built once per compiled taxonomy (see CompiledTaxonomy.trigrams()), match() is safe to
+// call in parallel.
+public final class TrigramIndex {
+    private static final long[] NO_GRAMS = new long[0];
+
+    private final String[] rowIds;
+    private final int[] rowNumbers;
+    private final int rowCount;
+    private final String[] values;
+    private final String[] texts;
+    private final String[] fields;
+    private final int[] gramCounts;
+    private final Map<Long, int[]> postings;
+
+    private TrigramIndex(String[] rowIds, String[] values, String[] texts, String[] fields, int[] gramCounts,
+            Map<Long, int[]> postings) {
+        this.rowIds = rowIds;
+        this.values = values;
+        // Labels of a row are adjacent, number the rows in label order
+        this.rowNumbers = new int[rowIds.length];
+        int row = -1;
+        for (int label = 0; label < rowIds.length; label++) {
+            if (label == 0 || !rowIds[label].equals(rowIds[label - 1])) {
+                row++;
+            }
+            rowNumbers[label] = row;
+        }
+        this.rowCount = row + 1;
+        this.texts = texts;
+        this.fields = fields;
+        this.gramCounts = gramCounts;
+        this.postings = postings;
+    }
+
+    // rows in tree order
+    static TrigramIndex of(List<Row> rows) {
+        List<String> rowIds = new ArrayList<>();
+        List<String> values = new ArrayList<>();
+        List<String> texts = new ArrayList<>();
+        List<String> fields = new ArrayList<>();
+        for (Row row : rows) {
+            addLabel(rowIds, values, texts, fields, row, row.value(), "value");
+            if (row.aliases() != null) {
+                row.aliases().forEach(alias -> addLabel(rowIds, values, texts, fields, row, alias, "alias"));
+            }
+            if (row.keywords() != null) {
+                row.keywords().forEach(keyword -> addLabel(rowIds, values, texts, fields, row, keyword, "keyword"));
+            }
+        }
+
+        int[] gramCounts = new int[texts.size()];
+        Map<Long, int[]> sizes = new HashMap<>();
+        long[][] labelGrams = new long[texts.size()][];
+        for (int label = 0; label < labelGrams.length; label++) {
+            labelGrams[label] = trigrams(texts.get(label));
+            gramCounts[label] = labelGrams[label].length;
+            for (long gram : labelGrams[label]) {
+                sizes.computeIfAbsent(gram, g -> new int[1])[0]++;
+            }
+        }
+        // Exact-size posting arrays, filled in label order
+        Map<Long, int[]> postings = new HashMap<>(sizes.size() * 2);
+        sizes.forEach((gram, size) -> postings.put(gram, new int[size[0]]));
+        Map<Long, int[]> fill = new HashMap<>(sizes.size() * 2);
+        for (int label = 0; label < labelGrams.length; label++) {
+            for (long gram : labelGrams[label]) {
+                int[] next = fill.computeIfAbsent(gram, g -> new int[1]);
+                postings.get(gram)[next[0]++] = label;
+            }
+        }
+        return new TrigramIndex(rowIds.toArray(String[]::new), values.toArray(String[]::new),
+                texts.toArray(String[]::new), fields.toArray(String[]::new), gramCounts, postings);
+    }
+
+    private static void addLabel(List<String> rowIds, List<String> values, List<String> texts, List<String> fields,
+            Row row, String text, String field) {
+        if (text != null && !text.isBlank()) {
+            rowIds.add(row.rowId());
+            values.add(row.value());
+            texts.add(text);
+            fields.add(field);
+        }
+    }
+
+    // Best rows for label, one match per row (its best scoring text), at most limit with score >= minScore
+    public List<RowMatch> match(String label, int limit, double minScore) {
+        long[] queryGrams = trigrams(label);
+        if (queryGrams.length == 0) {
+            return List.of();
+        }
+        int[] shared = new int[texts.length];
+        int[] touched = new int[Math.min(texts.length, 1024)];
+        int touchedCount = 0;
+        for (long gram : queryGrams) {
+            int[] posting = postings.get(gram);
+            if (posting == null) {
+                continue;
+            }
+            for (int labelNumber : posting) {
+                if (shared[labelNumber]++ == 0) {
+                    if (touchedCount == touched.length) {
+                        touched = Arrays.copyOf(touched, touched.length * 2);
+                    }
+                    touched[touchedCount++] = labelNumber;
+                }
+            }
+        }
+
+        // Best label per row, rows are numbered so no string hashing is needed per candidate
+        double[] bestScore = new double[rowCount];
+        int[] bestLabel = new int[rowCount];
+        int[] candidates = new int[Math.min(rowCount, 256)];
+        int candidateCount = 0;
+        for (int i = 0; i < touchedCount; i++) {
+            int labelNumber = touched[i];
+            int common = shared[labelNumber];
+            double score = (double) common / (queryGrams.length + gramCounts[labelNumber] - common);
+            if (score < minScore) {
+                continue;
+            }
+            int row = rowNumbers[labelNumber];
+            if (bestScore[row] == 0) {
+                if (candidateCount == candidates.length) {
+                    candidates = Arrays.copyOf(candidates, candidates.length * 2);
+                }
+                candidates[candidateCount++] = row;
+            }
+            if (score > bestScore[row]) {
+                bestScore[row] = score;
+                bestLabel[row] = labelNumber;
+            }
+        }
+
+        // Top limit rows, the heap's head is the weakest kept row
+        Comparator<Integer> ranking = Comparator.<Integer>comparingDouble(row -> bestScore[row])
+                .thenComparing(row -> rowIds[bestLabel[row]], Comparator.reverseOrder());
+        PriorityQueue<Integer> best = new PriorityQueue<>(limit + 1, ranking);
+        for (int i = 0; i < candidateCount; i++) {
+            int row = candidates[i];
+            if (best.size() < limit) {
+                best.add(row);
+            } else if (ranking.compare(row, best.peek()) > 0) {
+                best.poll();
+                best.add(row);
+            }
+        }
+        RowMatch[] matches = new RowMatch[best.size()];
+        for (int i = matches.length - 1; i >= 0; i--) {
+            int row = best.poll();
+            int labelNumber = bestLabel[row];
+            matches[i] = new RowMatch(rowIds[labelNumber], values[labelNumber], texts[labelNumber], fields[labelNumber],
+                    bestScore[row]);
+        }
+        return List.of(matches);
+    }
+
+    // Distinct trigrams of each word padded as "  word ", three 16 bit chars packed per long
+    static long[] trigrams(String text) {
+        if (text == null) {
+            return NO_GRAMS;
+        }
+        String normalized = text.toLowerCase(Locale.ROOT);
+        long[] grams = new long[normalized.length() * 2 + 4];
+        int count = 0;
+        int i = 0;
+        while (i < normalized.length()) {
+            while (i < normalized.length() && !Character.isLetterOrDigit(normalized.charAt(i))) {
+                i++;
+            }
+            int start = i;
+            while (i < normalized.length() && Character.isLetterOrDigit(normalized.charAt(i))) {
+                i++;
+            }
+            if (start == i) {
+                break;
+            }
+            char a = ' ';
+            char b = ' ';
+            for (int j = start; j <= i; j++) {
+                char c = j < i ? normalized.charAt(j) : ' ';
+                if (count == grams.length) {
+                    grams = Arrays.copyOf(grams, grams.length * 2);
+                }
+                grams[count++] = ((long) a << 32) | ((long) b << 16) | c;
+                a = b;
+                b = c;
+            }
+        }
+        long[] distinct = Arrays.copyOf(grams, count);
+        Arrays.sort(distinct);
+        int unique = 0;
+        for (int j = 0; j < distinct.length; j++) {
+            if (j == 0 || distinct[j] != distinct[j - 1]) {
+                distinct[unique++] = distinct[j];
+            }
+        }
+        return Arrays.copyOf(distinct, unique);
+    }
+}
@@ -0,0 +1,157 @@
+package ccf.util.collection;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Objects;
+import java.util.RandomAccess;
+
+// PersistentVector is an immutable list stored as a 32-way trie with the last (up to 32) elements kept in a tail
+// array. plus appends in O(log32 n) by copying only the tail or the path to it, older versions stay valid and safe
+// to share. without rebuilds the vector, O(n). Elements must not be null.
+// It is a read-only java.util.List, equal to any other List with the same elements.
+public final class PersistentVector<E> extends AbstractList<E> implements RandomAccess {
+    private static final int BITS = 5;
+    private static final int WIDTH = 1 << BITS;
+    private static final int MASK = WIDTH - 1;
+    private static final PersistentVector<?> EMPTY =
+            new PersistentVector<>(0, BITS, new Object[WIDTH], new Object[0]);
+
+    private final int size;
+    private final int shift;
+    private final Object[] root;
+    private final Object[] tail;
+
+    private PersistentVector(int size, int shift, Object[] root, Object[] tail) {
+        this.size = size;
+        this.shift = shift;
+        this.root = root;
+        this.tail = tail;
+    }
+
+    @SuppressWarnings("unchecked")
+    public static <E> PersistentVector<E> empty() {
+        return (PersistentVector<E>) EMPTY;
+    }
+
+    // The elements as a vector, the list itself when it already is one
+    @SuppressWarnings("unchecked")
+    public static <E> PersistentVector<E> of(Collection<? extends E> elements) {
+        if (elements instanceof PersistentVector<?> vector) {
+            return (PersistentVector<E>) vector;
+        }
+        PersistentVector<E> vector = empty();
+        return vector.plusAll(elements);
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public E get(int index) {
+        Objects.checkIndex(index, size);
+        return (E) leafFor(index)[index & MASK];
+    }
+
+    public PersistentVector<E> plus(E element) {
+        Objects.requireNonNull(element, "element");
+        int tailSize = size - tailOffset();
+        if (tailSize < WIDTH) {
+            Object[] newTail = Arrays.copyOf(tail, tailSize + 1);
+            newTail[tailSize] = element;
+            return new PersistentVector<>(size + 1, shift, root, newTail);
+        }
+        // The tail is full, it moves into the trie and a new tail is started
+        Object[] newRoot;
+        int newShift = shift;
+        if ((size >>> BITS) > (1 << shift)) {
+            newRoot = new Object[WIDTH];
+            newRoot[0] = root;
+            newRoot[1] = newPath(shift, tail);
+            newShift += BITS;
+        } else {
+            newRoot = pushTail(shift, root, tail);
+        }
+        return new PersistentVector<>(size + 1, newShift, newRoot, new Object[] {element});
+    }
+
+    // Appends every element, the tail array is filled in place until it is full instead of copied per element
+    public PersistentVector<E> plusAll(Collection<? extends E> elements) {
+        PersistentVector<E> vector = this;
+        Object[] chunk = null;
+        int filled = 0;
+        for (E element : elements) {
+            Objects.requireNonNull(element, "element");
+            if (chunk == null) {
+                int tailSize = vector.size - vector.tailOffset();
+                if (tailSize == WIDTH) {
+                    // Push the full tail with the first element of the next one
+                    vector = vector.plus(element);
+                    continue;
+                }
+                chunk = Arrays.copyOf(vector.tail, WIDTH);
+                filled = tailSize;
+            }
+            chunk[filled++] = element;
+            if (filled == WIDTH) {
+                vector = new PersistentVector<>(vector.tailOffset() + WIDTH, vector.shift, vector.root, chunk);
+                chunk = null;
+            }
+        }
+        if (chunk != null) {
+            vector = new PersistentVector<>(vector.tailOffset() + filled, vector.shift, vector.root,
+                    Arrays.copyOf(chunk, filled));
+        }
+        return vector;
+    }
+
+    // The vector without the first occurrence of element, this vector when it is not present
+    public PersistentVector<E> without(Object element) {
+        int index = indexOf(element);
+        if (index < 0) {
+            return this;
+        }
+        PersistentVector<E> vector = empty();
+        vector = vector.plusAll(subList(0, index));
+        return vector.plusAll(subList(index + 1, size));
+    }
+
+    private int tailOffset() {
+        return size < WIDTH ? 0 : ((size - 1) >>> BITS) << BITS;
+    }
+
+    private Object[] leafFor(int index) {
+        if (index >= tailOffset()) {
+            return tail;
+        }
+        Object[] node = root;
+        for (int level = shift; level > 0; level -= BITS) {
+            node = (Object[]) node[(index >>> level) & MASK];
+        }
+        return node;
+    }
+
+    private Object[] pushTail(int level, Object[] parent, Object[] tailNode) {
+        int subidx = ((size - 1) >>> level) & MASK;
+        Object[] node = parent.clone();
+        if (level == BITS) {
+            node[subidx] = tailNode;
+        } else {
+            Object[] child = (Object[]) parent[subidx];
+            node[subidx] = child != null ? pushTail(level - BITS, child, tailNode) : newPath(level - BITS, tailNode);
+        }
+        return node;
+    }
+
+    private static Object[] newPath(int level, Object[] node) {
+        if (level == 0) {
+            return node;
+        }
+        Object[] path = new Object[WIDTH];
+        path[0] = newPath(level - BITS, node);
+        return path;
+    }
+}
@@ -0,0 +1,217 @@
+package ccf.util.collection;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.function.Predicate;
+
+// PrefixTrie is a compressed (radix) trie from string keys to values. Each edge carries a run of characters
+// and a node only exists where keys branch or end, so memory grows with the number of distinct keys rather than
+// their total length. complete() returns values in order of key length, shortest completions first.
+// Not thread safe, callers synchronize.
+public final class PrefixTrie<V> {
+    private final Node<V> root = new Node<>("");
+    private int size = 0;
+
+    private static final char[] NO_CHARS = new char[0];
+    private static final Node<?>[] NO_CHILDREN = new Node<?>[0];
+
+    private static final class Node<V> {
+        String edge;
+        char[] firstChars = NO_CHARS;
+        Node<V>[] children = newChildren(0);
+        List<V> values;
+
+        Node(String edge) {
+            this.edge = edge;
+        }
+
+        int indexOf(char c) {
+            return Arrays.binarySearch(firstChars, c);
+        }
+
+        Node<V> child(char c) {
+            int i = indexOf(c);
+            return i < 0 ? null : children[i];
+        }
+
+        void putChild(Node<V> child) {
+            char c = child.edge.charAt(0);
+            int i = indexOf(c);
+            if (i >= 0) {
+                children[i] = child;
+                return;
+            }
+            int at = -i - 1;
+            char[] chars = new char[firstChars.length + 1];
+            Node<V>[] nodes = newChildren(children.length + 1);
+            System.arraycopy(firstChars, 0, chars, 0, at);
+            System.arraycopy(children, 0, nodes, 0, at);
+            chars[at] = c;
+            nodes[at] = child;
+            System.arraycopy(firstChars, at, chars, at + 1, firstChars.length - at);
+            System.arraycopy(children, at, nodes, at + 1, children.length - at);
+            firstChars = chars;
+            children = nodes;
+        }
+
+        void removeChild(char c) {
+            int i = indexOf(c);
+            if (i < 0) {
+                return;
+            }
+            char[] chars = new char[firstChars.length - 1];
+            Node<V>[] nodes = newChildren(children.length - 1);
+            System.arraycopy(firstChars, 0, chars, 0, i);
+            System.arraycopy(children, 0, nodes, 0, i);
+            System.arraycopy(firstChars, i + 1, chars, i, firstChars.length - i - 1);
+            System.arraycopy(children, i + 1, nodes, i, children.length - i - 1);
+            firstChars = chars;
+            children = nodes;
+        }
+
+        @SuppressWarnings("unchecked")
+        private static <V> Node<V>[] newChildren(int size) {
+            return (Node<V>[]) (size == 0 ? NO_CHILDREN : new Node[size]);
+        }
+    }
+
+    // Number of key/value pairs
+    public int size() {
+        return size;
+    }
+
+    public void put(String key, V value) {
+        Node<V> node = root;
+        int pos = 0;
+        while (pos < key.length()) {
+            Node<V> child = node.child(key.charAt(pos));
+            if (child == null) {
+                Node<V> leaf = new Node<>(key.substring(pos));
+                node.putChild(leaf);
+                node = leaf;
+                pos = key.length();
+                break;
+            }
+            int common = commonPrefix(child.edge, key, pos);
+            if (common < child.edge.length()) {
+                // Split the edge where the key diverges
+                Node<V> split = new Node<>(child.edge.substring(0, common));
+                child.edge = child.edge.substring(common);
+                split.putChild(child);
+                node.putChild(split);
+                child = split;
+            }
+            node = child;
+            pos += common;
+        }
+        if (node.values == null) {
+            node.values = new ArrayList<>(1);
+        }
+        node.values.add(value);
+        size++;
+    }
+
+    // Removes the values of key matching the predicate and prunes nodes left empty
+    public void remove(String key, Predicate<V> matches) {
+        List<Node<V>> path = new ArrayList<>();
+        Node<V> node = root;
+        int pos = 0;
+        path.add(node);
+        while (pos < key.length()) {
+            node = node.child(key.charAt(pos));
+            if (node == null || !key.startsWith(node.edge, pos)) {
+                return;
+            }
+            pos += node.edge.length();
+            path.add(node);
+        }
+        if (node.values == null) {
+            return;
+        }
+        int before = node.values.size();
+        node.values.removeIf(matches);
+        size -= before - node.values.size();
+        if (!node.values.isEmpty()) {
+            return;
+        }
+        node.values = null;
+        for (int i = path.size() - 1; i > 0; i--) {
+            Node<V> current = path.get(i);
+            Node<V> parent = path.get(i - 1);
+            if (current.values != null) {
+                break;
+            }
+            if (current.children.length == 0) {
+                parent.removeChild(current.edge.charAt(0));
+            } else if (current.children.length == 1) {
+                // Merge a pass-through node into its only child
+                Node<V> only = current.children[0];
+                only.edge = current.edge + only.edge;
+                parent.putChild(only);
+                break;
+            } else {
+                break;
+            }
+        }
+    }
+
+    // Up to limit values whose key starts with prefix, shortest keys first and ordered by valueOrder within a key.
+    // accept filters values, e.g. to skip duplicates, and is only asked until limit values are accepted.
+    public List<V> complete(String prefix, int limit, Comparator<V> valueOrder, Predicate<V> accept) {
+        List<V> result = new ArrayList<>();
+        Node<V> node = root;
+        int pos = 0;
+        int depth = 0;
+        while (pos < prefix.length()) {
+            node = node.child(prefix.charAt(pos));
+            if (node == null) {
+                return result;
+            }
+            int common = commonPrefix(node.edge, prefix, pos);
+            if (common < node.edge.length() && pos + common < prefix.length()) {
+                return result;
+            }
+            pos += common;
+            depth += node.edge.length();
+        }
+
+        // Best-first over key length, so values of shorter keys come out first
+        record Entry<V>(Node<V> node, int depth, long order) {
+        }
+        PriorityQueue<Entry<V>> queue = new PriorityQueue<>(
+                Comparator.<Entry<V>>comparingInt(Entry::depth).thenComparingLong(Entry::order));
+        long order = 0;
+        queue.add(new Entry<>(node, depth, order++));
+        while (!queue.isEmpty() && result.size() < limit) {
+            Entry<V> entry = queue.poll();
+            if (entry.node().values != null) {
+                List<V> values = new ArrayList<>(entry.node().values);
+                values.sort(valueOrder);
+                for (V value : values) {
+                    if (result.size() >= limit) {
+                        break;
+                    }
+                    if (accept.test(value)) {
+                        result.add(value);
+                    }
+                }
+            }
+            for (Node<V> child : entry.node().children) {
+                queue.add(new Entry<>(child, entry.depth() + child.edge.length(), order++));
+            }
+        }
+        return result;
+    }
+
+    private static int commonPrefix(String edge, String key, int pos) {
+        int max = Math.min(edge.length(), key.length() - pos);
+        int i = 0;
+        while (i < max && edge.charAt(i) == key.charAt(pos + i)) {
+            i++;
+        }
+        return i;
+    }
+}
@@ -0,0 +1,53 @@
+package ccf.util.collection;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.ToLongFunction;
+
+// WeightedLruCache is an LRU map bounded by the total weight of its values rather than their count, for caches of
+// values as different in size as a 10 row and a 1M row taxonomy. Once a put takes the total over maxWeight the
+// least recently used entries are evicted, never the one just put, so a single value heavier than maxWeight is
+// still cached until the next put.
+// Not thread safe, callers synchronize.
+public final class WeightedLruCache<K, V> {
+    private final long maxWeight;
+    private final ToLongFunction<V> weigher;
+    private final LinkedHashMap<K, V> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long weight = 0;
+
+    public WeightedLruCache(long maxWeight, ToLongFunction<V> weigher) {
+        this.maxWeight = maxWeight;
+        this.weigher = weigher;
+    }
+
+    // The value of key, marked as most recently used
+    public V get(K key) {
+        return entries.get(key);
+    }
+
+    public void put(K key, V value) {
+        V previous = entries.put(key, value);
+        if (previous != null) {
+            weight -= weigher.applyAsLong(previous);
+        }
+        weight += weigher.applyAsLong(value);
+        Iterator<Map.Entry<K, V>> eldest = entries.entrySet().iterator();
+        while (weight > maxWeight && entries.size() > 1 && eldest.hasNext()) {
+            var evicted = eldest.next();
+            if (evicted.getKey().equals(key)) {
+                continue;
+            }
+            weight -= weigher.applyAsLong(evicted.getValue());
+            eldest.remove();
+        }
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    public long weight() {
+        return weight;
+    }
+}
@@ -0,0 +1,82 @@
+package ccf.util.serializer;
+
+import ccf.domain.standard.CompiledTaxonomy;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.JsonSerializer;
+import com.fasterxml.jackson.databind.SerializerProvider;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Objects;
+
+// Writes a CompiledTaxonomy in the JSON shape of Taxonomy.TaxonomyDetails, reading the rows straight from its
+// arrays instead of building Row records
+public class CompiledTaxonomySerializer extends JsonSerializer<CompiledTaxonomy> {
+
+    @Override
+    public void serialize(CompiledTaxonomy value, JsonGenerator gen, SerializerProvider serializers) throws IOException {
+        gen.writeStartObject();
+        gen.writeStringField("id", value.id());
+        gen.writeStringField("name", value.name());
+        gen.writeStringField("description", value.description());
+        gen.writeFieldName("version");
+        serializers.defaultSerializeValue(value.version(), gen);
+        gen.writeFieldName("status");
+        serializers.defaultSerializeValue(value.status(), gen);
+        gen.writeArrayFieldStart("rows");
+        for (int o = 0; o < value.size(); o++) {
+            writeRow(value, o, gen);
+        }
+        gen.writeEndArray();
+        gen.writeEndObject();
+    }
+
+    private static void writeRow(CompiledTaxonomy value, int o, JsonGenerator gen) throws IOException {
+        gen.writeStartObject();
+        gen.writeStringField("rowId", value.rowId(o));
+        gen.writeStringField("value", value.value(o));
+        gen.writeStringField("description", value.description(o));
+        writeStrings(gen, "aliases", value.aliases(o));
+        writeStrings(gen, "keywords", value.keywords(o));
+        int hints = value.hintCount(o);
+        if (hints < 0) {
+            gen.writeNullField("dimensionSrcHints");
+        } else {
+            gen.writeObjectFieldStart("dimensionSrcHints");
+            String dimension = null;
+            for (int i = 0; i < hints; i++) {
+                if (i == 0 || !Objects.equals(dimension, value.hintDimension(o, i))) {
+                    if (i > 0) {
+                        gen.writeEndArray();
+                    }
+                    dimension = value.hintDimension(o, i);
+                    gen.writeArrayFieldStart(String.valueOf(dimension));
+                }
+                String column = value.hintColumn(o, i);
+                if (column != null) {
+                    gen.writeString(column);
+                }
+            }
+            if (hints > 0) {
+                gen.writeEndArray();
+            }
+            gen.writeEndObject();
+        }
+        gen.writeStringField("parent", value.parentId(o));
+        writeStrings(gen, "children", value.children(o));
+        gen.writeStringField("formula", value.formula(o));
+        gen.writeEndObject();
+    }
+
+    private static void writeStrings(JsonGenerator gen, String field, List<String> strings) throws IOException {
+        if (strings == null) {
+            gen.writeNullField(field);
+            return;
+        }
+        gen.writeArrayFieldStart(field);
+        for (String s : strings) {
+            gen.writeString(s);
+        }
+        gen.writeEndArray();
+    }
+}
@@ -0,0 +1,38 @@
+package ccf.util.serializer;
+
+import ccf.domain.standard.RowIndex;
+import ccf.domain.standard.Taxonomy;
+import ccf.domain.standard.TaxonomySnapshotCodec;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.JsonDeserializer;
+import com.fasterxml.jackson.databind.JsonMappingException;
+
+import java.io.IOException;
+import java.util.List;
+
+// Reads a RowIndex from its compact TaxonomySnapshotCodec encoding, or from the list of rows
+// written by earlier versions so existing snapshots still recover
+public class RowIndexSnapshotDeserializer extends JsonDeserializer<RowIndex> {
+
+    @Override
+    public RowIndex deserialize(JsonParser p, DeserializationContext ctxt) throws IOException {
+        if (p.currentToken() == JsonToken.START_ARRAY) {
+            List<Taxonomy.Row> rows = p.readValueAs(new TypeReference<List<Taxonomy.Row>>() {
+            });
+            return RowIndex.of(rows);
+        }
+        try {
+            return TaxonomySnapshotCodec.decode(p.getBinaryValue());
+        } catch (IllegalArgumentException e) {
+            throw JsonMappingException.from(p, "Invalid taxonomy rows snapshot: " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public RowIndex getNullValue(DeserializationContext ctxt) {
+        return RowIndex.empty();
+    }
+}
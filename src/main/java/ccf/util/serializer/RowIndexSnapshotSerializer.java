@@ -0,0 +1,18 @@
+package ccf.util.serializer;
+
+import ccf.domain.standard.RowIndex;
+import ccf.domain.standard.TaxonomySnapshotCodec;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.JsonSerializer;
+import com.fasterxml.jackson.databind.SerializerProvider;
+
+import java.io.IOException;
+
+// Writes a RowIndex as its compact TaxonomySnapshotCodec encoding (base64 in JSON)
+public class RowIndexSnapshotSerializer extends JsonSerializer<RowIndex> {
+
+    @Override
+    public void serialize(RowIndex value, JsonGenerator gen, SerializerProvider serializers) throws IOException {
+        gen.writeBinary(TaxonomySnapshotCodec.encode(value));
+    }
+}
@@ -0,0 +1,75 @@
+package ccf.api;
+
+import akka.http.javadsl.model.HttpHeader;
+import akka.http.javadsl.model.StatusCodes;
+import akka.javasdk.http.StrictResponse;
+import akka.javasdk.testkit.TestKitSupport;
+import akka.util.ByteString;
+import ccf.application.TaxonomyEntity;
+import ccf.domain.standard.Taxonomy;
+import ccf.domain.standard.TaxonomyVersion;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static ccf.domain.standard.TaxonomyFixtures.taxRow;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+
+// Conditional GET of /taxonomy/{taxonomyId} against the entities in the test runtime
+public class TaxonomyEndpointIntegrationTest extends TestKitSupport {
+
+    private void createTaxonomy(String taxonomyId, Taxonomy.TaxRow... rows) {
+        var entity = componentClient.forEventSourcedEntity(taxonomyId);
+        entity.method(TaxonomyEntity::createTaxonomy)
+                .invoke(new Taxonomy.TaxonomyCreate("Standard", null, new TaxonomyVersion(1, 0)));
+        entity.method(TaxonomyEntity::addTaxRows).invoke(new Taxonomy.TaxRowsAdd(List.of(rows), false));
+    }
+
+    private StrictResponse<ByteString> get(String taxonomyId, String ifNoneMatch) {
+        var request = httpClient.GET("/taxonomy/" + taxonomyId);
+        return ifNoneMatch == null ? request.invoke() : request.addHeader("If-None-Match", ifNoneMatch).invoke();
+    }
+
+    private static String etag(StrictResponse<ByteString> response) {
+        return response.httpResponse().getHeader("ETag").map(HttpHeader::value).orElseThrow();
+    }
+
+    @Test
+    public void aMatchingIfNoneMatchIsAnsweredNotModified() {
+        createTaxonomy("etag-match", taxRow("revenue", null));
+        var full = get("etag-match", null);
+        assertEquals(StatusCodes.OK, full.status());
+        String etag = etag(full);
+
+        var notModified = get("etag-match", etag);
+        assertEquals(StatusCodes.NOT_MODIFIED, notModified.status());
+        assertEquals(etag, etag(notModified));
+        assertEquals(0, notModified.body().size());
+
+        assertEquals(StatusCodes.NOT_MODIFIED, get("etag-match", "\"other\", W/" + etag).status());
+        assertEquals(StatusCodes.NOT_MODIFIED, get("etag-match", "*").status());
+        assertEquals(StatusCodes.OK, get("etag-match", "\"other\"").status());
+    }
+
+    @Test
+    public void anEditOrAPublishChangesTheETag() {
+        createTaxonomy("etag-edit", taxRow("revenue", null));
+        String before = etag(get("etag-edit", null));
+
+        componentClient.forEventSourcedEntity("etag-edit")
+                .method(TaxonomyEntity::addTaxRows)
+                .invoke(new Taxonomy.TaxRowsAdd(List.of(taxRow("ads", "revenue")), false));
+        var edited = get("etag-edit", before);
+        assertEquals(StatusCodes.OK, edited.status());
+        String afterEdit = etag(edited);
+        assertNotEquals(before, afterEdit);
+
+        componentClient.forEventSourcedEntity("etag-edit")
+                .method(TaxonomyEntity::publishTaxonomy)
+                .invoke(true);
+        var published = get("etag-edit", afterEdit);
+        assertEquals(StatusCodes.OK, published.status());
+        assertEquals(StatusCodes.NOT_MODIFIED, get("etag-edit", etag(published)).status());
+    }
+}
@@ -0,0 +1,304 @@
+package ccf.application;
+
+import akka.javasdk.testkit.EventSourcedTestKit;
+import ccf.domain.standard.Taxonomy;
+import ccf.domain.standard.TaxonomyEvent;
+import ccf.domain.standard.TaxonomyStatus;
+import ccf.domain.standard.TaxonomyVersion;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static ccf.domain.standard.TaxonomyFixtures.taxRow;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class TaxonomyEntityTest {
+
+    private static EventSourcedTestKit<Taxonomy, TaxonomyEvent, TaxonomyEntity> created() {
+        var testKit = EventSourcedTestKit.of(TaxonomyEntity::new);
+        testKit.method(TaxonomyEntity::createTaxonomy)
+                .invoke(new Taxonomy.TaxonomyCreate("Standard", null, new TaxonomyVersion(1, 0)));
+        return testKit;
+    }
+
+    // A resumed import sends the chunk at its cursor again when the previous attempt was applied but the cursor
+    // was not yet moved past it
+    @Test
+    public void aRedeliveredImportChunkIsAppliedOnce() {
+        var testKit = created();
+        var chunk = new Taxonomy.TaxRowsImport("import-1", 0,
+                new Taxonomy.TaxRowsAdd(List.of(taxRow("revenue", null), taxRow("ads", "revenue")), false));
+
+        var first = testKit.method(TaxonomyEntity::importTaxRows).invoke(chunk);
+        assertInstanceOf(TaxonomyEntity.TaxonomyResult.Success.class, first.getReply());
+        assertTrue(first.didPersistEvents());
+
+        var redelivered = testKit.method(TaxonomyEntity::importTaxRows).invoke(chunk);
+        assertInstanceOf(TaxonomyEntity.TaxonomyResult.Success.class, redelivered.getReply());
+        assertFalse(redelivered.didPersistEvents());
+        assertEquals(2, testKit.getState().rows().size());
+    }
+
+    @Test
+    public void theSameRowsOfAnotherImportAreRejected() {
+        var testKit = created();
+        var rows = new Taxonomy.TaxRowsAdd(List.of(taxRow("revenue", null)), false);
+        testKit.method(TaxonomyEntity::importTaxRows).invoke(new Taxonomy.TaxRowsImport("import-1", 0, rows));
+
+        var result = testKit.method(TaxonomyEntity::importTaxRows)
+                .invoke(new Taxonomy.TaxRowsImport("import-2", 0, rows));
+        assertInstanceOf(TaxonomyEntity.TaxonomyResult.IncorrectAdd.class, result.getReply());
+        assertFalse(result.didPersistEvents());
+    }
+
+    // Outside an import nothing is inferred from the rows, adding rows that already exist is an error
+    @Test
+    public void addingTheSameRowsTwiceIsRejected() {
+        var testKit = created();
+        var rows = new Taxonomy.TaxRowsAdd(List.of(taxRow("revenue", null)), false);
+        testKit.method(TaxonomyEntity::addTaxRows).invoke(rows);
+
+        var result = testKit.method(TaxonomyEntity::addTaxRows).invoke(rows);
+        assertInstanceOf(TaxonomyEntity.TaxonomyResult.IncorrectAdd.class, result.getReply());
+        assertFalse(result.didPersistEvents());
+        assertEquals("REVENUE", testKit.getState().rows().get("revenue").orElseThrow().value());
+    }
+
+    @Test
+    public void laterChunksSeeTheParentsOfEarlierOnes() {
+        var testKit = created();
+        testKit.method(TaxonomyEntity::addTaxRows)
+                .invoke(new Taxonomy.TaxRowsAdd(List.of(taxRow("revenue", null)), false));
+        var result = testKit.method(TaxonomyEntity::addTaxRows)
+                .invoke(new Taxonomy.TaxRowsAdd(List.of(taxRow("ads", "revenue"), taxRow("display", "ads")), false));
+
+        assertInstanceOf(TaxonomyEntity.TaxonomyResult.Success.class, result.getReply());
+        assertEquals(List.of("ads"), testKit.getState().rows().children("revenue"));
+        assertEquals(List.of("display"), testKit.getState().rows().children("ads"));
+    }
+
+    private static EventSourcedTestKit<Taxonomy, TaxonomyEvent, TaxonomyEntity> withRows(Taxonomy.TaxRow... rows) {
+        var testKit = created();
+        testKit.method(TaxonomyEntity::addTaxRows).invoke(new Taxonomy.TaxRowsAdd(List.of(rows), false));
+        return testKit;
+    }
+
+    @Test
+    public void aBatchWithTheSameRowTwiceIsRejected() {
+        var result = created().method(TaxonomyEntity::addTaxRows)
+                .invoke(new Taxonomy.TaxRowsAdd(List.of(taxRow("revenue", null), taxRow("revenue", null)), false));
+        assertInstanceOf(TaxonomyEntity.TaxonomyResult.IncorrectAdd.class, result.getReply());
+        assertFalse(result.didPersistEvents());
+    }
+
+    @Test
+    public void aRowUnderAParentInNeitherTheTaxonomyNorTheBatchIsRejected() {
+        var result = withRows(taxRow("revenue", null)).method(TaxonomyEntity::addTaxRows)
+                .invoke(new Taxonomy.TaxRowsAdd(List.of(taxRow("display", "ads")), false));
+        assertInstanceOf(TaxonomyEntity.TaxonomyResult.IncorrectAdd.class, result.getReply());
+        assertFalse(result.didPersistEvents());
+    }
+
+    // A replacing batch may reuse rowIds of the rows it replaces, but not the parents it drops
+    @Test
+    public void aReplacingBatchIsValidatedAgainstNoRows() {
+        var testKit = withRows(taxRow("revenue", null), taxRow("ads", "revenue"));
+        var replaced = testKit.method(TaxonomyEntity::addTaxRows)
+                .invoke(new Taxonomy.TaxRowsAdd(List.of(taxRow("revenue", null)), true));
+        assertInstanceOf(TaxonomyEntity.TaxonomyResult.Success.class, replaced.getReply());
+        assertEquals(1, testKit.getState().rows().size());
+
+        var orphan = testKit.method(TaxonomyEntity::addTaxRows)
+                .invoke(new Taxonomy.TaxRowsAdd(List.of(taxRow("display", "revenue")), true));
+        assertInstanceOf(TaxonomyEntity.TaxonomyResult.IncorrectAdd.class, orphan.getReply());
+    }
+
+    @Test
+    public void aParentCanBeRemovedAfterItsChildrenInTheSameBatch() {
+        var testKit = withRows(taxRow("revenue", null), taxRow("ads", "revenue"), taxRow("fees", "revenue"));
+        var parentFirst = testKit.method(TaxonomyEntity::removeTaxRows)
+                .invoke(new Taxonomy.TaxRowsRemove(List.of("ads", "revenue", "fees")));
+        assertInstanceOf(TaxonomyEntity.TaxonomyResult.IncorrectRemove.class, parentFirst.getReply());
+        assertFalse(parentFirst.didPersistEvents());
+
+        var childrenFirst = testKit.method(TaxonomyEntity::removeTaxRows)
+                .invoke(new Taxonomy.TaxRowsRemove(List.of("ads", "fees", "revenue")));
+        assertInstanceOf(TaxonomyEntity.TaxonomyResult.Success.class, childrenFirst.getReply());
+        assertEquals(0, testKit.getState().rows().size());
+    }
+
+    @Test
+    public void aRowRemovedTwiceInOneBatchIsRejected() {
+        var result = withRows(taxRow("revenue", null)).method(TaxonomyEntity::removeTaxRows)
+                .invoke(new Taxonomy.TaxRowsRemove(List.of("revenue", "revenue")));
+        assertInstanceOf(TaxonomyEntity.TaxonomyResult.IncorrectRemove.class, result.getReply());
+    }
+
+    @Test
+    public void anUpdateToAMissingParentOrToItselfIsRejected() {
+        var testKit = withRows(taxRow("revenue", null), taxRow("ads", "revenue"));
+        for (String parent : List.of("missing", "ads")) {
+            var result = testKit.method(TaxonomyEntity::updateTaxRow).invoke(new Taxonomy.TaxRowUpdate("ads",
+                    new Taxonomy.TaxRowUpdate.Updates("ADS", null, null, null, null, parent)));
+            assertInstanceOf(TaxonomyEntity.TaxonomyResult.IncorrectUpate.class, result.getReply());
+            assertFalse(result.didPersistEvents());
+        }
+    }
+
+    private static TaxonomyEntity.TaxonomyResult.Revision revision(
+            EventSourcedTestKit<Taxonomy, TaxonomyEvent, TaxonomyEntity> testKit) {
+        var result = testKit.method(TaxonomyEntity::getRevision).invoke();
+        assertFalse(result.didPersistEvents());
+        return assertInstanceOf(TaxonomyEntity.TaxonomyResult.Revision.class, result.getReply());
+    }
+
+    // The ETag of GET /taxonomy/{taxonomyId} is built from the revision, every persisted change must move it
+    @Test
+    public void theRevisionMovesWithEveryChangeAndOnlyThen() {
+        var testKit = withRows(taxRow("revenue", null));
+        var first = revision(testKit);
+        assertEquals(first, revision(testKit));
+
+        testKit.method(TaxonomyEntity::addTaxRows)
+                .invoke(new Taxonomy.TaxRowsAdd(List.of(taxRow("ads", "revenue")), false));
+        var edited = revision(testKit);
+        assertTrue(edited.sequenceNumber() > first.sequenceNumber());
+
+        testKit.method(TaxonomyEntity::publishTaxonomy).invoke(true);
+        var published = revision(testKit);
+        assertTrue(published.sequenceNumber() > edited.sequenceNumber());
+        assertEquals(TaxonomyStatus.TAXONOMY_PUBLISHED, published.status());
+    }
+
+    @Test
+    public void anEmptyTaxonomyHasNoRevision() {
+        var result = EventSourcedTestKit.of(TaxonomyEntity::new).method(TaxonomyEntity::getRevision).invoke();
+        assertInstanceOf(TaxonomyEntity.TaxonomyResult.GetFailed.class, result.getReply());
+    }
+
+    private static TaxonomyEntity.TaxonomyResult page(
+            EventSourcedTestKit<Taxonomy, TaxonomyEvent, TaxonomyEntity> testKit, String after, Integer limit,
+            Long sequenceNumber) {
+        return testKit.method(TaxonomyEntity::getRowsPage)
+                .invoke(new Taxonomy.RowsPageQuery(after, limit, sequenceNumber)).getReply();
+    }
+
+    private static List<String> allPages(EventSourcedTestKit<Taxonomy, TaxonomyEvent, TaxonomyEntity> testKit,
+                                         int limit) {
+        List<String> rowIds = new ArrayList<>();
+        String after = null;
+        Long sequenceNumber = null;
+        do {
+            var page = assertInstanceOf(TaxonomyEntity.TaxonomyResult.RowsPage.class,
+                    page(testKit, after, limit, sequenceNumber));
+            assertTrue(page.rows().size() <= limit);
+            page.rows().forEach(row -> rowIds.add(row.rowId()));
+            after = page.nextAfter();
+            sequenceNumber = page.sequenceNumber();
+        } while (after != null);
+        return rowIds;
+    }
+
+    private static EventSourcedTestKit<Taxonomy, TaxonomyEvent, TaxonomyEntity> paged() {
+        return withRows(taxRow("revenue", null), taxRow("ads", "revenue"), taxRow("display", "ads"),
+                taxRow("fees", "revenue"), taxRow("costs", null));
+    }
+
+    // Walking the pages with the cursor of each gives every row once, in tree order
+    @Test
+    public void pagesWalkTheRowsInTreeOrder() {
+        var testKit = paged();
+        var expected = testKit.getState().rows().intervals().after(null, 100);
+        assertEquals(List.of("revenue", "ads", "display", "fees", "costs"), expected);
+        for (int limit : new int[] {1, 2, 4, 5, 100}) {
+            assertEquals(expected, allPages(testKit, limit), "limit " + limit);
+        }
+    }
+
+    @Test
+    public void aPublishedTaxonomyPagesItsCompiledForm() {
+        var testKit = paged();
+        var draft = allPages(testKit, 2);
+        testKit.method(TaxonomyEntity::publishTaxonomy).invoke(true);
+        assertEquals(draft, allPages(testKit, 2));
+    }
+
+    // A cursor read at one sequence number is refused once the taxonomy has moved on
+    @Test
+    public void aCursorFromAnEarlierSequenceNumberIsRejected() {
+        var testKit = paged();
+        var first = assertInstanceOf(TaxonomyEntity.TaxonomyResult.RowsPage.class, page(testKit, null, 2, null));
+        testKit.method(TaxonomyEntity::addTaxRows)
+                .invoke(new Taxonomy.TaxRowsAdd(List.of(taxRow("search", "ads")), false));
+
+        assertInstanceOf(TaxonomyEntity.TaxonomyResult.GetFailed.class,
+                page(testKit, first.nextAfter(), 2, first.sequenceNumber()));
+        assertInstanceOf(TaxonomyEntity.TaxonomyResult.RowsPage.class, page(testKit, first.nextAfter(), 2, null));
+    }
+
+    @Test
+    public void anUnknownCursorOrALimitOutOfRangeIsRejected() {
+        var testKit = paged();
+        assertInstanceOf(TaxonomyEntity.TaxonomyResult.GetFailed.class, page(testKit, "missing", 2, null));
+        assertInstanceOf(TaxonomyEntity.TaxonomyResult.GetFailed.class, page(testKit, null, 0, null));
+        assertInstanceOf(TaxonomyEntity.TaxonomyResult.GetFailed.class, page(testKit, null, 10_001, null));
+        var all = assertInstanceOf(TaxonomyEntity.TaxonomyResult.RowsPage.class, page(testKit, null, null, null));
+        assertEquals(5, all.rows().size());
+        assertNull(all.nextAfter());
+    }
+
+    // The row takes its descendants along in one event, the descendants keep their own parents
+    @Test
+    public void aSubtreeMovesWithOneEvent() {
+        var testKit = paged();
+        var result = testKit.method(TaxonomyEntity::moveSubtree).invoke(new Taxonomy.SubtreeMove("ads", "costs"));
+        assertInstanceOf(TaxonomyEntity.TaxonomyResult.Success.class, result.getReply());
+        assertEquals(1, result.getAllEvents().size());
+        assertEquals(List.of("fees"), testKit.getState().rows().children("revenue"));
+        assertEquals(List.of("ads"), testKit.getState().rows().children("costs"));
+        assertEquals(List.of("costs", "ads", "display"), testKit.getState().rows().intervals().subtree("costs", null));
+    }
+
+    @Test
+    public void aSubtreeCannotMoveUnderItselfOrItsDescendants() {
+        var testKit = paged();
+        for (String parent : List.of("ads", "display", "missing")) {
+            var result = testKit.method(TaxonomyEntity::moveSubtree).invoke(new Taxonomy.SubtreeMove("ads", parent));
+            assertInstanceOf(TaxonomyEntity.TaxonomyResult.IncorrectUpate.class, result.getReply());
+            assertFalse(result.didPersistEvents());
+        }
+        assertEquals(List.of("display"), testKit.getState().rows().children("ads"));
+    }
+
+    @Test
+    public void rowsAreUpdatedTogetherWithOneEvent() {
+        var testKit = paged();
+        var result = testKit.method(TaxonomyEntity::updateTaxRows).invoke(new Taxonomy.TaxRowsUpdate(List.of(
+                new Taxonomy.TaxRowUpdate("ads", new Taxonomy.TaxRowUpdate.Updates("Advertising", null, null, null, null, "revenue")),
+                new Taxonomy.TaxRowUpdate("fees", new Taxonomy.TaxRowUpdate.Updates("Fees", null, null, null, null, "costs")))));
+        assertInstanceOf(TaxonomyEntity.TaxonomyResult.Success.class, result.getReply());
+        assertEquals(1, result.getAllEvents().size());
+        assertEquals("Advertising", testKit.getState().rows().get("ads").orElseThrow().value());
+        assertEquals(List.of("fees"), testKit.getState().rows().children("costs"));
+    }
+
+    // One bad update leaves every row of the batch as it was
+    @Test
+    public void aBatchWithOneBadUpdateUpdatesNothing() {
+        var testKit = paged();
+        var result = testKit.method(TaxonomyEntity::updateTaxRows).invoke(new Taxonomy.TaxRowsUpdate(List.of(
+                new Taxonomy.TaxRowUpdate("ads", new Taxonomy.TaxRowUpdate.Updates("Advertising", null, null, null, null, "revenue")),
+                new Taxonomy.TaxRowUpdate("missing", new Taxonomy.TaxRowUpdate.Updates("Missing", null, null, null, null, null)))));
+        assertInstanceOf(TaxonomyEntity.TaxonomyResult.IncorrectUpate.class, result.getReply());
+        assertFalse(result.didPersistEvents());
+        assertEquals("ADS", testKit.getState().rows().get("ads").orElseThrow().value());
+
+        var empty = testKit.method(TaxonomyEntity::updateTaxRows).invoke(new Taxonomy.TaxRowsUpdate(List.of()));
+        assertInstanceOf(TaxonomyEntity.TaxonomyResult.IncorrectUpate.class, empty.getReply());
+    }
+}
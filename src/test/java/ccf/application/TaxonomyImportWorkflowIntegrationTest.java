@@ -0,0 +1,125 @@
+package ccf.application;
+
+import akka.javasdk.testkit.TestKitSupport;
+import ccf.domain.standard.Taxonomy;
+import ccf.domain.standard.TaxonomyImport;
+import ccf.domain.standard.TaxonomyImportStatus;
+import ccf.domain.standard.TaxonomyVersion;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static ccf.domain.standard.TaxonomyFixtures.taxRow;
+import static org.awaitility.Awaitility.await;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+
+// Runs TaxonomyImportWorkflow against the entities in the test runtime. Chunks are stored directly, as the import
+// endpoint does before it starts the workflow.
+public class TaxonomyImportWorkflowIntegrationTest extends TestKitSupport {
+
+    private void createTaxonomy(String taxonomyId) {
+        componentClient.forEventSourcedEntity(taxonomyId)
+                .method(TaxonomyEntity::createTaxonomy)
+                .invoke(new Taxonomy.TaxonomyCreate("Standard", null, new TaxonomyVersion(1, 0)));
+    }
+
+    private void storeChunk(String chunkKey, int chunk, Taxonomy.TaxRow... rows) {
+        componentClient.forKeyValueEntity(TaxonomyImportChunkEntity.chunkId(chunkKey, chunk))
+                .method(TaxonomyImportChunkEntity::storeChunk)
+                .invoke(new Taxonomy.TaxRowsAdd(List.of(rows), false));
+    }
+
+    private void startImport(String importId, String taxonomyId, String chunkKey, int chunks, int rows) {
+        componentClient.forWorkflow(importId)
+                .method(TaxonomyImportWorkflow::startImport)
+                .invoke(new TaxonomyImport.ImportStart(taxonomyId, chunkKey, chunks, rows));
+    }
+
+    private TaxonomyImport.ImportProgress progress(String importId) {
+        return componentClient.forWorkflow(importId)
+                .method(TaxonomyImportWorkflow::getProgress)
+                .invoke();
+    }
+
+    private void awaitStatus(String importId, TaxonomyImportStatus status) {
+        await().ignoringExceptions().atMost(20, TimeUnit.SECONDS)
+                .untilAsserted(() -> assertEquals(status, progress(importId).status()));
+    }
+
+    private Taxonomy taxonomy(String taxonomyId) {
+        var result = componentClient.forEventSourcedEntity(taxonomyId)
+                .method(TaxonomyEntity::getTaxonomy)
+                .invoke();
+        return assertInstanceOf(TaxonomyEntity.TaxonomyResult.GetSuccess.class, result).taxonomy();
+    }
+
+    // The chunk isn't readable when the workflow first asks for it, the call is retried after a backoff
+    @Test
+    public void aTransientFailureIsRetried() {
+        createTaxonomy("import-transient");
+        String chunkKey = TaxonomyImportChunkEntity.chunkKey("transient");
+        storeChunk(chunkKey, 0, taxRow("revenue", null));
+        startImport("transient", "import-transient", chunkKey, 2, 2);
+
+        awaitStatus("transient", TaxonomyImportStatus.IMPORT_WAITING_RETRY);
+        assertEquals(1, progress("transient").completedChunks());
+        storeChunk(chunkKey, 1, taxRow("ads", "revenue"));
+
+        awaitStatus("transient", TaxonomyImportStatus.IMPORT_COMPLETED);
+        assertEquals(2, progress("transient").importedRows());
+        assertEquals(List.of("ads"), taxonomy("import-transient").rows().children("revenue"));
+    }
+
+    // A rejected chunk is not retried. Once its cause is fixed, retryChunk resumes the import from its cursor.
+    // The chunks before the cursor are removed by then, so the import only completes if they are not sent again.
+    @Test
+    public void aRejectedChunkFailsTheImportUntilRetried() {
+        createTaxonomy("import-rejected");
+        String chunkKey = TaxonomyImportChunkEntity.chunkKey("rejected");
+        storeChunk(chunkKey, 0, taxRow("revenue", null));
+        storeChunk(chunkKey, 1, taxRow("display", "ads"));
+        storeChunk(chunkKey, 2, taxRow("search", "ads"));
+        startImport("rejected", "import-rejected", chunkKey, 3, 3);
+
+        awaitStatus("rejected", TaxonomyImportStatus.IMPORT_FAILED);
+        var failed = progress("rejected");
+        assertEquals(1, failed.completedChunks());
+        assertNotNull(failed.lastError());
+
+        componentClient.forEventSourcedEntity("import-rejected")
+                .method(TaxonomyEntity::addTaxRows)
+                .invoke(new Taxonomy.TaxRowsAdd(List.of(taxRow("ads", "revenue")), false));
+        componentClient.forWorkflow("rejected")
+                .method(TaxonomyImportWorkflow::retryChunk)
+                .invoke();
+
+        awaitStatus("rejected", TaxonomyImportStatus.IMPORT_COMPLETED);
+        var completed = progress("rejected");
+        assertEquals(3, completed.completedChunks());
+        assertEquals(List.of("display", "search"), taxonomy("import-rejected").rows().children("ads"));
+    }
+
+    // What a workflow restarted after the entity applied a chunk, but before the cursor moved, sends again
+    @Test
+    public void aChunkResentAfterARestartIsNotAppliedTwice() {
+        createTaxonomy("import-restart");
+        var chunk = new Taxonomy.TaxRowsImport("restart", 0,
+                new Taxonomy.TaxRowsAdd(List.of(taxRow("revenue", null)), false));
+        var entity = componentClient.forEventSourcedEntity("import-restart");
+
+        assertInstanceOf(TaxonomyEntity.TaxonomyResult.Success.class,
+                entity.method(TaxonomyEntity::importTaxRows).invoke(chunk));
+        var before = (TaxonomyEntity.TaxonomyResult.JournalStats) entity.method(TaxonomyEntity::getJournalStats)
+                .invoke();
+        assertInstanceOf(TaxonomyEntity.TaxonomyResult.Success.class,
+                entity.method(TaxonomyEntity::importTaxRows).invoke(chunk));
+        var after = (TaxonomyEntity.TaxonomyResult.JournalStats) entity.method(TaxonomyEntity::getJournalStats)
+                .invoke();
+
+        assertEquals(before.sequenceNumber(), after.sequenceNumber());
+        assertEquals(1, taxonomy("import-restart").rows().size());
+    }
+}
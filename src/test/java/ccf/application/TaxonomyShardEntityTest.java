@@ -0,0 +1,77 @@
+package ccf.application;
+
+import akka.javasdk.testkit.EventSourcedTestKit;
+import ccf.domain.standard.Taxonomy;
+import ccf.domain.standard.TaxonomyEvent;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static ccf.domain.standard.TaxonomyFixtures.taxRow;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+
+public class TaxonomyShardEntityTest {
+
+    private static EventSourcedTestKit<Taxonomy, TaxonomyEvent, TaxonomyShardEntity> shard(String root) {
+        var testKit = EventSourcedTestKit.of(TaxonomyShardEntity::new);
+        testKit.method(TaxonomyShardEntity::initShard).invoke(taxRow(root, null));
+        return testKit;
+    }
+
+    private static TaxonomyEntity.TaxonomyResult patch(
+            EventSourcedTestKit<Taxonomy, TaxonomyEvent, TaxonomyShardEntity> testKit, Taxonomy.PatchOp... ops) {
+        return testKit.method(TaxonomyShardEntity::patchShard).invoke(new Taxonomy.TaxonomyPatch(List.of(ops))).getReply();
+    }
+
+    private static Taxonomy.PatchOp add(String rowId, String parent) {
+        return new Taxonomy.PatchOp("add", null, taxRow(rowId, parent), null, null);
+    }
+
+    @Test
+    public void aShardAcceptsTheRowsItOwns() {
+        var testKit = shard("pl");
+        assertInstanceOf(TaxonomyEntity.TaxonomyResult.Patched.class,
+                patch(testKit, add("pl/revenue", "pl"), add("pl/revenue/ads", "pl/revenue")));
+        var rows = testKit.method(TaxonomyShardEntity::getShard).invoke().getReply();
+        assertEquals(List.of("pl", "pl/revenue", "pl/revenue/ads"),
+                assertInstanceOf(TaxonomyEntity.TaxonomyResult.RowsSuccess.class, rows).rows().stream()
+                        .map(Taxonomy.Row::rowId).toList());
+    }
+
+    // A row of another root, or a second root, would make two shards answer for the same rowId
+    @Test
+    public void aShardRejectsRowsOfOtherShards() {
+        var testKit = shard("pl");
+        for (var op : List.of(add("bs/cash", "pl"), add("cash", "pl"), add("pl", null), add("plx/cash", "pl"))) {
+            assertInstanceOf(TaxonomyEntity.TaxonomyResult.IncorrectPatch.class, patch(testKit, op));
+        }
+        assertEquals(1, testKit.getState().rows().size());
+    }
+
+    @Test
+    public void theRootCannotBeMovedOrRemovedByAPatch() {
+        var testKit = shard("pl");
+        patch(testKit, add("pl/revenue", "pl"));
+        var moved = patch(testKit, new Taxonomy.PatchOp("move", "pl/revenue", null, null, null));
+        assertInstanceOf(TaxonomyEntity.TaxonomyResult.IncorrectPatch.class, moved);
+        var removed = patch(testKit, new Taxonomy.PatchOp("remove", "pl", null, null, null));
+        assertInstanceOf(TaxonomyEntity.TaxonomyResult.IncorrectPatch.class, removed);
+        assertEquals(List.of("pl/revenue"), testKit.getState().rows().children("pl"));
+    }
+
+    // Creating the shard again with the same root is a no-op, a root add that failed after it can be retried
+    @Test
+    public void initIsIdempotentForTheSameRootOnly() {
+        var testKit = shard("pl");
+        var again = testKit.method(TaxonomyShardEntity::initShard).invoke(taxRow("pl", null));
+        assertInstanceOf(TaxonomyEntity.TaxonomyResult.Success.class, again.getReply());
+        assertFalse(again.didPersistEvents());
+        assertInstanceOf(TaxonomyEntity.TaxonomyResult.CreateFailed.class,
+                testKit.method(TaxonomyShardEntity::initShard).invoke(taxRow("bs", null)).getReply());
+        assertInstanceOf(TaxonomyEntity.TaxonomyResult.CreateFailed.class,
+                EventSourcedTestKit.of(TaxonomyShardEntity::new).method(TaxonomyShardEntity::initShard)
+                        .invoke(taxRow("pl/revenue", null)).getReply());
+    }
+}
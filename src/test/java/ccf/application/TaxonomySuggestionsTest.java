@@ -0,0 +1,59 @@
+package ccf.application;
+
+import ccf.domain.standard.PublishedTaxonomies;
+import ccf.domain.standard.PublishedTaxonomies.PublishedChange;
+import ccf.domain.standard.TaxonomyStatus;
+import ccf.domain.standard.TaxonomyVersion;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+
+import static ccf.domain.standard.TaxonomyFixtures.row;
+import static ccf.domain.standard.TaxonomyFixtures.rows;
+import static ccf.domain.standard.TaxonomyFixtures.taxonomy;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class TaxonomySuggestionsTest {
+
+    private static final TaxonomyVersion V1_0 = new TaxonomyVersion(1, 0);
+
+    @Test
+    public void onlyATaxonomyStillAtItsPublishedVersionIsIndexed() {
+        var published = taxonomy("t1", TaxonomyStatus.TAXONOMY_PUBLISHED, rows(row("revenue", null)));
+        assertTrue(TaxonomySuggestions.isPublished(published, V1_0));
+        assertFalse(TaxonomySuggestions.isPublished(published, new TaxonomyVersion(1, 1)));
+        assertFalse(TaxonomySuggestions.isPublished(
+                taxonomy("t1", TaxonomyStatus.TAXONOMY_INITIALIZED, rows(row("revenue", null))), V1_0));
+    }
+
+    @Test
+    public void aRegistryEntryWithoutAVersionOnlyNeedsTheStatus() {
+        var published = taxonomy("t1", TaxonomyStatus.TAXONOMY_PUBLISHED, rows(row("revenue", null)));
+        assertTrue(TaxonomySuggestions.isPublished(published, null));
+        assertFalse(TaxonomySuggestions.isPublished(
+                taxonomy("t1", TaxonomyStatus.TAXONOMY_INITIALIZED, rows(row("revenue", null))), null));
+    }
+
+    @Test
+    public void theRegistryKeepsThePublishedVersionUntilUnpublished() {
+        var registry = PublishedTaxonomies.empty().onChange(new PublishedChange("t1", true, V1_0));
+        assertEquals(V1_0, registry.taxonomyVersion("t1"));
+
+        registry = registry.onChange(new PublishedChange("t1", true, new TaxonomyVersion(2, 0)));
+        assertEquals(new TaxonomyVersion(2, 0), registry.taxonomyVersion("t1"));
+
+        registry = registry.onChange(new PublishedChange("t1", false, null));
+        assertNull(registry.taxonomyVersion("t1"));
+        assertFalse(registry.taxonomies().containsKey("t1"));
+    }
+
+    @Test
+    public void aRegistryWrittenBeforeVersionsHasNone() {
+        var registry = new PublishedTaxonomies(Map.of("t1", 1L), 1, null);
+        assertNull(registry.taxonomyVersion("t1"));
+        assertEquals(V1_0, registry.onChange(new PublishedChange("t2", true, V1_0)).taxonomyVersion("t2"));
+    }
+}
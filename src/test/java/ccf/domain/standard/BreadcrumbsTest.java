@@ -0,0 +1,49 @@
+package ccf.domain.standard;
+
+import ccf.domain.standard.Taxonomy.Breadcrumb;
+import org.junit.jupiter.api.Test;
+
+import static ccf.domain.standard.TaxonomyFixtures.row;
+import static ccf.domain.standard.TaxonomyFixtures.rows;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+public class BreadcrumbsTest {
+
+    private static final RowIndex ROWS = rows(
+            row("pl", "Profit and Loss", null),
+            row("income", "Income", "pl"),
+            row("revenue", "Revenue", "income"),
+            row("costs", "Costs", "pl"),
+            row("bs", "Balance Sheet", null));
+
+    @Test
+    public void aPathJoinsTheValuesFromTheRootDown() {
+        var breadcrumbs = ROWS.breadcrumbs();
+        assertEquals(new Breadcrumb("revenue", "Profit and Loss > Income > Revenue", 2), breadcrumbs.get("revenue"));
+        assertEquals(new Breadcrumb("costs", "Profit and Loss > Costs", 1), breadcrumbs.get("costs"));
+        assertEquals(new Breadcrumb("bs", "Balance Sheet", 0), breadcrumbs.get("bs"));
+    }
+
+    @Test
+    public void anUnknownRowHasNoPath() {
+        assertEquals(new Breadcrumb("missing", null, -1), ROWS.breadcrumbs().get("missing"));
+    }
+
+    @Test
+    public void pathsAreBuiltOncePerIndex() {
+        assertSame(ROWS.breadcrumbs(), ROWS.breadcrumbs());
+    }
+
+    // A renamed or moved row changes the paths of its whole subtree in the new index, the old one keeps its paths
+    @Test
+    public void anUpdatedIndexHasPathsOfItsOwn() {
+        var renamed = ROWS.put(row("income", "Operating Income", "pl"));
+        assertEquals("Profit and Loss > Operating Income > Revenue", renamed.breadcrumbs().get("revenue").path());
+
+        var moved = renamed.put(row("income", "Operating Income", "bs"));
+        assertEquals(new Breadcrumb("revenue", "Balance Sheet > Operating Income > Revenue", 2),
+                moved.breadcrumbs().get("revenue"));
+        assertEquals("Profit and Loss > Income > Revenue", ROWS.breadcrumbs().get("revenue").path());
+    }
+}
@@ -0,0 +1,119 @@
+package ccf.domain.standard;
+
+import ccf.domain.standard.TaxonomyCrosswalk.Mapping;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static ccf.domain.standard.TaxonomyFixtures.compiled;
+import static ccf.domain.standard.TaxonomyFixtures.row;
+import static ccf.domain.standard.TaxonomyFixtures.rows;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class CompiledCrosswalkTest {
+
+    private static final CompiledTaxonomy SOURCE =
+            compiled("gl", rows(row("s1", null), row("s2", null), row("s3", null), row("s4", null)));
+    private static final CompiledTaxonomy TARGET = compiled("std", rows(row("t1", null), row("t2", "t1")));
+
+    private static CompiledCrosswalk crosswalk(Mapping... mappings) {
+        var put = new TaxonomyCrosswalk.MappingsPut(List.of(mappings), true);
+        var crosswalk = TaxonomyCrosswalk.empty("gl@1.0:std@1.0", new TaxonomyCrosswalk.CrosswalkPut(
+                "gl", new TaxonomyVersion(1, 0), "std", new TaxonomyVersion(1, 0), put)).onMappingsPut(put);
+        return CompiledCrosswalk.compile(crosswalk, SOURCE, TARGET);
+    }
+
+    // s2 is split 60/40, s3 is a contra account and s4 has no mapping
+    private static final CompiledCrosswalk CROSSWALK = crosswalk(
+            new Mapping("s1", "t1", null),
+            new Mapping("s2", "t1", 0.6),
+            new Mapping("s2", "t2", 0.4),
+            new Mapping("s3", "t2", -1.0));
+
+    private static String translate(String input) {
+        StringBuilder out = new StringBuilder();
+        CROSSWALK.translate(input, false, out);
+        return out.toString();
+    }
+
+    @Test
+    public void weightsAndSumsValuesPerTargetRowInTreeOrder() {
+        StringBuilder out = new StringBuilder();
+        var translation = CROSSWALK.translate("s3,10\ns1,100\ns2,50\ns4,5\n", false, out);
+        assertEquals("t1,130\nt2,10\n", out.toString());
+        assertEquals(new CompiledCrosswalk.Translation(4, 1, 1, 2), translation);
+        assertEquals(4, CROSSWALK.mappings());
+    }
+
+    @Test
+    public void eachRunOfLinesWithTheSameKeyIsSummedOnItsOwn() {
+        StringBuilder out = new StringBuilder();
+        var translation = CROSSWALK.translate("acme,2024,s1,1\nacme,2024,s2,1\nbeta,2024,s1,2\n", false, out);
+        assertEquals("acme,2024,t1,1.6\nacme,2024,t2,0.4\nbeta,2024,t1,2\n", out.toString());
+        assertEquals(2, translation.keys());
+    }
+
+    @Test
+    public void writesPlainDecimals() {
+        assertEquals("t1,10000000\n", translate("s1,10000000"));
+        assertEquals("t1,123\n", translate("s1,123.0"));
+        assertEquals("t1,0.3\n", translate("s1,0.1\ns1,0.2"));
+        assertEquals("t1,1000\n", translate("s1,1e3"));
+        assertEquals("t1,-12.5\n", translate("s1,-12.50"));
+        assertEquals("t1,0.0000001\n", translate("s1,1E-7"));
+    }
+
+    @Test
+    public void skipsBlankLinesAndCarriageReturns() {
+        assertEquals("t1,3\n", translate("\r\ns1,1\r\n\ns1,2\r\n"));
+    }
+
+    @Test
+    public void strictFailsOnAnUnmappedValue() {
+        var e = assertThrows(TaxonomyException.class,
+                () -> CROSSWALK.translate("s1,1\ns4,5\n", true, new StringBuilder()));
+        assertTrue(e.getMessage().contains("Line 2: source row s4 has no mapping"), e.getMessage());
+    }
+
+    @Test
+    public void rejectsMalformedLines() {
+        assertThrows(TaxonomyException.class, () -> translate("s1\n"));
+        assertThrows(TaxonomyException.class, () -> translate("s1,ten\n"));
+        assertThrows(TaxonomyException.class, () -> translate("s1,NaN\n"));
+        assertThrows(TaxonomyException.class, () -> translate("s1,Infinity\n"));
+    }
+
+    @Test
+    public void translatingInBlocksMatchesOneCall() {
+        StringBuilder input = new StringBuilder();
+        for (int i = 0; i < 1_000; i++) {
+            input.append("co").append(i / 7).append(",s").append(1 + i % 4).append(',').append(i).append(".25\n");
+        }
+        StringBuilder expected = new StringBuilder();
+        var whole = CROSSWALK.translate(input.toString(), false, expected);
+
+        // Blocks of whole lines that cut runs of the same key in two
+        var translator = CROSSWALK.translator(false, true);
+        StringBuilder out = new StringBuilder();
+        String[] lines = input.toString().split("\n");
+        for (int from = 0; from < lines.length; from += 10) {
+            translator.accept(String.join("\n", List.of(lines).subList(from, Math.min(lines.length, from + 10))), out);
+        }
+        assertEquals(whole, translator.finish(out));
+        assertEquals(expected.toString(), out.toString());
+
+        // Without write only the counts are kept
+        var counter = CROSSWALK.translator(false, false);
+        counter.accept(input.toString(), null);
+        var counted = counter.finish(null);
+        assertEquals(new CompiledCrosswalk.Translation(whole.values(), whole.unmappedValues(), whole.keys(), 0), counted);
+    }
+
+    @Test
+    public void compileRejectsRowsNotInTheVersions() {
+        assertThrows(TaxonomyException.class, () -> crosswalk(new Mapping("s9", "t1", null)));
+        assertThrows(TaxonomyException.class, () -> crosswalk(new Mapping("s1", "t9", null)));
+    }
+}
@@ -0,0 +1,98 @@
+package ccf.domain.standard;
+
+import ccf.domain.standard.Taxonomy.Row;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static ccf.domain.standard.TaxonomyFixtures.row;
+import static ccf.domain.standard.TaxonomyFixtures.rows;
+import static ccf.domain.standard.TaxonomyFixtures.taxonomy;
+import static ccf.domain.standard.TaxonomyFixtures.withAliases;
+import static ccf.domain.standard.TaxonomyFixtures.withHints;
+import static ccf.domain.standard.TaxonomyFixtures.withKeywords;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class CompiledTaxonomyTest {
+
+    private static final RowIndex ROWS = rows(
+            withAliases(row("revenue", "Revenue", null), "Sales"),
+            withKeywords(row("ads", "Advertising", "revenue"), "ads", "media"),
+            withHints(row("display", "Display", "ads"), Map.of("gl", List.of("4100", "4110"))),
+            row("search", "Search", "ads"),
+            row("fees", "Revenue", "revenue"),
+            new Row("costs", "Costs", "Operating costs", List.of(), List.of(), Map.of(), null, List.of(), "a+b"));
+
+    private static final CompiledTaxonomy COMPILED = CompiledTaxonomy.compile(
+            taxonomy("t1", TaxonomyStatus.TAXONOMY_PUBLISHED, ROWS));
+
+    private static List<String> rowIds(List<Row> rows) {
+        return rows.stream().map(Row::rowId).toList();
+    }
+
+    // Every field comes back, with null lists and maps kept apart from empty ones
+    @Test
+    public void rowsAreTheRowsOfTheIndexInTreeOrder() {
+        assertEquals(ROWS.toList(), COMPILED.rows());
+        assertEquals(ROWS.size(), COMPILED.size());
+        assertEquals("t1", COMPILED.id());
+        assertEquals(new TaxonomyVersion(1, 0), COMPILED.version());
+    }
+
+    @Test
+    public void rowIdsAreLookedUpByBinarySearch() {
+        for (int o = 0; o < COMPILED.size(); o++) {
+            assertEquals(o, COMPILED.ordinal(COMPILED.rowId(o)));
+        }
+        assertEquals(-1, COMPILED.ordinal("missing"));
+        assertEquals(-1, COMPILED.ordinal(""));
+        assertFalse(COMPILED.contains("zzz"));
+        assertTrue(COMPILED.contains("costs"));
+    }
+
+    @Test
+    public void subtreesAncestorsAndPagesMatchTheTreeIntervals() {
+        var intervals = ROWS.intervals();
+        for (Row row : ROWS.toList()) {
+            String rowId = row.rowId();
+            for (Integer depth : new Integer[] {null, 0, 1}) {
+                assertEquals(intervals.subtree(rowId, depth), rowIds(COMPILED.subtree(rowId, depth)));
+            }
+            assertEquals(intervals.ancestors(rowId), rowIds(COMPILED.ancestors(rowId)));
+            assertEquals(intervals.after(rowId, 2), rowIds(COMPILED.rowsAfter(rowId, 2)));
+        }
+        assertEquals(intervals.after(null, 3), rowIds(COMPILED.rowsAfter(null, 3)));
+        assertEquals(List.of(), COMPILED.subtree("missing", null));
+        assertEquals(List.of(), COMPILED.rowsAfter("missing", 3));
+    }
+
+    @Test
+    public void aLargeRandomTreeCompilesToTheSameRows() {
+        Random random = new Random(3);
+        List<Row> rows = new ArrayList<>();
+        for (int i = 0; i < 2_000; i++) {
+            String parent = i < 20 ? null : "r" + random.nextInt(i);
+            Row row = row("r" + i, "value " + random.nextInt(50), parent);
+            rows.add(random.nextBoolean() ? withKeywords(row, "k" + random.nextInt(30)) : row);
+        }
+        RowIndex index = rows(rows.toArray(Row[]::new));
+        var compiled = CompiledTaxonomy.compile(taxonomy("t2", TaxonomyStatus.TAXONOMY_PUBLISHED, index));
+        assertEquals(index.toList(), compiled.rows());
+        assertEquals(index.intervals().subtree("r7", null), rowIds(compiled.subtree("r7", null)));
+    }
+
+    // The compiled form is serialized from its arrays, the JSON is the same as for the taxonomy's details
+    @Test
+    public void serializesLikeTheTaxonomyDetails() throws Exception {
+        ObjectMapper mapper = new ObjectMapper();
+        var details = taxonomy("t1", TaxonomyStatus.TAXONOMY_PUBLISHED, ROWS).details();
+        assertEquals(mapper.readTree(mapper.writeValueAsString(details)),
+                mapper.readTree(mapper.writeValueAsString(COMPILED)));
+    }
+}
@@ -0,0 +1,80 @@
+package ccf.domain.standard;
+
+import ccf.domain.standard.Taxonomy.Row;
+import ccf.domain.standard.TaxonomyCrosswalk.Mapping;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+// CompiledCrosswalk at millions of values: 20k source rows mapped onto 5k target rows, with every 40th source row
+// split between two targets. The input is 5M "company,year,rowId,value" lines, 50 values per company and year, fed
+// to a Translator in blocks of whole lines the way the translate endpoint does.
+// See Throughput for how to run it.
+public final class CrosswalkTranslateBenchmark {
+    private static final int SOURCE_ROWS = 20_000;
+    private static final int TARGET_ROWS = 5_000;
+    private static final int VALUES = 5_000_000;
+    private static final int VALUES_PER_KEY = 50;
+    private static final int LINES_PER_BLOCK = 10_000;
+
+    private CrosswalkTranslateBenchmark() {
+    }
+
+    public static void main(String[] args) {
+        Random random = new Random(42);
+        CompiledTaxonomy source = taxonomy("gl", "s", SOURCE_ROWS);
+        CompiledTaxonomy target = taxonomy("std", "t", TARGET_ROWS);
+        List<Mapping> mappings = new ArrayList<>();
+        for (int s = 0; s < SOURCE_ROWS; s++) {
+            String targetRowId = "t" + random.nextInt(TARGET_ROWS);
+            if (s % 40 == 0) {
+                mappings.add(new Mapping("s" + s, targetRowId, 0.7));
+                mappings.add(new Mapping("s" + s, "t" + random.nextInt(TARGET_ROWS), 0.3));
+            } else {
+                mappings.add(new Mapping("s" + s, targetRowId, null));
+            }
+        }
+        var put = new TaxonomyCrosswalk.MappingsPut(mappings, true);
+        var crosswalk = TaxonomyCrosswalk.empty("gl@1.0:std@1.0", new TaxonomyCrosswalk.CrosswalkPut(
+                "gl", new TaxonomyVersion(1, 0), "std", new TaxonomyVersion(1, 0), put)).onMappingsPut(put);
+
+        List<String> blocks = new ArrayList<>();
+        StringBuilder block = new StringBuilder();
+        long bytes = 0;
+        for (int v = 0; v < VALUES; v++) {
+            block.append("company").append(v / VALUES_PER_KEY).append(",2024,s").append(random.nextInt(SOURCE_ROWS))
+                    .append(',').append(random.nextInt(1_000_000)).append('.').append(random.nextInt(100))
+                    .append('\n');
+            if ((v + 1) % LINES_PER_BLOCK == 0) {
+                bytes += block.length();
+                blocks.add(block.toString());
+                block.setLength(0);
+            }
+        }
+        System.out.printf("%d mappings, %d values, %d MB of input%n", mappings.size(), VALUES, bytes / 1_000_000);
+
+        Throughput.measure("compile", 5, 20, mappings.size(), "mappings",
+                () -> CompiledCrosswalk.compile(crosswalk, source, target).mappings());
+        CompiledCrosswalk compiled = CompiledCrosswalk.compile(crosswalk, source, target);
+        Throughput.measure("translate", 1, 5, VALUES, "values", () -> {
+            var translator = compiled.translator(false, true);
+            StringBuilder out = new StringBuilder();
+            long written = 0;
+            for (String input : blocks) {
+                translator.accept(input, out);
+                written += out.length();
+                out.setLength(0);
+            }
+            return written + translator.finish(out).outputValues();
+        });
+    }
+
+    private static CompiledTaxonomy taxonomy(String id, String prefix, int size) {
+        Row[] rows = new Row[size];
+        for (int i = 0; i < size; i++) {
+            rows[i] = TaxonomyFixtures.row(prefix + i, i < 100 ? null : prefix + (i % 100));
+        }
+        return TaxonomyFixtures.compiled(id, TaxonomyFixtures.rows(rows));
+    }
+}
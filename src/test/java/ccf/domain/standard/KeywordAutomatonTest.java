@@ -0,0 +1,68 @@
+package ccf.domain.standard;
+
+import ccf.domain.standard.Taxonomy.KeywordHit;
+import ccf.domain.standard.Taxonomy.Row;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static ccf.domain.standard.TaxonomyFixtures.compiled;
+import static ccf.domain.standard.TaxonomyFixtures.rows;
+import static ccf.domain.standard.TaxonomyFixtures.withKeywords;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class KeywordAutomatonTest {
+
+    private static Row row(String rowId, String... keywords) {
+        return withKeywords(TaxonomyFixtures.row(rowId, null), keywords);
+    }
+
+    private static final KeywordAutomaton KEYWORDS = compiled("t1", rows(
+            row("hosting", "Cloud Hosting", "hosting", "AWS"),
+            row("cloud", "cloud"),
+            row("ads", "ad", "advertising"),
+            row("travel", "flight", "hotel"),
+            row("hotel", "hotel"))).keywords();
+
+    private static List<String> rowIds(List<KeywordHit> hits) {
+        return hits.stream().map(KeywordHit::rowId).toList();
+    }
+
+    @Test
+    public void findsOverlappingKeywordsInOnePass() {
+        List<KeywordHit> hits = KEYWORDS.classify("AWS cloud-hosting invoice");
+        // "cloud hosting" contains both "cloud" and "hosting", every keyword ending in the text is found
+        assertEquals(List.of("hosting", "cloud"), rowIds(hits));
+        assertEquals("HOSTING", hits.getFirst().value());
+        assertEquals(List.of("AWS", "Cloud Hosting", "hosting"), hits.getFirst().keywords().stream().sorted().toList());
+    }
+
+    @Test
+    public void matchesWholeWordsOnly() {
+        assertEquals(List.of("ads"), rowIds(KEYWORDS.classify("Ad spend Q3")));
+        assertEquals(List.of(), rowIds(KEYWORDS.classify("adobe license, cloudy day")));
+    }
+
+    @Test
+    public void normalizesCaseAndPunctuationLikeTheKeywords() {
+        assertEquals(List.of("hosting", "cloud"), rowIds(KEYWORDS.classify("...CLOUD__HOSTING!!")));
+    }
+
+    @Test
+    public void aKeywordSharedByRowsHitsEveryRow() {
+        List<KeywordHit> hits = KEYWORDS.classify("hotel and flight to Oslo");
+        // travel matched two keywords, so it ranks before hotel
+        assertEquals(List.of("travel", "hotel"), rowIds(hits));
+        assertEquals(2, hits.getFirst().keywords().size());
+    }
+
+    @Test
+    public void noKeywordsOrNoTextFindsNothing() {
+        assertTrue(KEYWORDS.classify(null).isEmpty());
+        assertTrue(KEYWORDS.classify("").isEmpty());
+        var noKeywords = KeywordAutomaton.of(List.of(TaxonomyFixtures.row("a", null)));
+        assertEquals(0, noKeywords.keywordCount());
+        assertTrue(noKeywords.classify("anything").isEmpty());
+    }
+}
@@ -0,0 +1,137 @@
+package ccf.domain.standard;
+
+import ccf.domain.standard.Taxonomy.Row;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+// Throughput of CompiledTaxonomy.keywords() against the naive loop it replaces: every keyword of every row of
+// rows() looked up in the normalized text. 5000 rows with 2-3 keywords each, transaction descriptions of 6-12
+// words. "noise" descriptions match nothing, "hits" descriptions carry about 4 keywords each.
+// See Throughput for how to run it.
+public final class KeywordClassifyBenchmark {
+    private static final int ROWS = 5_000;
+    private static final int DESCRIPTIONS = 100_000;
+    // The naive loop is a few hundred times slower, it gets a smaller sample
+    private static final int NAIVE_DESCRIPTIONS = 1_000;
+
+    private KeywordClassifyBenchmark() {
+    }
+
+    public static void main(String[] args) {
+        Random random = new Random(42);
+        List<String> vocabulary = vocabulary(random, 20_000);
+        List<Row> rows = new ArrayList<>();
+        List<String> keywords = new ArrayList<>();
+        for (int i = 0; i < ROWS; i++) {
+            String[] rowKeywords = new String[2 + random.nextInt(2)];
+            for (int k = 0; k < rowKeywords.length; k++) {
+                rowKeywords[k] = random.nextInt(3) == 0
+                        ? pick(random, vocabulary) + " " + pick(random, vocabulary)
+                        : pick(random, vocabulary);
+                keywords.add(rowKeywords[k]);
+            }
+            rows.add(TaxonomyFixtures.withKeywords(TaxonomyFixtures.row("r" + i, null), rowKeywords));
+        }
+        CompiledTaxonomy compiled = TaxonomyFixtures.compiled("bench", TaxonomyFixtures.rows(rows.toArray(Row[]::new)));
+        // Description words are drawn from a separate vocabulary, so only the planted keywords match
+        List<String> filler = vocabulary(new Random(7), 5_000).stream().map(word -> word + "x").toList();
+        List<String> noise = descriptions(random, DESCRIPTIONS, filler, keywords, 0);
+        List<String> hits = descriptions(random, DESCRIPTIONS, filler, keywords, 4);
+
+        long start = System.nanoTime();
+        KeywordAutomaton automaton = compiled.keywords();
+        System.out.printf("%d rows, %d keywords, automaton built in %.1f ms%n", ROWS, automaton.keywordCount(),
+                (System.nanoTime() - start) / 1e6);
+
+        classify("automaton, noise", automaton, noise);
+        classify("automaton, hits", automaton, hits);
+        String[][] naiveKeywords = naiveKeywords(compiled);
+        naive("naive loop, noise", naiveKeywords, noise.subList(0, NAIVE_DESCRIPTIONS));
+        naive("naive loop, hits", naiveKeywords, hits.subList(0, NAIVE_DESCRIPTIONS));
+    }
+
+    private static void classify(String name, KeywordAutomaton automaton, List<String> texts) {
+        Throughput.measure(name, 3, 10, megabytes(texts), "MB", () -> {
+            long found = 0;
+            for (String text : texts) {
+                found += automaton.classify(text).size();
+            }
+            return found;
+        });
+    }
+
+    // Keywords normalized and padded once up front, so the loop is only the lookups
+    private static String[][] naiveKeywords(CompiledTaxonomy compiled) {
+        List<Row> rows = compiled.rows();
+        String[][] padded = new String[rows.size()][];
+        for (int i = 0; i < rows.size(); i++) {
+            List<String> keywords = rows.get(i).keywords() == null ? List.of() : rows.get(i).keywords();
+            padded[i] = keywords.stream().map(keyword -> " " + KeywordAutomaton.normalize(keyword) + " ")
+                    .toArray(String[]::new);
+        }
+        return padded;
+    }
+
+    private static void naive(String name, String[][] keywords, List<String> texts) {
+        Throughput.measure(name, 1, 3, megabytes(texts), "MB", () -> {
+            long found = 0;
+            for (String text : texts) {
+                String normalized = " " + KeywordAutomaton.normalize(text) + " ";
+                for (String[] rowKeywords : keywords) {
+                    for (String keyword : rowKeywords) {
+                        if (normalized.contains(keyword)) {
+                            found++;
+                            break;
+                        }
+                    }
+                }
+            }
+            return found;
+        });
+    }
+
+    private static List<String> descriptions(Random random, int count, List<String> filler, List<String> keywords,
+            int keywordsPerText) {
+        List<String> texts = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            List<String> words = new ArrayList<>();
+            int length = 6 + random.nextInt(7);
+            for (int w = 0; w < length; w++) {
+                words.add(random.nextInt(8) == 0 ? Integer.toString(random.nextInt(100_000)) : pick(random, filler));
+            }
+            for (int k = 0; k < keywordsPerText; k++) {
+                words.add(random.nextInt(words.size() + 1), pick(random, keywords).toUpperCase());
+            }
+            texts.add(String.join(" ", words));
+        }
+        return texts;
+    }
+
+    private static List<String> vocabulary(Random random, int size) {
+        String[] syllables = {"ka", "ro", "mi", "te", "su", "lan", "vor", "ex", "pi", "dus", "ne", "gal", "fo", "ir"};
+        List<String> words = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            StringBuilder word = new StringBuilder();
+            for (int s = 2 + random.nextInt(3); s > 0; s--) {
+                word.append(syllables[random.nextInt(syllables.length)]);
+            }
+            words.add(word.append(i).toString());
+        }
+        return words;
+    }
+
+    private static String pick(Random random, List<String> values) {
+        return values.get(random.nextInt(values.size()));
+    }
+
+    private static double megabytes(List<String> texts) {
+        long bytes = 0;
+        for (String text : texts) {
+            bytes += text.getBytes(StandardCharsets.UTF_8).length + 1;
+        }
+        return bytes / 1e6;
+    }
+}
@@ -0,0 +1,118 @@
+package ccf.domain.standard;
+
+import ccf.domain.standard.Taxonomy.Row;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static ccf.domain.standard.TaxonomyFixtures.row;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class RowIndexTest {
+
+    @Test
+    public void putAndRemoveKeepChildrenInStepWithParents() {
+        var rows = RowIndex.empty()
+                .put(row("a", null))
+                .put(row("b", "a"))
+                .put(row("c", "a"))
+                .put(row("d", "b"));
+        assertEquals(List.of("a"), rows.roots());
+        assertEquals(List.of("b", "c"), rows.children("a"));
+        assertEquals(List.of("a", "b", "d", "c"), rows.toList().stream().map(Row::rowId).toList());
+        assertTrue(rows.isAncestor("a", "d"));
+        assertFalse(rows.isAncestor("c", "d"));
+
+        var moved = rows.put(row("d", "c"));
+        assertEquals(List.of(), moved.children("b"));
+        assertEquals(List.of("d"), moved.children("c"));
+
+        var removed = moved.remove("d");
+        assertFalse(removed.contains("d"));
+        assertEquals(List.of(), removed.children("c"));
+    }
+
+    @Test
+    public void updatesLeaveEarlierIndexesUnchanged() {
+        var before = RowIndex.empty().put(row("a", null)).put(row("b", "a"));
+        var after = before.put(row("c", "a")).remove("b");
+
+        assertEquals(2, before.size());
+        assertEquals(List.of("b"), before.children("a"));
+        assertTrue(before.contains("b"));
+        assertEquals(2, after.size());
+        assertEquals(List.of("c"), after.children("a"));
+    }
+
+    @Test
+    public void manySiblingsAndRootsKeepTheOrderTheyWereAddedIn() {
+        int count = 5_000;
+        List<String> expected = new ArrayList<>();
+        var rows = RowIndex.empty().put(row("parent", null));
+        for (int i = 0; i < count; i++) {
+            rows = rows.put(row("c" + i, "parent")).put(row("r" + i, null));
+            expected.add("c" + i);
+        }
+        assertEquals(expected, rows.children("parent"));
+        assertEquals("parent", rows.roots().get(0));
+        assertEquals("r" + (count - 1), rows.roots().get(count));
+
+        // Every other child removed in one batch, then one moved to the end by a re-link
+        var builder = rows.toBuilder();
+        for (int i = 0; i < count; i += 2) {
+            builder.remove("c" + i);
+        }
+        builder.put(row("c1", null)).put(row("c1", "parent"));
+        var removed = builder.build();
+        List<String> kept = new ArrayList<>();
+        for (int i = 3; i < count; i += 2) {
+            kept.add("c" + i);
+        }
+        kept.add("c1");
+        assertEquals(kept, removed.children("parent"));
+        assertEquals(count + 1, removed.roots().size());
+        assertEquals(expected, rows.children("parent"));
+    }
+
+    @Test
+    public void aBatchEqualsTheSamePutsAndRemovesOneByOne() {
+        Random random = new Random(11);
+        var one = RowIndex.empty();
+        var builder = RowIndex.empty().toBuilder();
+        List<String> present = new ArrayList<>();
+        for (int i = 0; i < 3_000; i++) {
+            if (present.size() > 10 && random.nextInt(4) == 0) {
+                String rowId = present.get(random.nextInt(present.size()));
+                if (!one.hasChildren(rowId)) {
+                    assertFalse(builder.hasChildren(rowId));
+                    one = one.remove(rowId);
+                    builder.remove(rowId);
+                    present.remove(rowId);
+                }
+                continue;
+            }
+            String parent = present.isEmpty() || random.nextInt(5) == 0 ? null : present.get(random.nextInt(present.size()));
+            one = one.put(row("r" + i, parent));
+            builder.put(row("r" + i, parent));
+            present.add("r" + i);
+        }
+        var batch = builder.build();
+        assertEquals(one, batch);
+        assertEquals(one.roots(), batch.roots());
+        for (String rowId : present) {
+            assertEquals(one.children(rowId), batch.children(rowId));
+        }
+    }
+
+    @Test
+    public void anEmptyBatchReturnsTheSameIndex() {
+        var rows = RowIndex.empty().put(row("a", null));
+        assertSame(rows, rows.toBuilder().build());
+        assertSame(rows, rows.toBuilder().remove("missing").build());
+    }
+}
@@ -0,0 +1,91 @@
+package ccf.domain.standard;
+
+import ccf.domain.standard.Taxonomy.Row;
+import ccf.domain.standard.Taxonomy.SearchHit;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Random;
+
+import static ccf.domain.standard.TaxonomyFixtures.row;
+import static ccf.domain.standard.TaxonomyFixtures.rows;
+import static ccf.domain.standard.TaxonomyFixtures.withAliases;
+import static ccf.domain.standard.TaxonomyFixtures.withKeywords;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class SearchIndexTest {
+
+    private static final RowIndex ROWS = rows(
+            row("revenue", "Revenue", null),
+            row("ads", "Advertising Revenue", "revenue"),
+            withAliases(row("sales", "Sales", "revenue"), "Product Revenue"),
+            withKeywords(row("fees", "Fees", "revenue"), "revenue share"),
+            row("costs", "Operating Costs", null));
+
+    private static List<String> search(RowIndex rows, String query, int limit) {
+        return rows.search().search(rows, query, limit).stream().map(SearchHit::rowId).toList();
+    }
+
+    @Test
+    public void rowsMatchingMoreQueryTokensRankFirst() {
+        assertEquals("ads", search(ROWS, "advertising revenue", 5).get(0));
+        assertEquals(2, ROWS.search().search(ROWS, "advertising revenue", 1).get(0).matchedTokens());
+    }
+
+    // Among rows matching the same tokens a value outranks an alias, an alias a keyword, equal scores are in
+    // rowId order
+    @Test
+    public void valuesOutrankAliasesAndAliasesOutrankKeywords() {
+        assertEquals(List.of("ads", "revenue", "sales", "fees"), search(ROWS, "revenue", 5));
+    }
+
+    @Test
+    public void queriesAreTokenizedLikeTheRows() {
+        assertEquals(List.of("costs"), search(ROWS, "  OPERATING-costs! ", 5));
+        assertEquals(List.of("advertising", "revenue", "2024"), SearchIndex.tokenize("Advertising, Revenue 2024"));
+        assertEquals(List.of(), search(ROWS, "", 5));
+        assertEquals(List.of(), search(ROWS, "payroll", 5));
+    }
+
+    @Test
+    public void theLimitKeepsTheBestHits() {
+        assertEquals(List.of("ads", "revenue"), search(ROWS, "revenue", 2));
+        assertEquals(List.of("ads", "revenue", "sales"), search(ROWS, "revenue", 3));
+    }
+
+    // Once built, the index is carried to the next RowIndex and only the changed rows are re-indexed
+    @Test
+    public void aBuiltIndexFollowsPutsAndRemoves() {
+        ROWS.search();
+        var renamed = ROWS.put(row("costs", "Operating Expenses", null)).remove("ads");
+        assertEquals(List.of("costs"), search(renamed, "expenses", 5));
+        assertEquals(List.of(), search(renamed, "advertising", 5));
+        assertEquals(List.of("costs"), search(ROWS, "costs", 5));
+        assertEquals(List.of("ads"), search(ROWS, "advertising", 5));
+    }
+
+    @Test
+    public void aCarriedIndexFindsWhatARebuiltOneFinds() {
+        Random random = new Random(11);
+        String[] words = {"revenue", "cost", "tax", "cash", "lease", "fees", "ads", "payroll"};
+        RowIndex carried = RowIndex.empty();
+        carried.search();
+        for (int i = 0; i < 400; i++) {
+            String rowId = "r" + random.nextInt(100);
+            if (random.nextInt(4) == 0) {
+                carried = carried.remove(rowId);
+            } else {
+                String value = words[random.nextInt(words.length)] + " " + words[random.nextInt(words.length)];
+                Row row = withKeywords(row(rowId, value, null), words[random.nextInt(words.length)]);
+                carried = carried.put(row);
+            }
+        }
+        RowIndex rebuilt = rows(carried.toList().toArray(Row[]::new));
+        for (String word : words) {
+            var expected = rebuilt.search().search(rebuilt, word, 1000);
+            assertEquals(expected, carried.search().search(carried, word, 1000), word);
+        }
+        assertTrue(carried.size() > 0);
+    }
+}
@@ -0,0 +1,79 @@
+package ccf.domain.standard;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static ccf.domain.standard.TaxonomyFixtures.row;
+import static ccf.domain.standard.TaxonomyFixtures.rows;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class ShardedTaxonomyTest {
+
+    private static ShardedTaxonomy created(String... roots) {
+        var sharded = ShardedTaxonomy.empty("t1").onShardedTaxonomyCreated(new ShardedTaxonomyEvent.ShardedTaxonomyCreated(
+                new Taxonomy.TaxonomyCreate("Standard", null, new TaxonomyVersion(1, 0))));
+        for (String root : roots) {
+            sharded = sharded.onShardRootAdded(new ShardedTaxonomyEvent.ShardRootAdded(root));
+        }
+        return sharded;
+    }
+
+    // The shard of a rowId is read off the rowId itself, the part before the first separator
+    @Test
+    public void aRowIdIsOwnedByTheRootItStartsWith() {
+        assertEquals("pl", ShardedTaxonomy.ownerOf("pl"));
+        assertEquals("pl", ShardedTaxonomy.ownerOf("pl/revenue"));
+        assertEquals("pl", ShardedTaxonomy.ownerOf("pl/revenue/ads"));
+        assertEquals("t1#pl", ShardedTaxonomy.shardId("t1", ShardedTaxonomy.ownerOf("pl/revenue")));
+    }
+
+    @Test
+    public void aRowIdNoShardMayHoldHasNoOwner() {
+        assertNull(ShardedTaxonomy.ownerOf(null));
+        assertNull(ShardedTaxonomy.ownerOf(" "));
+        assertNull(ShardedTaxonomy.ownerOf("/revenue"));
+        assertNull(ShardedTaxonomy.ownerOf("pl/"));
+    }
+
+    @Test
+    public void onlyARowIdWithoutASeparatorIsARoot() {
+        assertTrue(ShardedTaxonomy.isRootRowId("pl"));
+        assertFalse(ShardedTaxonomy.isRootRowId("pl/revenue"));
+        assertFalse(ShardedTaxonomy.isRootRowId(""));
+        assertFalse(ShardedTaxonomy.isRootRowId(null));
+    }
+
+    @Test
+    public void rootsKeepTheOrderTheyWereAddedIn() {
+        var sharded = created("pl", "bs", "cf");
+        assertTrue(sharded.exists());
+        assertFalse(ShardedTaxonomy.empty("t2").exists());
+        assertEquals(List.of("pl", "bs", "cf"), sharded.rootRowIds());
+        assertEquals(List.of("pl", "cf"),
+                sharded.onShardRootRemoved(new ShardedTaxonomyEvent.ShardRootRemoved("bs")).rootRowIds());
+    }
+
+    // Shards are merged in skeleton order, each in its own tree order, as TaxonomyShardEntity.getShard returns them
+    @Test
+    public void shardsMergeIntoOneTaxonomy() {
+        var pl = rows(row("pl", null), row("pl/revenue", "pl"), row("pl/revenue/ads", "pl/revenue"));
+        var bs = rows(row("bs", null), row("bs/cash", "bs"));
+        var merged = created("pl", "bs").merge(List.of(pl.toList(), bs.toList()));
+        assertEquals(List.of("pl", "pl/revenue", "pl/revenue/ads", "bs", "bs/cash"),
+                merged.rows().intervals().after(null, 100));
+        assertEquals(new TaxonomyVersion(1, 0), merged.version());
+    }
+
+    @Test
+    public void aRowInTwoShardsFailsTheMerge() {
+        var sharded = created("pl", "bs");
+        assertThrows(TaxonomyException.class, () -> sharded.merge(List.of(
+                List.of(row("pl", null), row("pl/revenue", "pl")),
+                List.of(row("bs", null), row("pl/revenue", "bs")))));
+    }
+}
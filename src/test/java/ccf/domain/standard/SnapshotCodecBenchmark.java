@@ -0,0 +1,76 @@
+package ccf.domain.standard;
+
+import ccf.domain.standard.Taxonomy.Row;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+// Snapshot size and recovery time of TaxonomySnapshotCodec against the JSON list of rows snapshots were before.
+// Rows have 2 aliases, 3 keywords and a hint map each, in a random tree. Recovery is the decode into a RowIndex,
+// for JSON that is reading the rows and indexing them with RowIndex.of.
+// See Throughput for how to run it.
+public final class SnapshotCodecBenchmark {
+    private static final int[] SIZES = {1_000, 5_000, 20_000};
+
+    private SnapshotCodecBenchmark() {
+    }
+
+    public static void main(String[] args) {
+        ObjectMapper mapper = new ObjectMapper();
+        for (int size : SIZES) {
+            RowIndex rows = rows(new Random(42), size);
+            byte[] compact = TaxonomySnapshotCodec.encode(rows);
+            byte[] json = json(mapper, rows.toList());
+            System.out.printf("%d rows: compact %d KB, json %d KB%n", size, compact.length / 1024,
+                    json.length / 1024);
+            Throughput.measure("compact encode, " + size, 20, 30, size, "rows",
+                    () -> TaxonomySnapshotCodec.encode(rows).length);
+            Throughput.measure("json encode, " + size, 20, 30, size, "rows",
+                    () -> json(mapper, rows.toList()).length);
+            Throughput.measure("compact recover, " + size, 20, 30, size, "rows",
+                    () -> TaxonomySnapshotCodec.decode(compact).size());
+            Throughput.measure("json recover, " + size, 20, 30, size, "rows",
+                    () -> RowIndex.of(List.of(read(mapper, json))).size());
+        }
+    }
+
+    private static byte[] json(ObjectMapper mapper, List<Row> rows) {
+        try {
+            return mapper.writeValueAsBytes(rows);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static Row[] read(ObjectMapper mapper, byte[] json) {
+        try {
+            return mapper.readValue(json, Row[].class);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // The first tenth of the rows are roots, every later row is put under a random earlier one
+    private static RowIndex rows(Random random, int size) {
+        String[] dimensions = {"gl", "cost_center", "region", "segment"};
+        List<Row> rows = new ArrayList<>(size);
+        List<String> parents = new ArrayList<>();
+        for (int i = 0; i < size; i++) {
+            String rowId = "row_" + i;
+            String parent = i < size / 10 || parents.isEmpty() ? null : parents.get(random.nextInt(parents.size()));
+            String dimension = dimensions[random.nextInt(dimensions.length)];
+            rows.add(new Row(rowId, "Account " + i, random.nextBoolean() ? "Description of account " + i : null,
+                    List.of("Alias " + i, "Other name " + random.nextInt(size)),
+                    List.of("keyword" + random.nextInt(size), "keyword" + random.nextInt(size), "account " + i),
+                    Map.of(dimension, List.of(dimension + "_" + random.nextInt(100), "sub_" + random.nextInt(10))),
+                    parent, List.of(), null));
+            parents.add(rowId);
+        }
+        return TaxonomyFixtures.rows(rows.toArray(Row[]::new));
+    }
+}
@@ -0,0 +1,70 @@
+package ccf.domain.standard;
+
+import ccf.domain.standard.Taxonomy.Row;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+// TaxonomySuggestIndex at 1M labels: 200 published taxonomies of 5000 rows, each row a value of 2-4 words.
+// Measures indexing everything, the heap the index holds, top-10 queries for prefixes of 1 to 6 characters, and
+// re-indexing and removing one taxonomy, which is what a publish or an unpublish costs a node.
+// See Throughput for how to run it.
+public final class SuggestIndexBenchmark {
+    private static final int TAXONOMIES = 200;
+    private static final int ROWS = 5_000;
+    private static final int QUERIES = 10_000;
+
+    private SuggestIndexBenchmark() {
+    }
+
+    public static void main(String[] args) {
+        Random random = new Random(42);
+        String[] words = {"revenue", "cost", "advertising", "payroll", "tax", "deferred", "current", "assets",
+                "liabilities", "equity", "interest", "depreciation", "amortization", "inventory", "receivables",
+                "payables", "cash", "operating", "financial", "other", "income", "expense", "lease", "goodwill"};
+        List<List<Row>> taxonomies = new ArrayList<>(TAXONOMIES);
+        for (int t = 0; t < TAXONOMIES; t++) {
+            List<Row> rows = new ArrayList<>(ROWS);
+            for (int i = 0; i < ROWS; i++) {
+                StringBuilder value = new StringBuilder();
+                for (int w = 2 + random.nextInt(3); w > 0; w--) {
+                    value.append(words[random.nextInt(words.length)]).append(' ');
+                }
+                rows.add(TaxonomyFixtures.row("r" + i, value.append(i).toString(), null));
+            }
+            taxonomies.add(rows);
+        }
+
+        long before = Throughput.usedHeap();
+        TaxonomySuggestIndex index = new TaxonomySuggestIndex();
+        long start = System.nanoTime();
+        for (int t = 0; t < TAXONOMIES; t++) {
+            index.index("t" + t, 1, taxonomies.get(t));
+        }
+        System.out.printf("%d labels indexed into %d keys in %.1f s, %d MB of heap%n", TAXONOMIES * ROWS,
+                index.size(), (System.nanoTime() - start) / 1e9, (Throughput.usedHeap() - before) / (1024 * 1024));
+
+        List<String> prefixes = new ArrayList<>(QUERIES);
+        for (int q = 0; q < QUERIES; q++) {
+            String word = words[random.nextInt(words.length)];
+            prefixes.add(word.substring(0, Math.min(word.length(), 1 + random.nextInt(6))));
+        }
+        Throughput.measure("suggest top 10", 2, 5, QUERIES, "queries", () -> {
+            long found = 0;
+            for (String prefix : prefixes) {
+                found += index.suggest(prefix, 10).size();
+            }
+            return found;
+        });
+        Throughput.measure("re-index one taxonomy", 2, 5, 1, "taxonomies", () -> {
+            index.index("t0", 2, taxonomies.get(0));
+            return index.size();
+        });
+        Throughput.measure("remove and re-add one taxonomy", 2, 5, 1, "taxonomies", () -> {
+            index.remove("t1");
+            index.index("t1", 1, taxonomies.get(1));
+            return index.size();
+        });
+    }
+}
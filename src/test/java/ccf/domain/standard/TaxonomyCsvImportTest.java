@@ -0,0 +1,51 @@
+package ccf.domain.standard;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class TaxonomyCsvImportTest {
+
+    private static TaxonomyCsvImport read(String... lines) {
+        TaxonomyCsvImport csv = new TaxonomyCsvImport("t1", "account");
+        for (String line : lines) {
+            csv.readLine(line);
+        }
+        return csv;
+    }
+
+    @Test
+    public void theFirstNonBlankLineIsTheHeader() {
+        var csv = read("", "Level 1,Level 2", "  ", "Revenue,Ads");
+        assertEquals(1, csv.csvLines());
+        assertEquals(List.of("Revenue", "Ads"), csv.rows().stream().map(Taxonomy.TaxRow::value).toList());
+    }
+
+    @Test
+    public void levelsAreResolvedToTheRowOfTheirPath() {
+        var csv = read("Level 1,Level 2,Level 3", "Revenue,Ads,Display", "Revenue,Ads,Search", "Revenue,Fees");
+        var rows = csv.rows();
+        assertEquals(5, rows.size());
+        assertNull(rows.get(0).parent());
+        assertEquals(rows.get(0).rowId(), rows.get(1).parent());
+        assertEquals(rows.get(1).rowId(), rows.get(3).parent());
+        assertEquals(rows.get(0).rowId(), rows.get(4).parent());
+        assertEquals(3, csv.duplicates());
+    }
+
+    @Test
+    public void rowIdsDependOnlyOnThePath() {
+        var first = read("Level 1,Level 2", "Revenue,Ads");
+        var second = read("Level 1,Level 2", "Costs", "Revenue,Ads");
+        assertEquals(first.rows().get(1).rowId(), second.rows().get(2).rowId());
+    }
+
+    @Test
+    public void aLineWithTooManyLevelsIsRejected() {
+        assertThrows(IllegalArgumentException.class, () -> read("header", "a,b,c,d,e,f,g"));
+    }
+}
@@ -0,0 +1,112 @@
+package ccf.domain.standard;
+
+import ccf.domain.standard.Taxonomy.Row;
+import ccf.domain.standard.Taxonomy.RowDiff;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Random;
+
+import static ccf.domain.standard.TaxonomyFixtures.compiled;
+import static ccf.domain.standard.TaxonomyFixtures.row;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+public class TaxonomyDiffTest {
+
+    private static List<RowDiff> diff(RowIndex from, RowIndex to) {
+        List<RowDiff> diffs = new ArrayList<>();
+        TaxonomyDiff.diff(compiled("t1", from), compiled("t1", to)).forEachRemaining(diffs::add);
+        return diffs;
+    }
+
+    private static final RowIndex FROM = RowIndex.empty()
+            .put(row("revenue", "Revenue", null))
+            .put(row("ads", "Ads", "revenue"))
+            .put(row("fees", "Fees", "revenue"))
+            .put(row("costs", "Costs", null))
+            .put(row("travel", "Travel", "costs"))
+            .put(row("hotel", "Hotel", "travel"))
+            .put(row("rent", "Rent", "costs"));
+
+    @Test
+    public void sameVersionHasNoDiff() {
+        assertFalse(TaxonomyDiff.diff(compiled("t1", FROM), compiled("t1", FROM)).hasNext());
+    }
+
+    @Test
+    public void reportsEachKindOfChange() {
+        RowIndex to = FROM
+                .put(row("ads", "Advertising", "revenue"))
+                .put(row("hotel", "Hotel", "costs"))
+                .put(new Row("rent", "Rent", "Office rent", null, null, null, "costs", List.of(), null))
+                .remove("fees")
+                .put(row("royalties", "Royalties", "revenue"));
+
+        // Added and changed rows in the tree order of the new version, hotel now follows rent, then removed rows
+        assertEquals(List.of(
+                        new RowDiff("ads", List.of("relabeled"), "Advertising", "Ads", "revenue", "revenue"),
+                        new RowDiff("royalties", List.of("added"), "Royalties", null, "revenue", null),
+                        new RowDiff("rent", List.of("updated"), "Rent", "Rent", "costs", "costs"),
+                        new RowDiff("hotel", List.of("moved"), "Hotel", "Hotel", "costs", "travel"),
+                        new RowDiff("fees", List.of("removed"), null, "Fees", null, "revenue")),
+                diff(FROM, to));
+    }
+
+    @Test
+    public void unchangedSubtreesAreNotReported() {
+        RowIndex to = FROM.put(row("rent", "Rent and utilities", "costs"));
+        assertEquals(List.of(new RowDiff("rent", List.of("relabeled"), "Rent and utilities", "Rent", "costs", "costs")),
+                diff(FROM, to));
+    }
+
+    @Test
+    public void matchesARowByRowComparisonOverRandomEdits() {
+        Random random = new Random(7);
+        RowIndex from = RowIndex.empty();
+        for (int i = 0; i < 2_000; i++) {
+            from = from.put(row("r" + i, "Row " + i, i < 5 ? null : "r" + random.nextInt(i)));
+        }
+        RowIndex to = from;
+        for (int edit = 0; edit < 200; edit++) {
+            String rowId = "r" + random.nextInt(2_000);
+            Row current = to.get(rowId).orElse(null);
+            if (current == null) {
+                continue;
+            }
+            switch (random.nextInt(3)) {
+                case 0 -> to = to.put(row(rowId, current.value() + "'", current.parent()));
+                case 1 -> {
+                    if (!to.hasChildren(rowId)) {
+                        to = to.remove(rowId);
+                    }
+                }
+                default -> to = to.put(row("new" + edit, "New " + edit, rowId));
+            }
+        }
+
+        Map<String, String> expected = new HashMap<>();
+        for (Row row : to.rowsUnordered()) {
+            Row before = from.get(row.rowId()).orElse(null);
+            if (before == null) {
+                expected.put(row.rowId(), "added");
+            } else if (!Objects.equals(before.value(), row.value())) {
+                expected.put(row.rowId(), "relabeled");
+            }
+        }
+        for (Row row : from.rowsUnordered()) {
+            if (!to.contains(row.rowId())) {
+                expected.put(row.rowId(), "removed");
+            }
+        }
+        Map<String, String> actual = new HashMap<>();
+        for (RowDiff diff : diff(from, to)) {
+            actual.put(diff.rowId(), String.join(",", diff.changes()));
+        }
+        assertEquals(expected, actual);
+    }
+}
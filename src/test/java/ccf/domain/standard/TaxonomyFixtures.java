@@ -0,0 +1,63 @@
+package ccf.domain.standard;
+
+import ccf.domain.standard.Taxonomy.Row;
+import ccf.domain.standard.Taxonomy.TaxRow;
+
+import java.util.List;
+import java.util.Map;
+
+// Rows and taxonomies shared by the tests. Unless given, a row's value is its rowId upper-cased.
+public final class TaxonomyFixtures {
+
+    private TaxonomyFixtures() {
+    }
+
+    public static Row row(String rowId, String parent) {
+        return row(rowId, rowId.toUpperCase(), parent);
+    }
+
+    public static Row row(String rowId, String value, String parent) {
+        return new Row(rowId, value, null, null, null, null, parent, List.of(), null);
+    }
+
+    public static Row withChildren(Row row, String... children) {
+        return new Row(row.rowId(), row.value(), row.description(), row.aliases(), row.keywords(),
+                row.dimensionSrcHints(), row.parent(), List.of(children), row.formula());
+    }
+
+    public static Row withKeywords(Row row, String... keywords) {
+        return new Row(row.rowId(), row.value(), row.description(), row.aliases(), List.of(keywords),
+                row.dimensionSrcHints(), row.parent(), row.children(), row.formula());
+    }
+
+    public static Row withAliases(Row row, String... aliases) {
+        return new Row(row.rowId(), row.value(), row.description(), List.of(aliases), row.keywords(),
+                row.dimensionSrcHints(), row.parent(), row.children(), row.formula());
+    }
+
+    public static Row withHints(Row row, Map<String, List<String>> hints) {
+        return new Row(row.rowId(), row.value(), row.description(), row.aliases(), row.keywords(),
+                hints, row.parent(), row.children(), row.formula());
+    }
+
+    public static TaxRow taxRow(String rowId, String parent) {
+        return new TaxRow(rowId, rowId.toUpperCase(), null, null, null, null, parent);
+    }
+
+    // The rows put in order, children lists follow from the parents
+    public static RowIndex rows(Row... rows) {
+        RowIndex.Builder builder = RowIndex.empty().toBuilder();
+        for (Row row : rows) {
+            builder.put(row);
+        }
+        return builder.build();
+    }
+
+    public static Taxonomy taxonomy(String id, TaxonomyStatus status, RowIndex rows) {
+        return new Taxonomy(id, id, null, new TaxonomyVersion(1, 0), status, rows, null, null);
+    }
+
+    public static CompiledTaxonomy compiled(String id, RowIndex rows) {
+        return CompiledTaxonomy.compile(taxonomy(id, TaxonomyStatus.TAXONOMY_PUBLISHED, rows));
+    }
+}
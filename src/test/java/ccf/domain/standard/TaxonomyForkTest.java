@@ -0,0 +1,121 @@
+package ccf.domain.standard;
+
+import ccf.domain.standard.Taxonomy.PatchOp;
+import ccf.domain.standard.Taxonomy.TaxonomyPatch;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import static ccf.domain.standard.TaxonomyFixtures.row;
+import static ccf.domain.standard.TaxonomyFixtures.rows;
+import static ccf.domain.standard.TaxonomyFixtures.taxRow;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class TaxonomyForkTest {
+
+    private static final RowIndex BASE = rows(
+            row("revenue", null),
+            row("ads", "revenue"),
+            row("display", "ads"),
+            row("fees", "revenue"),
+            row("costs", null));
+
+    private static TaxonomyFork created() {
+        return TaxonomyFork.empty("f1").onForkCreated(new TaxonomyForkEvent.ForkCreated(
+                new TaxonomyFork.ForkCreate("Draft", null, "t1", new TaxonomyVersion(1, 0))));
+    }
+
+    private static PatchOp add(String rowId, String parent) {
+        return new PatchOp("add", null, taxRow(rowId, parent), null, null);
+    }
+
+    private static PatchOp remove(String rowId) {
+        return new PatchOp("remove", rowId, null, null, null);
+    }
+
+    private static PatchOp move(String rowId, String parent) {
+        return new PatchOp("move", rowId, null, null, parent);
+    }
+
+    // Applies a patch the way the endpoint does: to the merged fork, keeping only the changes of the touched rows
+    private static TaxonomyFork patch(TaxonomyFork fork, PatchOp... ops) {
+        var patch = new TaxonomyPatch(List.of(ops));
+        var after = fork.merge(BASE).onTaxonomyPatched(new TaxonomyEvent.TaxonomyPatched(patch)).rows();
+        var changes = TaxonomyFork.changes(0, after, patch);
+        var patched = fork.onForkRowsChanged(
+                new TaxonomyForkEvent.ForkRowsChanged(changes.rows(), changes.removedRowIds()));
+        assertEquals(after.toList(), patched.merge(BASE).rows().toList());
+        return patched;
+    }
+
+    @Test
+    public void aNewForkMergesToItsBase() {
+        var fork = created();
+        assertTrue(fork.exists());
+        assertFalse(TaxonomyFork.empty("f2").exists());
+        var merged = fork.merge(BASE);
+        assertEquals(BASE.toList(), merged.rows().toList());
+        assertEquals(new TaxonomyVersion(1, 0), merged.version());
+        assertEquals(TaxonomyStatus.TAXONOMY_INITIALIZED, merged.status());
+    }
+
+    // The fork holds only what it changed, the base is left as it was
+    @Test
+    public void onlyTheChangedRowsAreStored() {
+        var fork = patch(created(), add("search", "ads"), remove("fees"));
+        assertEquals(Set.of("search"), fork.overrides().keySet());
+        assertEquals(Set.of("fees"), fork.removed());
+        assertEquals(List.of("revenue", "ads", "display", "search", "costs"),
+                fork.merge(BASE).rows().intervals().after(null, 100));
+        assertEquals(5, BASE.size());
+        assertTrue(BASE.get("fees").isPresent());
+    }
+
+    @Test
+    public void aRowAddedUnderAnAddedRowIsMergedAfterItsParent() {
+        var fork = patch(created(), add("tax", null), add("vat", "tax"));
+        fork = patch(fork, move("tax", "costs"));
+        assertEquals(List.of("costs", "tax", "vat"), fork.merge(BASE).rows().intervals().subtree("costs", null));
+    }
+
+    @Test
+    public void aRowRemovedAndAddedAgainIsAnOverride() {
+        var fork = patch(created(), remove("display"));
+        fork = patch(fork, add("display", "costs"));
+        assertEquals(Set.of(), fork.removed());
+        assertEquals(List.of("display"), fork.merge(BASE).rows().children("costs"));
+    }
+
+    // Any run of patches merges to the rows the same patches give when applied to the base directly
+    @Test
+    public void randomPatchesMergeLikeTheyApply() {
+        Random random = new Random(5);
+        var fork = created();
+        int next = 0;
+        for (int i = 0; i < 200; i++) {
+            List<String> rowIds = fork.merge(BASE).rows().intervals().after(null, 1000);
+            List<PatchOp> ops = new ArrayList<>();
+            int choice = random.nextInt(3);
+            if (choice == 0 || rowIds.size() < 3) {
+                String parent = rowIds.isEmpty() ? null : rowIds.get(random.nextInt(rowIds.size()));
+                ops.add(add("n" + next++, parent));
+            } else {
+                String rowId = rowIds.get(random.nextInt(rowIds.size()));
+                var merged = fork.merge(BASE).rows();
+                if (choice == 1 && merged.children(rowId).isEmpty()) {
+                    ops.add(remove(rowId));
+                } else {
+                    var subtree = merged.intervals().subtree(rowId, null);
+                    List<String> parents = rowIds.stream().filter(id -> !subtree.contains(id)).toList();
+                    ops.add(move(rowId, parents.isEmpty() ? null : parents.get(random.nextInt(parents.size()))));
+                }
+            }
+            fork = patch(fork, ops.toArray(PatchOp[]::new));
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package ccf.domain.standard;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class TaxonomyImportTest {
+
+    private static TaxonomyImport started() {
+        return TaxonomyImport.start("import-1", new TaxonomyImport.ImportStart("t1", "import-1-key", 3, 2500));
+    }
+
+    @Test
+    public void theCursorMovesOnlyPastImportedChunks() {
+        var state = started().onChunkImported(1000);
+        assertEquals(1, state.nextChunk());
+        assertEquals(1000, state.importedRows());
+        assertFalse(state.isDone());
+
+        var failed = state.onChunkFailed("timeout");
+        assertEquals(1, failed.nextChunk());
+        assertEquals(TaxonomyImportStatus.IMPORT_WAITING_RETRY, failed.status());
+        assertEquals(1, failed.attempts());
+
+        var done = failed.onResumed().onChunkImported(1000).onChunkImported(500);
+        assertTrue(done.isDone());
+        assertEquals(2500, done.importedRows());
+        assertEquals(0, done.attempts());
+        assertNull(done.lastError());
+        assertEquals("import-1-key", done.chunkKey());
+    }
+
+    @Test
+    public void aTimerResumeKeepsCountingAttempts() {
+        var waiting = started().onChunkFailed("timeout").onChunkFailed("timeout");
+        var resumed = waiting.onResumed();
+        assertEquals(TaxonomyImportStatus.IMPORT_RUNNING, resumed.status());
+        assertEquals(2, resumed.attempts());
+        assertEquals(0, resumed.nextChunk());
+    }
+
+    @Test
+    public void resumingAFailedImportStartsAFreshRetryBudget() {
+        var state = started().onChunkImported(1000);
+        for (int i = 0; i < 8; i++) {
+            state = state.onChunkFailed("unavailable");
+        }
+        var failed = state.onFailed("unavailable");
+        assertEquals(TaxonomyImportStatus.IMPORT_FAILED, failed.status());
+        assertEquals(8, failed.attempts());
+
+        var resumed = failed.onResumed();
+        assertEquals(TaxonomyImportStatus.IMPORT_RUNNING, resumed.status());
+        assertEquals(0, resumed.attempts());
+        // Resumed from the cursor, the imported chunk is not sent again
+        assertEquals(1, resumed.nextChunk());
+        assertEquals(1000, resumed.importedRows());
+    }
+
+    @Test
+    public void retryDelayBacksOffExponentiallyUpToTheCap() {
+        Duration base = Duration.ofMillis(500);
+        Duration max = Duration.ofSeconds(60);
+        var state = started().onChunkFailed("e");
+        assertEquals(Duration.ofSeconds(1), state.retryDelay(base, max));
+        assertEquals(Duration.ofSeconds(2), state.onChunkFailed("e").retryDelay(base, max));
+        for (int i = 0; i < 20; i++) {
+            state = state.onChunkFailed("e");
+        }
+        assertEquals(max, state.retryDelay(base, max));
+    }
+
+    @Test
+    public void progressReportsTheCursor() {
+        var progress = started().onChunkImported(1000).onChunkImported(1000).progress();
+        assertEquals(2, progress.completedChunks());
+        assertEquals(3, progress.totalChunks());
+        assertEquals(2000, progress.importedRows());
+        assertEquals(TaxonomyImportStatus.IMPORT_RUNNING, progress.status());
+    }
+}
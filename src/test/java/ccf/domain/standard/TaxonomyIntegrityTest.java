@@ -0,0 +1,118 @@
+package ccf.domain.standard;
+
+import ccf.domain.standard.Taxonomy.Row;
+import ccf.domain.standard.TaxonomyIntegrity.IntegrityReport;
+import ccf.domain.standard.TaxonomyIntegrity.Issue;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static ccf.domain.standard.TaxonomyFixtures.rows;
+import static ccf.domain.standard.TaxonomyFixtures.withChildren;
+import static ccf.domain.standard.TaxonomyFixtures.withHints;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class TaxonomyIntegrityTest {
+    private static final Map<String, List<String>> HINTS = Map.of("gl", List.of("account"));
+
+    // RowIndex.of keeps the children lists as given, which is how a corrupted snapshot would be read
+    private static Row row(String rowId, String value, String parent, String... children) {
+        return withHints(withChildren(TaxonomyFixtures.row(rowId, value, parent), children), HINTS);
+    }
+
+    private static IntegrityReport check(Row... rows) {
+        return TaxonomyIntegrity.check("t1", RowIndex.of(List.of(rows)));
+    }
+
+    private static List<String> types(IntegrityReport report) {
+        return report.issues().stream().map(Issue::type).toList();
+    }
+
+    @Test
+    public void aConsistentTreeIsValid() {
+        IntegrityReport report = check(
+                row("revenue", "Revenue", null, "ads", "fees"),
+                row("ads", "Ads", "revenue"),
+                row("fees", "Fees", "revenue"));
+        assertTrue(report.isValid());
+        assertEquals(3, report.rows());
+        assertEquals(0, report.errors());
+        assertEquals(0, report.warnings());
+        assertEquals(List.of(), report.issues());
+    }
+
+    @Test
+    public void reportsAParentThatDoesNotExist() {
+        IntegrityReport report = check(row("ads", "Ads", "missing"));
+        assertFalse(report.isValid());
+        assertEquals(List.of(TaxonomyIntegrity.ORPHANED_PARENT), types(report));
+        assertEquals("missing", report.issues().getFirst().parent());
+    }
+
+    @Test
+    public void reportsEachCycleOnce() {
+        IntegrityReport report = check(
+                row("a", "A", "c", "b"),
+                row("b", "B", "a", "c"),
+                row("c", "C", "b", "a"),
+                row("root", "Root", null));
+        assertEquals(1, report.counts().get(TaxonomyIntegrity.CYCLE));
+        Issue cycle = report.issues().stream()
+                .filter(issue -> issue.type().equals(TaxonomyIntegrity.CYCLE)).findFirst().orElseThrow();
+        assertEquals(3, cycle.rowIds().size());
+        assertTrue(cycle.rowIds().containsAll(List.of("a", "b", "c")));
+    }
+
+    @Test
+    public void reportsChildrenListsThatDisagreeWithParents() {
+        IntegrityReport report = check(
+                row("revenue", "Revenue", null, "ads", "ads", "ghost"),
+                row("costs", "Costs", null, "fees"),
+                row("ads", "Ads", "revenue"),
+                row("fees", "Fees", "revenue"));
+        // ads listed twice, ghost does not exist, fees listed under costs and missing from revenue
+        assertEquals(4, report.counts().get(TaxonomyIntegrity.CHILDREN_MISMATCH));
+        assertFalse(report.isValid());
+    }
+
+    @Test
+    public void reportsSiblingsWithTheSameValueIgnoringCase() {
+        IntegrityReport report = check(
+                row("revenue", "Revenue", null, "ads", "ads2"),
+                row("ads", "Ads", "revenue"),
+                row("ads2", " ADS ", "revenue"),
+                row("costs", "Ads", null));
+        assertEquals(List.of(TaxonomyIntegrity.DUPLICATE_SIBLING_VALUE), types(report));
+        assertEquals(List.of("ads", "ads2"), report.issues().getFirst().rowIds().stream().sorted().toList());
+    }
+
+    @Test
+    public void emptyLeavesAreWarningsOnly() {
+        // total is computed by its formula, so it is not an empty leaf
+        IntegrityReport report = TaxonomyIntegrity.check("t1", rows(
+                TaxonomyFixtures.row("revenue", "Revenue", null),
+                TaxonomyFixtures.row("ads", "Ads", "revenue"),
+                new Row("total", "Total", null, null, null, null, "revenue", List.of(), "ads")));
+        assertTrue(report.isValid());
+        assertEquals(1, report.warnings());
+        assertEquals(List.of(TaxonomyIntegrity.EMPTY_LEAF), types(report));
+        assertEquals("ads", report.issues().getFirst().rowId());
+    }
+
+    @Test
+    public void countsEveryIssueButReportsAtMostTheLimit() {
+        List<Row> rows = new ArrayList<>();
+        int orphans = TaxonomyIntegrity.MAX_REPORTED_ISSUES + 500;
+        for (int i = 0; i < orphans; i++) {
+            rows.add(row("r" + i, "Row " + i, "missing"));
+        }
+        IntegrityReport report = TaxonomyIntegrity.check("t1", RowIndex.of(rows));
+        assertEquals(orphans, report.errors());
+        assertEquals(orphans, report.counts().get(TaxonomyIntegrity.ORPHANED_PARENT));
+        assertEquals(TaxonomyIntegrity.MAX_REPORTED_ISSUES, report.issues().size());
+    }
+}
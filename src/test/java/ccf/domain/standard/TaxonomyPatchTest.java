@@ -0,0 +1,108 @@
+package ccf.domain.standard;
+
+import ccf.domain.standard.Taxonomy.PatchOp;
+import ccf.domain.standard.Taxonomy.TaxRowUpdate;
+import ccf.domain.standard.Taxonomy.TaxonomyPatch;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static ccf.domain.standard.TaxonomyFixtures.row;
+import static ccf.domain.standard.TaxonomyFixtures.rows;
+import static ccf.domain.standard.TaxonomyFixtures.taxRow;
+import static ccf.domain.standard.TaxonomyFixtures.taxonomy;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class TaxonomyPatchTest {
+
+    private static final Taxonomy TAXONOMY = taxonomy("t1", TaxonomyStatus.TAXONOMY_INITIALIZED, rows(
+            row("revenue", null), row("ads", "revenue"), row("display", "ads"), row("costs", null)));
+
+    private static PatchOp add(String rowId, String parent) {
+        return new PatchOp("add", null, taxRow(rowId, parent), null, null);
+    }
+
+    private static PatchOp update(String rowId, String value, String parent) {
+        return new PatchOp("update", rowId, null, new TaxRowUpdate.Updates(value, null, null, null, null, parent), null);
+    }
+
+    private static PatchOp move(String rowId, String parent) {
+        return new PatchOp("move", rowId, null, null, parent);
+    }
+
+    private static PatchOp remove(String rowId) {
+        return new PatchOp("remove", rowId, null, null, null);
+    }
+
+    private static Taxonomy patch(PatchOp... ops) {
+        return TAXONOMY.onTaxonomyPatched(new TaxonomyEvent.TaxonomyPatched(new TaxonomyPatch(List.of(ops))));
+    }
+
+    @Test
+    public void opsApplyInOrderAndSeeEarlierOps() {
+        Taxonomy patched = patch(
+                add("fees", "revenue"),
+                add("late-fees", "fees"),
+                update("ads", "Advertising", "revenue"),
+                move("display", "costs"),
+                remove("late-fees"));
+
+        RowIndex rows = patched.rows();
+        assertEquals(List.of("ads", "fees"), rows.children("revenue"));
+        assertEquals("Advertising", rows.get("ads").orElseThrow().value());
+        assertEquals(List.of("display"), rows.children("costs"));
+        assertFalse(rows.contains("late-fees"));
+        // The state the patch was applied to is unchanged
+        assertFalse(TAXONOMY.rows().contains("fees"));
+        assertEquals(List.of("display"), TAXONOMY.rows().children("ads"));
+    }
+
+    @Test
+    public void rejectsAnAddOfAnExistingRow() {
+        var e = assertThrows(TaxonomyException.class, () -> patch(add("fees", "revenue"), add("fees", "costs")));
+        assertTrue(e.getMessage().contains("Patch op 1 (add)"), e.getMessage());
+        assertTrue(e.getMessage().contains("already exists"), e.getMessage());
+    }
+
+    // The message carries the failing op once, followed by its reason without a second taxonomy id prefix
+    @Test
+    public void anOpFailureNamesThePositionAndTheBareReason() {
+        var e = assertThrows(TaxonomyException.class, () -> patch(add("fees", "revenue"), remove("missing")));
+        assertEquals("Patch op 1 (remove): Tax row with ID 'missing' not found", e.reason());
+        assertEquals("Taxonomy id t1:" + e.reason(), e.getMessage());
+        assertEquals("t1", e.taxonomyId());
+    }
+
+    @Test
+    public void rejectsMovingARowBelowItsOwnDescendant() {
+        var e = assertThrows(TaxonomyException.class, () -> patch(move("revenue", "display")));
+        assertTrue(e.getMessage().contains("Patch op 0 (move)"), e.getMessage());
+        assertThrows(TaxonomyException.class, () -> patch(update("ads", "Ads", "display")));
+        assertThrows(TaxonomyException.class, () -> patch(move("ads", "ads")));
+    }
+
+    @Test
+    public void rejectsRemovingAParent() {
+        var e = assertThrows(TaxonomyException.class, () -> patch(remove("ads")));
+        assertTrue(e.getMessage().contains("parent of other rows"), e.getMessage());
+    }
+
+    @Test
+    public void rejectsMissingRowsAndUnknownOps() {
+        assertThrows(TaxonomyException.class, () -> patch(remove("missing")));
+        assertThrows(TaxonomyException.class, () -> patch(update("ads", "Ads", "missing")));
+        assertThrows(TaxonomyException.class, () -> patch(move("missing", "revenue")));
+        assertThrows(TaxonomyException.class, () -> patch(new PatchOp("copy", "ads", null, null, null)));
+        assertThrows(TaxonomyException.class, () -> patch(new PatchOp("remove", null, null, null, null)));
+    }
+
+    @Test
+    public void aFailedOpLeavesNoOpApplied() {
+        // Validation applies the patch to the immutable rows, so the rejected patch changes nothing
+        assertThrows(TaxonomyException.class, () -> patch(add("fees", "revenue"), remove("missing")));
+        assertFalse(TAXONOMY.rows().contains("fees"));
+    }
+}
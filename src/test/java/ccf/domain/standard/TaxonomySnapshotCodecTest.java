@@ -0,0 +1,110 @@
+package ccf.domain.standard;
+
+import ccf.domain.standard.Taxonomy.Row;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class TaxonomySnapshotCodecTest {
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    private static RowIndex sampleRows() {
+        return RowIndex.of(List.of(
+                new Row("revenue", "Revenue", "All revenue", List.of("Sales", "Turnover"), List.of("revenue"),
+                        Map.of("gl", List.of("account", "sub_account")), null, List.of("ads", "fees"), null),
+                new Row("ads", "Advertising – Ø €", null, List.of(), null, Map.of(), "revenue", List.of(), null),
+                new Row("fees", "Fees", "", null, List.of("fee", "commission"), null, "revenue", List.of(),
+                        "ads * 0.1"),
+                new Row("costs", "Costs", null, null, null, null, null, List.of(), null)));
+    }
+
+    @Test
+    public void roundTripKeepsEveryField() {
+        RowIndex rows = sampleRows();
+        RowIndex decoded = TaxonomySnapshotCodec.decode(TaxonomySnapshotCodec.encode(rows));
+        assertEquals(rows.toList(), decoded.toList());
+        assertEquals(rows.roots(), decoded.roots());
+        assertEquals(List.of("ads", "fees"), decoded.children("revenue"));
+    }
+
+    @Test
+    public void roundTripKeepsNullDistinctFromEmpty() {
+        var rows = RowIndex.of(List.of(
+                new Row("a", null, null, null, List.of(), Map.of(), null, List.of(), null),
+                new Row("b", "", "", List.of(), null, null, null, List.of(), "")));
+        List<Row> decoded = TaxonomySnapshotCodec.decode(TaxonomySnapshotCodec.encode(rows)).toList();
+        assertEquals(rows.toList(), decoded);
+    }
+
+    @Test
+    public void roundTripKeepsAParentThatIsNotARow() {
+        var rows = RowIndex.of(List.of(new Row("orphan", "Orphan", null, null, null, null, "missing", List.of(), null)));
+        Row decoded = TaxonomySnapshotCodec.decode(TaxonomySnapshotCodec.encode(rows)).get("orphan").orElseThrow();
+        assertEquals("missing", decoded.parent());
+    }
+
+    @Test
+    public void roundTripOfManyRows() {
+        RowIndex rows = RowIndex.empty();
+        List<String> roots = new ArrayList<>();
+        for (int i = 0; i < 5_000; i++) {
+            String parent = i < 10 ? null : "r" + (i / 10);
+            if (parent == null) {
+                roots.add("r" + i);
+            }
+            rows = rows.put(new Row("r" + i, "Row " + i, null, List.of("alias " + i % 7), null, null, parent,
+                    List.of(), null));
+        }
+        RowIndex decoded = TaxonomySnapshotCodec.decode(TaxonomySnapshotCodec.encode(rows));
+        assertEquals(rows.toList(), decoded.toList());
+        assertEquals(roots, decoded.roots());
+    }
+
+    @Test
+    public void decodeRejectsAnUnknownVersion() {
+        byte[] bytes = TaxonomySnapshotCodec.encode(sampleRows());
+        bytes[0] = (byte) (TaxonomySnapshotCodec.VERSION + 1);
+        assertThrows(IllegalArgumentException.class, () -> TaxonomySnapshotCodec.decode(bytes));
+    }
+
+    @Test
+    public void taxonomyJsonRoundTripUsesTheCompactEncoding() throws Exception {
+        var taxonomy = new Taxonomy("t1", "Standard", "d", new TaxonomyVersion(1, 2), TaxonomyStatus.TAXONOMY_PUBLISHED,
+                sampleRows(), null, Map.of("import-1", 3));
+        String json = mapper.writeValueAsString(taxonomy);
+        // The rows are one base64 string, not a list of row objects
+        assertTrue(json.contains("\"rows\":\""), json);
+
+        Taxonomy read = mapper.readValue(json, Taxonomy.class);
+        assertEquals(taxonomy.id(), read.id());
+        assertEquals(taxonomy.version(), read.version());
+        assertEquals(taxonomy.rows().toList(), read.rows().toList());
+        assertTrue(read.isChunkImported("import-1", 3));
+    }
+
+    @Test
+    public void legacySnapshotWithAListOfRowsIsStillRead() throws Exception {
+        RowIndex rows = sampleRows();
+        String legacy = "{\"id\":\"t1\",\"name\":\"Standard\",\"description\":\"d\","
+                + "\"version\":{\"major\":1,\"minor\":2},\"status\":\"TAXONOMY_INITIALIZED\",\"rows\":"
+                + mapper.writeValueAsString(rows.toList()) + "}";
+
+        Taxonomy read = mapper.readValue(legacy, Taxonomy.class);
+        assertEquals(TaxonomyStatus.TAXONOMY_INITIALIZED, read.status());
+        assertEquals(rows.toList(), read.rows().toList());
+        assertEquals(List.of("ads", "fees"), read.rows().children("revenue"));
+    }
+
+    @Test
+    public void missingRowsReadAsEmpty() throws Exception {
+        Taxonomy read = mapper.readValue("{\"id\":\"t1\",\"status\":\"TAXONOMY_EMPTY\",\"rows\":null}", Taxonomy.class);
+        assertTrue(read.rows().isEmpty());
+    }
+}
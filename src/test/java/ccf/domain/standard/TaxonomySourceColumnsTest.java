@@ -0,0 +1,84 @@
+package ccf.domain.standard;
+
+import ccf.domain.standard.Taxonomy.TaxRow;
+import ccf.domain.standard.TaxonomySourceColumns.SourceColumnRow;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class TaxonomySourceColumnsTest {
+
+    private static TaxRow hinted(String rowId, Map<String, List<String>> hints) {
+        return new TaxRow(rowId, rowId.toUpperCase(), null, null, null, hints, null);
+    }
+
+    private static Taxonomy.TaxRowUpdate.Updates hints(Map<String, List<String>> hints) {
+        return new Taxonomy.TaxRowUpdate.Updates("VALUE", null, null, null, hints, null);
+    }
+
+    private static final TaxonomySourceColumns COLUMNS = TaxonomySourceColumns.empty("t1")
+            .onTaxRowsAdded(new Taxonomy.TaxRowsAdd(List.of(
+                    hinted("revenue", Map.of("gl", List.of("4000", "4100"))),
+                    hinted("ads", Map.of("gl", List.of("4100"), "segment", List.of("media"))),
+                    hinted("costs", null)), false));
+
+    private static List<String> rowIds(TaxonomySourceColumns columns, String dimension, String column) {
+        return columns.rowsFor(dimension, column).stream().map(SourceColumnRow::rowId).toList();
+    }
+
+    @Test
+    public void aColumnFindsEveryRowItFeeds() {
+        assertEquals(List.of("revenue", "ads"), rowIds(COLUMNS, "gl", "4100"));
+        assertEquals(List.of("revenue"), rowIds(COLUMNS, "gl", "4000"));
+        assertEquals(List.of("ads"), rowIds(COLUMNS, "segment", "media"));
+        assertEquals(List.of(), rowIds(COLUMNS, "segment", "4100"));
+    }
+
+    @Test
+    public void columnKeysHoldEachDimensionAndColumnOnce() {
+        assertEquals(3, COLUMNS.columnKeys().size());
+        assertEquals(List.of("gl:4000", "gl:4100", "segment:media"), COLUMNS.columnKeys().stream().sorted().toList());
+        assertEquals("gl:4100", TaxonomySourceColumns.columnKey("gl", "4100"));
+    }
+
+    @Test
+    public void removedRowsAndReplacedTaxonomiesDropTheirColumns() {
+        assertEquals(List.of("ads"), rowIds(COLUMNS.onTaxRowsRemoved(List.of("revenue")), "gl", "4100"));
+        var replaced = COLUMNS.onTaxRowsAdded(new Taxonomy.TaxRowsAdd(
+                List.of(hinted("fees", Map.of("gl", List.of("4200")))), true));
+        assertEquals(List.of("gl:4200"), replaced.columnKeys());
+    }
+
+    @Test
+    public void anUpdateReplacesTheHintsOfItsRow() {
+        var updated = COLUMNS.onTaxRowUpdated(new Taxonomy.TaxRowUpdate("ads", hints(Map.of("gl", List.of("4200")))));
+        assertEquals(List.of("revenue"), rowIds(updated, "gl", "4100"));
+        assertEquals(List.of("ads"), rowIds(updated, "gl", "4200"));
+        assertEquals(List.of(), rowIds(updated, "segment", "media"));
+
+        var batch = COLUMNS.onTaxRowsUpdated(new Taxonomy.TaxRowsUpdate(List.of(
+                new Taxonomy.TaxRowUpdate("revenue", hints(null)),
+                new Taxonomy.TaxRowUpdate("costs", hints(Map.of("gl", List.of("5000")))))));
+        assertEquals(List.of("ads"), rowIds(batch, "gl", "4100"));
+        assertEquals(List.of("costs"), rowIds(batch, "gl", "5000"));
+    }
+
+    @Test
+    public void aPatchLeavesEachTouchedRowWithItsFinalHints() {
+        var patched = COLUMNS.onTaxonomyPatched(new Taxonomy.TaxonomyPatch(List.of(
+                new Taxonomy.PatchOp("add", null, hinted("fees", Map.of("gl", List.of("4100"))), null, null),
+                new Taxonomy.PatchOp("remove", "revenue", null, null, null),
+                new Taxonomy.PatchOp("move", "ads", null, null, "fees"))));
+        assertEquals(List.of("ads", "fees"), rowIds(patched, "gl", "4100"));
+        assertEquals(List.of(), rowIds(patched, "gl", "4000"));
+    }
+
+    @Test
+    public void rowsCarryWhetherTheTaxonomyIsPublished() {
+        assertEquals(List.of(new SourceColumnRow("t1", "ads", true)),
+                COLUMNS.onTaxonomyPublished(true).rowsFor("segment", "media"));
+    }
+}
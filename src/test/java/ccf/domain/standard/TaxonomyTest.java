@@ -0,0 +1,95 @@
+package ccf.domain.standard;
+
+import ccf.domain.standard.Taxonomy.TaxRowUpdate;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static ccf.domain.standard.TaxonomyFixtures.row;
+import static ccf.domain.standard.TaxonomyFixtures.rows;
+import static ccf.domain.standard.TaxonomyFixtures.taxRow;
+import static ccf.domain.standard.TaxonomyFixtures.taxonomy;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class TaxonomyTest {
+
+    private static final Taxonomy TAXONOMY = taxonomy("t1", TaxonomyStatus.TAXONOMY_INITIALIZED, rows(
+            row("revenue", null),
+            row("ads", "revenue"),
+            row("display", "ads"),
+            row("costs", null)));
+
+    private static Taxonomy added(Taxonomy taxonomy, Taxonomy.TaxRow... taxRows) {
+        return taxonomy.onTaxonomyTaxRowsAdded(new TaxonomyEvent.TaxonomyTaxRowsAdded(
+                new Taxonomy.TaxRowsAdd(List.of(taxRows), false), null, null));
+    }
+
+    private static TaxRowUpdate reparent(String rowId, String parent) {
+        return new TaxRowUpdate(rowId, new TaxRowUpdate.Updates(rowId.toUpperCase(), null, null, null, null, parent));
+    }
+
+    @Test
+    public void anAddedRowIsLinkedIntoItsParentsChildren() {
+        var taxonomy = added(TAXONOMY, taxRow("search", "ads"), taxRow("fees", "revenue"));
+        assertEquals(List.of("display", "search"), taxonomy.rows().children("ads"));
+        assertEquals(List.of("ads", "fees"), taxonomy.rows().children("revenue"));
+        assertEquals(List.of("display", "search"),
+                taxonomy.rows().get("ads").orElseThrow().children());
+        assertEquals(List.of("display"), TAXONOMY.rows().children("ads"));
+    }
+
+    @Test
+    public void aRowUnderAParentThatIsNotThereIsRejected() {
+        var e = assertThrows(TaxonomyException.class, () -> added(TAXONOMY, taxRow("search", "missing")));
+        assertEquals("Parent row with ID 'missing' not found", e.reason());
+    }
+
+    @Test
+    public void aBatchSeesTheRowsAddedBeforeItInTheSameBatch() {
+        var taxonomy = added(TAXONOMY, taxRow("other", null), taxRow("misc", "other"));
+        assertEquals(List.of("misc"), taxonomy.rows().children("other"));
+    }
+
+    @Test
+    public void aReplaceStartsFromNoRows() {
+        var taxonomy = TAXONOMY.onTaxonomyTaxRowsAdded(new TaxonomyEvent.TaxonomyTaxRowsAdded(
+                new Taxonomy.TaxRowsAdd(List.of(taxRow("other", null)), true), null, null));
+        assertEquals(List.of("other"), taxonomy.rows().roots());
+        assertEquals(1, taxonomy.rows().size());
+    }
+
+    @Test
+    public void removingALeafDropsItFromItsParent() {
+        var taxonomy = TAXONOMY.onTaxonomyTaxRowRemoved(new TaxonomyEvent.TaxonomyTaxRowRemoved("display"));
+        assertFalse(taxonomy.rows().contains("display"));
+        assertEquals(List.of(), taxonomy.rows().children("ads"));
+    }
+
+    @Test
+    public void removingAParentOrAMissingRowIsRejected() {
+        assertThrows(TaxonomyException.class,
+                () -> TAXONOMY.onTaxonomyTaxRowRemoved(new TaxonomyEvent.TaxonomyTaxRowRemoved("ads")));
+        assertThrows(TaxonomyException.class,
+                () -> TAXONOMY.onTaxonomyTaxRowRemoved(new TaxonomyEvent.TaxonomyTaxRowRemoved("missing")));
+    }
+
+    @Test
+    public void anUpdateMovesTheRowBetweenItsOldAndNewParent() {
+        var taxonomy = TAXONOMY.onTaxonomyTaxRowUpdated(
+                new TaxonomyEvent.TaxonomyTaxRowUpdated(reparent("display", "costs")));
+        assertEquals(List.of(), taxonomy.rows().children("ads"));
+        assertEquals(List.of("display"), taxonomy.rows().children("costs"));
+    }
+
+    @Test
+    public void anUpdateToNoParentMakesTheRowARoot() {
+        var taxonomy = TAXONOMY.onTaxonomyTaxRowUpdated(
+                new TaxonomyEvent.TaxonomyTaxRowUpdated(reparent("display", null)));
+        assertNull(taxonomy.rows().get("display").orElseThrow().parent());
+        assertEquals(List.of("revenue", "costs", "display"), taxonomy.rows().roots());
+        assertEquals(List.of(), taxonomy.rows().children("ads"));
+    }
+}
@@ -0,0 +1,56 @@
+package ccf.domain.standard;
+
+import java.util.Arrays;
+import java.util.function.LongSupplier;
+
+// Throughput is the timing harness of the *Benchmark classes in this package. They are plain main methods, so they
+// are compiled with the tests but not run by them (surefire only picks up *Test classes):
+//   mvn test-compile dependency:build-classpath -Dmdep.outputFile=target/test.classpath
+//   java -cp target/test-classes:target/classes:$(cat target/test.classpath) ccf.domain.standard.<Name>Benchmark
+// An operation is run a few times to warm up, then timed over a number of iterations. Its result is kept in a
+// volatile sink so the JIT can't drop the work.
+public final class Throughput {
+    private static volatile long sink;
+
+    private Throughput() {
+    }
+
+    // Mean and best time of one operation, work is the amount done per operation in unit (bytes, values...)
+    public record Result(String name, double meanMillis, double bestMillis, double work, String unit) {
+        public double perSecond() {
+            return work / (meanMillis / 1000.0);
+        }
+
+        @Override
+        public String toString() {
+            return "%-36s %10.3f ms/op (best %.3f) %14.2f %s/s".formatted(name, meanMillis, bestMillis, perSecond(),
+                    unit);
+        }
+    }
+
+    public static Result measure(String name, int warmups, int iterations, double work, String unit,
+            LongSupplier operation) {
+        for (int i = 0; i < warmups; i++) {
+            sink += operation.getAsLong();
+        }
+        double[] millis = new double[iterations];
+        for (int i = 0; i < iterations; i++) {
+            long start = System.nanoTime();
+            sink += operation.getAsLong();
+            millis[i] = (System.nanoTime() - start) / 1e6;
+        }
+        var result = new Result(name, Arrays.stream(millis).average().orElse(0),
+                Arrays.stream(millis).min().orElse(0), work, unit);
+        System.out.println(result);
+        return result;
+    }
+
+    // Heap in use after a gc, a rough figure for the footprint of what was built in between two calls
+    public static long usedHeap() {
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        Runtime runtime = Runtime.getRuntime();
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
@@ -0,0 +1,116 @@
+package ccf.domain.standard;
+
+import ccf.domain.standard.Taxonomy.Row;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static ccf.domain.standard.TaxonomyFixtures.row;
+import static ccf.domain.standard.TaxonomyFixtures.rows;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class TreeIntervalsTest {
+
+    private static final RowIndex ROWS = rows(
+            row("revenue", null),
+            row("ads", "revenue"),
+            row("display", "ads"),
+            row("search", "ads"),
+            row("fees", "revenue"),
+            row("costs", null),
+            row("payroll", "costs"));
+
+    @Test
+    public void aSubtreeIsTheRowAndItsDescendantsInTreeOrder() {
+        var intervals = ROWS.intervals();
+        assertEquals(List.of("revenue", "ads", "display", "search", "fees"), intervals.subtree("revenue", null));
+        assertEquals(List.of("ads", "display", "search"), intervals.subtree("ads", null));
+        assertEquals(List.of("payroll"), intervals.subtree("payroll", null));
+        assertEquals(List.of(), intervals.subtree("missing", null));
+        assertEquals(5, intervals.subtreeSize("revenue"));
+        assertEquals(0, intervals.subtreeSize("missing"));
+    }
+
+    @Test
+    public void aDepthLimitSkipsTheLevelsBelowIt() {
+        var intervals = ROWS.intervals();
+        assertEquals(List.of("revenue"), intervals.subtree("revenue", 0));
+        assertEquals(List.of("revenue", "ads", "fees"), intervals.subtree("revenue", 1));
+        assertEquals(List.of("revenue", "ads", "display", "search", "fees"), intervals.subtree("revenue", 2));
+    }
+
+    @Test
+    public void ancestorsRunFromTheRootDownToTheParent() {
+        var intervals = ROWS.intervals();
+        assertEquals(List.of("revenue", "ads"), intervals.ancestors("search"));
+        assertEquals(List.of(), intervals.ancestors("costs"));
+        assertEquals(List.of(), intervals.ancestors("missing"));
+        assertEquals(2, intervals.depth("display"));
+        assertEquals(-1, intervals.depth("missing"));
+    }
+
+    @Test
+    public void ancestryIsAProperIntervalTest() {
+        var intervals = ROWS.intervals();
+        assertTrue(intervals.isAncestor("revenue", "display"));
+        assertTrue(intervals.isAncestor("ads", "search"));
+        assertFalse(intervals.isAncestor("ads", "ads"));
+        assertFalse(intervals.isAncestor("display", "ads"));
+        assertFalse(intervals.isAncestor("ads", "fees"));
+        assertFalse(intervals.isAncestor("revenue", "payroll"));
+        assertFalse(intervals.isAncestor("missing", "payroll"));
+    }
+
+    @Test
+    public void afterPagesThroughTheTour() {
+        var intervals = ROWS.intervals();
+        assertEquals(List.of("revenue", "ads", "display"), intervals.after(null, 3));
+        assertEquals(List.of("search", "fees", "costs"), intervals.after("display", 3));
+        assertEquals(List.of("payroll"), intervals.after("costs", 3));
+        assertEquals(List.of(), intervals.after("payroll", 3));
+        assertEquals(List.of(), intervals.after("missing", 3));
+    }
+
+    @Test
+    public void theIntervalsAreBuiltOncePerIndexAndNotCarriedToUpdates() {
+        var intervals = ROWS.intervals();
+        assertSame(intervals, ROWS.intervals());
+
+        var moved = ROWS.put(row("ads", "costs"));
+        assertNotSame(intervals, moved.intervals());
+        assertEquals(List.of("costs", "payroll", "ads", "display", "search"), moved.intervals().subtree("costs", null));
+        assertTrue(intervals.isAncestor("revenue", "display"));
+        assertFalse(moved.intervals().isAncestor("revenue", "display"));
+    }
+
+    // The interval test and the parent pointer walk RowIndex falls back to before the intervals are built agree
+    @Test
+    public void matchesWalkingParentPointersOnARandomTree() {
+        Random random = new Random(7);
+        List<Row> rows = new ArrayList<>();
+        for (int i = 0; i < 300; i++) {
+            String parent = i < 5 ? null : "r" + random.nextInt(i);
+            rows.add(row("r" + i, parent));
+        }
+        RowIndex walked = rows(rows.toArray(Row[]::new));
+        RowIndex indexed = rows(rows.toArray(Row[]::new));
+        TreeIntervals intervals = indexed.intervals();
+        for (int a = 0; a < 300; a += 3) {
+            for (int r = 0; r < 300; r += 2) {
+                String ancestor = "r" + a;
+                String rowId = "r" + r;
+                assertEquals(walked.isAncestor(ancestor, rowId), intervals.isAncestor(ancestor, rowId),
+                        ancestor + " of " + rowId);
+            }
+        }
+        assertEquals(300, intervals.subtree("r0", null).size() + intervals.subtree("r1", null).size()
+                + intervals.subtree("r2", null).size() + intervals.subtree("r3", null).size()
+                + intervals.subtree("r4", null).size());
+    }
+}
@@ -0,0 +1,65 @@
+package ccf.domain.standard;
+
+import ccf.domain.standard.Taxonomy.RowMatch;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static ccf.domain.standard.TaxonomyFixtures.compiled;
+import static ccf.domain.standard.TaxonomyFixtures.row;
+import static ccf.domain.standard.TaxonomyFixtures.rows;
+import static ccf.domain.standard.TaxonomyFixtures.withAliases;
+import static ccf.domain.standard.TaxonomyFixtures.withKeywords;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class TrigramIndexTest {
+
+    private static final CompiledTaxonomy TAXONOMY = compiled("t1", rows(
+            withAliases(row("revenue", "Revenue", null), "Sales", "Turnover"),
+            row("ads", "Advertising Revenue", "revenue"),
+            withKeywords(row("fees", "Fees", "revenue"), "commission"),
+            row("costs", "Operating Costs", null)));
+
+    private static List<RowMatch> match(String label, int limit, double minScore) {
+        return TAXONOMY.trigrams().match(label, limit, minScore);
+    }
+
+    @Test
+    public void anExactLabelScoresOne() {
+        var matches = match("Operating Costs", 3, 0.3);
+        assertEquals(1, matches.size());
+        assertEquals(new RowMatch("costs", "Operating Costs", "Operating Costs", "value", 1.0), matches.get(0));
+    }
+
+    // "revenue" shares all of its trigrams with both rows, the shorter label scores higher
+    @Test
+    public void similarityIsSharedOverAllTrigrams() {
+        var matches = match("revenue", 3, 0.3);
+        assertEquals(List.of("revenue", "ads"), matches.stream().map(RowMatch::rowId).toList());
+        assertEquals(1.0, matches.get(0).score());
+        double shared = TrigramIndex.trigrams("revenue").length;
+        double expected = shared / TrigramIndex.trigrams("Advertising Revenue").length;
+        assertEquals(expected, matches.get(1).score(), 1e-9);
+    }
+
+    @Test
+    public void aliasesAndKeywordsMatchWithTheValueOfTheirRow() {
+        assertEquals(new RowMatch("revenue", "Revenue", "Turnover", "alias", 1.0), match("turnover", 1, 0.3).get(0));
+        assertEquals(new RowMatch("fees", "Fees", "commission", "keyword", 1.0), match("Commission", 1, 0.3).get(0));
+    }
+
+    @Test
+    public void limitAndMinScoreCutTheMatches() {
+        assertEquals(1, match("revenue", 1, 0.0).size());
+        assertTrue(match("revenue", 3, 0.99).stream().allMatch(m -> m.score() >= 0.99));
+        assertEquals(List.of(), match("zzz", 3, 0.3));
+        assertEquals(List.of(), match("  ", 3, 0.0));
+    }
+
+    @Test
+    public void theIndexIsBuiltOncePerCompiledTaxonomy() {
+        assertSame(TAXONOMY.trigrams(), TAXONOMY.trigrams());
+    }
+}
@@ -0,0 +1,84 @@
+package ccf.util.collection;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class PersistentHashMapTest {
+
+    @Test
+    public void plusAndMinusLeaveEarlierVersionsUnchanged() {
+        PersistentHashMap<String, Integer> empty = PersistentHashMap.empty();
+        var one = empty.plus("a", 1);
+        var two = one.plus("b", 2);
+        var replaced = two.plus("a", 10);
+        var removed = replaced.minus("b");
+
+        assertTrue(empty.isEmpty());
+        assertEquals(1, one.size());
+        assertEquals(1, one.get("a"));
+        assertNull(one.get("b"));
+        assertEquals(2, two.size());
+        assertEquals(1, two.get("a"));
+        assertEquals(2, replaced.size());
+        assertEquals(10, replaced.get("a"));
+        assertEquals(1, removed.size());
+        assertFalse(removed.containsKey("b"));
+        assertEquals(2, replaced.get("b"));
+    }
+
+    @Test
+    public void removingAMissingKeyReturnsTheSameMap() {
+        var map = PersistentHashMap.<String, Integer>empty().plus("a", 1);
+        assertSame(map, map.minus("b"));
+        assertSame(map, map.minus(null));
+    }
+
+    @Test
+    public void keysWithTheSameHashCodeAreKeptApart() {
+        // "Aa" and "BB" have the same String hashCode
+        var map = PersistentHashMap.<String, String>empty().plus("Aa", "first").plus("BB", "second");
+        assertEquals(2, map.size());
+        assertEquals("first", map.get("Aa"));
+        assertEquals("second", map.get("BB"));
+
+        var withoutFirst = map.minus("Aa");
+        assertEquals(1, withoutFirst.size());
+        assertNull(withoutFirst.get("Aa"));
+        assertEquals("second", withoutFirst.get("BB"));
+        assertEquals("first", map.get("Aa"));
+    }
+
+    @Test
+    public void matchesAHashMapOverRandomUpdates() {
+        Random random = new Random(42);
+        Map<Integer, Integer> expected = new HashMap<>();
+        PersistentHashMap<Integer, Integer> map = PersistentHashMap.empty();
+        for (int i = 0; i < 20_000; i++) {
+            int key = random.nextInt(5_000);
+            if (random.nextInt(3) == 0) {
+                expected.remove(key);
+                map = map.minus(key);
+            } else {
+                expected.put(key, i);
+                map = map.plus(key, i);
+            }
+        }
+        assertEquals(expected.size(), map.size());
+        assertEquals(expected.size(), map.values().size());
+        Map<Integer, Integer> actual = new HashMap<>();
+        map.forEach(actual::put);
+        assertEquals(expected, actual);
+        for (int key = 0; key < 5_000; key++) {
+            assertEquals(expected.get(key), map.get(key));
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package ccf.util.collection;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class PersistentVectorTest {
+
+    @Test
+    public void appendsAcrossTrieLevelsAndKeepsEarlierVersions() {
+        PersistentVector<Integer> vector = PersistentVector.empty();
+        List<PersistentVector<Integer>> versions = new ArrayList<>();
+        // Past 32, 32 * 32 + 32 and 32 * 32 * 32 + 32 elements the trie grows a level
+        for (int i = 0; i < 40_000; i++) {
+            vector = vector.plus(i);
+            if (i % 997 == 0) {
+                versions.add(vector);
+            }
+        }
+        assertEquals(40_000, vector.size());
+        for (int i = 0; i < vector.size(); i++) {
+            assertEquals(i, vector.get(i));
+        }
+        for (PersistentVector<Integer> version : versions) {
+            assertEquals(version.size() - 1, version.get(version.size() - 1));
+        }
+        assertThrows(IndexOutOfBoundsException.class, () -> versions.get(0).get(1));
+    }
+
+    @Test
+    public void plusAllMatchesPlusOneByOne() {
+        List<Integer> elements = new ArrayList<>();
+        for (int i = 0; i < 5_000; i++) {
+            elements.add(i);
+        }
+        for (int start : new int[] {0, 1, 31, 32, 33, 1_056}) {
+            PersistentVector<Integer> prefix = PersistentVector.of(elements.subList(0, start));
+            PersistentVector<Integer> one = prefix;
+            for (Integer element : elements.subList(start, elements.size())) {
+                one = one.plus(element);
+            }
+            assertEquals(one, prefix.plusAll(elements.subList(start, elements.size())));
+            assertEquals(elements, one);
+        }
+    }
+
+    @Test
+    public void withoutDropsTheFirstOccurrence() {
+        PersistentVector<String> vector = PersistentVector.of(List.of("a", "b", "c", "b"));
+        assertEquals(List.of("a", "c", "b"), vector.without("b"));
+        assertSame(vector, vector.without("z"));
+        assertEquals(List.of("a", "b", "c", "b"), vector);
+        assertEquals(List.of("a", "b", "c", "b").hashCode(), vector.hashCode());
+        assertThrows(UnsupportedOperationException.class, () -> vector.add("d"));
+    }
+}